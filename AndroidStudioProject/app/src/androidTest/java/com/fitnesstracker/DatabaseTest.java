@@ -30,7 +30,9 @@ public class DatabaseTest {
 	@Before
 	public void createDB() {
 		Context context = ApplicationProvider.getApplicationContext();
-		db = Room.inMemoryDatabaseBuilder(context, FTDatabase.class).build();
+		db = Room.inMemoryDatabaseBuilder(context, FTDatabase.class)
+				.addCallback(FTDatabase.CALLBACK)
+				.build();
 	}
 
 	@Test
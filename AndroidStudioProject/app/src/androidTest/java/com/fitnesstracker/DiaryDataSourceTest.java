@@ -0,0 +1,168 @@
+package com.fitnesstracker;
+
+import androidx.paging.PagedList;
+
+import com.fitnesstracker.database.DiaryDataSource;
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.ui.adapters.DayHeaderRow;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+import com.fitnesstracker.ui.adapters.MealRow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link DiaryDataSource} puts exactly one header before the
+ * newest meal of each day, with the day's totals from the <code>daily_nutrition</code> rollup, no
+ * matter where the pages of the diary start and end.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class DiaryDataSourceTest extends DatabaseTest {
+
+	/**
+	 * Midnight UTC on January 1st 2020, plus half a day so that every test time falls on the same
+	 * local day regardless of the device's time zone.
+	 */
+	private static final long DAY_ONE = 1577880000000L;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	private static final int NUM_DAYS = 5;
+	private static final int MEALS_PER_DAY = 3;
+
+	/**
+	 * A page size that does not divide the number of rows in a day, so that pages start and end
+	 * at every position within a day.
+	 */
+	private static final int PAGE_SIZE = 4;
+
+	private FoodDiaryEntryDao mealDao;
+	private NutritionRollupDao rollupDao;
+
+	@Before
+	public void setup() {
+		FoodDao foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		rollupDao = db.getNutritionRollupDao();
+
+		Food apple = new Food("apple", "g", 100d, Food.NutritionInfo.makeRandom(0));
+		Food bread = new Food("bread", "g", 30d, Food.NutritionInfo.makeRandom(1));
+		foodDao.insert(apple, bread);
+
+		List<FoodDiaryEntry> entries = new ArrayList<>();
+		for (int day = 0; day < NUM_DAYS; day++) {
+			for (int meal = 0; meal < MEALS_PER_DAY; meal++) {
+				entries.add(new FoodDiaryEntry(meal % 2 == 0 ? apple : bread, meal + 1,
+						DAY_ONE + day * ONE_DAY + meal * 60_000L));
+			}
+		}
+
+		// Two meals at the same time are ordered by ID
+		entries.add(new FoodDiaryEntry(apple, 1, DAY_ONE + 2 * ONE_DAY));
+		mealDao.insert(entries);
+	}
+
+	@Test
+	public void diaryTest_LoadFromStart() {
+		PagedList<DiaryRow> rows = makePagedList(null);
+		loadAll(rows);
+		assertRows(rows);
+	}
+
+	@Test
+	public void diaryTest_LoadFromMiddle() {
+		List<Meal> meals = mealDao.getNewestMeals(Integer.MAX_VALUE);
+
+		// Start both at a day's newest meal, which has a header before it, and at other meals
+		for (Meal meal : meals) {
+			PagedList<DiaryRow> rows = makePagedList(new DiaryDataSource.Key(meal, false));
+			loadAll(rows);
+			assertRows(rows);
+		}
+	}
+
+	@Test
+	public void diaryTest_Empty() {
+		mealDao.deleteAll();
+		PagedList<DiaryRow> rows = makePagedList(null);
+		loadAll(rows);
+		assertTrue(rows.isEmpty());
+	}
+
+	/**
+	 * Make a list of diary rows that loads pages on the calling thread.
+	 *
+	 * @param initialKey the key to start loading from, or null to start from the newest meal
+	 *
+	 * @return the list, which has loaded its first page
+	 */
+	private PagedList<DiaryRow> makePagedList(DiaryDataSource.Key initialKey) {
+		PagedList.Config config = new PagedList.Config.Builder()
+				.setPageSize(PAGE_SIZE)
+				.setInitialLoadSizeHint(PAGE_SIZE)
+				.setPrefetchDistance(1)
+				.setEnablePlaceholders(false)
+				.build();
+		return new PagedList.Builder<>(new DiaryDataSource(db), config)
+				.setInitialKey(initialKey)
+				.setNotifyExecutor(Runnable::run)
+				.setFetchExecutor(Runnable::run)
+				.build();
+	}
+
+	/**
+	 * Load every page before and after those already loaded.
+	 *
+	 * @param rows the list to load pages into
+	 */
+	private static void loadAll(PagedList<DiaryRow> rows) {
+		int size = -1;
+		while (size != rows.size()) {
+			size = rows.size();
+			if (size > 0) {
+				rows.loadAround(0);
+				rows.loadAround(rows.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * Assert that a fully loaded list holds every meal, newest first, with a single header with
+	 * the day's totals before the newest meal of each day.
+	 *
+	 * @param rows the list of rows
+	 */
+	private void assertRows(List<DiaryRow> rows) {
+		List<Meal> meals = mealDao.getNewestMeals(Integer.MAX_VALUE);
+		assertEquals(NUM_DAYS * MEALS_PER_DAY + 1, meals.size());
+		assertEquals(meals.size() + NUM_DAYS, rows.size());
+
+		int position = 0;
+		long day = Long.MIN_VALUE;
+		for (Meal meal : meals) {
+			if (meal.getFoodDiaryEntry().getDay() != day) {
+				day = meal.getFoodDiaryEntry().getDay();
+				DiaryRow row = rows.get(position++);
+				assertTrue("Expected a header at " + (position - 1), row instanceof DayHeaderRow);
+				DayHeaderRow header = (DayHeaderRow) row;
+				assertEquals(day, header.getDay());
+				assertEquals(meal, header.getFirstMeal());
+				assertEquals(rollupDao.get(day).getNutritionInfo(), header.getTotals());
+			}
+			DiaryRow row = rows.get(position++);
+			assertTrue("Expected a meal at " + (position - 1), row instanceof MealRow);
+			assertEquals(meal, ((MealRow) row).getMeal());
+		}
+	}
+}
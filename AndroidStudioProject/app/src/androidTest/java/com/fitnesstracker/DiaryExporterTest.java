@@ -0,0 +1,202 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.io.CsvReader;
+import com.fitnesstracker.database.io.DiaryExporter;
+import com.fitnesstracker.database.io.FoodImporter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link DiaryExporter} writes every meal in a range exactly
+ * once, oldest first, in files that {@link CsvReader} and {@link FoodImporter} can read back.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class DiaryExporterTest extends DatabaseTest {
+
+	/**
+	 * Midnight UTC on January 1st 2020, plus half a day so that every test time falls on the same
+	 * local day regardless of the device's time zone.
+	 */
+	private static final long DAY_ONE = 1577880000000L;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	private static final int NUM_DAYS = 4;
+	private static final int MEALS_PER_DAY = 3;
+
+	/**
+	 * A chunk size that does not divide the number of meals, so that chunks end at every position
+	 * within a day and between meals at the same time.
+	 */
+	private static final int CHUNK_SIZE = 2;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private List<Food> foods;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+
+		// Names that need quoting or escaping, and characters outside of ASCII
+		foods = new ArrayList<>();
+		foods.add(new Food("Milk, whole", "cup", 1d, Food.NutritionInfo.makeRandom(0)));
+		foods.add(new Food("Say \"cheese\"\nplease", "slice", 0.5, Food.NutritionInfo.makeRandom(1)));
+		foods.add(new Food("Cr\u00e8me br\u00fbl\u00e9e \uD83C\uDF70", "g", 100d, Food.NutritionInfo.makeRandom(2)));
+		foodDao.insert(foods);
+
+		List<FoodDiaryEntry> entries = new ArrayList<>();
+		for (int day = 0; day < NUM_DAYS; day++) {
+			for (int meal = 0; meal < MEALS_PER_DAY; meal++) {
+				entries.add(new FoodDiaryEntry(foods.get(meal), meal + 0.5,
+						DAY_ONE + day * ONE_DAY + meal * 60_000L));
+			}
+		}
+
+		// Meals at the same time are ordered by ID
+		entries.add(new FoodDiaryEntry(foods.get(0), 1, DAY_ONE + ONE_DAY));
+		entries.add(new FoodDiaryEntry(foods.get(1), 1, DAY_ONE + ONE_DAY));
+		mealDao.insert(entries);
+	}
+
+	@Test
+	public void exportTest_Csv() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DiaryExporter exporter = new DiaryExporter(db, CHUNK_SIZE);
+		long count = exporter.export(out, FoodImporter.Format.CSV);
+		assertEquals(out.size(), exporter.getBytesWritten());
+
+		List<Meal> meals = getMealsOldestFirst();
+		assertEquals(meals.size(), count);
+
+		CsvReader reader = new CsvReader(new ByteArrayInputStream(out.toByteArray()));
+		List<String> values = new ArrayList<>();
+		assertTrue(reader.readRecord(values));
+		assertEquals("entry_id", values.get(0));
+		assertEquals(Nutrient.POTASSIUM.getColumnName(), values.get(values.size() - 1));
+
+		for (Meal meal : meals) {
+			assertTrue(reader.readRecord(values));
+			FoodDiaryEntry entry = meal.getFoodDiaryEntry();
+			Food food = meal.getFood();
+			assertEquals(String.valueOf(entry.getId()), values.get(0));
+			assertEquals(LocalDate.ofEpochDay(entry.getDay()).toString(), values.get(1));
+			assertEquals(String.valueOf(entry.getTime()), values.get(2));
+			assertEquals(entry.getNumServings(), Double.parseDouble(values.get(3)), 0);
+			assertEquals(String.valueOf(food.getId()), values.get(4));
+			assertEquals(food.getName(), values.get(5));
+			assertEquals(food.getServingSize(), Double.parseDouble(values.get(6)), 0);
+			assertEquals(food.getServingUnit(), values.get(7));
+			for (Nutrient nutrient : Nutrient.values()) {
+				assertEquals(String.valueOf(nutrient.get(food.getNutritionInfo())),
+						values.get(8 + nutrient.ordinal()));
+			}
+		}
+		assertFalse(reader.readRecord(values));
+	}
+
+	@Test
+	public void exportTest_JsonLines() throws IOException, JSONException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long count = new DiaryExporter(db, CHUNK_SIZE).export(out, FoodImporter.Format.JSON_LINES);
+
+		List<Meal> meals = getMealsOldestFirst();
+		assertEquals(meals.size(), count);
+
+		CsvReader reader = new CsvReader(new ByteArrayInputStream(out.toByteArray()));
+		for (Meal meal : meals) {
+			JSONObject object = new JSONObject(reader.readLine());
+			assertEquals(meal.getFoodDiaryEntry().getId(), object.getLong("entry_id"));
+			assertEquals(meal.getFoodDiaryEntry().getNumServings(), object.getDouble("num_servings"), 0);
+			assertEquals(meal.getFood().getName(), object.getString("name"));
+			assertEquals(meal.getFood().getNutritionInfo().protein, object.getInt("protein"));
+		}
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void exportTest_DayRange() throws IOException {
+		long fromDay = FoodDiaryEntry.toLocalDay(DAY_ONE + ONE_DAY);
+		long toDay = FoodDiaryEntry.toLocalDay(DAY_ONE + 2 * ONE_DAY);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long count = new DiaryExporter(db, CHUNK_SIZE).export(out, FoodImporter.Format.CSV,
+				fromDay, toDay);
+		assertEquals(mealDao.getMealsBetween(fromDay, toDay).size(), count);
+		assertEquals(2 * MEALS_PER_DAY + 2, count);
+
+		// A range without meals still has a header
+		out.reset();
+		assertEquals(0, new DiaryExporter(db).export(out, FoodImporter.Format.CSV,
+				toDay + 100, toDay + 200));
+		CsvReader reader = new CsvReader(new ByteArrayInputStream(out.toByteArray()));
+		assertTrue(reader.readRecord(new ArrayList<String>()));
+		assertFalse(reader.readRecord(new ArrayList<String>()));
+	}
+
+	@Test
+	public void exportTest_ReimportsFoods() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DiaryExporter(db).export(out, FoodImporter.Format.CSV);
+
+		db.clearAllTables();
+		byte[] bytes = out.toByteArray();
+		FoodImporter.Progress progress = new FoodImporter(db).importFoods("diary.csv",
+				new ByteArrayInputStream(bytes), bytes.length, FoodImporter.Format.CSV, null);
+		assertEquals(FoodImporter.Progress.State.FINISHED, progress.getState());
+		assertEquals(0, progress.getRejected());
+
+		for (Food food : foods) {
+			assertEquals(food, foodDao.get(food.getId()));
+		}
+		assertEquals(foods.size(), (int) foodDao.getCount());
+	}
+
+	@Test(expected = InterruptedIOException.class)
+	public void exportTest_Cancelled_Throws() throws IOException {
+		DiaryExporter exporter = new DiaryExporter(db);
+		exporter.cancel();
+		exporter.export(new ByteArrayOutputStream(), FoodImporter.Format.CSV);
+	}
+
+	/**
+	 * Get every meal in the order they are exported.
+	 *
+	 * @return the meals ordered by time and then by ID
+	 */
+	private List<Meal> getMealsOldestFirst() {
+		List<Meal> meals = mealDao.getAllMeals();
+		Collections.sort(meals, new Comparator<Meal>() {
+			@Override public int compare(Meal a, Meal b) {
+				int compare = Long.compare(a.getFoodDiaryEntry().getTime(), b.getFoodDiaryEntry().getTime());
+				return compare != 0
+						? compare
+						: Long.compare(a.getFoodDiaryEntry().getId(), b.getFoodDiaryEntry().getId());
+			}
+		});
+		return meals;
+	}
+}
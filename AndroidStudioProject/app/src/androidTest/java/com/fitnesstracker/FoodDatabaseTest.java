@@ -105,4 +105,37 @@ public class FoodDatabaseTest extends DatabaseTest {
 			Assert.assertTrue(dbFoods.containsAll(entry.getValue()));
 		}
 	}
+
+	@Test
+	public void foodTest_Search() {
+		// Clear DB before starting
+		db.clearAllTables();
+
+		Food apple = new Food("Apple", "grams", 100d);
+		Food grannySmith = new Food("Granny Smith Apple", "grams", 100d);
+		Food pie = new Food("Apple Pie", "slices", 1d);
+		Food pineapple = new Food("Pineapple", "grams", 100d);
+		foodDao.insert(apple, grannySmith, pie, pineapple);
+
+		// Assert that names starting with the query come first, then shorter names
+		Assert.assertEquals(Arrays.asList(apple, pie, grannySmith), foodDao.search("app", 10));
+
+		// Assert that every word must match the start of a word in the name
+		Assert.assertEquals(Arrays.asList(grannySmith), foodDao.search("gran APP", 10));
+		Assert.assertEquals(Arrays.asList(pineapple), foodDao.search("pine", 10));
+
+		// Assert that punctuation and operators are ignored rather than breaking the query
+		Assert.assertEquals(Arrays.asList(pie), foodDao.search("\"apple\" -pie*", 10));
+		Assert.assertTrue(foodDao.search("apple OR pineapple", 10).isEmpty());
+		Assert.assertTrue(foodDao.search("***", 10).isEmpty());
+
+		// Assert that the index follows renamed and deleted foods
+		pie.setName("Cherry Pie");
+		foodDao.update(pie);
+		foodDao.delete(apple);
+		Assert.assertEquals(Arrays.asList(grannySmith), foodDao.search("app", 10));
+		Assert.assertEquals(Arrays.asList(pie), foodDao.search("cher", 10));
+
+		Assert.assertEquals(1, foodDao.search("a", 1).size());
+	}
 }
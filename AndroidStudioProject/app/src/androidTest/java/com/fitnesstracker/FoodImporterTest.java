@@ -0,0 +1,226 @@
+package com.fitnesstracker;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.ImportCheckpoint;
+import com.fitnesstracker.database.io.FoodImporter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link FoodImporter} maps files onto foods, commits them in
+ * batches, and resumes interrupted imports without importing any food twice.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class FoodImporterTest extends DatabaseTest {
+
+	private static final String SOURCE = "test.csv";
+
+	private static final int BATCH_SIZE = 10;
+
+	private FoodDao foodDao;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+	}
+
+	@Test
+	public void importTest_MapsColumns() {
+		String csv = "FDC ID,Description,Energy (kcal),Protein (g),Total lipid (fat) (g),\"Sodium, Na (mg)\",Notes\n" +
+				"1001,\"Milk, whole\",61,3.15,3.25,43,ignored\n" +
+				"1002,Bread,265.4,9,3.2,,\n";
+		FoodImporter.Progress progress = importCsv(new FoodImporter(db), csv, null);
+
+		assertEquals(FoodImporter.Progress.State.FINISHED, progress.getState());
+		assertEquals(2, progress.getImported());
+		assertEquals(0, progress.getRejected());
+
+		Food milk = foodDao.get(1001);
+		assertNotNull(milk);
+		assertEquals("Milk, whole", milk.getName());
+		assertEquals(FoodImporter.DEFAULT_SERVING_SIZE, milk.getServingSize(), 0);
+		assertEquals(FoodImporter.DEFAULT_SERVING_UNIT, milk.getServingUnit());
+		assertEquals(61, milk.getNutritionInfo().calories);
+		assertEquals(3, milk.getNutritionInfo().protein);
+		assertEquals(3, milk.getNutritionInfo().totalFat);
+		assertEquals(43, milk.getNutritionInfo().sodium);
+
+		Food bread = foodDao.get(1002);
+		assertNotNull(bread);
+		assertEquals(265, bread.getNutritionInfo().calories);
+		assertEquals(0, bread.getNutritionInfo().sodium);
+
+		// The foods can be searched for
+		assertEquals(1, foodDao.search("milk", 10).size());
+	}
+
+	@Test
+	public void importTest_RejectsInvalidRecords() {
+		String csv = "name,calories,serving_size\n" +
+				"good,100,1\n" +
+				",100,1\n" +
+				"negative,-5,1\n" +
+				"not a number,lots,1\n" +
+				"bad serving,100,NaN\n" +
+				"also good,,\n";
+		FoodImporter.Progress progress = importCsv(new FoodImporter(db), csv, null);
+
+		assertEquals(FoodImporter.Progress.State.FINISHED, progress.getState());
+		assertEquals(6, progress.getRecords());
+		assertEquals(2, progress.getImported());
+		assertEquals(4, progress.getRejected());
+		assertEquals(2, (int) foodDao.getCount());
+	}
+
+	@Test
+	public void importTest_JsonLines() {
+		String jsonLines = "{\"name\": \"Apple\", \"calories\": 52, \"serving_size\": 1, \"serving_unit\": \"apple\"}\n" +
+				"not json\n" +
+				"{\"name\": \"Egg\", \"nutrition_protein\": 6, \"extra\": {\"nested\": true}}\n";
+		FoodImporter.Progress progress = new FoodImporter(db).importFoods("test.jsonl",
+				stream(jsonLines), jsonLines.length(), FoodImporter.Format.JSON_LINES, null);
+
+		assertEquals(FoodImporter.Progress.State.FINISHED, progress.getState());
+		assertEquals(2, progress.getImported());
+		assertEquals(1, progress.getRejected());
+
+		List<Food> apples = foodDao.get("Apple");
+		assertEquals(1, apples.size());
+		assertEquals("apple", apples.get(0).getServingUnit());
+		assertEquals(52, apples.get(0).getNutritionInfo().calories);
+		assertEquals(6, foodDao.get("Egg").get(0).getNutritionInfo().protein);
+	}
+
+	@Test
+	public void importTest_CancelAndResume() {
+		String csv = makeCsv(95);
+
+		// Cancel after the third batch, then import the rest of the file
+		final FoodImporter importer = new FoodImporter(db, BATCH_SIZE);
+		FoodImporter.Progress cancelled = importCsv(importer, csv, new FoodImporter.ProgressListener() {
+			@Override public void onProgress(@NonNull FoodImporter.Progress progress) {
+				if (progress.getRecords() == 3 * BATCH_SIZE) {
+					importer.cancel();
+				}
+			}
+		});
+		assertEquals(FoodImporter.Progress.State.CANCELLED, cancelled.getState());
+		assertEquals(3 * BATCH_SIZE, cancelled.getRecords());
+		assertEquals(3 * BATCH_SIZE, (int) foodDao.getCount());
+		assertNotNull(db.getImportCheckpointDao().get(SOURCE));
+
+		FoodImporter.Progress resumed = importCsv(new FoodImporter(db, BATCH_SIZE), csv, null);
+		assertEquals(FoodImporter.Progress.State.FINISHED, resumed.getState());
+		assertTrue(resumed.isResumed());
+		assertEquals(95, resumed.getImported());
+		assertNull(db.getImportCheckpointDao().get(SOURCE));
+
+		// Every food was imported exactly once
+		assertAllImported(95);
+	}
+
+	@Test
+	public void importTest_ReadFails_ResumesAfterLastBatch() {
+		String csv = makeCsv(50);
+		final byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+
+		// Fail partway through the file, as if the file were on storage that was removed
+		InputStream failing = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+			private int read;
+
+			@Override public int read(byte[] b, int off, int len) throws IOException {
+				if (read > bytes.length / 2) {
+					throw new IOException("Storage removed");
+				}
+				int n = super.read(b, off, Math.min(len, 64));
+				read += n;
+				return n;
+			}
+		};
+		FoodImporter.Progress failed = new FoodImporter(db, BATCH_SIZE).importFoods(SOURCE,
+				failing, bytes.length, FoodImporter.Format.CSV, null);
+		assertEquals(FoodImporter.Progress.State.FAILED, failed.getState());
+		assertNotNull(failed.getError());
+		assertEquals(0, failed.getRecords() % BATCH_SIZE);
+		assertEquals(failed.getImported(), foodDao.getCount().longValue());
+
+		FoodImporter.Progress resumed = importCsv(new FoodImporter(db, BATCH_SIZE), csv, null);
+		assertEquals(FoodImporter.Progress.State.FINISHED, resumed.getState());
+		assertAllImported(50);
+	}
+
+	@Test
+	public void importTest_ChangedFile_StartsOver() {
+		db.getImportCheckpointDao().save(new ImportCheckpoint(SOURCE, 1, 1, 1, 1));
+
+		String csv = makeCsv(20);
+		FoodImporter.Progress progress = importCsv(new FoodImporter(db, BATCH_SIZE), csv, null);
+		assertFalse(progress.isResumed());
+		assertAllImported(20);
+
+		// Importing the same foods again updates them rather than adding them twice
+		importCsv(new FoodImporter(db, BATCH_SIZE), csv, null);
+		assertAllImported(20);
+	}
+
+	/**
+	 * Make a CSV file of foods with IDs from 1 and with the IDs in their names.
+	 *
+	 * @param count the number of foods
+	 *
+	 * @return the contents of the file
+	 */
+	private static String makeCsv(int count) {
+		StringBuilder csv = new StringBuilder("id,name,calories\n");
+		for (int i = 1; i <= count; i++) {
+			csv.append(i).append(",food ").append(i).append(',').append(i).append('\n');
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Assert that every food of a file made by {@link FoodImporterTest#makeCsv(int)} was imported
+	 * exactly once.
+	 *
+	 * @param count the number of foods in the file
+	 */
+	private void assertAllImported(int count) {
+		List<Food> foods = foodDao.getAll();
+		assertEquals(count, foods.size());
+		Set<Long> ids = new HashSet<>();
+		for (Food food : foods) {
+			assertEquals("food " + food.getId(), food.getName());
+			assertTrue(ids.add(food.getId()));
+		}
+	}
+
+	/**
+	 * Import a CSV file named {@link FoodImporterTest#SOURCE}.
+	 */
+	private static FoodImporter.Progress importCsv(FoodImporter importer, String csv,
+	                                               FoodImporter.ProgressListener listener) {
+		byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+		return importer.importFoods(SOURCE, new ByteArrayInputStream(bytes), bytes.length,
+				FoodImporter.Format.CSV, listener);
+	}
+
+	private static InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
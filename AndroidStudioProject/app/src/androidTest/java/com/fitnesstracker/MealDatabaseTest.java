@@ -10,12 +10,19 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 public class MealDatabaseTest extends DatabaseTest {
 
+	/**
+	 * One day plus an hour in milliseconds, so that times 0 and ONE_DAY fall on different local
+	 * days in any time zone.
+	 */
+	private static final long ONE_DAY = 25 * 60 * 60 * 1000L;
+
 	private FoodDao foodDao;
 	private FoodDiaryEntryDao mealDao;
 
@@ -71,4 +78,167 @@ public class MealDatabaseTest extends DatabaseTest {
 		assertEquals(FOOD_DIARY_ENTRIES.size(), dbDiaryEntries.size());
 		assertTrue(dbDiaryEntries.containsAll(FOOD_DIARY_ENTRIES));
 	}
+
+	@Test
+	public void mealTest_Meals_Hydrated() {
+		db.clearAllTables();
+
+		foodDao.insert(FOODS);
+		mealDao.insert(FOOD_DIARY_ENTRIES);
+
+		List<Meal> meals = mealDao.getAllMeals();
+
+		// Assert that every meal was joined with the food its diary entry refers to
+		assertEquals(FOOD_DIARY_ENTRIES.size(), meals.size());
+		for (Meal meal : meals) {
+			assertTrue(FOOD_DIARY_ENTRIES.contains(meal.getFoodDiaryEntry()));
+			assertEquals(foodDao.get(meal.getFoodDiaryEntry().getFoodId()), meal.getFood());
+			assertEquals(meal, mealDao.getMeal(meal.getFoodDiaryEntry().getId()));
+		}
+	}
+
+	@Test
+	public void mealTest_Keyset_Paging() {
+		db.clearAllTables();
+
+		foodDao.insert(FOODS);
+		mealDao.insert(FOOD_DIARY_ENTRIES);
+
+		// Walk through the diary two meals at a time
+		List<Meal> paged = new ArrayList<>(mealDao.getNewestMeals(2));
+		List<Meal> page = paged;
+		while (page.size() == 2) {
+			FoodDiaryEntry last = paged.get(paged.size() - 1).getFoodDiaryEntry();
+			page = mealDao.getOlderMeals(last.getTime(), last.getId(), 2);
+			paged.addAll(page);
+		}
+
+		// Assert that every meal was visited exactly once, newest first
+		assertEquals(FOOD_DIARY_ENTRIES.size(), paged.size());
+		for (int i = 1; i < paged.size(); i++) {
+			FoodDiaryEntry newer = paged.get(i - 1).getFoodDiaryEntry();
+			FoodDiaryEntry older = paged.get(i).getFoodDiaryEntry();
+			assertTrue(newer.getTime() > older.getTime()
+					|| (newer.getTime() == older.getTime() && newer.getId() > older.getId()));
+		}
+
+		// Assert that paging backwards from the oldest meal yields the rest of the diary
+		FoodDiaryEntry oldest = paged.get(paged.size() - 1).getFoodDiaryEntry();
+		assertEquals(paged.size() - 1,
+				mealDao.getNewerMeals(oldest.getTime(), oldest.getId(), paged.size()).size());
+	}
+
+	@Test
+	public void mealTest_Meals_ShareCachedFoods() {
+		db.clearAllTables();
+
+		Food food = new Food("apple", "grams", 100d, Food.NutritionInfo.makeRandom(0));
+		foodDao.insert(food);
+		mealDao.insert(new FoodDiaryEntry(food, 1, 0), new FoodDiaryEntry(food, 2, ONE_DAY));
+		// Deliver the invalidations of the inserts now, so that they cannot clear the cache
+		// between the queries below
+		db.getInvalidationTracker().refreshVersionsSync();
+
+		// Assert that meals of the same food share one food object, within and across queries
+		List<Meal> meals = mealDao.getAllMeals();
+		assertSame(meals.get(0).getFood(), meals.get(1).getFood());
+		assertSame(meals.get(0).getFood(), mealDao.getAllMeals().get(0).getFood());
+		assertEquals(food, meals.get(0).getFood());
+
+		// Assert that a change to the food is read straight away, without waiting for the cache
+		// to be invalidated
+		food.setName("green apple");
+		foodDao.update(food);
+		for (Meal meal : mealDao.getAllMeals()) {
+			assertEquals(food, meal.getFood());
+		}
+		assertTrue(db.getFoodCache().getHits() > 0);
+	}
+
+	@Test
+	public void mealTest_Insert_FoodAndEntry_Atomic() {
+		db.clearAllTables();
+
+		Food food = new Food("apple", "grams", 100d);
+		FoodDiaryEntry entry = new FoodDiaryEntry(food, 1, 0);
+		mealDao.insert(food, entry);
+		assertEquals(new Meal(entry, food), mealDao.getMeal(entry.getId()));
+
+		// Assert that a failed entry insert also rolls back the food insert
+		Food other = new Food("pear", "grams", 100d);
+		try {
+			mealDao.insert(other, entry);
+			fail("Inserting a duplicate entry should fail");
+		} catch (RuntimeException expected) {
+			// Expected
+		}
+		assertNull(foodDao.get(other.getId()));
+	}
+
+	@Test
+	public void mealTest_Update_ManyMeals() {
+		db.clearAllTables();
+
+		foodDao.insert(FOODS);
+		mealDao.insert(FOOD_DIARY_ENTRIES);
+
+		List<Meal> meals = mealDao.getAllMeals();
+		for (Meal meal : meals) {
+			meal.getFoodDiaryEntry().setNumServings(meal.getFoodDiaryEntry().getNumServings() + 1);
+		}
+		assertEquals(meals.size(), mealDao.update(meals.toArray(new Meal[0])));
+
+		for (Meal meal : meals) {
+			assertEquals(meal.getFoodDiaryEntry(), mealDao.get(meal.getFoodDiaryEntry().getId()));
+		}
+	}
+
+	@Test
+	public void mealTest_Meals_KeepStoredDay() {
+		db.clearAllTables();
+
+		foodDao.insert(FOODS);
+		FoodDiaryEntry entry = new FoodDiaryEntry(FOODS.get(0), 1, ONE_DAY);
+		mealDao.insert(entry);
+
+		// As if the entry had been added in another time zone
+		long storedDay = entry.getDay() + 1;
+		db.getOpenHelper().getWritableDatabase().execSQL(
+				"UPDATE diary_food SET day = ? WHERE id = ?", new Object[]{storedDay, entry.getId()});
+
+		assertEquals(storedDay, mealDao.get(entry.getId()).getDay());
+		assertEquals(storedDay, mealDao.getMeal(entry.getId()).getFoodDiaryEntry().getDay());
+		assertEquals(1, mealDao.getMealsOnDay(storedDay).size());
+	}
+
+	@Test
+	public void mealTest_ReplaceDay() {
+		db.clearAllTables();
+
+		foodDao.insert(FOODS);
+		FoodDiaryEntry kept = new FoodDiaryEntry(FOODS.get(0), 1, 0);
+		FoodDiaryEntry replaced = new FoodDiaryEntry(FOODS.get(1), 1, ONE_DAY);
+		mealDao.insert(kept, replaced);
+
+		long day = replaced.getDay();
+		List<FoodDiaryEntry> replacements = Arrays.asList(
+				new FoodDiaryEntry(FOODS.get(2), 2, ONE_DAY + 1000),
+				new FoodDiaryEntry(FOODS.get(3), 3, ONE_DAY + 2000));
+		mealDao.replaceDay(day, replacements);
+
+		List<FoodDiaryEntry> entries = mealDao.getAll();
+		assertEquals(3, entries.size());
+		assertTrue(entries.contains(kept));
+		assertTrue(entries.containsAll(replacements));
+		assertFalse(entries.contains(replaced));
+
+		// Assert that entries on another day are rejected without changing anything
+		try {
+			mealDao.replaceDay(day, Arrays.asList(new FoodDiaryEntry(FOODS.get(4), 1, 0)));
+			fail("Replacing a day with an entry on another day should fail");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+		assertEquals(3, mealDao.getAll().size());
+	}
 }
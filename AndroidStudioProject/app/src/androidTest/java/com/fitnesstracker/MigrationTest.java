@@ -0,0 +1,163 @@
+package com.fitnesstracker;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.FTMigrations;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that every migration in {@link FTMigrations} produces the schema
+ * exported for the version it migrates to, and that existing data survives it.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class MigrationTest {
+
+	private static final String TEST_DB = "migration-test";
+
+	/**
+	 * A time to give test diary entries: September 13th 2020, 12:26:40 UTC.
+	 */
+	private static final long TEST_TIME = 1600000000000L;
+
+	@Rule
+	public MigrationTestHelper helper = new MigrationTestHelper(
+			InstrumentationRegistry.getInstrumentation(),
+			FTDatabase.class.getCanonicalName(),
+			new FrameworkSQLiteOpenHelperFactory());
+
+	@Test
+	public void migrate1To2() throws IOException {
+		SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+		insertFood(db, 1);
+		db.execSQL("INSERT INTO diary_food (id, food_id, num_servings, time) VALUES (2, 1, 1.5, ?)",
+				new Object[]{TEST_TIME});
+		db.close();
+
+		db = helper.runMigrationsAndValidate(TEST_DB, 2, true, FTMigrations.MIGRATION_1_2);
+
+		// Assert that the entry survived and that its day was computed in the local time zone
+		Cursor cursor = db.query("SELECT food_id, num_servings, time, day FROM diary_food WHERE id = 2");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(1, cursor.getLong(0));
+		assertEquals(1.5, cursor.getDouble(1), 0);
+		assertEquals(TEST_TIME, cursor.getLong(2));
+		assertEquals(FoodDiaryEntry.toLocalDay(TEST_TIME), cursor.getLong(3));
+		cursor.close();
+	}
+
+	@Test
+	public void migrate2To3() throws IOException {
+		SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2);
+		insertFood(db, 1);
+		db.execSQL("UPDATE food SET nutrition_calories = 100, nutrition_protein = 7 WHERE id = 1");
+		db.execSQL("INSERT INTO diary_food (id, food_id, num_servings, time, day) VALUES (2, 1, 1.5, 0, 10)");
+		db.execSQL("INSERT INTO diary_food (id, food_id, num_servings, time, day) VALUES (3, 1, 2, 0, 10)");
+		db.close();
+
+		db = helper.runMigrationsAndValidate(TEST_DB, 3, true, FTMigrations.MIGRATION_2_3);
+
+		// Assert that the rollup was filled from the existing entries
+		Cursor cursor = db.query("SELECT entries, nutrition_calories, nutrition_protein FROM daily_nutrition WHERE day = 10");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(2, cursor.getInt(0));
+		assertEquals(350, cursor.getInt(1));
+		assertEquals(25, cursor.getInt(2));
+		cursor.close();
+
+		// Assert that the triggers were created and keep the rollup up to date
+		db.execSQL("DELETE FROM diary_food WHERE id = 3");
+		cursor = db.query("SELECT entries, nutrition_calories FROM daily_nutrition WHERE day = 10");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(1, cursor.getInt(0));
+		assertEquals(150, cursor.getInt(1));
+		cursor.close();
+	}
+
+	@Test
+	public void migrate3To4() throws IOException {
+		SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3);
+		insertFood(db, 1);
+		db.close();
+
+		db = helper.runMigrationsAndValidate(TEST_DB, 4, true, FTMigrations.MIGRATION_3_4);
+
+		// Assert that existing foods were indexed
+		Cursor cursor = db.query("SELECT rowid FROM food_fts WHERE food_fts MATCH 'tes*'");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(1, cursor.getLong(0));
+		cursor.close();
+
+		// Assert that the index is kept in sync with new foods
+		insertFood(db, 2);
+		cursor = db.query("SELECT COUNT(*) FROM food_fts WHERE food_fts MATCH 'test'");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(2, cursor.getInt(0));
+		cursor.close();
+	}
+
+	@Test
+	public void migrate4To5() throws IOException {
+		SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4);
+		insertFood(db, 1);
+		db.close();
+
+		db = helper.runMigrationsAndValidate(TEST_DB, 5, true, FTMigrations.MIGRATION_4_5);
+
+		// Assert that existing foods are untouched and that no import is pending
+		Cursor cursor = db.query("SELECT COUNT(*) FROM food");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(1, cursor.getInt(0));
+		cursor.close();
+		cursor = db.query("SELECT COUNT(*) FROM import_checkpoint");
+		assertTrue(cursor.moveToFirst());
+		assertEquals(0, cursor.getInt(0));
+		cursor.close();
+	}
+
+	@Test
+	public void migrateAll() throws IOException {
+		helper.createDatabase(TEST_DB, 1).close();
+
+		// Open the database with Room, which validates the schema after running every migration
+		FTDatabase db = Room.databaseBuilder(ApplicationProvider.getApplicationContext(),
+				FTDatabase.class, TEST_DB)
+				.addMigrations(FTMigrations.ALL)
+				.addCallback(FTDatabase.CALLBACK)
+				.build();
+		db.getOpenHelper().getWritableDatabase();
+		db.close();
+	}
+
+	/**
+	 * Insert a food with the given ID and no nutrients using raw SQL.
+	 *
+	 * @param db the database to insert the food into
+	 * @param id the ID of the food
+	 */
+	private static void insertFood(SupportSQLiteDatabase db, long id) {
+		db.execSQL("INSERT INTO food (id, name, serving_size, serving_unit," +
+				" nutrition_calories, nutrition_fat_calories, nutrition_total_fat," +
+				" nutrition_saturated_fat, nutrition_trans_fat, nutrition_cholesterol," +
+				" nutrition_sodium, nutrition_total_carbs, nutrition_dietary_fiber," +
+				" nutrition_total_sugars, nutrition_added_sugars, nutrition_protein," +
+				" nutrition_vitamin_d, nutrition_calcium, nutrition_iron, nutrition_potassium)" +
+				" VALUES (?, 'test', 1, 'g', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0)",
+				new Object[]{id});
+	}
+}
@@ -0,0 +1,129 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.NutritionIndexUpdater;
+import com.fitnesstracker.database.NutritionRangeIndex;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link NutritionIndexUpdater} loads a {@link
+ * NutritionRangeIndex} from the <code>daily_nutrition</code> rollup and keeps it in sync as the
+ * diary changes.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class NutritionIndexDatabaseTest extends DatabaseTest {
+
+	/**
+	 * Midnight UTC on January 1st 2020, plus half a day so that every test time falls on the same
+	 * local day regardless of the device's time zone.
+	 */
+	private static final long DAY_ONE = 1577880000000L;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * How long to wait for the index to catch up with a write, in milliseconds.
+	 */
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private NutritionRollupDao rollupDao;
+	private ExecutorService writeLane;
+	private NutritionRangeIndex index;
+
+	private Food apple;
+	private Food bread;
+	private long day;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		rollupDao = db.getNutritionRollupDao();
+
+		apple = new Food("apple", "g", 100d, Food.NutritionInfo.makeRandom(0));
+		bread = new Food("bread", "g", 30d, Food.NutritionInfo.makeRandom(1));
+		foodDao.insert(apple, bread);
+		day = FoodDiaryEntry.toLocalDay(DAY_ONE);
+
+		// Entries written before the index starts must be loaded
+		mealDao.insert(new FoodDiaryEntry(apple, 1, DAY_ONE));
+
+		writeLane = Executors.newSingleThreadExecutor();
+		index = new NutritionRangeIndex();
+		new NutritionIndexUpdater(db, index, writeLane).start();
+	}
+
+	@After
+	public void stopWriteLane() {
+		writeLane.shutdownNow();
+	}
+
+	@Test
+	public void indexTest_Load() throws InterruptedException {
+		awaitInSync(day - 7, day + 7);
+		assertTrue(index.isLoaded());
+	}
+
+	@Test
+	public void indexTest_Insert_Update_Delete() throws InterruptedException {
+		awaitInSync(day - 7, day + 7);
+
+		FoodDiaryEntry second = new FoodDiaryEntry(bread, 2, DAY_ONE + ONE_DAY);
+		mealDao.insert(second, new FoodDiaryEntry(apple, 0.5, DAY_ONE + 3 * ONE_DAY));
+		awaitInSync(day, day + 3);
+		awaitInSync(day + 1, day + 1);
+
+		second.setNumServings(4);
+		mealDao.update(second);
+		awaitInSync(day, day + 3);
+
+		// Deleting a day's last entry deletes its rollup row
+		mealDao.delete(second);
+		awaitInSync(day + 1, day + 1);
+		assertEquals(new NutrientVector(), index.getDay(day + 1, new NutrientVector()));
+	}
+
+	@Test
+	public void indexTest_FoodUpdate() throws InterruptedException {
+		awaitInSync(day, day);
+
+		apple.getNutritionInfo().calories += 100;
+		foodDao.update(apple);
+		awaitInSync(day, day);
+	}
+
+	/**
+	 * Wait until the index's total of a range of days equals the rollup's, failing the test if it
+	 * does not within {@link NutritionIndexDatabaseTest#TIMEOUT_MILLIS}.
+	 *
+	 * @param fromDay the first day of the range
+	 * @param toDay   the last day of the range, inclusive
+	 */
+	private void awaitInSync(long fromDay, long toDay) throws InterruptedException {
+		NutrientVector expected = new NutrientVector(rollupDao.getTotal(fromDay, toDay));
+		NutrientVector actual = new NutrientVector();
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!index.getTotal(fromDay, toDay, actual).equals(expected)) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Index " + actual + " did not reach " + expected);
+			}
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.DailyNutrition;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that the <code>daily_nutrition</code> rollup stays consistent
+ * with the diary as entries and foods are inserted, updated, and deleted.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class NutritionRollupDatabaseTest extends DatabaseTest {
+
+	/**
+	 * Midnight UTC on January 1st 2020, plus half a day so that every test time falls on the same
+	 * local day regardless of the device's time zone.
+	 */
+	private static final long DAY_ONE = 1577880000000L;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private NutritionRollupDao rollupDao;
+
+	private Food apple;
+	private Food bread;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		rollupDao = db.getNutritionRollupDao();
+
+		apple = new Food("apple", "g", 100d, Food.NutritionInfo.makeRandom(0));
+		bread = new Food("bread", "g", 30d, Food.NutritionInfo.makeRandom(1));
+		foodDao.insert(apple, bread);
+	}
+
+	@Test
+	public void rollupTest_Insert() {
+		mealDao.insert(
+				new FoodDiaryEntry(apple, 1, DAY_ONE),
+				new FoodDiaryEntry(bread, 2, DAY_ONE + 1000),
+				new FoodDiaryEntry(apple, 3, DAY_ONE + ONE_DAY));
+
+		long day = FoodDiaryEntry.toLocalDay(DAY_ONE);
+		DailyNutrition first = rollupDao.get(day);
+		assertNotNull(first);
+		assertEquals(2, first.getEntries());
+		assertEquals(Food.NutritionInfo.sum(apple.getNutritionInfo(), bread.getNutritionInfo().times(2)),
+				first.getNutritionInfo());
+
+		List<DailyNutrition> range = rollupDao.getRange(day, day + 1);
+		assertEquals(2, range.size());
+		assertEquals(first, range.get(0));
+		assertEquals(apple.getNutritionInfo().times(3), range.get(1).getNutritionInfo());
+
+		assertEquals(Food.NutritionInfo.sum(first.getNutritionInfo(), range.get(1).getNutritionInfo()),
+				rollupDao.getTotal(day, day + 1));
+	}
+
+	@Test
+	public void rollupTest_UpdateDelete_Entry() {
+		FoodDiaryEntry entry = new FoodDiaryEntry(apple, 1, DAY_ONE);
+		mealDao.insert(entry);
+
+		// Change the food and number of servings
+		entry.setFoodId(bread.getId());
+		entry.setNumServings(2);
+		mealDao.update(entry);
+		long day = FoodDiaryEntry.toLocalDay(DAY_ONE);
+		assertEquals(bread.getNutritionInfo().times(2), rollupDao.get(day).getNutritionInfo());
+
+		// Move the entry to the next day
+		entry.setTime(DAY_ONE + ONE_DAY);
+		mealDao.update(entry);
+		assertNull(rollupDao.get(day));
+		assertEquals(1, rollupDao.get(day + 1).getEntries());
+
+		mealDao.delete(entry);
+		assertNull(rollupDao.get(day + 1));
+		assertEquals(new Food.NutritionInfo(), rollupDao.getTotal(day, day + 1));
+	}
+
+	@Test
+	public void rollupTest_UpdateDelete_Food() {
+		mealDao.insert(
+				new FoodDiaryEntry(apple, 2, DAY_ONE),
+				new FoodDiaryEntry(bread, 1, DAY_ONE));
+		long day = FoodDiaryEntry.toLocalDay(DAY_ONE);
+
+		// Changing a food's nutrition info changes the totals of every day it was eaten on
+		apple.setNutritionInfo(Food.NutritionInfo.makeRandom(2));
+		foodDao.update(apple);
+		assertEquals(Food.NutritionInfo.sum(apple.getNutritionInfo().times(2), bread.getNutritionInfo()),
+				rollupDao.get(day).getNutritionInfo());
+
+		// Deleting a food removes its entries from the totals
+		foodDao.delete(apple);
+		DailyNutrition rollup = rollupDao.get(day);
+		assertEquals(1, rollup.getEntries());
+		assertEquals(bread.getNutritionInfo(), rollup.getNutritionInfo());
+	}
+}
@@ -0,0 +1,139 @@
+package com.fitnesstracker;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.instrumentation.InstrumentedOpenHelperFactory;
+import com.fitnesstracker.database.instrumentation.QueryMetrics;
+import com.fitnesstracker.database.instrumentation.StatementStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link InstrumentedOpenHelperFactory} records statements and
+ * transactions under the DAO method that ran them.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class QueryMetricsTest {
+
+	private FTDatabase db;
+	private QueryMetrics metrics;
+	private FoodDao foodDao;
+
+	@Before
+	public void createDB() {
+		Context context = ApplicationProvider.getApplicationContext();
+		metrics = new QueryMetrics();
+		db = Room.inMemoryDatabaseBuilder(context, FTDatabase.class)
+				.openHelperFactory(new InstrumentedOpenHelperFactory(
+						new FrameworkSQLiteOpenHelperFactory(), metrics))
+				.addCallback(FTDatabase.CALLBACK)
+				.build();
+		foodDao = db.getFoodDao();
+	}
+
+	@After
+	public void closeDB() {
+		db.close();
+	}
+
+	@Test
+	public void metricsTest_Query_TaggedByDaoMethod() {
+		foodDao.insert(new Food("apple", "grams", 100d), new Food("banana", "grams", 100d));
+		metrics.reset();
+
+		assertEquals(2, foodDao.getAll().size());
+		assertEquals(2, foodDao.getAll().size());
+
+		StatementStats stats = find("FoodDao.getAll", StatementStats.Kind.QUERY);
+		assertEquals(2, stats.getLatencies().getCount());
+		assertEquals(4, stats.getRows());
+	}
+
+	@Test
+	public void metricsTest_Insert_And_Transaction() {
+		foodDao.insert(Arrays.asList(
+				new Food("apple", "grams", 100d), new Food("banana", "grams", 100d)));
+
+		StatementStats inserts = find("FoodDao.insert", StatementStats.Kind.INSERT);
+		assertEquals(2, inserts.getLatencies().getCount());
+		assertEquals(2, inserts.getRows());
+
+		StatementStats transactions = find("FoodDao.insert", StatementStats.Kind.TRANSACTION);
+		assertEquals(1, transactions.getLatencies().getCount());
+	}
+
+	@Test
+	public void metricsTest_SharedInsert_TaggedByEachCaller() {
+		foodDao.insert(new Food("apple", "grams", 100d));
+		Food banana = new Food("banana", "grams", 100d);
+		db.getFoodDiaryEntryDao().insert(banana, new FoodDiaryEntry(banana, 1, 0));
+		foodDao.insert(new Food("cherry", "grams", 100d));
+
+		// Assert that the same insert into food is charged to each method that ran it
+		int foodInserts = 0;
+		for (StatementStats stats : metrics.getSnapshot()) {
+			if (stats.getKind() == StatementStats.Kind.INSERT
+					&& stats.getSql().contains("INTO `food`")) {
+				foodInserts++;
+				if (stats.getTag().equals("FoodDao.insert")) {
+					assertEquals(2, stats.getLatencies().getCount());
+				} else {
+					assertEquals("FoodDiaryEntryDao.insert", stats.getTag());
+					assertEquals(1, stats.getLatencies().getCount());
+				}
+			}
+		}
+		assertEquals(2, foodInserts);
+	}
+
+	@Test
+	public void metricsTest_Dump() throws IOException {
+		foodDao.getAll();
+
+		StringWriter writer = new StringWriter();
+		metrics.dump(writer);
+		String[] lines = writer.toString().split("\n");
+
+		assertTrue(lines[0].startsWith("kind\ttag\tcount"));
+		boolean found = false;
+		for (String line : lines) {
+			found |= line.startsWith("QUERY\tFoodDao.getAll\t1\t");
+		}
+		assertTrue(found);
+	}
+
+	/**
+	 * Find recorded statistics by tag and kind, failing the test if there are none.
+	 *
+	 * @param tag  the caller that ran the statement
+	 * @param kind the kind of work
+	 *
+	 * @return the statistics
+	 */
+	private StatementStats find(String tag, StatementStats.Kind kind) {
+		for (StatementStats stats : metrics.getSnapshot()) {
+			if (stats.getTag().equals(tag) && stats.getKind() == kind) {
+				return stats;
+			}
+		}
+		fail("No " + kind + " recorded for " + tag);
+		return null;
+	}
+}
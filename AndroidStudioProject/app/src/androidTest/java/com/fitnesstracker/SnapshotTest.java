@@ -0,0 +1,200 @@
+package com.fitnesstracker;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.DailyNutrition;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.NutritionGoal;
+import com.fitnesstracker.database.io.SnapshotReader;
+import com.fitnesstracker.database.io.SnapshotWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that a snapshot written by {@link SnapshotWriter} is restored by
+ * {@link SnapshotReader} exactly as it was taken, and that snapshots that are damaged are rejected
+ * without changing the database.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class SnapshotTest extends DatabaseTest {
+
+	/**
+	 * Midnight UTC on January 1st 2020, plus half a day so that every test time falls on the same
+	 * local day regardless of the device's time zone.
+	 */
+	private static final long DAY_ONE = 1577880000000L;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * A chunk and batch size that does not divide the number of rows of any table.
+	 */
+	private static final int CHUNK_SIZE = 7;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private NutritionRollupDao rollupDao;
+	private File file;
+
+	@Before
+	public void setup() throws IOException {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		rollupDao = db.getNutritionRollupDao();
+		file = File.createTempFile("snapshot", ".ftsn",
+				ApplicationProvider.getApplicationContext().getCacheDir());
+
+		Random random = new Random(0);
+		List<Food> foods = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			String name = i % 10 == 0 ? "Cr\u00e8me br\u00fbl\u00e9e \ud83c\udf70 " + i : "food " + i;
+			foods.add(new Food(name, i % 3 == 0 ? "cup" : "g", i % 4 == 0 ? 0.5 : 100d,
+					Food.NutritionInfo.makeRandom(i)));
+		}
+		foodDao.insert(foods);
+
+		List<FoodDiaryEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			entries.add(new FoodDiaryEntry(foods.get(random.nextInt(foods.size())),
+					1 + random.nextInt(4) / 2d, DAY_ONE + (i / 10) * ONE_DAY + (i % 10) * 60_000L));
+		}
+		mealDao.insert(entries);
+
+		db.getNutritionGoalDao().insert(new NutritionGoal(Nutrient.CALORIES, 2000),
+				new NutritionGoal(Nutrient.PROTEIN, 150));
+	}
+
+	@After
+	public void deleteFile() {
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
+
+	@Test
+	public void snapshotTest_RestoresEveryRow() throws IOException {
+		List<Food> foods = foodDao.getAll();
+		List<FoodDiaryEntry> entries = mealDao.getAll();
+		List<NutritionGoal> goals = db.getNutritionGoalDao().getAll();
+		List<DailyNutrition> rollup = rollupDao.getRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+		long size = new SnapshotWriter(db, CHUNK_SIZE).write(file);
+		assertEquals(file.length(), size);
+
+		db.clearAllTables();
+		foodDao.insert(new Food("not in the snapshot", "g", 1d));
+
+		long rows = new SnapshotReader(db, CHUNK_SIZE).restore(file);
+		assertEquals(foods.size() + entries.size() + goals.size(), rows);
+
+		assertEquals(sortById(foods), sortById(foodDao.getAll()));
+		assertEquals(entries, mealDao.getAll());
+		assertEquals(goals.size(), db.getNutritionGoalDao().getAll().size());
+		for (NutritionGoal goal : goals) {
+			assertEquals(goal.getAmount(), db.getNutritionGoalDao().get(goal.getNutrient()).getAmount());
+		}
+
+		// The rollup and the search index are rebuilt from the restored rows
+		assertEquals(rollup, rollupDao.getRange(Long.MIN_VALUE, Long.MAX_VALUE));
+		assertEquals(5, foodDao.search("br\u00fbl\u00e9e", 10).size());
+	}
+
+	@Test
+	public void snapshotTest_EmptyDatabase() throws IOException {
+		db.clearAllTables();
+		new SnapshotWriter(db).write(file);
+
+		foodDao.insert(new Food("not in the snapshot", "g", 1d));
+		assertEquals(0, new SnapshotReader(db).restore(file));
+		assertEquals(0, (int) foodDao.getCount());
+	}
+
+	@Test
+	public void snapshotTest_Corrupt_LeavesDatabaseUnchanged() throws IOException {
+		new SnapshotWriter(db).write(file);
+		int foods = foodDao.getCount();
+		int entries = mealDao.getAll().size();
+
+		// Flip one bit in the middle of the file
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(raf.length() / 2);
+			int b = raf.read();
+			raf.seek(raf.length() / 2);
+			raf.write(b ^ 1);
+		} finally {
+			raf.close();
+		}
+
+		db.getNutritionGoalDao().deleteAll();
+		try {
+			new SnapshotReader(db).restore(file);
+			fail("Corrupt snapshot was restored");
+		} catch (IOException expected) {
+			// The database is as it was before the restore
+		}
+		assertEquals(foods, (int) foodDao.getCount());
+		assertEquals(entries, mealDao.getAll().size());
+		assertTrue(db.getNutritionGoalDao().getAll().isEmpty());
+	}
+
+	@Test
+	public void snapshotTest_CorruptRowCount_Throws() throws IOException {
+		new SnapshotWriter(db).write(file);
+		int foods = foodDao.getCount();
+
+		// Claim Integer.MAX_VALUE rows in the header of the first section, after its tag
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(8 + 4);
+			raf.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F});
+		} finally {
+			raf.close();
+		}
+
+		try {
+			new SnapshotReader(db).restore(file);
+			fail("Snapshot with a corrupt row count was restored");
+		} catch (IOException expected) {
+			// The row count is rejected before anything is allocated for the rows
+		}
+		assertEquals(foods, (int) foodDao.getCount());
+	}
+
+	@Test(expected = IOException.class)
+	public void snapshotTest_NotASnapshot_Throws() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeBytes("SQLite format 3");
+		} finally {
+			raf.close();
+		}
+		new SnapshotReader(db).restore(file);
+	}
+
+	/**
+	 * Sort foods by ID, since {@link FoodDao#getAll()} does not order them.
+	 */
+	private static List<Food> sortById(List<Food> foods) {
+		List<Food> sorted = new ArrayList<>(foods);
+		Collections.sort(sorted, (a, b) -> Long.compare(a.getId(), b.getId()));
+		return sorted;
+	}
+}
@@ -0,0 +1,89 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.DatabaseScheduler;
+import com.fitnesstracker.database.WriteBehindQueue;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test class for ensuring that {@link WriteBehindQueue} commits every write, in order, in
+ * fewer transactions than writes.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class WriteBehindQueueTest extends DatabaseTest {
+
+	/**
+	 * A coalescing window long enough that every write in a test lands in the same batch.
+	 */
+	private static final long WINDOW_MILLIS = 10_000;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private WriteBehindQueue queue;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		queue = new WriteBehindQueue(db, new DatabaseScheduler(2), WINDOW_MILLIS);
+	}
+
+	@Test
+	public void queueTest_Coalesces() throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			final Food food = new Food("food" + i, "grams", 1d);
+			queue.enqueue(() -> foodDao.insert(food));
+		}
+		queue.flush();
+
+		assertEquals(100, (int) foodDao.getCount());
+
+		WriteBehindQueue.Stats stats = queue.getStats();
+		assertEquals(100, stats.getWrites());
+		assertEquals(1, stats.getBatches());
+		assertEquals(100, stats.getMaxBatchSize());
+	}
+
+	@Test
+	public void queueTest_PreservesOrder() throws InterruptedException {
+		final Food food = new Food("apple", "grams", 100d);
+		final FoodDiaryEntry entry = new FoodDiaryEntry(food, 1, 0);
+		final FoodDiaryEntry edited = new FoodDiaryEntry(entry.getId(), food.getId(), 2, 0);
+
+		queue.enqueue(() -> foodDao.insert(food));
+		queue.enqueue(() -> mealDao.insert(entry));
+		queue.enqueue(() -> mealDao.update(edited));
+		queue.flush();
+
+		assertEquals(edited, mealDao.get(entry.getId()));
+	}
+
+	@Test
+	public void queueTest_FailedWrite_Isolated() throws InterruptedException {
+		final Food food = new Food("apple", "grams", 100d);
+
+		queue.enqueue(() -> foodDao.insert(food));
+		queue.enqueue(() -> {
+			throw new IllegalStateException("Test failure");
+		});
+		try {
+			queue.flush();
+			fail("Flush did not report the failed write");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		// Assert that the batch was retried without the failing write
+		assertEquals(food, foodDao.get(food.getId()));
+		assertEquals(1, queue.getStats().getWrites());
+		assertEquals(1, queue.getStats().getFailures());
+	}
+}
@@ -0,0 +1,141 @@
+package com.fitnesstracker.benchmark;
+
+import android.util.Log;
+
+import com.fitnesstracker.DatabaseTest;
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares writing diary entries one transaction per row with the single-transaction bulk
+ * methods of {@link FoodDiaryEntryDao}, for batches of 1, 100, and 10,000 rows.
+ * <p>
+ * Results are written to logcat under the tag {@link BulkWriteBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class BulkWriteBenchmark extends DatabaseTest {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "BulkWriteBenchmark";
+
+	/**
+	 * The number of distinct foods that diary entries refer to.
+	 */
+	private static final int NUM_FOODS = 100;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private List<Food> foods;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+
+		foods = new ArrayList<>(NUM_FOODS);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			foods.add(new Food("food" + i, "grams", 100d, Food.NutritionInfo.makeRandom(i)));
+		}
+	}
+
+	@Test
+	public void benchmark_1() {
+		benchmark(1);
+	}
+
+	@Test
+	public void benchmark_100() {
+		benchmark(100);
+	}
+
+	@Test
+	public void benchmark_10k() {
+		benchmark(10_000);
+	}
+
+	/**
+	 * Time inserting and then updating a batch of diary entries row by row and in bulk.
+	 *
+	 * @param batchSize the number of diary entries in the batch
+	 */
+	private void benchmark(int batchSize) {
+		// Row by row: every DAO call is its own transaction
+		List<FoodDiaryEntry> entries = seed(batchSize);
+		long start = System.nanoTime();
+		for (FoodDiaryEntry entry : entries) {
+			mealDao.insert(entry);
+		}
+		long rowInsertNanos = System.nanoTime() - start;
+
+		List<Meal> meals = mealDao.getAllMeals();
+		start = System.nanoTime();
+		for (Meal meal : meals) {
+			meal.getFoodDiaryEntry().setNumServings(2);
+			mealDao.update(meal.getFoodDiaryEntry());
+		}
+		long rowUpdateNanos = System.nanoTime() - start;
+
+		// Bulk: one transaction and one prepared statement per batch
+		entries = seed(batchSize);
+		start = System.nanoTime();
+		mealDao.insert(entries);
+		long bulkInsertNanos = System.nanoTime() - start;
+
+		meals = mealDao.getAllMeals();
+		start = System.nanoTime();
+		for (Meal meal : meals) {
+			meal.getFoodDiaryEntry().setNumServings(2);
+		}
+		mealDao.update(meals.toArray(new Meal[0]));
+		long bulkUpdateNanos = System.nanoTime() - start;
+
+		assertEquals(batchSize, mealDao.getAll().size());
+
+		Log.i(TAG, String.format(Locale.US,
+				"%d rows, insert: row by row %.2f ms, bulk %.2f ms",
+				batchSize, rowInsertNanos / 1e6, bulkInsertNanos / 1e6));
+		Log.i(TAG, String.format(Locale.US,
+				"%d rows, update: row by row %.2f ms, bulk %.2f ms",
+				batchSize, rowUpdateNanos / 1e6, bulkUpdateNanos / 1e6));
+	}
+
+	/**
+	 * Clear the database, insert {@link BulkWriteBenchmark#foods}, and create diary entries that
+	 * refer to them.
+	 *
+	 * @param numEntries the number of diary entries to create
+	 *
+	 * @return the diary entries, which have not been inserted
+	 */
+	private List<FoodDiaryEntry> seed(int numEntries) {
+		db.clearAllTables();
+		foodDao.insert(foods);
+
+		Random random = new Random(0);
+		List<FoodDiaryEntry> entries = new ArrayList<>(numEntries);
+		for (int i = 0; i < numEntries; i++) {
+			entries.add(new FoodDiaryEntry(
+					random.nextLong(),
+					foods.get(random.nextInt(NUM_FOODS)).getId(),
+					1 + random.nextInt(5),
+					i * 60_000L));
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,129 @@
+package com.fitnesstracker.benchmark;
+
+import android.util.Log;
+
+import com.fitnesstracker.DatabaseTest;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.io.DiaryExporter;
+import com.fitnesstracker.database.io.FoodImporter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the throughput of {@link DiaryExporter} over a diary of 1,000,000 meals.
+ * <p>
+ * The export is written to a stream that only counts bytes, so that the results measure reading
+ * and encoding rather than storage.
+ * <p>
+ * Results are written to logcat under the tag {@link DiaryExportBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class DiaryExportBenchmark extends DatabaseTest {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "DiaryExportBenchmark";
+
+	/**
+	 * The number of meals in the diary.
+	 */
+	private static final int NUM_MEALS = 1_000_000;
+
+	/**
+	 * The number of meals inserted per transaction while seeding the diary.
+	 */
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	/**
+	 * The number of foods that diary entries refer to.
+	 */
+	private static final int NUM_FOODS = 500;
+
+	@Before
+	public void setup() {
+		Random random = new Random(0);
+		List<Food> foods = new ArrayList<>(NUM_FOODS);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			foods.add(new Food("food " + i, "g", 100d, Food.NutritionInfo.makeRandom(i)));
+		}
+		db.getFoodDao().insert(foods);
+
+		// A meal every five minutes, which is almost ten years of diary
+		FoodDiaryEntryDao mealDao = db.getFoodDiaryEntryDao();
+		List<FoodDiaryEntry> entries = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < NUM_MEALS; i++) {
+			entries.add(new FoodDiaryEntry(foods.get(random.nextInt(NUM_FOODS)),
+					1 + random.nextInt(4) / 2d, i * 300_000L));
+			if (entries.size() == SEED_BATCH_SIZE) {
+				mealDao.insert(entries);
+				entries.clear();
+			}
+		}
+		mealDao.insert(entries);
+	}
+
+	@Test
+	public void benchmark_Csv() throws IOException {
+		benchmark(FoodImporter.Format.CSV);
+	}
+
+	@Test
+	public void benchmark_JsonLines() throws IOException {
+		benchmark(FoodImporter.Format.JSON_LINES);
+	}
+
+	/**
+	 * Time exporting the whole diary in a format.
+	 *
+	 * @param format the format to export
+	 */
+	private void benchmark(FoodImporter.Format format) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		DiaryExporter exporter = new DiaryExporter(db);
+		long start = System.nanoTime();
+		long meals = exporter.export(out, format);
+		long nanos = System.nanoTime() - start;
+		assertEquals(NUM_MEALS, meals);
+		assertEquals(out.count, exporter.getBytesWritten());
+
+		Log.i(TAG, String.format(Locale.US,
+				"%s: %d meals in %.0f ms, %.0f meals/s, %.1f MB at %.1f MB/s",
+				format, meals, nanos / 1e6, meals * 1e9 / nanos, out.count / 1e6,
+				out.count * 1e3 / nanos));
+	}
+
+	/**
+	 * An output stream that discards what is written to it, counting the bytes.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		/**
+		 * The number of bytes written.
+		 */
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.fitnesstracker.benchmark;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.fitnesstracker.DatabaseTest;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.entities.Food;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the latency of searching a large catalogue of foods with the full-text index used by
+ * {@link FoodDao#search(String, int)} against a <code>name LIKE</code> scan.
+ * <p>
+ * The scan matches the same foods as the full-text search, names with a word starting with each
+ * word of the query, and ranks and limits them the same way, so that both paths return the same
+ * rows and only the way they find them differs.
+ * <p>
+ * Each query is typed one character at a time, the way the search box issues them, and every
+ * prefix is timed.
+ * <p>
+ * Results are written to logcat under the tag {@link FoodSearchBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class FoodSearchBenchmark extends DatabaseTest {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "FoodSearchBenchmark";
+
+	/**
+	 * The number of foods in the catalogue.
+	 */
+	private static final int NUM_FOODS = 300_000;
+
+	/**
+	 * The number of foods inserted per transaction while seeding.
+	 */
+	private static final int INSERT_BATCH_SIZE = 10_000;
+
+	/**
+	 * The maximum number of results requested from each search.
+	 */
+	private static final int LIMIT = 100;
+
+	/**
+	 * The number of times each prefix is searched for.
+	 */
+	private static final int REPETITIONS = 5;
+
+	private static final String[] ADJECTIVES = {"Fresh", "Frozen", "Organic", "Roasted", "Baked",
+			"Raw", "Smoked", "Canned", "Dried", "Grilled", "Sweet", "Spicy", "Low Fat", "Whole"};
+
+	private static final String[] NOUNS = {"Apple", "Banana", "Cheddar Cheese", "Chicken Breast",
+			"Salmon", "Brown Rice", "Oatmeal", "Almonds", "Greek Yogurt", "Broccoli", "Potato",
+			"Whole Wheat Bread", "Peanut Butter", "Orange Juice", "Black Beans", "Spinach"};
+
+	private static final String[] BRANDS = {"Acme", "Harvest", "Valley", "Summit", "Prairie",
+			"Coastal", "Heritage", "Golden", "Evergreen", "Sunrise"};
+
+	/**
+	 * The queries typed during the benchmark.
+	 */
+	private static final List<String> QUERIES = Arrays.asList("cheddar", "chicken br", "yogurt");
+
+	private FoodDao foodDao;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+	}
+
+	@Test
+	public void benchmark_300k() {
+		seed();
+
+		for (String query : QUERIES) {
+			for (int length = 1; length <= query.length(); length++) {
+				String prefix = query.substring(0, length);
+				if (prefix.endsWith(" ")) {
+					continue;
+				}
+
+				SimpleSQLiteQuery likeQuery = toLikeQuery(prefix);
+
+				// Warm up both code paths
+				scan(likeQuery);
+				foodDao.search(prefix, LIMIT);
+
+				long likeNanos = 0;
+				long ftsNanos = 0;
+				int likeResults = 0;
+				int ftsResults = 0;
+				for (int i = 0; i < REPETITIONS; i++) {
+					long start = System.nanoTime();
+					likeResults = scan(likeQuery).size();
+					likeNanos += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					ftsResults = foodDao.search(prefix, LIMIT).size();
+					ftsNanos += System.nanoTime() - start;
+				}
+
+				assertEquals(likeResults, ftsResults);
+
+				Log.i(TAG, String.format(Locale.US,
+						"\"%s\": LIKE %.2f ms, FTS %.2f ms (%d rows, limit %d)",
+						prefix, likeNanos / 1e6 / REPETITIONS, ftsNanos / 1e6 / REPETITIONS,
+						ftsResults, LIMIT));
+			}
+		}
+	}
+
+	/**
+	 * Build a query that scans every food for names with a word starting with each word of a
+	 * query, ranked and limited like {@link FoodDao#search(String, int)}.
+	 *
+	 * @param query the text to search for, which must only contain letters, digits and spaces
+	 *
+	 * @return the query
+	 */
+	private static SimpleSQLiteQuery toLikeQuery(String query) {
+		StringBuilder sql = new StringBuilder("SELECT * FROM food WHERE 1");
+		List<Object> args = new ArrayList<>();
+		for (String word : query.trim().split(" +")) {
+			// A space in front of the name makes its first word start after a space too
+			sql.append(" AND (' ' || name) LIKE ?");
+			args.add("% " + word + "%");
+		}
+		sql.append(" ORDER BY name LIKE ? DESC, length(name), name LIMIT ?");
+		args.add(query.trim() + "%");
+		args.add(LIMIT);
+		return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+	}
+
+	/**
+	 * Run a query over <code>food</code> and read every column of every row into a food, as
+	 * {@link FoodDao#search(String, int)} does.
+	 *
+	 * @param query the query to run
+	 *
+	 * @return the foods read
+	 */
+	private List<Food> scan(SimpleSQLiteQuery query) {
+		Cursor cursor = db.query(query);
+		try {
+			int id = cursor.getColumnIndexOrThrow("id");
+			int name = cursor.getColumnIndexOrThrow("name");
+			int servingSize = cursor.getColumnIndexOrThrow("serving_size");
+			int servingUnit = cursor.getColumnIndexOrThrow("serving_unit");
+			int calories = cursor.getColumnIndexOrThrow("nutrition_calories");
+
+			List<Food> foods = new ArrayList<>(cursor.getCount());
+			while (cursor.moveToNext()) {
+				Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+				for (int i = 0; i < Nutrient.COUNT; i++) {
+					Nutrient.fromIndex(i).set(nutritionInfo, cursor.getInt(calories + i));
+				}
+				foods.add(new Food(cursor.getLong(id), cursor.getString(name),
+						cursor.getString(servingUnit), cursor.getDouble(servingSize), nutritionInfo));
+			}
+			return foods;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Fill the database with {@link FoodSearchBenchmark#NUM_FOODS} foods with realistic names.
+	 */
+	private void seed() {
+		db.clearAllTables();
+
+		Random random = new Random(0);
+		List<Food> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			String name = BRANDS[random.nextInt(BRANDS.length)] + " "
+					+ ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+					+ NOUNS[random.nextInt(NOUNS.length)] + " #" + i;
+			batch.add(new Food(name, "grams", 100d));
+
+			if (batch.size() == INSERT_BATCH_SIZE) {
+				foodDao.insert(batch);
+				batch.clear();
+			}
+		}
+		foodDao.insert(batch);
+	}
+}
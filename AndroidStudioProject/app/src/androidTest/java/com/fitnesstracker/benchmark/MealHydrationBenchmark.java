@@ -0,0 +1,176 @@
+package com.fitnesstracker.benchmark;
+
+import android.os.Debug;
+import android.util.Log;
+
+import com.fitnesstracker.DatabaseTest;
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the cost of loading every {@link Meal} in the diary the way Room's
+ * <code>@Relation</code> does it (a query over <code>diary_food</code> followed by chunked
+ * <code>IN (...)</code> queries over <code>food</code>) with the single-join query used by {@link
+ * FoodDiaryEntryDao#getAllMeals()}.
+ * <p>
+ * Results are written to logcat under the tag {@link MealHydrationBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class MealHydrationBenchmark extends DatabaseTest {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "MealHydrationBenchmark";
+
+	/**
+	 * The number of distinct foods that diary entries refer to.
+	 */
+	private static final int NUM_FOODS = 2000;
+
+	/**
+	 * The maximum number of arguments Room binds to a single <code>IN (...)</code> query.
+	 */
+	private static final int MAX_BIND_PARAMETERS = 999;
+
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+
+	@Before
+	public void setup() {
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+	}
+
+	@Test
+	public void benchmark_10k() {
+		benchmark(10_000);
+	}
+
+	@Test
+	public void benchmark_100k() {
+		benchmark(100_000);
+	}
+
+	/**
+	 * Seed the database with a number of diary entries and time both ways of loading them as
+	 * meals.
+	 *
+	 * @param numEntries the number of diary entries to seed the database with
+	 */
+	@SuppressWarnings("deprecation")
+	private void benchmark(int numEntries) {
+		seed(numEntries);
+
+		// Warm up both code paths
+		loadByRelation();
+		mealDao.getAllMeals();
+
+		Debug.startAllocCounting();
+		try {
+			Debug.resetThreadAllocCount();
+			long start = System.nanoTime();
+			int[] cursorPasses = new int[1];
+			List<Meal> byRelation = loadByRelation(cursorPasses);
+			long relationNanos = System.nanoTime() - start;
+			int relationAllocs = Debug.getThreadAllocCount();
+
+			Debug.resetThreadAllocCount();
+			start = System.nanoTime();
+			List<Meal> byJoin = mealDao.getAllMeals();
+			long joinNanos = System.nanoTime() - start;
+			int joinAllocs = Debug.getThreadAllocCount();
+
+			assertEquals(byRelation.size(), byJoin.size());
+
+			Log.i(TAG, String.format(Locale.US,
+					"%d rows, @Relation: %d cursor passes, %.1f ms, %d allocations",
+					numEntries, cursorPasses[0], relationNanos / 1e6, relationAllocs));
+			Log.i(TAG, String.format(Locale.US,
+					"%d rows, JOIN: 1 cursor pass, %.1f ms, %d allocations",
+					numEntries, joinNanos / 1e6, joinAllocs));
+		} finally {
+			Debug.stopAllocCounting();
+		}
+	}
+
+	/**
+	 * Fill the database with {@link MealHydrationBenchmark#NUM_FOODS} foods and a number of diary
+	 * entries referring to them.
+	 *
+	 * @param numEntries the number of diary entries to insert
+	 */
+	private void seed(int numEntries) {
+		db.clearAllTables();
+
+		List<Food> foods = new ArrayList<>(NUM_FOODS);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			foods.add(new Food("food" + i, "grams", 100d, Food.NutritionInfo.makeRandom(i)));
+		}
+		foodDao.insert(foods);
+
+		Random random = new Random(0);
+		List<FoodDiaryEntry> entries = new ArrayList<>(numEntries);
+		for (int i = 0; i < numEntries; i++) {
+			entries.add(new FoodDiaryEntry(
+					random.nextLong(),
+					foods.get(random.nextInt(NUM_FOODS)).getId(),
+					1 + random.nextInt(5),
+					i * 60_000L));
+		}
+		mealDao.insert(entries);
+	}
+
+	private List<Meal> loadByRelation() {
+		return loadByRelation(new int[1]);
+	}
+
+	/**
+	 * Load every meal the same way that Room loads an <code>@Relation</code> field.
+	 *
+	 * @param cursorPasses an array whose first element is set to the number of queries run
+	 *
+	 * @return a list of all meals
+	 */
+	private List<Meal> loadByRelation(int[] cursorPasses) {
+		List<FoodDiaryEntry> entries = mealDao.getAll();
+		cursorPasses[0] = 1;
+
+		// Collect the distinct food IDs referred to by the entries
+		Map<Long, Food> foodsById = new HashMap<>();
+		for (FoodDiaryEntry entry : entries) {
+			foodsById.put(entry.getFoodId(), null);
+		}
+
+		// Query the foods in chunks that fit in a single statement
+		List<Long> ids = new ArrayList<>(foodsById.keySet());
+		for (int i = 0; i < ids.size(); i += MAX_BIND_PARAMETERS) {
+			for (Food food : foodDao.get(ids.subList(i, Math.min(ids.size(), i + MAX_BIND_PARAMETERS)))) {
+				foodsById.put(food.getId(), food);
+			}
+			cursorPasses[0]++;
+		}
+
+		List<Meal> meals = new ArrayList<>(entries.size());
+		for (FoodDiaryEntry entry : entries) {
+			meals.add(new Meal(entry, foodsById.get(entry.getFoodId())));
+		}
+		return meals;
+	}
+}
@@ -0,0 +1,296 @@
+package com.fitnesstracker.benchmark;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.StorageProfile;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.io.DiaryExporter;
+import com.fitnesstracker.database.io.FoodImporter;
+import com.fitnesstracker.database.io.SnapshotReader;
+import com.fitnesstracker.database.io.SnapshotWriter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the size of a backup and the time to take and restore it for a {@link SnapshotWriter}
+ * snapshot, a JSON Lines export from {@link DiaryExporter} and a copy of the database file.
+ * <p>
+ * Like {@link StorageProfileBenchmark}, this benchmark opens a database file rather than an
+ * in-memory database, so that the file can be copied.
+ * <p>
+ * Results are written to logcat under the tag {@link SnapshotBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class SnapshotBenchmark {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "SnapshotBenchmark";
+
+	/**
+	 * The name of the database file the benchmark runs against.
+	 */
+	private static final String DB_NAME = "snapshot_benchmark";
+
+	/**
+	 * The number of foods that diary entries refer to.
+	 */
+	private static final int NUM_FOODS = 500;
+
+	/**
+	 * The number of meals in the diary.
+	 */
+	private static final int NUM_MEALS = 200_000;
+
+	/**
+	 * The number of meals inserted per transaction while seeding the diary.
+	 */
+	private static final int SEED_BATCH_SIZE = 10_000;
+
+	private Context context;
+	private FTDatabase db;
+	private File backup;
+
+	@Before
+	public void setup() throws IOException {
+		context = ApplicationProvider.getApplicationContext();
+		context.deleteDatabase(DB_NAME);
+		db = open();
+		backup = File.createTempFile("backup", null, context.getCacheDir());
+
+		Random random = new Random(0);
+		List<Food> foods = new ArrayList<>(NUM_FOODS);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			foods.add(new Food("food " + i, "g", 100d, Food.NutritionInfo.makeRandom(i)));
+		}
+		db.getFoodDao().insert(foods);
+
+		// A meal every five minutes, which is almost two years of diary
+		FoodDiaryEntryDao mealDao = db.getFoodDiaryEntryDao();
+		List<FoodDiaryEntry> entries = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < NUM_MEALS; i++) {
+			entries.add(new FoodDiaryEntry(foods.get(random.nextInt(NUM_FOODS)),
+					1 + random.nextInt(4) / 2d, i * 300_000L));
+			if (entries.size() == SEED_BATCH_SIZE) {
+				mealDao.insert(entries);
+				entries.clear();
+			}
+		}
+		mealDao.insert(entries);
+	}
+
+	@After
+	public void cleanup() {
+		if (db != null) {
+			db.close();
+		}
+		context.deleteDatabase(DB_NAME);
+		//noinspection ResultOfMethodCallIgnored
+		backup.delete();
+	}
+
+	@Test
+	public void benchmark_Snapshot() throws IOException {
+		long start = System.nanoTime();
+		long size = new SnapshotWriter(db).write(backup);
+		long writeNanos = System.nanoTime() - start;
+
+		db.clearAllTables();
+		start = System.nanoTime();
+		long rows = new SnapshotReader(db).restore(backup);
+		long restoreNanos = System.nanoTime() - start;
+		assertEquals(NUM_MEALS, db.getFoodDiaryEntryDao().getAll().size());
+
+		log("Snapshot", size, writeNanos,
+				restoreNanos / 1_000_000 + " ms restore of " + rows + " rows");
+	}
+
+	@Test
+	public void benchmark_JsonLines() throws IOException, JSONException {
+		long start = System.nanoTime();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(backup));
+		try {
+			new DiaryExporter(db).export(out, FoodImporter.Format.JSON_LINES);
+		} finally {
+			out.close();
+		}
+		long writeNanos = System.nanoTime() - start;
+
+		db.clearAllTables();
+		start = System.nanoTime();
+		long rows = restoreJsonLines(backup);
+		long restoreNanos = System.nanoTime() - start;
+		assertEquals(NUM_MEALS, db.getFoodDiaryEntryDao().getAll().size());
+
+		log("JSON Lines", backup.length(), writeNanos,
+				restoreNanos / 1_000_000 + " ms restore of " + rows + " rows");
+	}
+
+	@Test
+	public void benchmark_DatabaseFile() throws IOException {
+		File file = context.getDatabasePath(DB_NAME);
+
+		// Closing the database leaves everything in the main file, ready to copy
+		long start = System.nanoTime();
+		db.close();
+		copy(file, backup);
+		long writeNanos = System.nanoTime() - start;
+
+		context.deleteDatabase(DB_NAME);
+		start = System.nanoTime();
+		copy(backup, file);
+		db = open();
+		long restoreNanos = System.nanoTime() - start;
+		assertEquals(NUM_MEALS, db.getFoodDiaryEntryDao().getAll().size());
+
+		log("Database file", backup.length(), writeNanos, restoreNanos / 1_000_000 + " ms restore");
+	}
+
+	/**
+	 * Restore the foods and diary entries of a JSON Lines export from {@link DiaryExporter}, the
+	 * way {@link SnapshotReader} restores a snapshot: in one transaction, in batches of {@link
+	 * SnapshotReader#DEFAULT_BATCH_SIZE} entities.
+	 * <p>
+	 * Every line repeats the food of its entry, so each food is only inserted the first time it
+	 * is read.
+	 *
+	 * @param file the export to restore
+	 *
+	 * @return the number of rows restored
+	 */
+	private long restoreJsonLines(File file) throws IOException, JSONException {
+		FoodDao foodDao = db.getFoodDao();
+		FoodDiaryEntryDao mealDao = db.getFoodDiaryEntryDao();
+		Set<Long> foodIds = new HashSet<>();
+		List<Food> foods = new ArrayList<>();
+		List<FoodDiaryEntry> entries = new ArrayList<>(SnapshotReader.DEFAULT_BATCH_SIZE);
+		long rows = 0;
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				StandardCharsets.UTF_8));
+		try {
+			db.beginTransaction();
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					JSONObject record = new JSONObject(line);
+					long foodId = record.getLong("food_id");
+					if (foodIds.add(foodId)) {
+						Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+						for (int i = 0; i < Nutrient.COUNT; i++) {
+							Nutrient nutrient = Nutrient.fromIndex(i);
+							nutrient.set(nutritionInfo, record.getInt(nutrient.getColumnName()));
+						}
+						foods.add(new Food(foodId, record.getString("name"),
+								record.getString("serving_unit"), record.getDouble("serving_size"),
+								nutritionInfo));
+					}
+					entries.add(new FoodDiaryEntry(record.getLong("entry_id"), foodId,
+							record.getDouble("num_servings"), record.getLong("time")));
+					rows++;
+
+					if (entries.size() == SnapshotReader.DEFAULT_BATCH_SIZE) {
+						// Foods first, since the entries refer to them
+						foodDao.insert(foods);
+						foods.clear();
+						mealDao.insert(entries);
+						entries.clear();
+					}
+				}
+				foodDao.insert(foods);
+				mealDao.insert(entries);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} finally {
+			in.close();
+		}
+		return foodIds.size() + rows;
+	}
+
+	/**
+	 * Open the benchmark's database file, without write-ahead logging so that a closed database is
+	 * a single file.
+	 *
+	 * @return the database
+	 */
+	private FTDatabase open() {
+		return StorageProfile.COMPATIBLE.configure(Room.databaseBuilder(context, FTDatabase.class,
+				DB_NAME))
+				.addCallback(FTDatabase.CALLBACK)
+				.build();
+	}
+
+	/**
+	 * Log the results of one kind of backup.
+	 *
+	 * @param kind       the kind of backup
+	 * @param size       the size of the backup, in bytes
+	 * @param writeNanos the time taken to write the backup, in nanoseconds
+	 * @param restore    a description of how long the backup took to restore
+	 */
+	private static void log(String kind, long size, long writeNanos, String restore) {
+		Log.i(TAG, String.format(Locale.US,
+				"%s: %.2f MB (%.1f bytes/meal), %.0f ms write, %s",
+				kind, size / 1e6, (double) size / NUM_MEALS, writeNanos / 1e6, restore));
+	}
+
+	/**
+	 * Copy a file, replacing the destination.
+	 *
+	 * @param from the file to copy
+	 * @param to   the file to copy it to
+	 */
+	private static void copy(File from, File to) throws IOException {
+		FileChannel in = new FileInputStream(from).getChannel();
+		try {
+			FileChannel out = new FileOutputStream(to).getChannel();
+			try {
+				long position = 0;
+				long size = in.size();
+				while (position < size) {
+					position += in.transferTo(position, size - position, out);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.fitnesstracker.benchmark;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.DatabaseScheduler;
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.StorageProfile;
+import com.fitnesstracker.database.WalCheckpointer;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the latency of reads while another thread writes continuously, for each {@link
+ * StorageProfile}.
+ * <p>
+ * Unlike the other database tests, this benchmark opens a database file rather than an in-memory
+ * database, because the journal mode and checkpoints only apply to files.
+ * <p>
+ * Results are written to logcat under the tag {@link StorageProfileBenchmark#TAG}.
+ * <p>
+ * These tests run on an Android device (or emulator) rather than the developer's computer.
+ */
+public class StorageProfileBenchmark {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "StorageProfileBenchmark";
+
+	/**
+	 * The name of the database file the benchmark runs against.
+	 */
+	private static final String DB_NAME = "storage_profile_benchmark";
+
+	/**
+	 * The number of foods that diary entries refer to.
+	 */
+	private static final int NUM_FOODS = 200;
+
+	/**
+	 * The number of days of diary entries in the database before the benchmark starts.
+	 */
+	private static final int NUM_DAYS = 365;
+
+	/**
+	 * The number of diary entries per day before the benchmark starts.
+	 */
+	private static final int ENTRIES_PER_DAY = 10;
+
+	/**
+	 * The number of reads that are timed.
+	 */
+	private static final int NUM_READS = 2000;
+
+	private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	private FTDatabase db;
+
+	@After
+	public void closeDB() {
+		if (db != null) {
+			db.close();
+		}
+		ApplicationProvider.getApplicationContext().deleteDatabase(DB_NAME);
+	}
+
+	@Test
+	public void benchmark_Compatible() throws InterruptedException {
+		benchmark(StorageProfile.COMPATIBLE);
+	}
+
+	@Test
+	public void benchmark_Balanced() throws InterruptedException {
+		benchmark(StorageProfile.BALANCED);
+	}
+
+	@Test
+	public void benchmark_Throughput() throws InterruptedException {
+		benchmark(StorageProfile.THROUGHPUT);
+	}
+
+	/**
+	 * Time reads of a day's meals and a month of daily totals while a writer thread inserts diary
+	 * entries one transaction at a time.
+	 *
+	 * @param profile the storage profile to open the database with
+	 */
+	private void benchmark(StorageProfile profile) throws InterruptedException {
+		Context context = ApplicationProvider.getApplicationContext();
+		context.deleteDatabase(DB_NAME);
+
+		DatabaseScheduler scheduler = new DatabaseScheduler(profile.getReadThreads());
+		db = profile.configure(Room.databaseBuilder(context, FTDatabase.class, DB_NAME))
+				.addCallback(FTDatabase.CALLBACK)
+				.setQueryExecutor(scheduler.getReadExecutor())
+				.setTransactionExecutor(scheduler.getWriteExecutor())
+				.build();
+		WalCheckpointer checkpointer = new WalCheckpointer(db);
+		if (profile.getCheckpointIntervalMillis() > 0) {
+			scheduler.scheduleWriteWithFixedDelay(checkpointer, profile.getCheckpointIntervalMillis());
+		}
+
+		final List<Food> foods = seed();
+		final FoodDiaryEntryDao mealDao = db.getFoodDiaryEntryDao();
+		NutritionRollupDao rollupDao = db.getNutritionRollupDao();
+
+		// Write continuously until every read has been timed
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final AtomicLong writes = new AtomicLong();
+		Thread writer = new Thread(new Runnable() {
+			@Override public void run() {
+				Random random = new Random(1);
+				while (writing.get()) {
+					Food food = foods.get(random.nextInt(NUM_FOODS));
+					mealDao.insert(new FoodDiaryEntry(food, 1 + random.nextInt(3),
+							random.nextInt(NUM_DAYS) * ONE_DAY));
+					writes.incrementAndGet();
+				}
+			}
+		}, "benchmark-writer");
+		writer.start();
+
+		Random random = new Random(2);
+		long[] latencies = new long[NUM_READS];
+		long rows = 0;
+		for (int i = 0; i < NUM_READS; i++) {
+			// Reads take local days rather than times, so pick the day of a seeded time
+			long day = FoodDiaryEntry.toLocalDay(random.nextInt(NUM_DAYS) * ONE_DAY);
+			long start = System.nanoTime();
+			if (i % 2 == 0) {
+				rows += mealDao.getMealsOnDay(day).size();
+			} else {
+				rows += rollupDao.getRange(day, day + 30).size();
+			}
+			latencies[i] = System.nanoTime() - start;
+		}
+
+		writing.set(false);
+		writer.join();
+		assertTrue(writes.get() > 0);
+		assertTrue("Every read was empty", rows > 0);
+
+		Arrays.sort(latencies);
+		Log.i(TAG, String.format(Locale.US,
+				"%s: %d reads during %d writes, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+				profile, NUM_READS, writes.get(), percentile(latencies, 50),
+				percentile(latencies, 95), percentile(latencies, 99),
+				latencies[NUM_READS - 1] / 1e6));
+		Log.i(TAG, profile + ": " + scheduler.getWriteStats() + "; " + checkpointer);
+	}
+
+	/**
+	 * Insert foods and a year of diary entries that refer to them.
+	 *
+	 * @return the foods
+	 */
+	private List<Food> seed() {
+		Random random = new Random(0);
+		List<Food> foods = new ArrayList<>(NUM_FOODS);
+		for (int i = 0; i < NUM_FOODS; i++) {
+			foods.add(new Food("food" + i, "grams", 100d, Food.NutritionInfo.makeRandom(i)));
+		}
+		db.getFoodDao().insert(foods);
+
+		List<FoodDiaryEntry> entries = new ArrayList<>(NUM_DAYS * ENTRIES_PER_DAY);
+		for (int day = 0; day < NUM_DAYS; day++) {
+			for (int i = 0; i < ENTRIES_PER_DAY; i++) {
+				entries.add(new FoodDiaryEntry(foods.get(random.nextInt(NUM_FOODS)),
+						1 + random.nextInt(3), day * ONE_DAY + i * 60_000L));
+			}
+		}
+		db.getFoodDiaryEntryDao().insert(entries);
+		return foods;
+	}
+
+	/**
+	 * Get a percentile of sorted latencies.
+	 *
+	 * @param sorted  latencies in nanoseconds, in ascending order
+	 * @param percent the percentile, from 0 to 100
+	 *
+	 * @return the latency at that percentile in milliseconds
+	 */
+	private static double percentile(long[] sorted, int percent) {
+		int index = Math.min(sorted.length - 1, sorted.length * percent / 100);
+		return sorted[index] / 1e6;
+	}
+}
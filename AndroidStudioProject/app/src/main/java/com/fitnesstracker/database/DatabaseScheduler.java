@@ -0,0 +1,342 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads that database work is run on.
+ * <p>
+ * SQLite allows one writer at a time but several concurrent readers, so work is split into lanes:
+ * <ul>
+ * <li>The <b>write lane</b> is a single thread. Writes submitted to it are applied in submission
+ * order, so an insert followed by an update of the same entity can never be reordered, and
+ * writers never wait on each other for the database lock.</li>
+ * <li>The <b>read lane</b> is a pool sized to the number of connections SQLite reads on, so that
+ * queries never wait behind writes.</li>
+ * </ul>
+ * Each lane reports its queue depth and how long tasks waited before starting. See {@link
+ * DatabaseScheduler#getWriteStats()} and {@link DatabaseScheduler#getReadStats()}.
+ *
+ * @author Mitchell Ford
+ */
+public class DatabaseScheduler {
+
+	/**
+	 * The single-threaded lane that writes are run on.
+	 */
+	private final Lane writeLane;
+
+	/**
+	 * The lane that reads are run on.
+	 */
+	private final Lane readLane;
+
+	/**
+	 * Timer that hands delayed writes to {@link DatabaseScheduler#writeLane}.
+	 */
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * Constructor that specifies the number of threads in the read lane.
+	 *
+	 * @param readThreads the number of threads in the read lane, which should match the number of
+	 *                    connections the database reads on
+	 */
+	public DatabaseScheduler(int readThreads) {
+		writeLane = new Lane("db-write", 1);
+		readLane = new Lane("db-read", readThreads);
+		timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("db-timer"));
+	}
+
+	/**
+	 * Get the executor for the write lane.
+	 *
+	 * @return an executor that runs tasks one at a time in submission order
+	 */
+	@NonNull
+	public Executor getWriteExecutor() {
+		return writeLane;
+	}
+
+	/**
+	 * Get the executor for the read lane.
+	 *
+	 * @return an executor that runs tasks concurrently
+	 */
+	@NonNull
+	public Executor getReadExecutor() {
+		return readLane;
+	}
+
+	/**
+	 * Run a task on the write lane after a delay.
+	 *
+	 * @param task        the task to run
+	 * @param delayMillis the delay in milliseconds
+	 */
+	public void scheduleWrite(@NonNull final Runnable task, long delayMillis) {
+		timer.schedule(new Runnable() {
+			@Override public void run() {
+				writeLane.execute(task);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run a task on the write lane repeatedly, handing it to the lane each time a delay elapses.
+	 *
+	 * @param task        the task to run
+	 * @param delayMillis the delay between runs in milliseconds
+	 */
+	public void scheduleWriteWithFixedDelay(@NonNull final Runnable task, long delayMillis) {
+		timer.scheduleWithFixedDelay(new Runnable() {
+			@Override public void run() {
+				writeLane.execute(task);
+			}
+		}, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get a snapshot of the write lane's statistics.
+	 *
+	 * @return the write lane's statistics
+	 */
+	@NonNull
+	public LaneStats getWriteStats() {
+		return writeLane.getStats();
+	}
+
+	/**
+	 * Get a snapshot of the read lane's statistics.
+	 *
+	 * @return the read lane's statistics
+	 */
+	@NonNull
+	public LaneStats getReadStats() {
+		return readLane.getStats();
+	}
+
+	/**
+	 * A thread pool that records how long tasks wait before they start.
+	 */
+	private static class Lane extends ThreadPoolExecutor {
+
+		/** The name of this lane. */
+		private final String name;
+
+		/** The number of tasks that have started. */
+		private long started;
+
+		/** The total time tasks waited before starting, in nanoseconds. */
+		private long totalWaitNanos;
+
+		/** The longest time a task waited before starting, in nanoseconds. */
+		private long maxWaitNanos;
+
+		/** The largest number of tasks that have been waiting at once. */
+		private int maxQueueDepth;
+
+		/**
+		 * Constructor that specifies a name and a number of threads.
+		 *
+		 * @param name    the name of this lane, which is used to name its threads
+		 * @param threads the number of threads in this lane
+		 */
+		Lane(String name, int threads) {
+			super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new NamedThreadFactory(name));
+			this.name = name;
+		}
+
+		@Override
+		public void execute(@NonNull Runnable command) {
+			super.execute(new TimedTask(command));
+			int depth = getQueue().size();
+			synchronized (this) {
+				maxQueueDepth = Math.max(maxQueueDepth, depth);
+			}
+		}
+
+		@Override
+		protected void beforeExecute(Thread t, Runnable r) {
+			super.beforeExecute(t, r);
+			long waitNanos = System.nanoTime() - ((TimedTask) r).submitNanos;
+			synchronized (this) {
+				started++;
+				totalWaitNanos += waitNanos;
+				maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+			}
+		}
+
+		/**
+		 * Get a snapshot of this lane's statistics.
+		 *
+		 * @return this lane's statistics
+		 */
+		synchronized LaneStats getStats() {
+			return new LaneStats(name, getQueue().size(), maxQueueDepth, started,
+					totalWaitNanos, maxWaitNanos);
+		}
+	}
+
+	/**
+	 * A task that remembers when it was submitted.
+	 */
+	private static class TimedTask implements Runnable {
+
+		/** The task to run. */
+		private final Runnable task;
+
+		/** The value of {@link System#nanoTime()} when the task was submitted. */
+		private final long submitNanos = System.nanoTime();
+
+		/**
+		 * Constructor that specifies the task to run.
+		 *
+		 * @param task the task to run
+		 */
+		TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+	}
+
+	/**
+	 * Thread factory that names threads after their lane.
+	 */
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		/** The prefix of thread names. */
+		private final String name;
+
+		/** The number of threads created so far. */
+		private final AtomicInteger count = new AtomicInteger();
+
+		/**
+		 * Constructor that specifies the prefix of thread names.
+		 *
+		 * @param name the prefix of thread names
+		 */
+		NamedThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(@NonNull Runnable r) {
+			Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Statistics about the tasks run on one lane of a {@link DatabaseScheduler}.
+	 */
+	public static class LaneStats {
+
+		/** The name of the lane. */
+		private final String name;
+
+		/** The number of tasks waiting to start. */
+		private final int queueDepth;
+
+		/** The largest number of tasks that have been waiting at once. */
+		private final int maxQueueDepth;
+
+		/** The number of tasks that have started. */
+		private final long started;
+
+		/** The total time tasks waited before starting, in nanoseconds. */
+		private final long totalWaitNanos;
+
+		/** The longest time a task waited before starting, in nanoseconds. */
+		private final long maxWaitNanos;
+
+		/**
+		 * Constructor that specifies every field.
+		 *
+		 * @param name           the name of the lane
+		 * @param queueDepth     the number of tasks waiting to start
+		 * @param maxQueueDepth  the largest number of tasks that have been waiting at once
+		 * @param started        the number of tasks that have started
+		 * @param totalWaitNanos the total time tasks waited before starting, in nanoseconds
+		 * @param maxWaitNanos   the longest time a task waited before starting, in nanoseconds
+		 */
+		LaneStats(String name, int queueDepth, int maxQueueDepth, long started,
+		          long totalWaitNanos, long maxWaitNanos) {
+			this.name = name;
+			this.queueDepth = queueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.started = started;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+		}
+
+		/**
+		 * Get the number of tasks waiting to start.
+		 *
+		 * @return the current queue depth
+		 */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		/**
+		 * Get the largest number of tasks that have been waiting at once.
+		 *
+		 * @return the maximum queue depth
+		 */
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		/**
+		 * Get the number of tasks that have started.
+		 *
+		 * @return the number of tasks that have started
+		 */
+		public long getStarted() {
+			return started;
+		}
+
+		/**
+		 * Get the average time tasks waited before starting.
+		 *
+		 * @return the average wait time in milliseconds, or 0 if no tasks have started
+		 */
+		public double getAverageWaitMillis() {
+			return started == 0 ? 0 : totalWaitNanos / 1e6 / started;
+		}
+
+		/**
+		 * Get the longest time a task waited before starting.
+		 *
+		 * @return the maximum wait time in milliseconds
+		 */
+		public double getMaxWaitMillis() {
+			return maxWaitNanos / 1e6;
+		}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"%s: %d queued (max %d), %d started, wait avg %.2f ms, max %.2f ms",
+					name, queueDepth, maxQueueDepth, started,
+					getAverageWaitMillis(), getMaxWaitMillis());
+		}
+	}
+}
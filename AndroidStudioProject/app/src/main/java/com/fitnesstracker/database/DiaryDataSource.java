@@ -0,0 +1,295 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.InvalidationTracker;
+
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.DailyNutrition;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.ui.adapters.DayHeaderRow;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+import com.fitnesstracker.ui.adapters.DisplayFormats;
+import com.fitnesstracker.ui.adapters.MealRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A paged source of the rows of the diary, newest first, with a {@link DayHeaderRow} directly
+ * before the newest meal of each day.
+ * <p>
+ * Meals are loaded with the keyset queries of {@link FoodDiaryEntryDao#getNewestMeals(int)} and
+ * the methods after it. Each page is then split into days on the loading thread, and the totals
+ * of every day that starts in the page are read with a single query of the
+ * <code>daily_nutrition</code> rollup rather than by adding up meals.
+ * <p>
+ * Whether a meal starts a day depends on the meal before it, so every load also needs the day of
+ * the meal just newer than its page: for pages loaded after a row that is the day of that row, and
+ * for other pages one more newer meal is queried than is returned.
+ * <p>
+ * A data source is invalidated whenever the <code>diary_food</code> or <code>food</code> tables
+ * change, after which {@link Factory} creates a new one starting from the last key that was
+ * accessed.
+ *
+ * @author Mitchell Ford
+ */
+public class DiaryDataSource extends ItemKeyedDataSource<DiaryDataSource.Key, DiaryRow> {
+
+	/**
+	 * Stands for the day before the first row of the diary, which no meal is on.
+	 */
+	private static final long NO_DAY = Long.MIN_VALUE;
+
+	/**
+	 * The data access object used to load meals.
+	 */
+	private final FoodDiaryEntryDao dao;
+
+	/**
+	 * The data access object used to load daily totals.
+	 */
+	private final NutritionRollupDao rollupDao;
+
+	/**
+	 * The invalidation tracker of the database rows are loaded from.
+	 */
+	private final InvalidationTracker invalidationTracker;
+
+	/**
+	 * Observer that invalidates this data source when the underlying tables change.
+	 */
+	private final InvalidationTracker.Observer observer;
+
+	/**
+	 * Constructor that specifies the database to load rows from.
+	 * <p>
+	 * This must not be called on the main thread.
+	 *
+	 * @param db the database to load rows from
+	 */
+	public DiaryDataSource(@NonNull FTDatabase db) {
+		this.dao = db.getFoodDiaryEntryDao();
+		this.rollupDao = db.getNutritionRollupDao();
+		this.invalidationTracker = db.getInvalidationTracker();
+
+		// An invalid data source is never used again, so the observer only needs to fire once
+		observer = new InvalidationTracker.Observer("diary_food", "food") {
+			@Override public void onInvalidated(@NonNull Set<String> tables) {
+				invalidationTracker.removeObserver(this);
+				invalidate();
+			}
+		};
+		invalidationTracker.addObserver(observer);
+	}
+
+	@Override
+	public void loadInitial(@NonNull LoadInitialParams<Key> params,
+	                        @NonNull LoadInitialCallback<DiaryRow> callback) {
+		Key key = params.requestedInitialKey;
+		if (key == null) {
+			callback.onResult(toRows(dao.getNewestMeals(params.requestedLoadSize), NO_DAY));
+		} else {
+			List<Meal> meals = dao.getMealsFrom(key.time, key.id, params.requestedLoadSize);
+			List<Meal> newer = dao.getNewerMeals(key.time, key.id, 1);
+			callback.onResult(toRows(meals, newer.isEmpty() ? NO_DAY : getDay(newer.get(0))));
+		}
+	}
+
+	@Override
+	public void loadAfter(@NonNull LoadParams<Key> params, @NonNull LoadCallback<DiaryRow> callback) {
+		Key key = params.key;
+
+		// A header is followed by the meal it was keyed by, and a meal by the meals older than it
+		List<Meal> meals = key.header
+				? dao.getMealsFrom(key.time, key.id, params.requestedLoadSize)
+				: dao.getOlderMeals(key.time, key.id, params.requestedLoadSize);
+		callback.onResult(toRows(meals, key.day));
+	}
+
+	@Override
+	public void loadBefore(@NonNull LoadParams<Key> params, @NonNull LoadCallback<DiaryRow> callback) {
+		Key key = params.key;
+
+		// The query returns the closest meals first, and one more than is needed so that the day of
+		// the meal before the page is known. The meals are displayed newest first.
+		List<Meal> meals = dao.getNewerMeals(key.time, key.id, params.requestedLoadSize + 1);
+		long previousDay = NO_DAY;
+		if (meals.size() > params.requestedLoadSize) {
+			previousDay = getDay(meals.remove(meals.size() - 1));
+		}
+		Collections.reverse(meals);
+		callback.onResult(toRows(meals, previousDay));
+	}
+
+	@NonNull
+	@Override
+	public Key getKey(@NonNull DiaryRow item) {
+		if (item instanceof DayHeaderRow) {
+			return new Key(((DayHeaderRow) item).getFirstMeal(), true);
+		}
+		return new Key(((MealRow) item).getMeal(), false);
+	}
+
+	/**
+	 * Split a page of meals into days, putting a header with the day's totals before the first
+	 * meal of each day.
+	 *
+	 * @param meals       the meals, newest first
+	 * @param previousDay the day of the row just before the page, or {@link DiaryDataSource#NO_DAY}
+	 *                    if the page starts the diary
+	 *
+	 * @return the rows of the page
+	 */
+	@NonNull
+	private List<DiaryRow> toRows(@NonNull List<Meal> meals, long previousDay) {
+		DisplayFormats formats = DisplayFormats.getDefault();
+
+		// Read the totals of every day that starts in this page with one query
+		Map<Long, Food.NutritionInfo> totals = new HashMap<>();
+		long newestDay = NO_DAY;
+		long oldestDay = NO_DAY;
+		long day = previousDay;
+		for (Meal meal : meals) {
+			if (getDay(meal) != day) {
+				day = getDay(meal);
+				newestDay = newestDay == NO_DAY ? day : newestDay;
+				oldestDay = day;
+			}
+		}
+		if (newestDay != NO_DAY) {
+			for (DailyNutrition dailyNutrition : rollupDao.getRange(oldestDay, newestDay)) {
+				totals.put(dailyNutrition.getDay(), dailyNutrition.getNutritionInfo());
+			}
+		}
+
+		List<DiaryRow> rows = new ArrayList<>(meals.size() + totals.size());
+		day = previousDay;
+		for (Meal meal : meals) {
+			if (getDay(meal) != day) {
+				day = getDay(meal);
+				Food.NutritionInfo dayTotals = totals.get(day);
+				rows.add(new DayHeaderRow(day, meal,
+						dayTotals == null ? new Food.NutritionInfo() : dayTotals, formats));
+			}
+			rows.add(new MealRow(meal, formats));
+		}
+		return rows;
+	}
+
+	/**
+	 * Get the day a meal was eaten on.
+	 *
+	 * @param meal the meal
+	 *
+	 * @return the day, as in {@link com.fitnesstracker.database.entities.FoodDiaryEntry#toLocalDay(long)}
+	 */
+	private static long getDay(@NonNull Meal meal) {
+		return meal.getFoodDiaryEntry().getDay();
+	}
+
+	/**
+	 * The position of a row in the diary.
+	 * <p>
+	 * Rows are ordered by the time and then the ID of their meal, and a day's header comes just
+	 * before the meal it is keyed by, so no two rows share a key.
+	 */
+	public static class Key {
+
+		/**
+		 * The time of the meal.
+		 */
+		public final long time;
+
+		/**
+		 * The ID of the meal's backing {@link com.fitnesstracker.database.entities.FoodDiaryEntry}.
+		 */
+		public final long id;
+
+		/**
+		 * The day of the meal, which rows loaded after this one are split into days from.
+		 */
+		public final long day;
+
+		/**
+		 * Whether this is the key of the header before the meal rather than of the meal itself.
+		 */
+		public final boolean header;
+
+		/**
+		 * Constructor that specifies every field.
+		 *
+		 * @param time   the time of the meal
+		 * @param id     the ID of the meal's backing diary entry
+		 * @param day    the day of the meal
+		 * @param header whether this is the key of the header before the meal
+		 */
+		public Key(long time, long id, long day, boolean header) {
+			this.time = time;
+			this.id = id;
+			this.day = day;
+			this.header = header;
+		}
+
+		/**
+		 * Constructor for the key of a meal or of the header before it.
+		 *
+		 * @param meal   the meal
+		 * @param header whether this is the key of the header before the meal
+		 */
+		public Key(@NonNull Meal meal, boolean header) {
+			this(meal.getFoodDiaryEntry().getTime(), meal.getFoodDiaryEntry().getId(),
+					meal.getFoodDiaryEntry().getDay(), header);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return time == key.time &&
+					id == key.id &&
+					day == key.day &&
+					header == key.header;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(time, id, day, header);
+		}
+	}
+
+	/**
+	 * A factory for {@link DiaryDataSource} objects, for use with {@link
+	 * androidx.paging.LivePagedListBuilder}.
+	 */
+	public static class Factory extends DataSource.Factory<Key, DiaryRow> {
+
+		/**
+		 * The database that created data sources load rows from.
+		 */
+		private final FTDatabase db;
+
+		/**
+		 * Constructor that specifies the database to load rows from.
+		 *
+		 * @param db the database to load rows from
+		 */
+		public Factory(@NonNull FTDatabase db) {
+			this.db = db;
+		}
+
+		@NonNull
+		@Override
+		public DataSource<Key, DiaryRow> create() {
+			return new DiaryDataSource(db);
+		}
+	}
+}
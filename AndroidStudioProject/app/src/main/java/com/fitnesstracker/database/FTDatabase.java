@@ -2,24 +2,32 @@ package com.fitnesstracker.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
+import androidx.room.DatabaseConfiguration;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
 import com.fitnesstracker.database.daos.FoodDao;
 import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.ImportCheckpointDao;
 import com.fitnesstracker.database.daos.NutritionGoalDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.DailyNutrition;
 import com.fitnesstracker.database.entities.Food;
 import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.FoodFts;
+import com.fitnesstracker.database.entities.ImportCheckpoint;
 import com.fitnesstracker.database.entities.NutritionGoal;
+import com.fitnesstracker.database.instrumentation.InstrumentedOpenHelperFactory;
+import com.fitnesstracker.database.instrumentation.QueryMetrics;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-@Database(entities = {Food.class, FoodDiaryEntry.class, NutritionGoal.class},
-		version = 1,
-		exportSchema = false)
+@Database(entities = {Food.class, FoodDiaryEntry.class, NutritionGoal.class, DailyNutrition.class,
+		FoodFts.class, ImportCheckpoint.class},
+		version = 5)
 @TypeConverters(FTTypeConverters.class)
 public abstract class FTDatabase extends RoomDatabase {
 	//public abstract FTDao getDao();
@@ -30,23 +38,191 @@ public abstract class FTDatabase extends RoomDatabase {
 
 	public abstract NutritionGoalDao getNutritionGoalDao();
 
+	public abstract NutritionRollupDao getNutritionRollupDao();
+
+	public abstract ImportCheckpointDao getImportCheckpointDao();
+
+	/**
+	 * Callback that creates the objects Room does not manage, such as the triggers that maintain
+	 * the daily nutrition rollup, when a database is created.
+	 * <p>
+	 * Every database builder for this class must add this callback.
+	 */
+	public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+		@Override public void onCreate(@NonNull SupportSQLiteDatabase db) {
+			NutritionRollup.createTriggers(db);
+		}
+	};
+
 	private static volatile FTDatabase INSTANCE;
-	private static final int NUMBER_OF_THREADS = 4;
-	private static final ExecutorService executor =
-			Executors.newFixedThreadPool(NUMBER_OF_THREADS);
 
+	/**
+	 * The storage profile that {@link FTDatabase#INSTANCE} was opened with.
+	 */
+	private static StorageProfile storageProfile;
+
+	/**
+	 * The threads that database work is run on, with as many read threads as {@link
+	 * FTDatabase#storageProfile} reads on.
+	 */
+	private static DatabaseScheduler scheduler;
+
+	/**
+	 * The task that checkpoints the write-ahead log in the background, or null if {@link
+	 * FTDatabase#storageProfile} does not use one.
+	 */
+	private static WalCheckpointer checkpointer;
+
+	/**
+	 * The latency of every statement and transaction run on {@link FTDatabase#INSTANCE}, tagged by
+	 * the DAO method that ran it.
+	 */
+	private static final QueryMetrics queryMetrics = new QueryMetrics();
+
+	/**
+	 * The total nutrition of every day in {@link FTDatabase#INSTANCE}, for totals of any range of
+	 * days that do not query the database.
+	 */
+	private static final NutritionRangeIndex nutritionIndex = new NutritionRangeIndex();
+
+	/**
+	 * Get the app's database, opening it with the storage profile chosen in the app's settings if
+	 * it is not already open.
+	 *
+	 * @param context the context to open the database in
+	 *
+	 * @return the app's database
+	 */
 	public static FTDatabase getDatabase(final Context context) {
 		if (INSTANCE == null) {
 			synchronized (FTDatabase.class) {
-				INSTANCE = Room.databaseBuilder(context.getApplicationContext(), FTDatabase.class,
-						"ft_database").build();
+				if (INSTANCE == null) {
+					storageProfile = StorageProfile.fromPreferences(context);
+					scheduler = new DatabaseScheduler(storageProfile.getReadThreads());
+					INSTANCE = storageProfile.configure(Room.databaseBuilder(
+							context.getApplicationContext(), FTDatabase.class, "ft_database"))
+							.openHelperFactory(new InstrumentedOpenHelperFactory(
+									new FrameworkSQLiteOpenHelperFactory(), queryMetrics))
+							.addMigrations(FTMigrations.ALL)
+							.addCallback(CALLBACK)
+							.setQueryExecutor(scheduler.getReadExecutor())
+							.setTransactionExecutor(scheduler.getWriteExecutor())
+							.build();
+
+					long interval = storageProfile.getCheckpointIntervalMillis();
+					if (interval > 0) {
+						checkpointer = new WalCheckpointer(INSTANCE);
+						scheduler.scheduleWriteWithFixedDelay(checkpointer, interval);
+					}
+
+					new NutritionIndexUpdater(INSTANCE, nutritionIndex, scheduler.getWriteExecutor())
+							.start();
+				}
 			}
 		}
 		return INSTANCE;
 	}
 
-	public static ExecutorService getExecutor() {
-		return executor;
+	/**
+	 * Get the scheduler that database work is run on.
+	 *
+	 * @return the database scheduler, or null if {@link FTDatabase#getDatabase(Context)} has not
+	 * been called
+	 */
+	public static DatabaseScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Get the storage profile that the database was opened with.
+	 *
+	 * @return the storage profile, or null if {@link FTDatabase#getDatabase(Context)} has not been
+	 * called
+	 */
+	public static StorageProfile getStorageProfile() {
+		return storageProfile;
+	}
+
+	/**
+	 * Get the latency of every statement and transaction run on the database.
+	 *
+	 * @return the database's query metrics
+	 */
+	public static QueryMetrics getQueryMetrics() {
+		return queryMetrics;
+	}
+
+	/**
+	 * Get the in-memory index of the total nutrition of every day in the database.
+	 * <p>
+	 * The index is loaded in the background once {@link FTDatabase#getDatabase(Context)} has been
+	 * called and is kept in sync with the database from then on.
+	 *
+	 * @return the nutrition index
+	 */
+	public static NutritionRangeIndex getNutritionIndex() {
+		return nutritionIndex;
+	}
+
+	/**
+	 * Get the task that checkpoints the write-ahead log in the background.
+	 *
+	 * @return the checkpointer, or null if the database does not use a write-ahead log
+	 */
+	public static WalCheckpointer getCheckpointer() {
+		return checkpointer;
+	}
+
+	/**
+	 * The time that writes wait in {@link FTDatabase#writeQueue} for more writes to join their
+	 * batch, in milliseconds.
+	 */
+	private static final long WRITE_WINDOW_MILLIS = 20;
+
+	/**
+	 * The queue that writes from the user interface are batched through.
+	 */
+	private WriteBehindQueue writeQueue;
+
+	/**
+	 * Get the queue that writes from the user interface should be batched through.
+	 *
+	 * @return this database's write-behind queue
+	 */
+	public synchronized WriteBehindQueue getWriteQueue() {
+		if (writeQueue == null) {
+			writeQueue = new WriteBehindQueue(this, scheduler, WRITE_WINDOW_MILLIS);
+		}
+		return writeQueue;
+	}
+
+	/**
+	 * The maximum number of foods in {@link FTDatabase#foodCache}, which is far more than a diary
+	 * usually refers to.
+	 */
+	private static final int FOOD_CACHE_SIZE = 512;
+
+	/**
+	 * The foods most recently read by this database's meal queries.
+	 */
+	private final FoodCache foodCache = new FoodCache(FOOD_CACHE_SIZE);
+
+	/**
+	 * Get the cache of foods read by this database's meal queries.
+	 *
+	 * @return this database's food cache
+	 */
+	public FoodCache getFoodCache() {
+		return foodCache;
+	}
+
+	@Override
+	public void init(@NonNull DatabaseConfiguration configuration) {
+		super.init(configuration);
+
+		// Added before any query can observe the food table, so that the cache is always cleared
+		// before anything queries again because of a change
+		getInvalidationTracker().addObserver(foodCache.createObserver());
 	}
 
 
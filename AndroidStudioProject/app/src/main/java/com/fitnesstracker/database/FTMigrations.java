@@ -0,0 +1,123 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * The migrations between versions of the {@link FTDatabase} schema.
+ * <p>
+ * Every time the version of {@link FTDatabase} is increased, a migration from the previous version
+ * must be added here and to {@link FTMigrations#ALL}. The exported schema of every version is kept
+ * in <code>app/schemas</code> so that migrations can be tested against it.
+ *
+ * @author Mitchell Ford
+ */
+public class FTMigrations {
+
+	/**
+	 * Version 2 adds the <code>day</code> column to <code>diary_food</code>, along with indices on
+	 * <code>day</code> and on <code>(time, id)</code>.
+	 * <p>
+	 * SQLite cannot add a <code>NOT NULL</code> column without a default value, so the table is
+	 * rebuilt and the day of every existing entry is computed from its time.
+	 */
+	public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+		@Override public void migrate(@NonNull SupportSQLiteDatabase database) {
+			database.execSQL("CREATE TABLE IF NOT EXISTS `_new_diary_food` (" +
+					"`id` INTEGER NOT NULL, `food_id` INTEGER NOT NULL, " +
+					"`num_servings` REAL NOT NULL, `time` INTEGER NOT NULL, " +
+					"`day` INTEGER NOT NULL, PRIMARY KEY(`id`), " +
+					"FOREIGN KEY(`food_id`) REFERENCES `food`(`id`) " +
+					"ON UPDATE NO ACTION ON DELETE CASCADE )");
+
+			// Compute the local day in SQL, falling back to UTC for times SQLite can't convert
+			database.execSQL("INSERT INTO `_new_diary_food` (`id`, `food_id`, `num_servings`, `time`, `day`)" +
+					" SELECT `id`, `food_id`, `num_servings`, `time`," +
+					" COALESCE(CAST(julianday(`time` / 1000, 'unixepoch', 'localtime') - 2440587.5 AS INTEGER)," +
+					" `time` / 86400000)" +
+					" FROM `diary_food`");
+
+			database.execSQL("DROP TABLE `diary_food`");
+			database.execSQL("ALTER TABLE `_new_diary_food` RENAME TO `diary_food`");
+
+			database.execSQL("CREATE INDEX IF NOT EXISTS `index_diary_food_food_id` ON `diary_food` (`food_id`)");
+			database.execSQL("CREATE INDEX IF NOT EXISTS `index_diary_food_time_id` ON `diary_food` (`time`, `id`)");
+			database.execSQL("CREATE INDEX IF NOT EXISTS `index_diary_food_day` ON `diary_food` (`day`)");
+		}
+	};
+
+	/**
+	 * Version 3 adds the <code>daily_nutrition</code> table and the triggers that maintain it, then
+	 * fills it from the existing diary entries.
+	 *
+	 * @see NutritionRollup
+	 */
+	public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+		@Override public void migrate(@NonNull SupportSQLiteDatabase database) {
+			database.execSQL("CREATE TABLE IF NOT EXISTS `daily_nutrition` (" +
+					"`day` INTEGER NOT NULL, `entries` INTEGER NOT NULL, " +
+					"`nutrition_calories` INTEGER NOT NULL, `nutrition_fat_calories` INTEGER NOT NULL, " +
+					"`nutrition_total_fat` INTEGER NOT NULL, `nutrition_saturated_fat` INTEGER NOT NULL, " +
+					"`nutrition_trans_fat` INTEGER NOT NULL, `nutrition_cholesterol` INTEGER NOT NULL, " +
+					"`nutrition_sodium` INTEGER NOT NULL, `nutrition_total_carbs` INTEGER NOT NULL, " +
+					"`nutrition_dietary_fiber` INTEGER NOT NULL, `nutrition_total_sugars` INTEGER NOT NULL, " +
+					"`nutrition_added_sugars` INTEGER NOT NULL, `nutrition_protein` INTEGER NOT NULL, " +
+					"`nutrition_vitamin_d` INTEGER NOT NULL, `nutrition_calcium` INTEGER NOT NULL, " +
+					"`nutrition_iron` INTEGER NOT NULL, `nutrition_potassium` INTEGER NOT NULL, " +
+					"PRIMARY KEY(`day`))");
+
+			NutritionRollup.createTriggers(database);
+			NutritionRollup.rebuild(database);
+		}
+	};
+
+	/**
+	 * Version 4 adds the <code>food_fts</code> full-text index of food names, along with the
+	 * triggers Room uses to keep it in sync with <code>food</code>, then indexes the existing foods.
+	 *
+	 * @see com.fitnesstracker.database.entities.FoodFts
+	 */
+	public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+		@Override public void migrate(@NonNull SupportSQLiteDatabase database) {
+			database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `food_fts` USING FTS4(`name` TEXT, content=`food`)");
+
+			database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_fts_BEFORE_UPDATE" +
+					" BEFORE UPDATE ON `food` BEGIN DELETE FROM `food_fts` WHERE `docid`=OLD.`rowid`; END");
+			database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_fts_BEFORE_DELETE" +
+					" BEFORE DELETE ON `food` BEGIN DELETE FROM `food_fts` WHERE `docid`=OLD.`rowid`; END");
+			database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_fts_AFTER_UPDATE" +
+					" AFTER UPDATE ON `food` BEGIN INSERT INTO `food_fts`(`docid`, `name`)" +
+					" VALUES (NEW.`rowid`, NEW.`name`); END");
+			database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_fts_AFTER_INSERT" +
+					" AFTER INSERT ON `food` BEGIN INSERT INTO `food_fts`(`docid`, `name`)" +
+					" VALUES (NEW.`rowid`, NEW.`name`); END");
+
+			database.execSQL("INSERT INTO `food_fts`(`food_fts`) VALUES('rebuild')");
+		}
+	};
+
+	/**
+	 * Version 5 adds the <code>import_checkpoint</code> table, which records how far unfinished
+	 * imports of food files got.
+	 *
+	 * @see com.fitnesstracker.database.entities.ImportCheckpoint
+	 */
+	public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+		@Override public void migrate(@NonNull SupportSQLiteDatabase database) {
+			database.execSQL("CREATE TABLE IF NOT EXISTS `import_checkpoint` (" +
+					"`source` TEXT NOT NULL, `length` INTEGER NOT NULL, `position` INTEGER NOT NULL, " +
+					"`records` INTEGER NOT NULL, `imported` INTEGER NOT NULL, PRIMARY KEY(`source`))");
+		}
+	};
+
+	/**
+	 * Every migration, in order of the version they migrate from.
+	 */
+	public static final Migration[] ALL = {
+			MIGRATION_1_2,
+			MIGRATION_2_3,
+			MIGRATION_3_4,
+			MIGRATION_4_5
+	};
+}
@@ -0,0 +1,300 @@
+package com.fitnesstracker.database;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
+
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.NutritionGoal;
+import com.fitnesstracker.database.io.FoodImporter;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The app's single source of data, shared by every {@link FTViewModel}.
+ * <p>
+ * A view model lives only as long as the screen that created it, so state held by view models is
+ * rebuilt and queried again every time a screen opens. This class holds the state that does not
+ * depend on a screen instead: the observable data that more than one screen shows, the write
+ * queue, and the thread that imports run on. It is created once, when the app starts, so a
+ * screen that opens shows the data that is already loaded.
+ * <p>
+ * State that belongs to one screen, such as the text the food list is searched by, stays in the
+ * view model.
+ *
+ * @author Mitchell Ford
+ */
+public class FTRepository {
+
+	/**
+	 * The number of meals loaded per page of the diary.
+	 */
+	private static final int DIARY_PAGE_SIZE = 50;
+
+	private static volatile FTRepository INSTANCE;
+
+	private final FTDatabase db;
+	private final FoodDao foodDao;
+	private final FoodDiaryEntryDao foodDiaryEntryDao;
+	private final WriteBehindQueue writeQueue;
+
+	/**
+	 * Every food, kept while no screen shows it until the <code>food</code> table changes.
+	 */
+	private final LiveData<List<Food>> allFoods;
+
+	private final LiveData<Integer> numFoods;
+
+	private final LiveData<PagedList<DiaryRow>> diaryRows;
+
+	private final LiveData<List<NutritionGoal>> nutritionGoals;
+
+	private final LiveData<List<GoalProgress>> goalProgress;
+
+	/**
+	 * The thread that imports run on, one at a time.
+	 */
+	private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+	/**
+	 * The importer of the import that is running, or null if none is.
+	 */
+	private volatile FoodImporter foodImporter;
+
+	/**
+	 * Get the app's repository, creating it if it does not exist yet.
+	 * <p>
+	 * This is called when the app starts, so that the repository exists before any screen does.
+	 *
+	 * @param context the context to open the database in
+	 *
+	 * @return the app's repository
+	 */
+	public static FTRepository getRepository(final Context context) {
+		if (INSTANCE == null) {
+			synchronized (FTRepository.class) {
+				if (INSTANCE == null) {
+					INSTANCE = new FTRepository(FTDatabase.getDatabase(context));
+				}
+			}
+		}
+		return INSTANCE;
+	}
+
+	/**
+	 * Constructor that specifies the database to read and write.
+	 * <p>
+	 * Nothing is read from the database until the data is observed.
+	 *
+	 * @param db the database
+	 */
+	private FTRepository(@NonNull FTDatabase db) {
+		this.db = db;
+		foodDao = db.getFoodDao();
+		foodDiaryEntryDao = db.getFoodDiaryEntryDao();
+		writeQueue = db.getWriteQueue();
+
+		allFoods = new QueryLiveData<>(db, true, new Callable<List<Food>>() {
+			@Override public List<Food> call() {
+				return foodDao.getAll();
+			}
+		}, "food");
+		numFoods = foodDao.getCountLD();
+
+		// Load the diary one page at a time, prefetching the next page before it is needed
+		PagedList.Config diaryConfig = new PagedList.Config.Builder()
+				.setPageSize(DIARY_PAGE_SIZE)
+				.setPrefetchDistance(DIARY_PAGE_SIZE)
+				.setEnablePlaceholders(false)
+				.build();
+		// Pages are split into days and formatted on the fetch executor as they are loaded
+		diaryRows = new LivePagedListBuilder<>(new DiaryDataSource.Factory(db), diaryConfig)
+				.setFetchExecutor(db.getQueryExecutor())
+				.build();
+
+		nutritionGoals = db.getNutritionGoalDao().getAllLD();
+		goalProgress = new NutritionGoalEngine(FTDatabase.getNutritionIndex(), nutritionGoals,
+				Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Get the database this repository reads and writes.
+	 *
+	 * @return the database
+	 */
+	public FTDatabase getDatabase() {
+		return db;
+	}
+
+	/**
+	 * Get an observable list of every food.
+	 * <p>
+	 * The list is only read again when the <code>food</code> table changes, so observing it again
+	 * after it has been loaded does not query the database.
+	 *
+	 * @return an observable list of every food
+	 */
+	public LiveData<List<Food>> getAllFoods() {
+		return allFoods;
+	}
+
+	public LiveData<Integer> getNumFoods() {
+		return numFoods;
+	}
+
+	/**
+	 * Get an observable, paged list of the rows of the diary, newest first.
+	 *
+	 * @return an observable, paged list of all diary rows
+	 *
+	 * @see FTViewModel#getDiaryRows()
+	 */
+	public LiveData<PagedList<DiaryRow>> getDiaryRows() {
+		return diaryRows;
+	}
+
+	public LiveData<List<NutritionGoal>> getNutritionGoals() {
+		return nutritionGoals;
+	}
+
+	/**
+	 * Get an observable list of the progress of today's intake towards every nutrition goal.
+	 *
+	 * @return an observable list of goal progress
+	 *
+	 * @see FTViewModel#getGoalProgress()
+	 */
+	public LiveData<List<GoalProgress>> getGoalProgress() {
+		return goalProgress;
+	}
+
+	/**
+	 * Clear all entries from the database.
+	 * <p>
+	 * Writes that are still queued are committed first, so that none of them survive the clear.
+	 */
+	public void clearAllTables() {
+		writeQueue.runAfterPending(new Runnable() {
+			@Override public void run() {
+				db.clearAllTables();
+			}
+		});
+	}
+
+	public void insert(final Food... foods) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDao.insert(foods);
+			}
+		});
+	}
+
+	public void update(final Food... foods) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDao.update(foods);
+			}
+		});
+	}
+
+	public void delete(final Food... foods) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDao.delete(foods);
+			}
+		});
+	}
+
+	public void insert(final FoodDiaryEntry... foodDiaryEntries) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDiaryEntryDao.insert(foodDiaryEntries);
+			}
+		});
+	}
+
+	public void insert(final Food food, final FoodDiaryEntry foodDiaryEntry) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDiaryEntryDao.insert(food, foodDiaryEntry);
+			}
+		});
+	}
+
+	public void update(final FoodDiaryEntry... foodDiaryEntries) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDiaryEntryDao.update(foodDiaryEntries);
+			}
+		});
+	}
+
+	public void delete(final FoodDiaryEntry... foodDiaryEntries) {
+		writeQueue.enqueue(new Runnable() {
+			@Override public void run() {
+				foodDiaryEntryDao.delete(foodDiaryEntries);
+			}
+		});
+	}
+
+	/**
+	 * Import foods from a document, resuming an earlier import of the same document if it did not
+	 * finish.
+	 * <p>
+	 * Imports run one at a time on their own thread rather than through the write queue, so that
+	 * writes from the user interface only ever wait for one batch of an import to commit. An
+	 * import keeps running if the screen that started it closes.
+	 *
+	 * @param resolver the content resolver to open the document with
+	 * @param uri      the URI of the document
+	 *
+	 * @return the observable progress of the import
+	 *
+	 * @see FoodImporter
+	 */
+	public LiveData<FoodImporter.Progress> importFoods(final ContentResolver resolver,
+	                                                   final Uri uri) {
+		final MutableLiveData<FoodImporter.Progress> progress = new MutableLiveData<>();
+		importExecutor.execute(new Runnable() {
+			@Override public void run() {
+				FoodImporter importer = new FoodImporter(db);
+				foodImporter = importer;
+				try {
+					importer.importFoods(resolver, uri, new FoodImporter.ProgressListener() {
+						@Override public void onProgress(@NonNull FoodImporter.Progress p) {
+							progress.postValue(p);
+						}
+					});
+				} finally {
+					foodImporter = null;
+				}
+			}
+		});
+		return progress;
+	}
+
+	/**
+	 * Cancel the import that is running, which can be resumed by importing the same document
+	 * again.
+	 */
+	public void cancelImport() {
+		FoodImporter importer = foodImporter;
+		if (importer != null) {
+			importer.cancel();
+		}
+	}
+}
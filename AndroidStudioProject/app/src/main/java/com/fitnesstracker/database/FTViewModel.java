@@ -1,6 +1,7 @@
 package com.fitnesstracker.database;
 
 import android.app.Application;
+import android.net.Uri;
 
 import androidx.annotation.NonNull;
 import androidx.arch.core.util.Function;
@@ -8,74 +9,82 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
-import com.fitnesstracker.database.daos.FoodDao;
 import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
-import com.fitnesstracker.database.daos.NutritionGoalDao;
 import com.fitnesstracker.database.entities.Food;
 import com.fitnesstracker.database.entities.FoodDiaryEntry;
-import com.fitnesstracker.database.entities.NutritionGoal;
+import com.fitnesstracker.database.io.FoodImporter;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+import com.fitnesstracker.ui.adapters.FoodRow;
+import com.fitnesstracker.ui.adapters.FoodRowLiveData;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
 
 /**
  * A layer of abstraction between the Room database and the user interface.
+ * <p>
+ * Data shown by more than one screen, writes, and imports are handed to the app's {@link
+ * FTRepository}, which outlives every view model. This class only holds the state of the screen
+ * that created it.
  */
 public class FTViewModel extends AndroidViewModel {
 
-	private final FoodDao foodDao;
+	/**
+	 * The maximum number of foods returned by a search.
+	 */
+	private static final int FOOD_SEARCH_LIMIT = 100;
+
+	/**
+	 * The time to wait after the food search key stops changing before searching, in
+	 * milliseconds.
+	 */
+	private static final long FOOD_SEARCH_DEBOUNCE_MILLIS = 150;
+
+	/**
+	 * The app's repository, which holds everything that is not specific to this view model's
+	 * screen.
+	 */
+	private final FTRepository repository;
+
 	private final FoodDiaryEntryDao foodDiaryEntryDao;
-	private final NutritionGoalDao nutritionGoalDao;
 
-	private final FTDatabase db;
-	private final ExecutorService executor;
+	/**
+	 * The search of this screen's food list, which is only observed while the key has a word.
+	 */
+	private final FoodSearchPipeline foodSearch;
 
-	private final MutableLiveData<String> foodSearchKey;
-	private final LiveData<List<Food>> foods;
-	private final LiveData<Integer> numFoods;
+	/**
+	 * Whether the key of {@link FTViewModel#foodSearch} has a word, so that its results are shown
+	 * rather than every food.
+	 */
+	private final MutableLiveData<Boolean> searchingFoods;
 
-	private final MutableLiveData<Long> mealSearchKey;
-	private final LiveData<List<Meal>> meals;
+	private final LiveData<List<Food>> foods;
+	private final LiveData<List<FoodRow>> foodRows;
 
 	private final MutableLiveData<Long> mealSearchKeyId;
 	private final LiveData<Meal> mealById;
 
-	private final LiveData<List<NutritionGoal>> nutritionGoals;
-
 	public FTViewModel(@NonNull Application application) {
 		super(application);
 
-		// Get the database instance
-		db = FTDatabase.getDatabase(application);
-
-		// Get DAOs from the database
-		foodDao = db.getFoodDao();
+		// Get the repository, which the app created when it started
+		repository = FTRepository.getRepository(application);
+		FTDatabase db = repository.getDatabase();
 		foodDiaryEntryDao = db.getFoodDiaryEntryDao();
-		nutritionGoalDao = db.getNutritionGoalDao();
-		// Get the database's executor
-		executor = FTDatabase.getExecutor();
 
-		foodSearchKey = new MutableLiveData<>(null);
-		foods = Transformations.switchMap(foodSearchKey, new Function<String, LiveData<List<Food>>>() {
+		// The search key belongs to this screen, so the searched list does too. Every food is
+		// already loaded by the repository, so it is only searched for here when the key has words
+		foodSearch = new FoodSearchPipeline(db, FOOD_SEARCH_DEBOUNCE_MILLIS, FOOD_SEARCH_LIMIT);
+		searchingFoods = new MutableLiveData<>(false);
+		foods = Transformations.switchMap(searchingFoods, new Function<Boolean, LiveData<List<Food>>>() {
 			@Override
-			public LiveData<List<Food>> apply(String name) {
-				if (name == null || name.equals("")) {
-					return foodDao.getAllLD();
-				} else {
-					return foodDao.getLD(name);
-				}
-			}
-		});
-
-		numFoods = foodDao.getCountLD();
-
-		mealSearchKey = new MutableLiveData<>(null);
-		meals = Transformations.switchMap(mealSearchKey, new Function<Long, LiveData<List<Meal>>>() {
-			@Override public LiveData<List<Meal>> apply(Long time) {
-				return foodDiaryEntryDao.getAllMealsLD();
+			public LiveData<List<Food>> apply(Boolean searching) {
+				return searching ? foodSearch : repository.getAllFoods();
 			}
 		});
+		foodRows = new FoodRowLiveData(foods, FTDatabase.getScheduler().getReadExecutor());
 
 		mealSearchKeyId = new MutableLiveData<>(0L);
 		mealById = Transformations.switchMap(mealSearchKeyId, new Function<Long, LiveData<Meal>>() {
@@ -84,88 +93,126 @@ public class FTViewModel extends AndroidViewModel {
 				return foodDiaryEntryDao.getMealLD(foodDiaryEntryId);
 			}
 		});
-
-		nutritionGoals = nutritionGoalDao.getAllLD();
 	}
 
 	/**
 	 * Clear all entries from the database.
+	 * <p>
+	 * Writes that are still queued are committed first, so that none of them survive the clear.
 	 */
 	public void clearAllTables() {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				db.clearAllTables();
-			}
-		});
+		repository.clearAllTables();
 	}
 
 	public LiveData<List<Food>> getFoods() {
 		return foods;
 	}
 
+	/**
+	 * Get an observable list of every food, which is shared with every other view model.
+	 * <p>
+	 * Unlike {@link FTViewModel#getFoods()}, this list is not filtered and is kept loaded while no
+	 * screen shows it, so a screen that only needs every food shows it without querying the
+	 * database again.
+	 *
+	 * @return an observable list of every food
+	 *
+	 * @see FTRepository#getAllFoods()
+	 */
+	public LiveData<List<Food>> getAllFoods() {
+		return repository.getAllFoods();
+	}
+
+	/**
+	 * Get the rows displayed for {@link FTViewModel#getFoods()}.
+	 * <p>
+	 * The text of each row is formatted off the main thread whenever the foods change.
+	 *
+	 * @return an observable list of food rows
+	 *
+	 * @see FoodRow
+	 */
+	public LiveData<List<FoodRow>> getFoodRows() {
+		return foodRows;
+	}
+
+	/**
+	 * Set the text that {@link FTViewModel#getFoods()} is filtered by.
+	 * <p>
+	 * A null or empty key shows every food, from {@link FTRepository#getAllFoods()}. Otherwise,
+	 * foods with a word in their name starting with each word of the key are shown, best matches
+	 * first. The search is debounced and stale results are dropped, so this may be called on every
+	 * keystroke.
+	 *
+	 * @param foodSearchKey the text to search for
+	 *
+	 * @see FoodSearchPipeline
+	 */
 	public void setFoodSearchKey(String foodSearchKey) {
-		this.foodSearchKey.setValue(foodSearchKey);
+		// Set the key first, so that a search it schedules is dropped if the search stops being
+		// observed
+		foodSearch.setKey(foodSearchKey);
+		boolean searching = !new FoodSearchQuery(foodSearchKey).isEmpty();
+		if (searching != searchingFoods.getValue()) {
+			searchingFoods.setValue(searching);
+		}
 	}
 
 	public LiveData<Integer> getNumFoods() {
-		return numFoods;
+		return repository.getNumFoods();
 	}
 
 	public void insert(final Food... foods) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDao.insert(foods);
-			}
-		});
+		repository.insert(foods);
+	}
+
+	/**
+	 * Import foods from a document chosen by the user, resuming an earlier import of the same
+	 * document if it did not finish.
+	 * <p>
+	 * Imports run on the repository's thread, so an import keeps running if the screen that
+	 * started it closes.
+	 *
+	 * @param uri the URI of the document
+	 *
+	 * @return the observable progress of the import
+	 *
+	 * @see FTRepository#importFoods(android.content.ContentResolver, Uri)
+	 */
+	public LiveData<FoodImporter.Progress> importFoods(final Uri uri) {
+		return repository.importFoods(getApplication().getContentResolver(), uri);
+	}
+
+	/**
+	 * Cancel the import that is running, which can be resumed by importing the same document
+	 * again.
+	 */
+	public void cancelImport() {
+		repository.cancelImport();
 	}
 
 	public void update(final Food... foods) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDao.update(foods);
-			}
-		});
+		repository.update(foods);
 	}
 
 	public void delete(final Food... foods) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDao.delete(foods);
-			}
-		});
+		repository.delete(foods);
 	}
 
 	public void insert(final FoodDiaryEntry... foodDiaryEntries) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDiaryEntryDao.insert(foodDiaryEntries);
-			}
-		});
+		repository.insert(foodDiaryEntries);
 	}
 
 	public void insert(final Food food, final FoodDiaryEntry foodDiaryEntry) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDao.insert(food);
-				foodDiaryEntryDao.insert(foodDiaryEntry);
-			}
-		});
+		repository.insert(food, foodDiaryEntry);
 	}
 
 	public void update(final FoodDiaryEntry... foodDiaryEntries) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDiaryEntryDao.update(foodDiaryEntries);
-			}
-		});
+		repository.update(foodDiaryEntries);
 	}
 
 	public void delete(final FoodDiaryEntry... foodDiaryEntries) {
-		executor.execute(new Runnable() {
-			@Override public void run() {
-				foodDiaryEntryDao.delete(foodDiaryEntries);
-			}
-		});
+		repository.delete(foodDiaryEntries);
 	}
 
 	/**
@@ -181,7 +228,7 @@ public class FTViewModel extends AndroidViewModel {
 	}
 
 	/**
-	 * Get the results of the query performed in {@link FTViewModel#setMealSearchKey(Long)}.
+	 * Get the results of the query performed in {@link FTViewModel#setMealSearchKeyId(Long)}.
 	 *
 	 * @return a {@link LiveData} object containing the results
 	 */
@@ -190,7 +237,7 @@ public class FTViewModel extends AndroidViewModel {
 	}
 
 	/**
-	 * Calls {@link FTViewModel#setMealSearchKey(Long)} and get the results of the query.
+	 * Calls {@link FTViewModel#setMealSearchKeyId(Long)} and get the results of the query.
 	 *
 	 * @return a {@link LiveData} object containing the results
 	 */
@@ -199,15 +246,38 @@ public class FTViewModel extends AndroidViewModel {
 		return this.mealById;
 	}
 
-	public LiveData<List<Meal>> getMeals() {
-		return meals;
+	/**
+	 * Get an observable, paged list of the rows of the diary, newest first, in which each day
+	 * starts with a header showing the day's totals.
+	 * <p>
+	 * Only the pages near the part of the list being displayed are loaded. Each page is split into
+	 * days and its text is formatted on the loading thread, and the day totals are read from the
+	 * <code>daily_nutrition</code> rollup.
+	 *
+	 * @return an observable, paged list of all diary rows
+	 *
+	 * @see DiaryDataSource
+	 */
+	public LiveData<PagedList<DiaryRow>> getDiaryRows() {
+		return repository.getDiaryRows();
 	}
 
-	public void setMealSearchKey(Long mealSearchKey) {
-		this.mealSearchKey.setValue(mealSearchKey);
+	/**
+	 * Get an observable list of the progress of today's intake towards every nutrition goal,
+	 * ordered by nutrient.
+	 * <p>
+	 * Only the goals whose nutrient was affected by a change to the diary or the goals are
+	 * re-evaluated, and today's intake is read from {@link FTDatabase#getNutritionIndex()} rather
+	 * than from today's diary entries.
+	 *
+	 * @return an observable list of goal progress
+	 *
+	 * @see NutritionGoalEngine
+	 */
+	public LiveData<List<GoalProgress>> getGoalProgress() {
+		return repository.getGoalProgress();
 	}
 
-
 //	public void setFoodDiaryEntrySearchKey(long time) {
 //		foodDiaryEntrySearchKey.setValue(time);
 //	}
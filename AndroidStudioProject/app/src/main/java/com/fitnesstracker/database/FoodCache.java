@@ -0,0 +1,226 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of {@link Food} objects by ID, which evicts the least recently used food when
+ * it is full.
+ * <p>
+ * A diary refers to a small set of foods over and over, so queries for {@link Meal} objects use
+ * this cache to share one food object between all the meals that refer to it rather than
+ * creating a new one for every row. See {@link
+ * com.fitnesstracker.database.daos.FoodDiaryEntryDao#queryMeals(String, Object...)}.
+ * <p>
+ * The cache is cleared whenever Room's {@link InvalidationTracker} reports that the
+ * <code>food</code> table changed. Room reports changes after the writing transaction ends, on
+ * another thread, so a query that started before a change may read a food as it was. To keep
+ * such a food from being cached after the clear, every clear starts a new generation, and
+ * {@link FoodCache#put(Food, long)} only stores foods read during the current one. Callers that
+ * cannot tolerate the delay should check a cached food against the row they read, as the
+ * meal queries do.
+ * <p>
+ * Cached foods are shared, so they must not be modified.
+ *
+ * @author Mitchell Ford
+ */
+public class FoodCache {
+
+	/**
+	 * The foods in the cache by ID, least recently used first.
+	 */
+	private final LinkedHashMap<Long, Food> foods;
+
+	/**
+	 * The maximum number of foods in the cache.
+	 */
+	private final int capacity;
+
+	/**
+	 * Incremented every time the cache is cleared.
+	 */
+	private long generation;
+
+	private long hits;
+	private long misses;
+	private long stale;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Constructor that specifies the maximum number of foods to cache.
+	 *
+	 * @param capacity the maximum number of foods in the cache
+	 */
+	public FoodCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.foods = new LinkedHashMap<Long, Food>(16, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<Long, Food> eldest) {
+				if (size() > FoodCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Create an observer that clears this cache whenever the <code>food</code> table changes.
+	 * <p>
+	 * The observer should be added to the database's invalidation tracker before any other
+	 * observer of the table, so that anything that queries again because of a change sees the
+	 * cache already cleared.
+	 *
+	 * @return the observer
+	 */
+	@NonNull
+	public InvalidationTracker.Observer createObserver() {
+		return new InvalidationTracker.Observer("food") {
+			@Override public void onInvalidated(@NonNull Set<String> tables) {
+				invalidate();
+			}
+		};
+	}
+
+	/**
+	 * Get the current generation of the cache, which must be read before querying for the foods
+	 * that are passed to {@link FoodCache#put(Food, long)}.
+	 *
+	 * @return the current generation
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Get a food from the cache, marking it as the most recently used.
+	 *
+	 * @param id the ID of the food
+	 *
+	 * @return the food, or null if it is not cached
+	 */
+	@Nullable
+	public synchronized Food get(long id) {
+		Food food = foods.get(id);
+		if (food == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return food;
+	}
+
+	/**
+	 * Add a food to the cache, replacing any food with the same ID, unless the cache has been
+	 * cleared since the food was read.
+	 *
+	 * @param food       the food to cache
+	 * @param generation the value of {@link FoodCache#getGeneration()} before the food was read
+	 *
+	 * @return whether the food was cached
+	 */
+	public synchronized boolean put(@NonNull Food food, long generation) {
+		if (generation != this.generation) {
+			return false;
+		}
+		if (foods.put(food.getId(), food) != null) {
+			stale++;
+		}
+		return true;
+	}
+
+	/**
+	 * Remove every food from the cache and start a new generation.
+	 */
+	public synchronized void invalidate() {
+		foods.clear();
+		generation++;
+		invalidations++;
+	}
+
+	/**
+	 * Get the number of foods in the cache.
+	 *
+	 * @return the number of foods in the cache
+	 */
+	public synchronized int size() {
+		return foods.size();
+	}
+
+	/**
+	 * Get the maximum number of foods in the cache.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of calls to {@link FoodCache#get(long)} that found a food.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of calls to {@link FoodCache#get(long)} that did not find a food.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of cached foods that were replaced because they no longer matched the
+	 * database, which are also counted as hits.
+	 *
+	 * @return the number of stale foods replaced
+	 */
+	public synchronized long getStale() {
+		return stale;
+	}
+
+	/**
+	 * Get the number of foods removed to make room for others.
+	 *
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of times the cache has been cleared.
+	 *
+	 * @return the number of invalidations
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	@NonNull
+	@Override
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		return String.format(Locale.US,
+				"%d/%d foods, %d hits (%.1f%%), %d misses, %d stale, %d evictions, %d invalidations",
+				foods.size(), capacity, hits, lookups == 0 ? 0 : hits * 100.0 / lookups, misses,
+				stale, evictions, invalidations);
+	}
+}
@@ -0,0 +1,311 @@
+package com.fitnesstracker.database;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link LiveData} that holds the results of a food search as the user types it.
+ * <p>
+ * Searching on every keystroke wastes queries on text the user is still typing, and lets the
+ * results of a slow query replace those of a newer one. Instead, this class:
+ * <ul>
+ * <li>waits until the key has stopped changing for a configurable time before searching,</li>
+ * <li>cancels the query that is running, if any, when a newer key is searched for,</li>
+ * <li>only ever posts the results of the newest key, and</li>
+ * <li>when the new key narrows the last one and the last results were complete, filters those
+ * results in memory instead of querying the database.</li>
+ * </ul>
+ * The results are searched for again when the <code>food</code> table changes while this object
+ * is active.
+ *
+ * @author Mitchell Ford
+ * @see FoodSearchQuery
+ */
+public class FoodSearchPipeline extends LiveData<List<Food>> {
+
+	/**
+	 * The data access object that foods are searched with.
+	 */
+	private final FoodDao foodDao;
+
+	/**
+	 * The invalidation tracker of the database being searched.
+	 */
+	private final InvalidationTracker invalidationTracker;
+
+	/**
+	 * The executor that searches are run on.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Handler for the main thread, which all of this object's state is confined to.
+	 */
+	private final Handler handler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * The maximum number of foods returned by a search with at least one word.
+	 */
+	private final int limit;
+
+	/**
+	 * The time to wait after the key changes before searching, in milliseconds.
+	 */
+	private long debounceMillis;
+
+	/**
+	 * The newest key.
+	 */
+	private FoodSearchQuery key = new FoodSearchQuery(null);
+
+	/**
+	 * Incremented every time a search is started or cancelled, so that the results of older
+	 * searches can be recognized and dropped.
+	 */
+	private int generation = 0;
+
+	/**
+	 * Signal that cancels the search currently running, if any.
+	 */
+	@Nullable
+	private CancellationSignal inFlight;
+
+	/**
+	 * The key of the last results that were posted, or null if they may be out of date.
+	 */
+	@Nullable
+	private FoodSearchQuery cachedKey;
+
+	/**
+	 * The last results that were posted.
+	 */
+	@Nullable
+	private List<Food> cachedResults;
+
+	/**
+	 * Observer that searches again when the <code>food</code> table changes.
+	 */
+	private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer("food") {
+		@Override public void onInvalidated(@NonNull Set<String> tables) {
+			handler.post(new Runnable() {
+				@Override public void run() {
+					// A search that started before the change may have read the old rows
+					cancelInFlight();
+					cachedKey = null;
+					cachedResults = null;
+					if (hasActiveObservers()) {
+						search();
+					}
+				}
+			});
+		}
+	};
+
+	/**
+	 * Starts a search for the newest key once it has stopped changing.
+	 */
+	private final Runnable searchRunnable = new Runnable() {
+		@Override public void run() {
+			search();
+		}
+	};
+
+	/**
+	 * Constructor that specifies a database, a debounce time, and a result limit.
+	 *
+	 * @param db             the database to search
+	 * @param debounceMillis the time to wait after the key changes before searching
+	 * @param limit          the maximum number of foods returned by a search with at least one
+	 *                       word
+	 */
+	public FoodSearchPipeline(@NonNull FTDatabase db, long debounceMillis, int limit) {
+		this.foodDao = db.getFoodDao();
+		this.invalidationTracker = db.getInvalidationTracker();
+		this.executor = db.getQueryExecutor();
+		this.debounceMillis = debounceMillis;
+		this.limit = limit;
+	}
+
+	/**
+	 * Set the text to search for.
+	 * <p>
+	 * A null or empty key matches every food. The search starts once the key has not changed for
+	 * the debounce time.
+	 *
+	 * @param text the text to search for
+	 */
+	@MainThread
+	public void setKey(@Nullable String text) {
+		FoodSearchQuery newKey = new FoodSearchQuery(text);
+		if (newKey.equals(key)) {
+			return;
+		}
+		key = newKey;
+
+		handler.removeCallbacks(searchRunnable);
+		if (hasActiveObservers()) {
+			handler.postDelayed(searchRunnable, debounceMillis);
+		}
+	}
+
+	/**
+	 * Set the time to wait after the key changes before searching.
+	 *
+	 * @param debounceMillis the debounce time in milliseconds
+	 */
+	@MainThread
+	public void setDebounceMillis(long debounceMillis) {
+		this.debounceMillis = debounceMillis;
+	}
+
+	@Override
+	protected void onActive() {
+		super.onActive();
+		addObserver();
+
+		// Changes made while inactive were not seen
+		cachedKey = null;
+		cachedResults = null;
+		search();
+	}
+
+	@Override
+	protected void onInactive() {
+		super.onInactive();
+		handler.removeCallbacks(searchRunnable);
+		cancelInFlight();
+		executor.execute(new Runnable() {
+			@Override public void run() {
+				invalidationTracker.removeObserver(observer);
+			}
+		});
+	}
+
+	/**
+	 * Register {@link FoodSearchPipeline#observer} with the database's invalidation tracker.
+	 */
+	private void addObserver() {
+		// Registering the observer reads the database, so it must be done off the main thread
+		executor.execute(new Runnable() {
+			@Override public void run() {
+				invalidationTracker.addObserver(observer);
+			}
+		});
+	}
+
+	/**
+	 * Search for the newest key, cancelling the search currently running, if any.
+	 */
+	@MainThread
+	private void search() {
+		handler.removeCallbacks(searchRunnable);
+		cancelInFlight();
+
+		final int searchGeneration = ++generation;
+		final FoodSearchQuery searchKey = key;
+		final CancellationSignal signal = new CancellationSignal();
+		inFlight = signal;
+
+		// Narrow the last results in memory if they contain every match of the new key
+		final List<Food> narrowFrom;
+		if (cachedKey != null && cachedResults != null && isComplete(cachedKey, cachedResults)
+				&& searchKey.narrows(cachedKey)) {
+			narrowFrom = cachedResults;
+		} else {
+			narrowFrom = null;
+		}
+
+		executor.execute(new Runnable() {
+			@Override public void run() {
+				if (signal.isCanceled()) {
+					return;
+				}
+
+				final List<Food> results;
+				try {
+					if (narrowFrom != null) {
+						// A subset of complete results, so it is within the limit too
+						results = searchKey.filter(narrowFrom);
+					} else if (searchKey.isEmpty()) {
+						results = foodDao.getAll();
+					} else {
+						results = foodDao.search(searchKey.getText(), limit, signal);
+					}
+				} catch (OperationCanceledException e) {
+					return;
+				}
+
+				handler.post(new Runnable() {
+					@Override public void run() {
+						deliver(searchGeneration, searchKey, results);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Post the results of a search, unless a newer search has been started since.
+	 *
+	 * @param searchGeneration the value of {@link FoodSearchPipeline#generation} when the search
+	 *                         was started
+	 * @param searchKey        the key that was searched for
+	 * @param results          the results of the search
+	 */
+	@MainThread
+	private void deliver(int searchGeneration, FoodSearchQuery searchKey, List<Food> results) {
+		if (searchGeneration != generation) {
+			return;
+		}
+		inFlight = null;
+		cachedKey = searchKey;
+		cachedResults = results;
+		setValue(results);
+	}
+
+	/**
+	 * Cancel the search currently running, if any.
+	 * <p>
+	 * Not every query can be interrupted, so this also starts a new generation, which drops the
+	 * results of a search that finishes anyway.
+	 */
+	@MainThread
+	private void cancelInFlight() {
+		generation++;
+		if (inFlight != null) {
+			inFlight.cancel();
+			inFlight = null;
+		}
+	}
+
+	/**
+	 * Whether a list of results contains every food matching its key, rather than being cut off
+	 * by {@link FoodSearchPipeline#limit}, so that later keys can be searched for in it.
+	 * <p>
+	 * The results of the empty key are every food, which is complete but is never narrowed:
+	 * filtering the whole catalogue in memory is slower than the limited full-text query.
+	 *
+	 * @param searchKey the key that was searched for
+	 * @param results   the results of the search
+	 *
+	 * @return true if the results are complete and may be narrowed
+	 */
+	private boolean isComplete(FoodSearchQuery searchKey, List<Food> results) {
+		return !searchKey.isEmpty() && results.size() < limit;
+	}
+}
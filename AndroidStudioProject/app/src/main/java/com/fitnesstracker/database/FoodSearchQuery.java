@@ -0,0 +1,232 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A food search typed by the user, in a form that can be evaluated both by the database and in
+ * memory.
+ * <p>
+ * A food matches a search if, for every word of the search, a word of the food's name starts with
+ * it. This is the same rule that {@link FoodDao#search(String, int)} applies using the full-text
+ * index, so the results of one search can be narrowed to those of a more specific search without
+ * querying the database again.
+ *
+ * @author Mitchell Ford
+ * @see FoodSearchPipeline
+ */
+public class FoodSearchQuery {
+
+	/**
+	 * Orders foods the same way as {@link FoodDao#search(String, int)}, except for the names
+	 * starting with the query, which are handled by {@link FoodSearchQuery#sort(List)}.
+	 */
+	private static final Comparator<Food> BY_LENGTH_THEN_NAME = new Comparator<Food>() {
+		@Override public int compare(Food a, Food b) {
+			int byLength = Integer.compare(a.getName().length(), b.getName().length());
+			return byLength != 0 ? byLength : a.getName().compareTo(b.getName());
+		}
+	};
+
+	/**
+	 * The text as typed by the user.
+	 */
+	private final String text;
+
+	/**
+	 * The lowercase words of {@link FoodSearchQuery#text}.
+	 */
+	private final List<String> words;
+
+	/**
+	 * Constructor that parses the text typed by the user.
+	 *
+	 * @param text the text to search for, or null to match every food
+	 */
+	public FoodSearchQuery(@Nullable String text) {
+		this.text = text == null ? "" : text.trim();
+		this.words = new ArrayList<>();
+
+		String matchQuery = FoodDao.toMatchQuery(this.text);
+		if (matchQuery != null) {
+			for (String word : matchQuery.split(" ")) {
+				words.add(word.substring(0, word.length() - 1));
+			}
+		}
+	}
+
+	/**
+	 * Get the text as typed by the user.
+	 *
+	 * @return the trimmed text, which is empty if every food matches
+	 */
+	@NonNull
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Whether this query matches every food.
+	 *
+	 * @return true if the text contains no words
+	 */
+	public boolean isEmpty() {
+		return words.isEmpty();
+	}
+
+	/**
+	 * Whether every food matching this query also matches an earlier one.
+	 * <p>
+	 * This is true when each word of the earlier query is a prefix of the word in the same
+	 * position of this one, for example when more characters have been typed.
+	 *
+	 * @param earlier the earlier query
+	 *
+	 * @return true if the results of this query are a subset of the results of the earlier query
+	 */
+	public boolean narrows(@NonNull FoodSearchQuery earlier) {
+		if (earlier.words.size() > words.size()) {
+			return false;
+		}
+		for (int i = 0; i < earlier.words.size(); i++) {
+			if (!words.get(i).startsWith(earlier.words.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether a food matches this query.
+	 *
+	 * @param food the food to test
+	 *
+	 * @return true if, for every word of this query, a word of the food's name starts with it
+	 */
+	public boolean matches(@NonNull Food food) {
+		if (words.isEmpty()) {
+			return true;
+		}
+		if (food.getName() == null) {
+			return false;
+		}
+
+		List<String> nameWords = tokenize(food.getName());
+		for (String word : words) {
+			boolean found = false;
+			for (String nameWord : nameWords) {
+				if (nameWord.startsWith(word)) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the foods in a list that match this query, in the order they would be returned by the
+	 * database.
+	 *
+	 * @param foods a list of foods that contains every match of this query
+	 *
+	 * @return a new list of the matching foods
+	 */
+	@NonNull
+	public List<Food> filter(@NonNull List<Food> foods) {
+		List<Food> matches = new ArrayList<>();
+		for (Food food : foods) {
+			if (matches(food)) {
+				matches.add(food);
+			}
+		}
+		if (!isEmpty()) {
+			sort(matches);
+		}
+		return matches;
+	}
+
+	/**
+	 * Sort foods matching this query the same way as {@link FoodDao#search(String, int)}: names
+	 * starting with the text first, then shorter names, then alphabetically.
+	 *
+	 * @param foods the foods to sort in place
+	 */
+	private void sort(List<Food> foods) {
+		List<Food> startsWith = new ArrayList<>();
+		List<Food> rest = new ArrayList<>();
+		String prefix = text.toLowerCase(Locale.ROOT);
+		for (Food food : foods) {
+			if (food.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+				startsWith.add(food);
+			} else {
+				rest.add(food);
+			}
+		}
+		Collections.sort(startsWith, BY_LENGTH_THEN_NAME);
+		Collections.sort(rest, BY_LENGTH_THEN_NAME);
+
+		foods.clear();
+		foods.addAll(startsWith);
+		foods.addAll(rest);
+	}
+
+	/**
+	 * Split a name into lowercase words the same way as the full-text index.
+	 *
+	 * @param name the name to split
+	 *
+	 * @return the words of the name
+	 */
+	static List<String> tokenize(String name) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder token = new StringBuilder();
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				token.append(c);
+			} else if (token.length() > 0) {
+				tokens.add(token.toString().toLowerCase(Locale.ROOT));
+				token.setLength(0);
+			}
+		}
+		if (token.length() > 0) {
+			tokens.add(token.toString().toLowerCase(Locale.ROOT));
+		}
+		return tokens;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		FoodSearchQuery that = (FoodSearchQuery) o;
+		return text.equals(that.text);
+	}
+
+	@Override
+	public int hashCode() {
+		return text.hashCode();
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return "FoodSearchQuery{" +
+				"text='" + text + '\'' +
+				", words=" + words +
+				'}';
+	}
+}
@@ -0,0 +1,200 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.fitnesstracker.database.entities.NutritionGoal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates every {@link NutritionGoal} against one day's intake, re-evaluating only the goals
+ * whose nutrient's intake or goal amount changed.
+ * <p>
+ * The intake is supplied as a whole {@link NutrientVector}, such as a day's totals from a {@link
+ * NutritionRangeIndex}, and is compared nutrient by nutrient with the previous one. A {@link
+ * GoalProgress} is only created for a nutrient whose goal or intake differs; every other goal's
+ * progress is the same object as before. Nothing is evaluated until both the goals and the intake
+ * have been supplied.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Mitchell Ford
+ * @see NutritionGoalEngine
+ */
+public class GoalEvaluator {
+
+	/**
+	 * Stands for a nutrient without a goal in {@link GoalEvaluator#goals}.
+	 */
+	private static final int NO_GOAL = -1;
+
+	/**
+	 * The goal amount of each nutrient, indexed by {@link Nutrient#ordinal()}.
+	 */
+	private final int[] goals = new int[Nutrient.COUNT];
+
+	/**
+	 * The intake that the current progress was evaluated against.
+	 */
+	private final NutrientVector intake = new NutrientVector();
+
+	/**
+	 * The progress towards each nutrient's goal, indexed by {@link Nutrient#ordinal()}, or null for
+	 * nutrients without a goal.
+	 */
+	private final GoalProgress[] progress = new GoalProgress[Nutrient.COUNT];
+
+	/**
+	 * The day {@link GoalEvaluator#intake} is for, or {@link Long#MIN_VALUE} if no intake has been
+	 * supplied.
+	 */
+	private long day = Long.MIN_VALUE;
+
+	/**
+	 * Whether goals have been supplied.
+	 */
+	private boolean hasGoals;
+
+	/**
+	 * The number of {@link GoalProgress} objects that have been created.
+	 */
+	private long evaluations;
+
+	/**
+	 * Whether progress has been returned since both goals and intake were supplied, so that the
+	 * first evaluation is returned even if there are no goals.
+	 */
+	private boolean evaluated;
+
+	/**
+	 * Constructor for an evaluator with no goals or intake.
+	 */
+	public GoalEvaluator() {
+		Arrays.fill(goals, NO_GOAL);
+	}
+
+	/**
+	 * Replace the goals.
+	 *
+	 * @param nutritionGoals every goal; goals for unknown nutrients are ignored
+	 *
+	 * @return the progress towards every goal if it changed, otherwise null
+	 */
+	@Nullable
+	public List<GoalProgress> setGoals(@NonNull List<NutritionGoal> nutritionGoals) {
+		int[] newGoals = new int[Nutrient.COUNT];
+		Arrays.fill(newGoals, NO_GOAL);
+		for (NutritionGoal goal : nutritionGoals) {
+			if (goal.getNutrient() >= 0 && goal.getNutrient() < Nutrient.COUNT) {
+				newGoals[goal.getNutrient()] = goal.getAmount();
+			}
+		}
+
+		int changed = 0;
+		for (int k = 0; k < Nutrient.COUNT; k++) {
+			if (goals[k] != newGoals[k]) {
+				goals[k] = newGoals[k];
+				changed |= 1 << k;
+			}
+		}
+
+		if (!hasGoals) {
+			hasGoals = true;
+			changed = ~0;
+		}
+		return evaluate(changed);
+	}
+
+	/**
+	 * Replace the intake.
+	 * <p>
+	 * Changing the day re-evaluates every goal.
+	 *
+	 * @param day       the day the intake is for
+	 * @param dayIntake the day's total intake
+	 *
+	 * @return the progress towards every goal if it changed, otherwise null
+	 */
+	@Nullable
+	public List<GoalProgress> setIntake(long day, @NonNull NutrientVector dayIntake) {
+		int changed = 0;
+		if (day != this.day) {
+			this.day = day;
+			changed = ~0;
+		}
+
+		long[] values = intake.getValues();
+		long[] newValues = dayIntake.getValues();
+		for (int k = 0; k < Nutrient.COUNT; k++) {
+			if (values[k] != newValues[k]) {
+				values[k] = newValues[k];
+				changed |= 1 << k;
+			}
+		}
+		return evaluate(changed);
+	}
+
+	/**
+	 * Get the day that the intake is for.
+	 *
+	 * @return the day, or {@link Long#MIN_VALUE} if no intake has been supplied
+	 */
+	public long getDay() {
+		return day;
+	}
+
+	/**
+	 * Get the number of times a goal has been evaluated.
+	 *
+	 * @return the number of {@link GoalProgress} objects that have been created
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Re-evaluate the goals of some nutrients.
+	 *
+	 * @param changed a bit mask of the nutrients to re-evaluate, by {@link Nutrient#ordinal()}
+	 *
+	 * @return the progress towards every goal, ordered by nutrient, or null if no goal's progress
+	 * changed
+	 */
+	@Nullable
+	private List<GoalProgress> evaluate(int changed) {
+		if (changed == 0 || !hasGoals || day == Long.MIN_VALUE) {
+			return null;
+		}
+
+		long[] values = intake.getValues();
+		boolean progressChanged = false;
+		for (int k = 0; k < Nutrient.COUNT; k++) {
+			if ((changed & (1 << k)) != 0) {
+				if (goals[k] == NO_GOAL) {
+					progressChanged |= progress[k] != null;
+					progress[k] = null;
+				} else {
+					progress[k] = new GoalProgress(Nutrient.fromIndex(k), goals[k], values[k]);
+					progressChanged = true;
+					evaluations++;
+				}
+			}
+		}
+		if (!progressChanged && evaluated) {
+			return null;
+		}
+		evaluated = true;
+
+		List<GoalProgress> list = new ArrayList<>();
+		for (GoalProgress goalProgress : progress) {
+			if (goalProgress != null) {
+				list.add(goalProgress);
+			}
+		}
+		return Collections.unmodifiableList(list);
+	}
+}
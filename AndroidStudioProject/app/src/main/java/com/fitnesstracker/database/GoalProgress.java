@@ -0,0 +1,126 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * The progress of one day's intake of a nutrient towards a {@link
+ * com.fitnesstracker.database.entities.NutritionGoal}.
+ * <p>
+ * Objects of this class are immutable, so one that is unchanged from one evaluation to the next is
+ * the same object.
+ *
+ * @author Mitchell Ford
+ * @see GoalEvaluator
+ */
+public final class GoalProgress {
+
+	/**
+	 * The nutrient the goal is for.
+	 */
+	private final Nutrient nutrient;
+
+	/**
+	 * The goal amount, in the nutrient's unit.
+	 */
+	private final int goal;
+
+	/**
+	 * The amount of the nutrient eaten, in the nutrient's unit.
+	 */
+	private final long intake;
+
+	/**
+	 * Constructor that specifies every field.
+	 *
+	 * @param nutrient the nutrient the goal is for
+	 * @param goal     the goal amount
+	 * @param intake   the amount eaten
+	 */
+	public GoalProgress(@NonNull Nutrient nutrient, int goal, long intake) {
+		this.nutrient = nutrient;
+		this.goal = goal;
+		this.intake = intake;
+	}
+
+	/**
+	 * Get the nutrient the goal is for.
+	 *
+	 * @return the nutrient
+	 */
+	@NonNull
+	public Nutrient getNutrient() {
+		return nutrient;
+	}
+
+	/**
+	 * Get the goal amount.
+	 *
+	 * @return the goal amount, in the nutrient's unit
+	 */
+	public int getGoal() {
+		return goal;
+	}
+
+	/**
+	 * Get the amount of the nutrient eaten.
+	 *
+	 * @return the amount eaten, in the nutrient's unit
+	 */
+	public long getIntake() {
+		return intake;
+	}
+
+	/**
+	 * Get the amount left to eat to reach the goal.
+	 *
+	 * @return the amount remaining, which is negative once the goal has been exceeded
+	 */
+	public long getRemaining() {
+		return goal - intake;
+	}
+
+	/**
+	 * Get the fraction of the goal that has been eaten.
+	 *
+	 * @return the intake divided by the goal, or 1 if the goal is zero
+	 */
+	public double getFraction() {
+		return goal == 0 ? 1 : (double) intake / goal;
+	}
+
+	/**
+	 * Get whether the goal has been reached.
+	 *
+	 * @return true if the intake is at least the goal
+	 */
+	public boolean isMet() {
+		return intake >= goal;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		GoalProgress that = (GoalProgress) o;
+		return goal == that.goal &&
+				intake == that.intake &&
+				nutrient == that.nutrient;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(nutrient, goal, intake);
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return "GoalProgress{" +
+				"nutrient=" + nutrient +
+				", goal=" + goal +
+				", intake=" + intake +
+				'}';
+	}
+}
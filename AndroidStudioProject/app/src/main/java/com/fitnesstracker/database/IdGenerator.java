@@ -0,0 +1,23 @@
+package com.fitnesstracker.database;
+
+/**
+ * A source of primary keys for new entities.
+ * <p>
+ * The generator used by the entity constructors can be replaced with {@link
+ * IdGenerators#set(IdGenerator)}.
+ *
+ * @author Mitchell Ford
+ * @see SnowflakeIdGenerator
+ */
+public interface IdGenerator {
+
+	/**
+	 * Get a new ID.
+	 * <p>
+	 * Implementations must be safe to call from any thread and must never return the same ID
+	 * twice.
+	 *
+	 * @return a new ID
+	 */
+	long nextId();
+}
@@ -0,0 +1,50 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import java.security.SecureRandom;
+
+/**
+ * Holds the {@link IdGenerator} that entity constructors assign IDs with.
+ * <p>
+ * Until another generator is set, a {@link SnowflakeIdGenerator} with a random node ID is used.
+ * The application replaces it on startup with one whose node ID is stored on the device.
+ *
+ * @author Mitchell Ford
+ */
+public class IdGenerators {
+
+	/**
+	 * The generator that entity constructors assign IDs with.
+	 */
+	private static volatile IdGenerator generator =
+			new SnowflakeIdGenerator(new SecureRandom().nextInt(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+
+	/**
+	 * Get the generator that entity constructors assign IDs with.
+	 *
+	 * @return the current ID generator
+	 */
+	@NonNull
+	public static IdGenerator get() {
+		return generator;
+	}
+
+	/**
+	 * Set the generator that entity constructors assign IDs with.
+	 *
+	 * @param generator the new ID generator
+	 */
+	public static void set(@NonNull IdGenerator generator) {
+		IdGenerators.generator = generator;
+	}
+
+	/**
+	 * Get a new ID from the current generator.
+	 *
+	 * @return a new ID
+	 */
+	public static long nextId() {
+		return generator.nextId();
+	}
+}
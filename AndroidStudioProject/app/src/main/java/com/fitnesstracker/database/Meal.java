@@ -1,8 +1,6 @@
 package com.fitnesstracker.database;
 
 import androidx.annotation.NonNull;
-import androidx.room.Embedded;
-import androidx.room.Relation;
 
 import com.fitnesstracker.database.entities.Food;
 import com.fitnesstracker.database.entities.FoodDiaryEntry;
@@ -27,27 +25,21 @@ public class Meal {
 	/**
 	 * The {@link FoodDiaryEntry} this meal is modelled off of.
 	 */
-	@Embedded
 	private FoodDiaryEntry foodDiaryEntry;
 
 	/**
 	 * The food that was eaten in the meal represented by {@link Meal#foodDiaryEntry}.
 	 * <p>
-	 * In database queries, this field is automatically filled based on the relation between the
-	 * <code>food_id</code> column in {@link FoodDiaryEntry} and the <code>id</code> column in
-	 * {@link Food}.
+	 * In database queries, this field is filled from the row of {@link Food} whose <code>id</code>
+	 * column matches the <code>food_id</code> column in {@link FoodDiaryEntry}.
 	 */
-	@Relation(
-			parentColumn = "food_id",
-			entityColumn = "id"
-	)
 	private Food food;
 
 	/**
 	 * Constructor that specifies a diary entry and the food it corresponds to.
 	 * <p>
-	 * This is the constructor that the Room database should use; all others must have the
-	 * <code>@Ignore</code> annotation.
+	 * This is the constructor used by {@link com.fitnesstracker.database.daos.FoodDiaryEntryDao}
+	 * when mapping query results.
 	 *
 	 * @param foodDiaryEntry the diary entry this meal is modelled off of
 	 * @param food           the food that was eaten in this meal
@@ -0,0 +1,155 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.entities.Food;
+
+/**
+ * The nutrients tracked by {@link Food.NutritionInfo}, in the order of its fields.
+ * <p>
+ * A nutrient's {@link Nutrient#ordinal()} is its index in a {@link NutrientVector} and the value
+ * stored in {@link com.fitnesstracker.database.entities.NutritionGoal}'s <code>nutrient</code>
+ * column, so constants must only ever be added to the end.
+ *
+ * @author Mitchell Ford
+ */
+public enum Nutrient {
+
+	CALORIES("calories", "kcal"),
+	FAT_CALORIES("fat_calories", "kcal"),
+	TOTAL_FAT("total_fat", "g"),
+	SATURATED_FAT("saturated_fat", "g"),
+	TRANS_FAT("trans_fat", "g"),
+	CHOLESTEROL("cholesterol", "mg"),
+	SODIUM("sodium", "mg"),
+	TOTAL_CARBS("total_carbs", "g"),
+	DIETARY_FIBER("dietary_fiber", "g"),
+	TOTAL_SUGARS("total_sugars", "g"),
+	ADDED_SUGARS("added_sugars", "g"),
+	PROTEIN("protein", "g"),
+	VITAMIN_D("vitamin_d", "mcg"),
+	CALCIUM("calcium", "mg"),
+	IRON("iron", "mg"),
+	POTASSIUM("potassium", "mg");
+
+	/**
+	 * Every nutrient, indexed by ordinal, cached because {@link Nutrient#values()} copies its
+	 * array.
+	 */
+	private static final Nutrient[] VALUES = values();
+
+	/**
+	 * The number of nutrients.
+	 */
+	public static final int COUNT = VALUES.length;
+
+	/**
+	 * The name of this nutrient's column in an embedded {@link Food.NutritionInfo}, without the
+	 * embedding's prefix.
+	 */
+	private final String columnName;
+
+	/**
+	 * The unit this nutrient is measured in.
+	 */
+	private final String unit;
+
+	Nutrient(String columnName, String unit) {
+		this.columnName = columnName;
+		this.unit = unit;
+	}
+
+	/**
+	 * Get the nutrient with an index.
+	 *
+	 * @param index the nutrient's ordinal, as stored in the database
+	 *
+	 * @return the nutrient
+	 *
+	 * @throws IllegalArgumentException if there is no nutrient with the index
+	 */
+	@NonNull
+	public static Nutrient fromIndex(int index) {
+		if (index < 0 || index >= COUNT) {
+			throw new IllegalArgumentException("No nutrient with index " + index);
+		}
+		return VALUES[index];
+	}
+
+	/**
+	 * Get the name of this nutrient's column in an embedded {@link Food.NutritionInfo}.
+	 *
+	 * @return the column name, without the embedding's prefix
+	 */
+	@NonNull
+	public String getColumnName() {
+		return columnName;
+	}
+
+	/**
+	 * Get the unit this nutrient is measured in.
+	 *
+	 * @return the unit's abbreviation
+	 */
+	@NonNull
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Get the amount of this nutrient in a {@link Food.NutritionInfo}.
+	 *
+	 * @param nutritionInfo the nutrition info to read
+	 *
+	 * @return the amount of this nutrient
+	 */
+	public int get(@NonNull Food.NutritionInfo nutritionInfo) {
+		switch (this) {
+			case CALORIES: return nutritionInfo.calories;
+			case FAT_CALORIES: return nutritionInfo.fatCalories;
+			case TOTAL_FAT: return nutritionInfo.totalFat;
+			case SATURATED_FAT: return nutritionInfo.saturatedFat;
+			case TRANS_FAT: return nutritionInfo.transFat;
+			case CHOLESTEROL: return nutritionInfo.cholesterol;
+			case SODIUM: return nutritionInfo.sodium;
+			case TOTAL_CARBS: return nutritionInfo.totalCarbs;
+			case DIETARY_FIBER: return nutritionInfo.dietaryFiber;
+			case TOTAL_SUGARS: return nutritionInfo.totalSugars;
+			case ADDED_SUGARS: return nutritionInfo.addedSugars;
+			case PROTEIN: return nutritionInfo.protein;
+			case VITAMIN_D: return nutritionInfo.vitaminD;
+			case CALCIUM: return nutritionInfo.calcium;
+			case IRON: return nutritionInfo.iron;
+			case POTASSIUM: return nutritionInfo.potassium;
+			default: throw new AssertionError(this);
+		}
+	}
+
+	/**
+	 * Set the amount of this nutrient in a {@link Food.NutritionInfo}.
+	 *
+	 * @param nutritionInfo the nutrition info to modify
+	 * @param amount        the amount of this nutrient
+	 */
+	public void set(@NonNull Food.NutritionInfo nutritionInfo, int amount) {
+		switch (this) {
+			case CALORIES: nutritionInfo.calories = amount; break;
+			case FAT_CALORIES: nutritionInfo.fatCalories = amount; break;
+			case TOTAL_FAT: nutritionInfo.totalFat = amount; break;
+			case SATURATED_FAT: nutritionInfo.saturatedFat = amount; break;
+			case TRANS_FAT: nutritionInfo.transFat = amount; break;
+			case CHOLESTEROL: nutritionInfo.cholesterol = amount; break;
+			case SODIUM: nutritionInfo.sodium = amount; break;
+			case TOTAL_CARBS: nutritionInfo.totalCarbs = amount; break;
+			case DIETARY_FIBER: nutritionInfo.dietaryFiber = amount; break;
+			case TOTAL_SUGARS: nutritionInfo.totalSugars = amount; break;
+			case ADDED_SUGARS: nutritionInfo.addedSugars = amount; break;
+			case PROTEIN: nutritionInfo.protein = amount; break;
+			case VITAMIN_D: nutritionInfo.vitaminD = amount; break;
+			case CALCIUM: nutritionInfo.calcium = amount; break;
+			case IRON: nutritionInfo.iron = amount; break;
+			case POTASSIUM: nutritionInfo.potassium = amount; break;
+			default: throw new AssertionError(this);
+		}
+	}
+}
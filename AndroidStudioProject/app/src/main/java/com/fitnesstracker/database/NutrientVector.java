@@ -0,0 +1,318 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A mutable amount of every {@link Nutrient}, stored as a <code>long[]</code> indexed by {@link
+ * Nutrient#ordinal()}.
+ * <p>
+ * This is the type totals should be accumulated in. Unlike {@link Food.NutritionInfo}, none of its
+ * arithmetic allocates, it cannot overflow over any realistic diary, and it rounds the way {@link
+ * NutritionRollup} does: each meal contributes its food's nutrition info multiplied by its number
+ * of servings, rounded to the nearest whole unit. A total accumulated here is therefore exactly
+ * equal to the one stored in <code>daily_nutrition</code>.
+ * <p>
+ * A vector is meant to be reused; call {@link NutrientVector#clear()} rather than creating a new
+ * one for each total. Vectors are not thread safe.
+ *
+ * @author Mitchell Ford
+ */
+public final class NutrientVector {
+
+	/**
+	 * The amount of each nutrient, indexed by {@link Nutrient#ordinal()}.
+	 */
+	private final long[] values = new long[Nutrient.COUNT];
+
+	/**
+	 * Create a vector with no nutrients.
+	 */
+	public NutrientVector() {
+	}
+
+	/**
+	 * Create a vector with the same amounts as another one.
+	 *
+	 * @param other the vector to copy
+	 */
+	public NutrientVector(@NonNull NutrientVector other) {
+		System.arraycopy(other.values, 0, values, 0, values.length);
+	}
+
+	/**
+	 * Create a vector with the amounts in a {@link Food.NutritionInfo}.
+	 *
+	 * @param nutritionInfo the nutrition info to copy
+	 */
+	public NutrientVector(@NonNull Food.NutritionInfo nutritionInfo) {
+		add(nutritionInfo);
+	}
+
+	/**
+	 * Get the amount of a nutrient.
+	 *
+	 * @param nutrient the nutrient
+	 *
+	 * @return the amount, in the nutrient's unit
+	 */
+	public long get(@NonNull Nutrient nutrient) {
+		return values[nutrient.ordinal()];
+	}
+
+	/**
+	 * Get the array this vector's amounts are stored in, for code in this package that reads or
+	 * writes every amount at once.
+	 *
+	 * @return the amounts, indexed by {@link Nutrient#ordinal()}
+	 */
+	long[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Set the amount of a nutrient.
+	 *
+	 * @param nutrient the nutrient
+	 * @param amount   the amount, in the nutrient's unit
+	 */
+	public void set(@NonNull Nutrient nutrient, long amount) {
+		values[nutrient.ordinal()] = amount;
+	}
+
+	/**
+	 * Set every nutrient to zero so that this vector can be reused.
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector clear() {
+		Arrays.fill(values, 0);
+		return this;
+	}
+
+	/**
+	 * Set every nutrient to the amount in another vector.
+	 *
+	 * @param other the vector to copy
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector set(@NonNull NutrientVector other) {
+		System.arraycopy(other.values, 0, values, 0, values.length);
+		return this;
+	}
+
+	/**
+	 * Add the amounts in another vector to this one.
+	 *
+	 * @param other the vector to add
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector add(@NonNull NutrientVector other) {
+		long[] values = this.values;
+		long[] otherValues = other.values;
+		for (int i = 0; i < values.length; i++) {
+			values[i] += otherValues[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Subtract the amounts in another vector from this one.
+	 *
+	 * @param other the vector to subtract
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector subtract(@NonNull NutrientVector other) {
+		long[] values = this.values;
+		long[] otherValues = other.values;
+		for (int i = 0; i < values.length; i++) {
+			values[i] -= otherValues[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Add the amounts in a {@link Food.NutritionInfo} to this vector.
+	 *
+	 * @param nutritionInfo the nutrition info to add
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector add(@NonNull Food.NutritionInfo nutritionInfo) {
+		long[] values = this.values;
+		values[0] += nutritionInfo.calories;
+		values[1] += nutritionInfo.fatCalories;
+		values[2] += nutritionInfo.totalFat;
+		values[3] += nutritionInfo.saturatedFat;
+		values[4] += nutritionInfo.transFat;
+		values[5] += nutritionInfo.cholesterol;
+		values[6] += nutritionInfo.sodium;
+		values[7] += nutritionInfo.totalCarbs;
+		values[8] += nutritionInfo.dietaryFiber;
+		values[9] += nutritionInfo.totalSugars;
+		values[10] += nutritionInfo.addedSugars;
+		values[11] += nutritionInfo.protein;
+		values[12] += nutritionInfo.vitaminD;
+		values[13] += nutritionInfo.calcium;
+		values[14] += nutritionInfo.iron;
+		values[15] += nutritionInfo.potassium;
+		return this;
+	}
+
+	/**
+	 * Add the amounts in a {@link Food.NutritionInfo} multiplied by a scalar to this vector, each
+	 * rounded to the nearest whole unit.
+	 * <p>
+	 * This is equivalent to <code>add(nutritionInfo.times(scalar))</code> without creating a new
+	 * object.
+	 *
+	 * @param nutritionInfo the nutrition info to add
+	 * @param scalar        the number to multiply each amount by, such as a number of servings
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector addScaled(@NonNull Food.NutritionInfo nutritionInfo, double scalar) {
+		long[] values = this.values;
+		values[0] += Math.round(nutritionInfo.calories * scalar);
+		values[1] += Math.round(nutritionInfo.fatCalories * scalar);
+		values[2] += Math.round(nutritionInfo.totalFat * scalar);
+		values[3] += Math.round(nutritionInfo.saturatedFat * scalar);
+		values[4] += Math.round(nutritionInfo.transFat * scalar);
+		values[5] += Math.round(nutritionInfo.cholesterol * scalar);
+		values[6] += Math.round(nutritionInfo.sodium * scalar);
+		values[7] += Math.round(nutritionInfo.totalCarbs * scalar);
+		values[8] += Math.round(nutritionInfo.dietaryFiber * scalar);
+		values[9] += Math.round(nutritionInfo.totalSugars * scalar);
+		values[10] += Math.round(nutritionInfo.addedSugars * scalar);
+		values[11] += Math.round(nutritionInfo.protein * scalar);
+		values[12] += Math.round(nutritionInfo.vitaminD * scalar);
+		values[13] += Math.round(nutritionInfo.calcium * scalar);
+		values[14] += Math.round(nutritionInfo.iron * scalar);
+		values[15] += Math.round(nutritionInfo.potassium * scalar);
+		return this;
+	}
+
+	/**
+	 * Add the nutrition of a meal to this vector: its food's nutrition info multiplied by its
+	 * number of servings.
+	 *
+	 * @param meal the meal to add
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector add(@NonNull Meal meal) {
+		return addScaled(meal.getFood().getNutritionInfo(),
+				meal.getFoodDiaryEntry().getNumServings());
+	}
+
+	/**
+	 * Add the nutrition of every meal in a collection to this vector.
+	 *
+	 * @param meals the meals to add
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector addAll(@NonNull Collection<Meal> meals) {
+		for (Meal meal : meals) {
+			add(meal);
+		}
+		return this;
+	}
+
+	/**
+	 * Multiply every amount in this vector by a scalar, rounding each to the nearest whole unit.
+	 *
+	 * @param scalar the number to multiply each amount by
+	 *
+	 * @return this vector
+	 */
+	@NonNull
+	public NutrientVector scale(double scalar) {
+		long[] values = this.values;
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.round(values[i] * scalar);
+		}
+		return this;
+	}
+
+	/**
+	 * Copy the amounts in this vector into a {@link Food.NutritionInfo}.
+	 *
+	 * @param out the nutrition info to overwrite
+	 *
+	 * @return <code>out</code>
+	 *
+	 * @throws ArithmeticException if an amount does not fit in an <code>int</code>
+	 */
+	@NonNull
+	public Food.NutritionInfo toNutritionInfo(@NonNull Food.NutritionInfo out) {
+		long[] values = this.values;
+		out.calories = Math.toIntExact(values[0]);
+		out.fatCalories = Math.toIntExact(values[1]);
+		out.totalFat = Math.toIntExact(values[2]);
+		out.saturatedFat = Math.toIntExact(values[3]);
+		out.transFat = Math.toIntExact(values[4]);
+		out.cholesterol = Math.toIntExact(values[5]);
+		out.sodium = Math.toIntExact(values[6]);
+		out.totalCarbs = Math.toIntExact(values[7]);
+		out.dietaryFiber = Math.toIntExact(values[8]);
+		out.totalSugars = Math.toIntExact(values[9]);
+		out.addedSugars = Math.toIntExact(values[10]);
+		out.protein = Math.toIntExact(values[11]);
+		out.vitaminD = Math.toIntExact(values[12]);
+		out.calcium = Math.toIntExact(values[13]);
+		out.iron = Math.toIntExact(values[14]);
+		out.potassium = Math.toIntExact(values[15]);
+		return out;
+	}
+
+	/**
+	 * Create a new {@link Food.NutritionInfo} with the amounts in this vector.
+	 *
+	 * @return the new object
+	 *
+	 * @throws ArithmeticException if an amount does not fit in an <code>int</code>
+	 */
+	@NonNull
+	public Food.NutritionInfo toNutritionInfo() {
+		return toNutritionInfo(new Food.NutritionInfo());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		return Arrays.equals(values, ((NutrientVector) o).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder("NutrientVector{");
+		for (Nutrient nutrient : Nutrient.values()) {
+			string.append(nutrient.ordinal() == 0 ? "" : ", ")
+					.append(nutrient.getColumnName()).append('=').append(values[nutrient.ordinal()]);
+		}
+		return string.append('}').toString();
+	}
+}
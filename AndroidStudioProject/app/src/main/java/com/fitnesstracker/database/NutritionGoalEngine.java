@@ -0,0 +1,128 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Observer;
+
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.NutritionGoal;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * A {@link LiveData} of the progress of today's intake towards every {@link NutritionGoal}.
+ * <p>
+ * Today's intake is read from a {@link NutritionRangeIndex} whenever the index reports that today
+ * changed, which costs the same however many entries the day has, and goals are only re-evaluated
+ * for the nutrients whose intake or goal changed (see {@link GoalEvaluator}). A new list is only
+ * posted when some goal's progress changed.
+ * <p>
+ * The day is checked again whenever the intake or goals change and whenever this object becomes
+ * active, so the progress moves on to a new day the first time it is looked at after midnight.
+ *
+ * @author Mitchell Ford
+ */
+public class NutritionGoalEngine extends MediatorLiveData<List<GoalProgress>>
+		implements NutritionRangeIndex.Listener {
+
+	/**
+	 * The index today's intake is read from.
+	 */
+	private final NutritionRangeIndex index;
+
+	/**
+	 * The clock that decides which day is today.
+	 */
+	private final Clock clock;
+
+	/**
+	 * The evaluator that holds the goals and intake, guarded by this object's lock.
+	 */
+	private final GoalEvaluator evaluator = new GoalEvaluator();
+
+	/**
+	 * Reused to read today's intake from {@link NutritionGoalEngine#index}, guarded by this
+	 * object's lock.
+	 */
+	private final NutrientVector intake = new NutrientVector();
+
+	/**
+	 * Constructor that specifies where intake and goals come from.
+	 *
+	 * @param index the index today's intake is read from
+	 * @param goals every goal, such as from {@link com.fitnesstracker.database.daos.NutritionGoalDao#getAllLD()}
+	 * @param clock the clock that decides which day is today
+	 */
+	public NutritionGoalEngine(@NonNull NutritionRangeIndex index,
+	                           @NonNull LiveData<List<NutritionGoal>> goals, @NonNull Clock clock) {
+		this.index = index;
+		this.clock = clock;
+		addSource(goals, new Observer<List<NutritionGoal>>() {
+			@Override public void onChanged(List<NutritionGoal> nutritionGoals) {
+				if (nutritionGoals != null) {
+					onGoalsChanged(nutritionGoals);
+				}
+			}
+		});
+	}
+
+	@Override
+	protected void onActive() {
+		super.onActive();
+		index.addListener(this);
+		refreshIntake();
+	}
+
+	@Override
+	protected void onInactive() {
+		super.onInactive();
+		index.removeListener(this);
+	}
+
+	@Override
+	public void onNutritionChanged(long fromDay, long toDay) {
+		long today = FoodDiaryEntry.toLocalDay(clock.millis());
+		if ((today >= fromDay && today <= toDay) || today != getEvaluatedDay()) {
+			refreshIntake();
+		}
+	}
+
+	/**
+	 * Re-evaluate the goals that changed and post the progress if any did.
+	 *
+	 * @param goals every goal
+	 */
+	private synchronized void onGoalsChanged(@NonNull List<NutritionGoal> goals) {
+		List<GoalProgress> progress = evaluator.setGoals(goals);
+		if (progress != null) {
+			postValue(progress);
+		}
+		refreshIntake();
+	}
+
+	/**
+	 * Read today's intake from the index, re-evaluate the goals whose intake changed, and post the
+	 * progress if any did.
+	 */
+	private synchronized void refreshIntake() {
+		if (!index.isLoaded()) {
+			return;
+		}
+		long today = FoodDiaryEntry.toLocalDay(clock.millis());
+		List<GoalProgress> progress = evaluator.setIntake(today, index.getDay(today, intake));
+		if (progress != null) {
+			postValue(progress);
+		}
+	}
+
+	/**
+	 * Get the day the progress was last evaluated for.
+	 *
+	 * @return the day, or {@link Long#MIN_VALUE} if no progress has been evaluated
+	 */
+	private synchronized long getEvaluatedDay() {
+		return evaluator.getDay();
+	}
+}
@@ -0,0 +1,246 @@
+package com.fitnesstracker.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A task that keeps a {@link NutritionRangeIndex} in sync with the <code>daily_nutrition</code>
+ * table.
+ * <p>
+ * The first time it runs, the task loads every row of the table into the index. It also creates a
+ * temporary table and temporary triggers that record the day of every row of
+ * <code>daily_nutrition</code> that is inserted, updated, or deleted, the same way Room's {@link
+ * InvalidationTracker} records which tables changed. Whenever Room reports that the table changed,
+ * the task runs again on the write lane and copies only the recorded days into the index.
+ * <p>
+ * Temporary objects belong to the connection that created them, so they are created and read
+ * inside transactions, which always run on the connection that every write runs on.
+ *
+ * @author Mitchell Ford
+ */
+public class NutritionIndexUpdater implements Runnable {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "NutritionIndexUpdater";
+
+	/**
+	 * The name of the temporary table that changed days are recorded in.
+	 */
+	private static final String LOG_TABLE = "nutrition_index_log";
+
+	/**
+	 * The database to read from.
+	 */
+	private final RoomDatabase db;
+
+	/**
+	 * The index to keep in sync.
+	 */
+	private final NutritionRangeIndex index;
+
+	/**
+	 * The executor to run this task on, which should be the write lane of a {@link
+	 * DatabaseScheduler}.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Whether this task has been handed to {@link NutritionIndexUpdater#executor} and has not yet
+	 * started, so that a burst of changes only runs it once.
+	 */
+	private final AtomicBoolean pending = new AtomicBoolean();
+
+	/**
+	 * Whether the index has been loaded and the temporary triggers created. Only accessed on
+	 * {@link NutritionIndexUpdater#executor}.
+	 */
+	private boolean started;
+
+	/**
+	 * Reused to copy each changed day into the index.
+	 */
+	private final NutrientVector totals = new NutrientVector();
+
+	/**
+	 * Constructor that specifies the database, the index, and where to run.
+	 *
+	 * @param db       the database to read from
+	 * @param index    the index to keep in sync
+	 * @param executor the executor to run on, which should be the write lane of a {@link
+	 *                 DatabaseScheduler}
+	 */
+	public NutritionIndexUpdater(@NonNull RoomDatabase db, @NonNull NutritionRangeIndex index,
+	                             @NonNull Executor executor) {
+		this.db = db;
+		this.index = index;
+		this.executor = executor;
+	}
+
+	/**
+	 * Load the index in the background and keep it in sync from then on.
+	 */
+	public void start() {
+		db.getInvalidationTracker().addObserver(
+				new InvalidationTracker.Observer("daily_nutrition") {
+					@Override public void onInvalidated(@NonNull Set<String> tables) {
+						schedule();
+					}
+				});
+		schedule();
+	}
+
+	/**
+	 * Hand this task to its executor unless it is already waiting to run.
+	 */
+	private void schedule() {
+		if (pending.compareAndSet(false, true)) {
+			executor.execute(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		pending.set(false);
+		if (!db.isOpen()) {
+			return;
+		}
+
+		try {
+			if (started) {
+				applyChanges();
+			} else {
+				load();
+				started = true;
+			}
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Failed to update the nutrition index", e);
+		}
+	}
+
+	/**
+	 * Create the temporary table and triggers and load every row of <code>daily_nutrition</code>
+	 * into the index, in one transaction so that no change is missed.
+	 */
+	private void load() {
+		long start = System.nanoTime();
+		SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+		long[] days = new long[64];
+		long[] totals = new long[days.length * Nutrient.COUNT];
+		int count = 0;
+
+		database.beginTransaction();
+		try {
+			database.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + LOG_TABLE +
+					" (day INTEGER PRIMARY KEY)");
+			database.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS " + LOG_TABLE + "_insert" +
+					" AFTER INSERT ON daily_nutrition BEGIN" +
+					" INSERT OR IGNORE INTO " + LOG_TABLE + " VALUES (NEW.day); END");
+			database.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS " + LOG_TABLE + "_update" +
+					" AFTER UPDATE ON daily_nutrition BEGIN" +
+					" INSERT OR IGNORE INTO " + LOG_TABLE + " VALUES (OLD.day);" +
+					" INSERT OR IGNORE INTO " + LOG_TABLE + " VALUES (NEW.day); END");
+			database.execSQL("CREATE TEMP TRIGGER IF NOT EXISTS " + LOG_TABLE + "_delete" +
+					" AFTER DELETE ON daily_nutrition BEGIN" +
+					" INSERT OR IGNORE INTO " + LOG_TABLE + " VALUES (OLD.day); END");
+			database.execSQL("DELETE FROM " + LOG_TABLE);
+
+			Cursor cursor = database.query(selectTotals("n.day", "daily_nutrition AS n"));
+			try {
+				while (cursor.moveToNext()) {
+					if (count == days.length) {
+						days = Arrays.copyOf(days, count * 2);
+						totals = Arrays.copyOf(totals, days.length * Nutrient.COUNT);
+					}
+					days[count] = cursor.getLong(0);
+					for (int k = 0; k < Nutrient.COUNT; k++) {
+						totals[count * Nutrient.COUNT + k] = cursor.getLong(k + 1);
+					}
+					count++;
+				}
+			} finally {
+				cursor.close();
+			}
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+
+		index.reset(days, totals, count);
+		Log.i(TAG, String.format(Locale.US, "Loaded %d days in %.1f ms", count,
+				(System.nanoTime() - start) / 1e6));
+	}
+
+	/**
+	 * Copy the current totals of every day recorded in the temporary table into the index and
+	 * clear the table.
+	 * <p>
+	 * The totals are copied rather than the differences, so copying a day twice is harmless.
+	 */
+	private void applyChanges() {
+		SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+		long[] days;
+		long[] changed;
+		int count = 0;
+
+		database.beginTransaction();
+		try {
+			// Days whose row was deleted have no match and are read as zeros
+			Cursor cursor = database.query(selectTotals("l.day", LOG_TABLE + " AS l" +
+					" LEFT JOIN daily_nutrition AS n ON n.day = l.day"));
+			try {
+				days = new long[cursor.getCount()];
+				changed = new long[days.length * Nutrient.COUNT];
+				while (cursor.moveToNext()) {
+					days[count] = cursor.getLong(0);
+					for (int k = 0; k < Nutrient.COUNT; k++) {
+						changed[count * Nutrient.COUNT + k] = cursor.getLong(k + 1);
+					}
+					count++;
+				}
+			} finally {
+				cursor.close();
+			}
+			database.execSQL("DELETE FROM " + LOG_TABLE);
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+
+		long[] values = totals.getValues();
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(changed, i * Nutrient.COUNT, values, 0, Nutrient.COUNT);
+			index.set(days[i], totals);
+		}
+	}
+
+	/**
+	 * Build a query of a day followed by its total of each nutrient, in the order of {@link
+	 * Nutrient}.
+	 *
+	 * @param day  the column holding the day
+	 * @param from the <code>FROM</code> clause, which must give <code>daily_nutrition</code> the
+	 *             alias <code>n</code>
+	 *
+	 * @return the query
+	 */
+	private static String selectTotals(String day, String from) {
+		StringBuilder sql = new StringBuilder("SELECT ").append(day);
+		for (String column : NutritionRollup.NUTRIENT_COLUMNS) {
+			sql.append(", n.").append(column);
+		}
+		return sql.append(" FROM ").append(from).toString();
+	}
+}
@@ -0,0 +1,339 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-memory index of the total nutrition of every day in the diary that answers the total of
+ * any range of days in <i>O(log days)</i> time without querying the database.
+ * <p>
+ * The index is a Fenwick tree (binary indexed tree) of {@link NutrientVector}-shaped nodes over a
+ * contiguous window of days, stored in one flat <code>long[]</code>. Updating one day's totals
+ * costs <i>O(log days)</i> as well. The window starts at the first day that was set and doubles
+ * in either direction when a day outside it is set.
+ * <p>
+ * The index mirrors the <code>daily_nutrition</code> table and is kept in sync with it by a
+ * {@link NutritionIndexUpdater}, so its totals round exactly the way the table's do. All methods
+ * are thread safe.
+ *
+ * @author Mitchell Ford
+ * @see com.fitnesstracker.database.entities.DailyNutrition
+ */
+public class NutritionRangeIndex {
+
+	/**
+	 * Receives notice of changes to the index.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after the totals of a range of days may have changed, on the thread that changed
+		 * them.
+		 *
+		 * @param fromDay the first day that may have changed
+		 * @param toDay   the last day that may have changed, inclusive
+		 */
+		void onNutritionChanged(long fromDay, long toDay);
+	}
+
+	/**
+	 * The number of days the window covers once the first day is set.
+	 */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * The largest number of days the window can cover, about 2,900 years, which guards against
+	 * corrupt days turning into huge allocations.
+	 */
+	private static final int MAX_CAPACITY = 1 << 20;
+
+	/**
+	 * The number of amounts in each day and each node of the tree.
+	 */
+	private static final int STRIDE = Nutrient.COUNT;
+
+	/**
+	 * The listeners to notify of changes.
+	 */
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The first day in the window.
+	 */
+	private long origin;
+
+	/**
+	 * The number of days in the window, zero until a day has been set, and otherwise a power of
+	 * two.
+	 */
+	private int capacity;
+
+	/**
+	 * The totals of each day in the window; the totals of day <code>origin + d</code> begin at
+	 * index <code>d * STRIDE</code>.
+	 */
+	private long[] days = new long[0];
+
+	/**
+	 * The nodes of the tree; node <code>i</code>, for <code>1 <= i <= capacity</code>, begins at
+	 * index <code>i * STRIDE</code> and holds the sum of the <code>i & -i</code> days ending at
+	 * day <code>origin + i - 1</code>.
+	 */
+	private long[] tree = new long[STRIDE];
+
+	/**
+	 * Scratch space for the difference between a day's old and new totals.
+	 */
+	private final long[] delta = new long[STRIDE];
+
+	/**
+	 * Whether the index has been loaded from the database.
+	 */
+	private boolean loaded;
+
+	/**
+	 * Get whether the index has been loaded from the database. Until then every total is zero.
+	 *
+	 * @return true if the index has been loaded
+	 */
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Get the total nutrition of a range of days.
+	 *
+	 * @param fromDay the first day, as the number of days since January 1st 1970 in the device's
+	 *                time zone
+	 * @param toDay   the last day, inclusive
+	 * @param out     the vector to write the total to
+	 *
+	 * @return <code>out</code>
+	 */
+	@NonNull
+	public synchronized NutrientVector getTotal(long fromDay, long toDay,
+	                                            @NonNull NutrientVector out) {
+		out.clear();
+		long from = Math.max(fromDay, origin);
+		long to = Math.min(toDay, origin + capacity - 1);
+		if (from > to) {
+			return out;
+		}
+
+		long[] values = out.getValues();
+		addPrefix(values, (int) (to - origin + 1), 1);
+		addPrefix(values, (int) (from - origin), -1);
+		return out;
+	}
+
+	/**
+	 * Get the total nutrition of one day.
+	 *
+	 * @param day the day
+	 * @param out the vector to write the total to
+	 *
+	 * @return <code>out</code>
+	 */
+	@NonNull
+	public synchronized NutrientVector getDay(long day, @NonNull NutrientVector out) {
+		out.clear();
+		if (day >= origin && day < origin + capacity) {
+			System.arraycopy(days, (int) (day - origin) * STRIDE, out.getValues(), 0, STRIDE);
+		}
+		return out;
+	}
+
+	/**
+	 * Set the total nutrition of one day and notify listeners if it changed.
+	 *
+	 * @param day    the day
+	 * @param totals the day's new totals
+	 *
+	 * @throws IllegalArgumentException if covering the day would make the window larger than
+	 *                                  {@link NutritionRangeIndex#MAX_CAPACITY} days
+	 */
+	public void set(long day, @NonNull NutrientVector totals) {
+		if (update(day, totals.getValues())) {
+			for (Listener listener : listeners) {
+				listener.onNutritionChanged(day, day);
+			}
+		}
+	}
+
+	/**
+	 * Replace every day's totals and notify listeners that every day may have changed.
+	 *
+	 * @param dayList the days to set, in any order
+	 * @param totals  the totals of each day, with the totals of <code>dayList[i]</code> beginning
+	 *                at index <code>i * Nutrient.COUNT</code>
+	 * @param count   the number of days to set
+	 */
+	void reset(long[] dayList, long[] totals, int count) {
+		synchronized (this) {
+			origin = 0;
+			capacity = 0;
+			days = new long[0];
+			tree = new long[STRIDE];
+			if (count > 0) {
+				long first = Long.MAX_VALUE;
+				long last = Long.MIN_VALUE;
+				for (int i = 0; i < count; i++) {
+					first = Math.min(first, dayList[i]);
+					last = Math.max(last, dayList[i]);
+				}
+				resize(first, capacityFor(last - first + 1));
+				for (int i = 0; i < count; i++) {
+					System.arraycopy(totals, i * STRIDE,
+							days, (int) (dayList[i] - origin) * STRIDE, STRIDE);
+				}
+				rebuildTree();
+			}
+			loaded = true;
+		}
+		for (Listener listener : listeners) {
+			listener.onNutritionChanged(Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Add a listener to notify of changes.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(@NonNull Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a listener added with {@link NutritionRangeIndex#addListener(Listener)}.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeListener(@NonNull Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Set the totals of one day, growing the window if needed.
+	 *
+	 * @param day    the day
+	 * @param values the day's new totals, indexed by {@link Nutrient#ordinal()}
+	 *
+	 * @return true if the day's totals changed
+	 */
+	private synchronized boolean update(long day, long[] values) {
+		if (capacity == 0) {
+			resize(day, INITIAL_CAPACITY);
+		} else if (day < origin) {
+			long span = origin + capacity - day;
+			int newCapacity = capacityFor(span);
+			resize(origin + capacity - newCapacity, newCapacity);
+		} else if (day >= origin + capacity) {
+			resize(origin, capacityFor(day - origin + 1));
+		}
+
+		int offset = (int) (day - origin) * STRIDE;
+		boolean changed = false;
+		for (int k = 0; k < STRIDE; k++) {
+			delta[k] = values[k] - days[offset + k];
+			changed |= delta[k] != 0;
+		}
+		if (!changed) {
+			return false;
+		}
+		System.arraycopy(values, 0, days, offset, STRIDE);
+
+		for (int i = (int) (day - origin) + 1; i <= capacity; i += i & -i) {
+			int node = i * STRIDE;
+			for (int k = 0; k < STRIDE; k++) {
+				tree[node + k] += delta[k];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add or subtract the sum of the first days in the window.
+	 *
+	 * @param out   the amounts to add the sum to
+	 * @param count the number of days from the start of the window to sum
+	 * @param sign  1 to add the sum, or -1 to subtract it
+	 */
+	private void addPrefix(long[] out, int count, int sign) {
+		for (int i = count; i > 0; i -= i & -i) {
+			int node = i * STRIDE;
+			for (int k = 0; k < STRIDE; k++) {
+				out[k] += sign * tree[node + k];
+			}
+		}
+	}
+
+	/**
+	 * Move and resize the window, keeping the totals of every day in it.
+	 *
+	 * @param newOrigin   the first day of the new window, which must not be after the first day of
+	 *                    the current one
+	 * @param newCapacity the number of days in the new window
+	 */
+	private void resize(long newOrigin, int newCapacity) {
+		long[] newDays = new long[newCapacity * STRIDE];
+		if (capacity > 0) {
+			System.arraycopy(days, 0, newDays, (int) (origin - newOrigin) * STRIDE, days.length);
+		}
+		origin = newOrigin;
+		capacity = newCapacity;
+		days = newDays;
+		rebuildTree();
+	}
+
+	/**
+	 * Rebuild every node of the tree from {@link NutritionRangeIndex#days} in linear time.
+	 */
+	private void rebuildTree() {
+		tree = new long[(capacity + 1) * STRIDE];
+		System.arraycopy(days, 0, tree, STRIDE, days.length);
+		for (int i = 1; i <= capacity; i++) {
+			int parent = i + (i & -i);
+			if (parent <= capacity) {
+				for (int k = 0; k < STRIDE; k++) {
+					tree[parent * STRIDE + k] += tree[i * STRIDE + k];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the smallest capacity that covers a number of days.
+	 *
+	 * @param span the number of days
+	 *
+	 * @return a power of two no smaller than <code>span</code> or {@link
+	 * NutritionRangeIndex#INITIAL_CAPACITY}
+	 *
+	 * @throws IllegalArgumentException if the span is larger than {@link
+	 *                                  NutritionRangeIndex#MAX_CAPACITY}
+	 */
+	private static int capacityFor(long span) {
+		if (span > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Cannot index a span of " + span + " days");
+		}
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < span) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	@NonNull
+	@Override
+	public synchronized String toString() {
+		return capacity == 0
+				? String.format(Locale.US, "%s, empty", loaded ? "loaded" : "not loaded")
+				: String.format(Locale.US, "%s, days %d to %d, %d KiB",
+						loaded ? "loaded" : "not loaded", origin, origin + capacity - 1,
+						(days.length + tree.length) * 8 / 1024);
+	}
+}
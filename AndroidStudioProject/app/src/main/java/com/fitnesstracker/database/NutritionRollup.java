@@ -0,0 +1,200 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SQLite triggers that keep the <code>daily_nutrition</code> table consistent with
+ * <code>diary_food</code> and <code>food</code>.
+ * <p>
+ * Every diary entry contributes its food's nutrition info multiplied by its number of servings,
+ * rounded to the nearest whole unit, to the row for its day. The triggers apply the difference
+ * whenever an entry is inserted, updated, or deleted, or when the nutrition info of a food with
+ * entries changes, so the cost of a write is proportional to the number of rows it touches rather
+ * than to the size of the diary.
+ * <p>
+ * Room does not know about triggers, so they must be created both when the database is created
+ * (see {@link FTDatabase#CALLBACK}) and by the migration that introduces them.
+ *
+ * @author Mitchell Ford
+ * @see com.fitnesstracker.database.entities.DailyNutrition
+ */
+public class NutritionRollup {
+
+	/**
+	 * The names of the nutrient columns shared by <code>food</code> and
+	 * <code>daily_nutrition</code>, in the order of {@link Nutrient}.
+	 */
+	static final String[] NUTRIENT_COLUMNS = new String[Nutrient.COUNT];
+
+	static {
+		for (Nutrient nutrient : Nutrient.values()) {
+			NUTRIENT_COLUMNS[nutrient.ordinal()] = "nutrition_" + nutrient.getColumnName();
+		}
+	}
+
+	/**
+	 * Create the triggers if they do not already exist.
+	 *
+	 * @param db the database to create the triggers in
+	 */
+	public static void createTriggers(@NonNull SupportSQLiteDatabase db) {
+		for (String sql : getTriggerSql()) {
+			db.execSQL(sql);
+		}
+	}
+
+	/**
+	 * Recompute every row of <code>daily_nutrition</code> from <code>diary_food</code>.
+	 * <p>
+	 * This is only needed when the triggers could not have seen every change, such as right after
+	 * they are first created.
+	 *
+	 * @param db the database whose totals should be recomputed
+	 */
+	public static void rebuild(@NonNull SupportSQLiteDatabase db) {
+		StringBuilder sql = new StringBuilder("INSERT INTO daily_nutrition (day, entries");
+		for (String column : NUTRIENT_COLUMNS) {
+			sql.append(", ").append(column);
+		}
+		sql.append(") SELECT d.day, COUNT(*)");
+		for (String column : NUTRIENT_COLUMNS) {
+			sql.append(", CAST(SUM(ROUND(f.").append(column).append(" * d.num_servings)) AS INTEGER)");
+		}
+		sql.append(" FROM diary_food AS d INNER JOIN food AS f ON f.id = d.food_id GROUP BY d.day");
+
+		db.execSQL("DELETE FROM daily_nutrition");
+		db.execSQL(sql.toString());
+	}
+
+	/**
+	 * Get the SQL statements that create the triggers.
+	 *
+	 * @return a list of <code>CREATE TRIGGER</code> statements
+	 */
+	@NonNull
+	static List<String> getTriggerSql() {
+		List<String> triggers = new ArrayList<>();
+
+		triggers.add("CREATE TRIGGER IF NOT EXISTS daily_nutrition_after_diary_insert" +
+				" AFTER INSERT ON diary_food BEGIN " +
+				addEntry("NEW") +
+				" END");
+
+		triggers.add("CREATE TRIGGER IF NOT EXISTS daily_nutrition_after_diary_delete" +
+				" AFTER DELETE ON diary_food BEGIN " +
+				removeEntry("OLD") +
+				" END");
+
+		triggers.add("CREATE TRIGGER IF NOT EXISTS daily_nutrition_after_diary_update" +
+				" AFTER UPDATE OF food_id, num_servings, day ON diary_food BEGIN " +
+				removeEntry("OLD") +
+				addEntry("NEW") +
+				" END");
+
+		// Delete a food's entries before the food itself, while the food's nutrition info can
+		// still be read, instead of leaving them to the foreign key's ON DELETE CASCADE
+		triggers.add("CREATE TRIGGER IF NOT EXISTS daily_nutrition_before_food_delete" +
+				" BEFORE DELETE ON food BEGIN" +
+				" DELETE FROM diary_food WHERE food_id = OLD.id;" +
+				" END");
+
+		// Apply the change in a food's nutrition info to every day it was eaten on
+		StringBuilder foodUpdate = new StringBuilder(
+				"CREATE TRIGGER IF NOT EXISTS daily_nutrition_after_food_update" +
+				" AFTER UPDATE OF ");
+		appendColumns(foodUpdate, "");
+		foodUpdate.append(" ON food WHEN ");
+		for (int i = 0; i < NUTRIENT_COLUMNS.length; i++) {
+			String column = NUTRIENT_COLUMNS[i];
+			foodUpdate.append(i == 0 ? "" : " OR ")
+					.append("OLD.").append(column).append(" <> NEW.").append(column);
+		}
+		foodUpdate.append(" BEGIN UPDATE daily_nutrition SET ");
+		for (int i = 0; i < NUTRIENT_COLUMNS.length; i++) {
+			String column = NUTRIENT_COLUMNS[i];
+			foodUpdate.append(i == 0 ? "" : ", ")
+					.append(column).append(" = ").append(column)
+					.append(" + COALESCE((SELECT CAST(SUM(")
+					.append("ROUND(NEW.").append(column).append(" * d.num_servings) - ")
+					.append("ROUND(OLD.").append(column).append(" * d.num_servings)")
+					.append(") AS INTEGER) FROM diary_food AS d")
+					.append(" WHERE d.food_id = NEW.id AND d.day = daily_nutrition.day), 0)");
+		}
+		foodUpdate.append(" WHERE day IN (SELECT day FROM diary_food WHERE food_id = NEW.id); END");
+		triggers.add(foodUpdate.toString());
+
+		return triggers;
+	}
+
+	/**
+	 * Get the statements that add a diary entry to its day's totals.
+	 *
+	 * @param row the trigger row holding the entry, <code>NEW</code> or <code>OLD</code>
+	 *
+	 * @return the statements, each terminated with a semicolon
+	 */
+	private static String addEntry(String row) {
+		StringBuilder sql = new StringBuilder("INSERT OR IGNORE INTO daily_nutrition (day, entries");
+		appendColumns(sql, ", ");
+		sql.append(") VALUES (").append(row).append(".day, 0");
+		for (int i = 0; i < NUTRIENT_COLUMNS.length; i++) {
+			sql.append(", 0");
+		}
+		sql.append("); ");
+		sql.append(applyEntry(row, "+"));
+		return sql.toString();
+	}
+
+	/**
+	 * Get the statements that remove a diary entry from its day's totals.
+	 * <p>
+	 * The day's row is deleted once it has no entries left.
+	 *
+	 * @param row the trigger row holding the entry, <code>NEW</code> or <code>OLD</code>
+	 *
+	 * @return the statements, each terminated with a semicolon
+	 */
+	private static String removeEntry(String row) {
+		return applyEntry(row, "-") +
+				" DELETE FROM daily_nutrition WHERE day = " + row + ".day AND entries <= 0;";
+	}
+
+	/**
+	 * Get the statement that adds a diary entry to or subtracts it from its day's totals.
+	 * <p>
+	 * If the entry's food no longer exists, only the number of entries is changed.
+	 *
+	 * @param row      the trigger row holding the entry, <code>NEW</code> or <code>OLD</code>
+	 * @param operator <code>+</code> or <code>-</code>
+	 *
+	 * @return the statement, terminated with a semicolon
+	 */
+	private static String applyEntry(String row, String operator) {
+		StringBuilder sql = new StringBuilder("UPDATE daily_nutrition SET entries = entries ")
+				.append(operator).append(" 1");
+		for (String column : NUTRIENT_COLUMNS) {
+			sql.append(", ").append(column).append(" = ").append(column).append(' ').append(operator)
+					.append(" COALESCE((SELECT CAST(ROUND(f.").append(column).append(" * ")
+					.append(row).append(".num_servings) AS INTEGER) FROM food AS f WHERE f.id = ")
+					.append(row).append(".food_id), 0)");
+		}
+		sql.append(" WHERE day = ").append(row).append(".day;");
+		return sql.toString();
+	}
+
+	/**
+	 * Append {@link NutritionRollup#NUTRIENT_COLUMNS} to a statement as a comma separated list.
+	 *
+	 * @param sql    the statement to append to
+	 * @param prefix the text to append before the first column
+	 */
+	private static void appendColumns(StringBuilder sql, String prefix) {
+		for (int i = 0; i < NUTRIENT_COLUMNS.length; i++) {
+			sql.append(i == 0 ? prefix : ", ").append(NUTRIENT_COLUMNS[i]);
+		}
+	}
+}
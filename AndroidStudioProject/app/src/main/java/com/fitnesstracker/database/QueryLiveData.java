@@ -0,0 +1,173 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link LiveData} that holds the result of a hand-written query and re-runs it whenever one of
+ * the tables it reads from changes.
+ * <p>
+ * This is the equivalent of the {@link LiveData} objects that Room generates for
+ * <code>@Query</code> methods, for queries that Room does not map itself. It can also be made to
+ * keep watching its tables while it has no active observers, so that data shared for the lifetime
+ * of the app is only queried again on becoming active if one of them changed.
+ *
+ * @param <T> the type of the query's result
+ *
+ * @author Mitchell Ford
+ */
+public class QueryLiveData<T> extends LiveData<T> {
+
+	/**
+	 * The invalidation tracker of the database being queried.
+	 */
+	private final InvalidationTracker invalidationTracker;
+
+	/**
+	 * The executor that queries are run on.
+	 */
+	private final Executor executor;
+
+	/**
+	 * The query whose result this object holds.
+	 */
+	private final Callable<T> query;
+
+	/**
+	 * Observer that marks the result as stale when one of the queried tables changes.
+	 */
+	private final InvalidationTracker.Observer observer;
+
+	/**
+	 * Whether {@link QueryLiveData#observer} is currently registered with the invalidation
+	 * tracker.
+	 */
+	private final AtomicBoolean registered = new AtomicBoolean(false);
+
+	/**
+	 * Whether the current result is stale and the query needs to be run again.
+	 */
+	private final AtomicBoolean invalid = new AtomicBoolean(true);
+
+	/**
+	 * Whether the query is currently being run.
+	 */
+	private final AtomicBoolean computing = new AtomicBoolean(false);
+
+	/**
+	 * Whether {@link QueryLiveData#observer} stays registered while this object is inactive.
+	 */
+	private final boolean keepObserving;
+
+	/**
+	 * Runs the query until the result is no longer stale and posts the result.
+	 */
+	private final Runnable refreshRunnable = new Runnable() {
+		@Override public void run() {
+			if (registered.compareAndSet(false, true)) {
+				invalidationTracker.addObserver(observer);
+			}
+
+			boolean computed;
+			do {
+				computed = false;
+				if (computing.compareAndSet(false, true)) {
+					try {
+						T value = null;
+						while (invalid.compareAndSet(true, false)) {
+							computed = true;
+							try {
+								value = query.call();
+							} catch (Exception e) {
+								throw new RuntimeException("Exception while computing query results", e);
+							}
+						}
+						if (computed) {
+							postValue(value);
+						}
+					} finally {
+						computing.set(false);
+					}
+				}
+				// Another thread may have invalidated the result while this one was posting it
+			} while (computed && invalid.get());
+		}
+	};
+
+	/**
+	 * Unregisters {@link QueryLiveData#observer} once this object has no active observers.
+	 */
+	private final Runnable unregisterRunnable = new Runnable() {
+		@Override public void run() {
+			if (!hasActiveObservers() && registered.compareAndSet(true, false)) {
+				invalidationTracker.removeObserver(observer);
+
+				// Changes made while unregistered are not seen, so query again when reactivated
+				invalid.set(true);
+			}
+		}
+	};
+
+	/**
+	 * Constructor that specifies a database, a query, and the tables the query reads from.
+	 *
+	 * @param db     the database being queried
+	 * @param query  the query to run, which is always called on the database's query executor
+	 * @param tables the tables whose modification should cause the query to be run again
+	 */
+	public QueryLiveData(@NonNull RoomDatabase db, @NonNull Callable<T> query, @NonNull String... tables) {
+		this(db, false, query, tables);
+	}
+
+	/**
+	 * Constructor that specifies a database, whether to keep watching the queried tables while
+	 * inactive, a query, and the tables the query reads from.
+	 * <p>
+	 * An object that keeps watching stays registered with the database's invalidation tracker for
+	 * as long as the database is open once it has first become active, so it should be shared for
+	 * the lifetime of the app rather than created per screen.
+	 *
+	 * @param db            the database being queried
+	 * @param keepObserving whether to keep the result while inactive until one of the tables
+	 *                      changes, rather than running the query again every time this object
+	 *                      becomes active
+	 * @param query         the query to run, which is always called on the database's query
+	 *                      executor
+	 * @param tables        the tables whose modification should cause the query to be run again
+	 */
+	public QueryLiveData(@NonNull RoomDatabase db, boolean keepObserving, @NonNull Callable<T> query,
+			@NonNull String... tables) {
+		this.keepObserving = keepObserving;
+		this.invalidationTracker = db.getInvalidationTracker();
+		this.executor = db.getQueryExecutor();
+		this.query = query;
+		this.observer = new InvalidationTracker.Observer(tables) {
+			@Override public void onInvalidated(@NonNull Set<String> tables) {
+				if (invalid.compareAndSet(false, true) && hasActiveObservers()) {
+					executor.execute(refreshRunnable);
+				}
+			}
+		};
+	}
+
+	@Override
+	protected void onActive() {
+		super.onActive();
+		executor.execute(refreshRunnable);
+	}
+
+	@Override
+	protected void onInactive() {
+		super.onInactive();
+		if (!keepObserving) {
+			executor.execute(unregisterRunnable);
+		}
+	}
+}
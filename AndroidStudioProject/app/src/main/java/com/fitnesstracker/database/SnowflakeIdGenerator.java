@@ -0,0 +1,202 @@
+package com.fitnesstracker.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Clock;
+
+/**
+ * An {@link IdGenerator} whose IDs increase over time.
+ * <p>
+ * Each ID is a positive 64-bit number made of, from most to least significant bits:
+ * <ul>
+ * <li>41 bits: milliseconds since {@link SnowflakeIdGenerator#EPOCH_MILLIS}, which lasts until
+ * the year 2089,</li>
+ * <li>10 bits: the node ID, which distinguishes devices that may later share a database, and</li>
+ * <li>12 bits: a sequence number, which distinguishes IDs generated in the same millisecond.</li>
+ * </ul>
+ * New rows therefore land at the right edge of the primary key index instead of at random
+ * pages, and the order of IDs matches the order they were generated in.
+ * <p>
+ * IDs from one generator always increase, even if the clock goes backwards or more than 4096 IDs
+ * are requested in one millisecond. In both cases the generator carries on from the last
+ * timestamp it used, and catches up with the clock once it moves forward again.
+ * <p>
+ * The last timestamp is only known to the generator that used it, so to keep IDs increasing
+ * across restarts of the app, a generator reserves timestamps ahead of the ones it uses and
+ * reports each reservation to a {@link ReservationListener}. A generator created with the last
+ * reservation of the one before it only issues IDs after every ID the earlier one could have
+ * issued, wherever the clock is.
+ *
+ * @author Mitchell Ford
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+	/**
+	 * The time that timestamps are counted from: midnight UTC on January 1st 2020.
+	 */
+	public static final long EPOCH_MILLIS = 1577836800000L;
+
+	/** The number of bits in the node ID. */
+	private static final int NODE_BITS = 10;
+
+	/** The number of bits in the sequence number. */
+	private static final int SEQUENCE_BITS = 12;
+
+	/** The largest valid node ID. */
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	/** The largest sequence number. */
+	private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+	/**
+	 * How far ahead of the last timestamp used a reservation reaches, in milliseconds, so that a
+	 * reservation is only reported about once a minute while IDs are being generated.
+	 */
+	private static final long RESERVATION_MILLIS = 60_000;
+
+	/**
+	 * Receives the timestamps reserved by a generator, so that they can be stored and passed to
+	 * the generator that replaces it.
+	 */
+	public interface ReservationListener {
+
+		/**
+		 * Called when a generator reserves timestamps, on the thread that requested an ID.
+		 *
+		 * @param reservedTimestamp the last timestamp reserved, relative to {@link
+		 *                          SnowflakeIdGenerator#EPOCH_MILLIS}
+		 */
+		void onReserved(long reservedTimestamp);
+	}
+
+	/**
+	 * The clock that timestamps are read from.
+	 */
+	private final Clock clock;
+
+	/**
+	 * The node ID, already shifted into position.
+	 */
+	private final long node;
+
+	/**
+	 * Receives reservations, or null if they are not stored.
+	 */
+	@Nullable
+	private final ReservationListener listener;
+
+	/**
+	 * The timestamp of the last ID generated, relative to {@link SnowflakeIdGenerator#EPOCH_MILLIS}.
+	 */
+	private long lastTimestamp;
+
+	/**
+	 * The sequence number of the last ID generated.
+	 */
+	private int sequence;
+
+	/**
+	 * The last timestamp that has been reserved, relative to {@link
+	 * SnowflakeIdGenerator#EPOCH_MILLIS}.
+	 */
+	private long reservedTimestamp;
+
+	/**
+	 * Constructor that specifies a node ID and uses the system clock.
+	 *
+	 * @param nodeId the node ID, between 0 and {@link SnowflakeIdGenerator#MAX_NODE_ID}
+	 */
+	public SnowflakeIdGenerator(int nodeId) {
+		this(nodeId, Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor that specifies a node ID and a clock.
+	 *
+	 * @param nodeId the node ID, between 0 and {@link SnowflakeIdGenerator#MAX_NODE_ID}
+	 * @param clock  the clock that timestamps are read from
+	 *
+	 * @throws IllegalArgumentException if the node ID is out of range
+	 */
+	public SnowflakeIdGenerator(int nodeId, @NonNull Clock clock) {
+		this(nodeId, clock, -1, null);
+	}
+
+	/**
+	 * Constructor that specifies a node ID, a clock, the last reservation of the generator this one
+	 * replaces, and a listener for this generator's reservations.
+	 *
+	 * @param nodeId            the node ID, between 0 and {@link SnowflakeIdGenerator#MAX_NODE_ID}
+	 * @param clock             the clock that timestamps are read from
+	 * @param reservedTimestamp the last timestamp reserved by the generator this one replaces, or
+	 *                          -1 if there was none
+	 * @param listener          the listener to report reservations to, or null
+	 *
+	 * @throws IllegalArgumentException if the node ID is out of range
+	 */
+	public SnowflakeIdGenerator(int nodeId, @NonNull Clock clock, long reservedTimestamp,
+	                            @Nullable ReservationListener listener) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+		}
+		this.node = (long) nodeId << SEQUENCE_BITS;
+		this.clock = clock;
+		this.listener = listener;
+
+		// The earlier generator may have used every sequence number of its last reserved
+		// timestamp, so the first ID must have a later one
+		this.reservedTimestamp = Math.max(-1, reservedTimestamp);
+		this.lastTimestamp = this.reservedTimestamp;
+		this.sequence = MAX_SEQUENCE;
+	}
+
+	@Override
+	public synchronized long nextId() {
+		// A clock set before the epoch would make IDs negative
+		long timestamp = Math.max(0, clock.millis() - EPOCH_MILLIS);
+
+		if (timestamp > lastTimestamp) {
+			lastTimestamp = timestamp;
+			sequence = 0;
+		} else if (sequence < MAX_SEQUENCE) {
+			// Same millisecond, or the clock went backwards: keep counting from the last timestamp
+			sequence++;
+		} else {
+			// Out of sequence numbers: borrow the next millisecond
+			lastTimestamp++;
+			sequence = 0;
+		}
+
+		if (lastTimestamp > reservedTimestamp) {
+			reservedTimestamp = lastTimestamp + RESERVATION_MILLIS;
+			if (listener != null) {
+				listener.onReserved(reservedTimestamp);
+			}
+		}
+
+		return (lastTimestamp << (NODE_BITS + SEQUENCE_BITS)) | node | sequence;
+	}
+
+	/**
+	 * Get the time an ID was generated at.
+	 *
+	 * @param id an ID generated by this class
+	 *
+	 * @return the time, as the number of milliseconds since January 1st 1970
+	 */
+	public static long getTime(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+	}
+
+	/**
+	 * Get the node ID of the generator that generated an ID.
+	 *
+	 * @param id an ID generated by this class
+	 *
+	 * @return the node ID
+	 */
+	public static int getNodeId(long id) {
+		return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+	}
+}
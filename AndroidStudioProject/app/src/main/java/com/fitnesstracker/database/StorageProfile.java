@@ -0,0 +1,243 @@
+package com.fitnesstracker.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.preference.PreferenceManager;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * How {@link FTDatabase} is stored and tuned: its journal mode, the page cache and memory map of
+ * the connection it writes on, how often the write-ahead log is checkpointed, and how many threads
+ * read from it.
+ * <p>
+ * The profile is chosen in the app's settings and takes effect the next time the database is
+ * opened.
+ *
+ * @author Mitchell Ford
+ */
+public enum StorageProfile {
+
+	/**
+	 * A rollback journal with SQLite's default cache and no memory map. Readers and the writer
+	 * block each other, so only one thread reads.
+	 */
+	COMPATIBLE(RoomDatabase.JournalMode.TRUNCATE, 1, 0, 0, 0, 0),
+
+	/**
+	 * A write-ahead log, a 4 MiB page cache, and a checkpoint every 30 seconds. Readers never
+	 * wait for the writer.
+	 */
+	BALANCED(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, 4, 4 * 1024, 0, 1000, 30_000),
+
+	/**
+	 * A write-ahead log, a 16 MiB page cache, a 64 MiB memory map, and a checkpoint every 10
+	 * seconds. Automatic checkpoints are deferred to a larger log so that commits rarely pay for
+	 * them.
+	 */
+	THROUGHPUT(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, 4, 16 * 1024, 64L * 1024 * 1024, 4000,
+			10_000);
+
+	/**
+	 * The profile used when none has been chosen.
+	 */
+	public static final StorageProfile DEFAULT = BALANCED;
+
+	/**
+	 * The key of the chosen profile in the default shared preferences.
+	 */
+	public static final String PREFERENCE_KEY = "storage_profile";
+
+	/**
+	 * The journal mode Room opens the database in.
+	 */
+	private final RoomDatabase.JournalMode journalMode;
+
+	/**
+	 * The number of threads that queries are run on.
+	 */
+	private final int readThreads;
+
+	/**
+	 * The size of the page cache in KiB, or 0 to keep SQLite's default.
+	 */
+	private final int cacheSizeKib;
+
+	/**
+	 * The number of bytes of the database file that are memory-mapped, or 0 for none.
+	 */
+	private final long mmapSizeBytes;
+
+	/**
+	 * The number of pages the write-ahead log grows to before a commit checkpoints it, or 0 to
+	 * keep SQLite's default.
+	 */
+	private final int walAutoCheckpointPages;
+
+	/**
+	 * The time between background checkpoints in milliseconds, or 0 for none.
+	 */
+	private final long checkpointIntervalMillis;
+
+	StorageProfile(RoomDatabase.JournalMode journalMode, int readThreads, int cacheSizeKib,
+	               long mmapSizeBytes, int walAutoCheckpointPages, long checkpointIntervalMillis) {
+		this.journalMode = journalMode;
+		this.readThreads = readThreads;
+		this.cacheSizeKib = cacheSizeKib;
+		this.mmapSizeBytes = mmapSizeBytes;
+		this.walAutoCheckpointPages = walAutoCheckpointPages;
+		this.checkpointIntervalMillis = checkpointIntervalMillis;
+	}
+
+	/**
+	 * Get the profile chosen in the app's settings.
+	 *
+	 * @param context the context to read the default shared preferences from
+	 *
+	 * @return the chosen profile, or {@link StorageProfile#DEFAULT} if none is chosen
+	 */
+	@NonNull
+	public static StorageProfile fromPreferences(@NonNull Context context) {
+		String name = PreferenceManager.getDefaultSharedPreferences(context)
+				.getString(PREFERENCE_KEY, null);
+		if (name != null) {
+			for (StorageProfile profile : values()) {
+				if (profile.name().equals(name)) {
+					return profile;
+				}
+			}
+		}
+		return DEFAULT;
+	}
+
+	/**
+	 * Apply this profile's journal mode to a database builder and add a callback that applies its
+	 * connection settings whenever the database is opened.
+	 *
+	 * @param builder the builder to configure
+	 * @param <T>     the type of the database
+	 *
+	 * @return the builder
+	 */
+	@NonNull
+	public <T extends RoomDatabase> RoomDatabase.Builder<T> configure(
+			@NonNull RoomDatabase.Builder<T> builder) {
+		return builder
+				.setJournalMode(journalMode)
+				.addCallback(new RoomDatabase.Callback() {
+					@Override public void onOpen(@NonNull SupportSQLiteDatabase db) {
+						applyPragmas(db);
+					}
+				});
+	}
+
+	/**
+	 * Apply this profile's page cache, memory map, and automatic checkpoint settings.
+	 * <p>
+	 * These settings belong to a single connection, so they are applied inside a transaction to
+	 * pin them to the connection that Room writes on. Read connections keep the platform's
+	 * settings.
+	 *
+	 * @param db the database to apply the settings to
+	 */
+	public void applyPragmas(@NonNull SupportSQLiteDatabase db) {
+		db.beginTransaction();
+		try {
+			if (cacheSizeKib > 0) {
+				// A negative cache size is a number of KiB rather than a number of pages
+				pragma(db, "PRAGMA cache_size = -" + cacheSizeKib);
+			}
+			pragma(db, "PRAGMA mmap_size = " + mmapSizeBytes);
+			if (usesWriteAheadLog() && walAutoCheckpointPages > 0) {
+				pragma(db, "PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages);
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Run a pragma, stepping through any row it returns.
+	 * <p>
+	 * Pragmas that report their new value return a row, which {@link
+	 * SupportSQLiteDatabase#execSQL(String)} refuses to run on Android.
+	 *
+	 * @param db  the database to run the pragma on
+	 * @param sql the pragma
+	 */
+	private static void pragma(SupportSQLiteDatabase db, String sql) {
+		Cursor cursor = db.query(sql);
+		try {
+			cursor.moveToFirst();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Get whether this profile opens the database with a write-ahead log.
+	 *
+	 * @return true if the database uses a write-ahead log
+	 */
+	public boolean usesWriteAheadLog() {
+		return journalMode == RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+	}
+
+	/**
+	 * Get the journal mode Room opens the database in.
+	 *
+	 * @return the journal mode
+	 */
+	@NonNull
+	public RoomDatabase.JournalMode getJournalMode() {
+		return journalMode;
+	}
+
+	/**
+	 * Get the number of threads that queries are run on.
+	 *
+	 * @return the number of read threads
+	 */
+	public int getReadThreads() {
+		return readThreads;
+	}
+
+	/**
+	 * Get the size of the page cache.
+	 *
+	 * @return the page cache size in KiB, or 0 for SQLite's default
+	 */
+	public int getCacheSizeKib() {
+		return cacheSizeKib;
+	}
+
+	/**
+	 * Get the number of bytes of the database file that are memory-mapped.
+	 *
+	 * @return the memory map size in bytes, or 0 for none
+	 */
+	public long getMmapSizeBytes() {
+		return mmapSizeBytes;
+	}
+
+	/**
+	 * Get the number of pages the write-ahead log grows to before a commit checkpoints it.
+	 *
+	 * @return the automatic checkpoint threshold in pages, or 0 for SQLite's default
+	 */
+	public int getWalAutoCheckpointPages() {
+		return walAutoCheckpointPages;
+	}
+
+	/**
+	 * Get the time between background checkpoints.
+	 *
+	 * @return the checkpoint interval in milliseconds, or 0 for none
+	 */
+	public long getCheckpointIntervalMillis() {
+		return usesWriteAheadLog() ? checkpointIntervalMillis : 0;
+	}
+}
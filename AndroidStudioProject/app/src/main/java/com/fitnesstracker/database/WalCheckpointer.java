@@ -0,0 +1,108 @@
+package com.fitnesstracker.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+
+import java.util.Locale;
+
+/**
+ * A task that copies the pages of a database's write-ahead log back into the database file.
+ * <p>
+ * SQLite checkpoints the log itself when a commit finds it has grown past a threshold, which makes
+ * that commit slow. Running this task periodically on the write lane of a {@link
+ * DatabaseScheduler} keeps the log short, so those checkpoints rarely happen on the commit path.
+ * Checkpoints are passive: they never wait for readers and never block writers.
+ *
+ * @author Mitchell Ford
+ */
+public class WalCheckpointer implements Runnable {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "WalCheckpointer";
+
+	/**
+	 * The database to checkpoint.
+	 */
+	private final RoomDatabase db;
+
+	/**
+	 * The number of checkpoints that have run.
+	 */
+	private long checkpoints;
+
+	/**
+	 * The number of pages that have been copied into the database file.
+	 */
+	private long pagesCheckpointed;
+
+	/**
+	 * The time the most recent checkpoint took, in nanoseconds.
+	 */
+	private long lastNanos;
+
+	/**
+	 * Constructor that specifies the database to checkpoint.
+	 *
+	 * @param db the database to checkpoint
+	 */
+	public WalCheckpointer(@NonNull RoomDatabase db) {
+		this.db = db;
+	}
+
+	@Override
+	public void run() {
+		if (!db.isOpen()) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			Cursor cursor = db.getOpenHelper().getWritableDatabase()
+					.query("PRAGMA wal_checkpoint(PASSIVE)");
+			try {
+				// The result has the columns busy, log, and checkpointed
+				if (cursor.moveToFirst()) {
+					synchronized (this) {
+						checkpoints++;
+						pagesCheckpointed += Math.max(0, cursor.getLong(2));
+						lastNanos = System.nanoTime() - start;
+					}
+				}
+			} finally {
+				cursor.close();
+			}
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Checkpoint failed", e);
+		}
+	}
+
+	/**
+	 * Get the number of checkpoints that have run.
+	 *
+	 * @return the number of checkpoints
+	 */
+	public synchronized long getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Get the number of pages that have been copied into the database file.
+	 *
+	 * @return the number of pages checkpointed
+	 */
+	public synchronized long getPagesCheckpointed() {
+		return pagesCheckpointed;
+	}
+
+	@NonNull
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.US, "%d checkpoints, %d pages, last %.2f ms",
+				checkpoints, pagesCheckpointed, lastNanos / 1e6);
+	}
+}
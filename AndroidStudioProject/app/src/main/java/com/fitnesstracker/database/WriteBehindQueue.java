@@ -0,0 +1,359 @@
+package com.fitnesstracker.database;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.room.RoomDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A queue of database writes that are committed in batches rather than one at a time.
+ * <p>
+ * Writes that are enqueued within a short window of each other are run in a single transaction,
+ * so a burst of edits costs one journal commit instead of one per row. Writes are always run one
+ * at a time on the write lane of a {@link DatabaseScheduler}, in the order they were enqueued, so
+ * later writes to an entity see the effects of earlier ones.
+ * <p>
+ * If any write in a batch throws, the batch is rolled back and its writes are retried one
+ * transaction at a time, so that one bad write does not discard the others. Writes that still
+ * throw are counted by {@link Stats#getFailures()} and make {@link WriteBehindQueue#flush()}
+ * throw.
+ *
+ * @author Mitchell Ford
+ */
+public class WriteBehindQueue {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "WriteBehindQueue";
+
+	/**
+	 * The maximum number of writes committed in one transaction.
+	 */
+	private static final int MAX_BATCH_SIZE = 500;
+
+	/**
+	 * The database that writes are committed to.
+	 */
+	private final RoomDatabase db;
+
+	/**
+	 * The time that writes wait for more writes to join their batch, in milliseconds.
+	 */
+	private final long windowMillis;
+
+	/**
+	 * The scheduler whose write lane batches are committed on.
+	 */
+	private final DatabaseScheduler scheduler;
+
+	/**
+	 * Writes that have been enqueued but not yet committed, in order.
+	 */
+	private final List<Runnable> pending = new ArrayList<>();
+
+	/**
+	 * Whether a drain of {@link WriteBehindQueue#pending} has been scheduled but not started.
+	 */
+	private boolean drainScheduled = false;
+
+	/**
+	 * Statistics about the batches committed so far.
+	 */
+	private final Stats stats = new Stats();
+
+	/**
+	 * The exception thrown by the last write that failed, or null if none has. Guarded by {@link
+	 * WriteBehindQueue#stats}.
+	 */
+	private RuntimeException lastFailure;
+
+	/**
+	 * Commits every pending write.
+	 */
+	private final Runnable drainRunnable = new Runnable() {
+		@Override public void run() {
+			drain();
+		}
+	};
+
+	/**
+	 * Constructor that specifies a database, a scheduler, and a coalescing window.
+	 *
+	 * @param db           the database to commit writes to
+	 * @param scheduler    the scheduler whose write lane batches are committed on
+	 * @param windowMillis the time that writes wait for more writes to join their batch
+	 */
+	public WriteBehindQueue(@NonNull RoomDatabase db, @NonNull DatabaseScheduler scheduler,
+	                        long windowMillis) {
+		this.db = db;
+		this.scheduler = scheduler;
+		this.windowMillis = windowMillis;
+	}
+
+	/**
+	 * Add a write to the queue.
+	 * <p>
+	 * The write is run on a background thread, inside a transaction, once the coalescing window
+	 * of its batch has passed.
+	 *
+	 * @param write the write to run
+	 */
+	public void enqueue(@NonNull Runnable write) {
+		synchronized (pending) {
+			pending.add(write);
+			if (!drainScheduled) {
+				drainScheduled = true;
+				scheduler.scheduleWrite(drainRunnable, windowMillis);
+			}
+		}
+	}
+
+	/**
+	 * Commit every write enqueued before this call, and wait until they are committed.
+	 * <p>
+	 * This is mainly useful in tests. It must not be called from a write.
+	 *
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws RuntimeException     if any write failed while this call waited, with the exception
+	 *                              of the last write that failed as its cause
+	 */
+	@WorkerThread
+	public void flush() throws InterruptedException {
+		long failures = getStats().getFailures();
+
+		// The write lane runs one drain at a time, so this drain starts after every earlier write
+		// was enqueued and finishes after they are all committed
+		FutureTask<Void> drain = new FutureTask<>(drainRunnable, null);
+		scheduler.getWriteExecutor().execute(drain);
+		try {
+			drain.get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while flushing writes", e.getCause());
+		}
+
+		synchronized (stats) {
+			if (stats.failures > failures) {
+				throw new RuntimeException((stats.failures - failures) + " writes failed",
+						lastFailure);
+			}
+		}
+	}
+
+	/**
+	 * Run a task on the write lane, outside of a transaction, once every write enqueued before
+	 * this call has been committed.
+	 * <p>
+	 * This is for operations that cannot run inside a transaction, such as {@link
+	 * RoomDatabase#clearAllTables()}.
+	 *
+	 * @param task the task to run
+	 */
+	public void runAfterPending(@NonNull final Runnable task) {
+		scheduler.getWriteExecutor().execute(new Runnable() {
+			@Override public void run() {
+				drain();
+				task.run();
+			}
+		});
+	}
+
+	/**
+	 * Get a snapshot of the statistics about the batches committed so far.
+	 *
+	 * @return a copy of the current statistics
+	 */
+	@NonNull
+	public Stats getStats() {
+		synchronized (stats) {
+			return new Stats(stats);
+		}
+	}
+
+	/**
+	 * Commit every pending write, in batches of at most {@link WriteBehindQueue#MAX_BATCH_SIZE}.
+	 * <p>
+	 * This is only ever run on the write lane of {@link WriteBehindQueue#scheduler}.
+	 */
+	private void drain() {
+		while (true) {
+			final List<Runnable> batch;
+			synchronized (pending) {
+				if (pending.isEmpty()) {
+					drainScheduled = false;
+					return;
+				}
+				List<Runnable> head = pending.subList(0, Math.min(pending.size(), MAX_BATCH_SIZE));
+				batch = new ArrayList<>(head);
+				head.clear();
+			}
+
+			long start = System.nanoTime();
+			int failed = 0;
+			try {
+				db.runInTransaction(new Runnable() {
+					@Override public void run() {
+						for (Runnable write : batch) {
+							write.run();
+						}
+					}
+				});
+			} catch (RuntimeException e) {
+				Log.w(TAG, "Batch of " + batch.size() + " writes failed, retrying individually", e);
+				for (Runnable write : batch) {
+					try {
+						db.runInTransaction(write);
+					} catch (RuntimeException e2) {
+						Log.e(TAG, "Write failed", e2);
+						failed++;
+						synchronized (stats) {
+							lastFailure = e2;
+						}
+					}
+				}
+			}
+			stats.record(batch.size() - failed, failed, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Statistics about the batches committed by a {@link WriteBehindQueue}.
+	 */
+	public static class Stats {
+
+		/** The number of batches committed. */
+		private long batches;
+
+		/** The number of writes committed. */
+		private long writes;
+
+		/** The number of writes that threw and were dropped. */
+		private long failures;
+
+		/** The number of writes in the largest batch. */
+		private int maxBatchSize;
+
+		/** The total time spent committing batches, in nanoseconds. */
+		private long totalCommitNanos;
+
+		/** The longest time spent committing a batch, in nanoseconds. */
+		private long maxCommitNanos;
+
+		/**
+		 * Default constructor, for statistics with nothing recorded.
+		 */
+		Stats() {
+		}
+
+		/**
+		 * Constructor that copies other statistics.
+		 *
+		 * @param other the statistics to copy
+		 */
+		Stats(@NonNull Stats other) {
+			this.batches = other.batches;
+			this.writes = other.writes;
+			this.failures = other.failures;
+			this.maxBatchSize = other.maxBatchSize;
+			this.totalCommitNanos = other.totalCommitNanos;
+			this.maxCommitNanos = other.maxCommitNanos;
+		}
+
+		/**
+		 * Record a committed batch.
+		 *
+		 * @param committed   the number of writes in the batch that were committed
+		 * @param failed      the number of writes in the batch that threw
+		 * @param commitNanos the time spent committing the batch, in nanoseconds
+		 */
+		synchronized void record(int committed, int failed, long commitNanos) {
+			batches++;
+			writes += committed;
+			failures += failed;
+			maxBatchSize = Math.max(maxBatchSize, committed + failed);
+			totalCommitNanos += commitNanos;
+			maxCommitNanos = Math.max(maxCommitNanos, commitNanos);
+		}
+
+		/**
+		 * Get the number of batches committed.
+		 *
+		 * @return the number of batches committed
+		 */
+		public long getBatches() {
+			return batches;
+		}
+
+		/**
+		 * Get the number of writes committed.
+		 *
+		 * @return the number of writes committed
+		 */
+		public long getWrites() {
+			return writes;
+		}
+
+		/**
+		 * Get the number of writes that threw even when retried on their own, and so were not
+		 * committed.
+		 *
+		 * @return the number of writes that failed
+		 */
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Get the number of writes in the largest batch.
+		 *
+		 * @return the size of the largest batch
+		 */
+		public int getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		/**
+		 * Get the average number of writes per batch.
+		 *
+		 * @return the average batch size, or 0 if no batches have been committed
+		 */
+		public double getAverageBatchSize() {
+			return batches == 0 ? 0 : (double) writes / batches;
+		}
+
+		/**
+		 * Get the average time spent committing a batch.
+		 *
+		 * @return the average commit latency in milliseconds
+		 */
+		public double getAverageCommitMillis() {
+			return batches == 0 ? 0 : totalCommitNanos / 1e6 / batches;
+		}
+
+		/**
+		 * Get the longest time spent committing a batch.
+		 *
+		 * @return the maximum commit latency in milliseconds
+		 */
+		public double getMaxCommitMillis() {
+			return maxCommitNanos / 1e6;
+		}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"%d writes in %d batches (avg %.1f, max %d), %d failed, " +
+							"commit avg %.2f ms, max %.2f ms",
+					writes, batches, getAverageBatchSize(), maxBatchSize, failures,
+					getAverageCommitMillis(), getMaxCommitMillis());
+		}
+	}
+}
@@ -43,6 +43,18 @@ public abstract class FTDao<T> {
 	@Update
 	public abstract int update(T... items);
 
+	/**
+	 * Update many items in the database.
+	 * <p>
+	 * Every item is updated in one transaction using one prepared statement.
+	 *
+	 * @param items the items to update
+	 *
+	 * @return the number of items that were updated
+	 */
+	@Update
+	public abstract int update(Collection<T> items);
+
 	/**
 	 * Delete one or more items in the database.
 	 *
@@ -50,4 +62,16 @@ public abstract class FTDao<T> {
 	 */
 	@Delete
 	public abstract int delete(T... items);
+
+	/**
+	 * Delete many items in the database.
+	 * <p>
+	 * Every item is deleted in one transaction using one prepared statement.
+	 *
+	 * @param items the items to delete
+	 *
+	 * @return the number of items that were deleted
+	 */
+	@Delete
+	public abstract int delete(Collection<T> items);
 }
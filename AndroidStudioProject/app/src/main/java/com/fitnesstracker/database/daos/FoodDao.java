@@ -1,13 +1,28 @@
 package com.fitnesstracker.database.daos;
 
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomDatabase;
+import androidx.room.Transaction;
+import androidx.sqlite.db.SimpleSQLiteQuery;
 
+import com.fitnesstracker.database.Nutrient;
 import com.fitnesstracker.database.entities.Food;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * A data access object for {@link Food} entities to be used with {@link
@@ -20,6 +35,54 @@ import java.util.List;
 @Dao
 public abstract class FoodDao extends FTDao<Food> {
 
+	/**
+	 * The database this data access object belongs to.
+	 */
+	private final RoomDatabase db;
+
+	/**
+	 * Constructor that specifies the database this data access object belongs to.
+	 * <p>
+	 * This constructor is called by Room.
+	 *
+	 * @param db the database this data access object belongs to
+	 */
+	public FoodDao(RoomDatabase db) {
+		this.db = db;
+	}
+
+	/**
+	 * Insert foods that are not in the database and update those that are, in one transaction.
+	 *
+	 * @param foods the foods to insert or update
+	 */
+	@Transaction
+	public void upsert(Collection<Food> foods) {
+		long[] rowIds = insertOrIgnore(foods);
+
+		// Foods that were ignored because their ID is taken already exist
+		List<Food> existing = new ArrayList<>();
+		int i = 0;
+		for (Food food : foods) {
+			if (rowIds[i++] == -1) {
+				existing.add(food);
+			}
+		}
+		if (!existing.isEmpty()) {
+			update(existing);
+		}
+	}
+
+	/**
+	 * Insert foods, skipping those whose IDs are already in the database.
+	 *
+	 * @param foods the foods to insert
+	 *
+	 * @return the row ID of each inserted food, or -1 for each skipped food
+	 */
+	@Insert(onConflict = OnConflictStrategy.IGNORE)
+	protected abstract long[] insertOrIgnore(Collection<Food> foods);
+
 	/**
 	 * Get a list of all foods.
 	 *
@@ -61,8 +124,24 @@ public abstract class FoodDao extends FTDao<Food> {
 	@Query("SELECT * FROM food WHERE id = :id")
 	public abstract LiveData<Food> getLD(long id);
 
+	/**
+	 * Get a list of foods by ID.
+	 * <p>
+	 * IDs that do not match a food are ignored. SQLite limits the number of arguments a query can
+	 * have, so callers with many IDs should split them into chunks of at most 999.
+	 *
+	 * @param ids the IDs to search for
+	 *
+	 * @return a list of foods with matching IDs, in no particular order
+	 */
+	@Query("SELECT * FROM food WHERE id IN (:ids)")
+	public abstract List<Food> get(Collection<Long> ids);
+
 	/**
 	 * Get a list of foods by name.
+	 * <p>
+	 * This query scans every food. Use {@link FoodDao#search(String, int)} to search by words
+	 * within names.
 	 *
 	 * @param name the name to search for
 	 *
@@ -96,4 +175,201 @@ public abstract class FoodDao extends FTDao<Food> {
 	 */
 	@Query("SELECT COUNT(id) FROM food")
 	public abstract LiveData<Integer> getCountLD();
+
+	/**
+	 * Get a cursor over a chunk of foods whose IDs are greater than an ID, in order of ID, for
+	 * reading every food one chunk at a time without mapping them to {@link Food} objects.
+	 * <p>
+	 * The cursor must be closed by the caller.
+	 *
+	 * @param id    the ID of the last food of the previous chunk, or {@link Long#MIN_VALUE} to
+	 *              start with the first food
+	 * @param limit the maximum number of foods in the chunk
+	 *
+	 * @return a cursor over at most <code>limit</code> rows of <code>food</code>
+	 *
+	 * @see com.fitnesstracker.database.io.SnapshotWriter
+	 */
+	@Query("SELECT * FROM food WHERE id > :id ORDER BY id LIMIT :limit")
+	public abstract Cursor getCursorAfter(long id, int limit);
+
+	/**
+	 * Delete every food, along with the diary entries that refer to them.
+	 */
+	@Query("DELETE FROM food")
+	public abstract void deleteAll();
+
+	/**
+	 * Search for foods with a word in their name starting with each word of a query.
+	 * <p>
+	 * The search is case-insensitive and punctuation in the query is ignored, so "gran app"
+	 * matches "Granny Smith Apple". Foods whose names start with the query come first, then
+	 * shorter names before longer ones.
+	 * <p>
+	 * Unlike {@link FoodDao#get(String)}, this query uses the full-text index in
+	 * <code>food_fts</code> rather than scanning every food.
+	 *
+	 * @param query the text to search for
+	 * @param limit the maximum number of foods to return
+	 *
+	 * @return a list of matching foods, which is empty if the query has no words
+	 */
+	@NonNull
+	public List<Food> search(@NonNull String query, int limit) {
+		String matchQuery = toMatchQuery(query);
+		if (matchQuery == null) {
+			return new ArrayList<>();
+		}
+		return search(matchQuery, toNamePrefix(query), limit);
+	}
+
+	/**
+	 * Get an observable list of the results of {@link FoodDao#search(String, int)}.
+	 *
+	 * @param query the text to search for
+	 * @param limit the maximum number of foods to return
+	 *
+	 * @return an observable list of matching foods
+	 */
+	@NonNull
+	public LiveData<List<Food>> searchLD(@NonNull String query, int limit) {
+		String matchQuery = toMatchQuery(query);
+		if (matchQuery == null) {
+			return new MutableLiveData<List<Food>>(new ArrayList<Food>());
+		}
+		return searchLD(matchQuery, toNamePrefix(query), limit);
+	}
+
+	/**
+	 * Run {@link FoodDao#search(String, int)} in a way that can be cancelled while the query is
+	 * running.
+	 * <p>
+	 * If the signal is cancelled before the query finishes, this method throws {@link
+	 * android.os.OperationCanceledException} and the query stops without reading any more rows.
+	 *
+	 * @param query  the text to search for
+	 * @param limit  the maximum number of foods to return
+	 * @param signal a signal that cancels the query, or null if it should not be cancellable
+	 *
+	 * @return a list of matching foods, which is empty if the query has no words
+	 */
+	@NonNull
+	@WorkerThread
+	public List<Food> search(@NonNull String query, int limit, @Nullable CancellationSignal signal) {
+		String matchQuery = toMatchQuery(query);
+		if (matchQuery == null) {
+			return new ArrayList<>();
+		}
+
+		// The named parameters of SEARCH_QUERY are numbered in order of appearance
+		Cursor cursor = db.query(new SimpleSQLiteQuery(SEARCH_QUERY,
+				new Object[]{matchQuery, toNamePrefix(query), limit}), signal);
+		try {
+			int id = cursor.getColumnIndexOrThrow("id");
+			int name = cursor.getColumnIndexOrThrow("name");
+			int servingSize = cursor.getColumnIndexOrThrow("serving_size");
+			int servingUnit = cursor.getColumnIndexOrThrow("serving_unit");
+			int calories = cursor.getColumnIndexOrThrow("nutrition_calories");
+
+			List<Food> foods = new ArrayList<>(cursor.getCount());
+			while (cursor.moveToNext()) {
+				// The nutrient columns are in the same order as the nutrients
+				Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+				for (int i = 0; i < Nutrient.COUNT; i++) {
+					Nutrient.fromIndex(i).set(nutritionInfo, cursor.getInt(calories + i));
+				}
+
+				foods.add(new Food(cursor.getLong(id), cursor.getString(name),
+						cursor.getString(servingUnit), cursor.getDouble(servingSize), nutritionInfo));
+			}
+			return foods;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Get a list of foods whose names match a full-text query.
+	 *
+	 * @param matchQuery an FTS4 query, as built by {@link FoodDao#toMatchQuery(String)}
+	 * @param namePrefix a <code>LIKE</code> pattern for names to rank first
+	 * @param limit      the maximum number of foods to return
+	 *
+	 * @return a list of matching foods, ranked
+	 */
+	@Query(SEARCH_QUERY)
+	protected abstract List<Food> search(String matchQuery, String namePrefix, int limit);
+
+	/**
+	 * Get an observable list of foods whose names match a full-text query.
+	 *
+	 * @param matchQuery an FTS4 query, as built by {@link FoodDao#toMatchQuery(String)}
+	 * @param namePrefix a <code>LIKE</code> pattern for names to rank first
+	 * @param limit      the maximum number of foods to return
+	 *
+	 * @return an observable list of matching foods, ranked
+	 */
+	@Query(SEARCH_QUERY)
+	protected abstract LiveData<List<Food>> searchLD(String matchQuery, String namePrefix, int limit);
+
+	/**
+	 * Looks up matching names in the full-text index, then joins them with <code>food</code> by
+	 * ID, which is the row ID of both tables.
+	 */
+	static final String SEARCH_QUERY = "SELECT food.* FROM food_fts" +
+			" INNER JOIN food ON food.id = food_fts.rowid" +
+			" WHERE food_fts MATCH :matchQuery" +
+			" ORDER BY food.name LIKE :namePrefix ESCAPE '\\' DESC, length(food.name), food.name" +
+			" LIMIT :limit";
+
+	/**
+	 * Convert text typed by the user into an FTS4 query that matches names containing a word
+	 * starting with each of its words.
+	 * <p>
+	 * Words are lowercased so that they are never mistaken for operators such as
+	 * <code>OR</code>, and anything other than letters and digits is dropped so that the result is
+	 * always a valid query.
+	 *
+	 * @param query the text to convert
+	 *
+	 * @return an FTS4 query, or null if the text contains no words
+	 */
+	@Nullable
+	public static String toMatchQuery(@NonNull String query) {
+		StringBuilder matchQuery = new StringBuilder();
+		boolean inWord = false;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (!inWord && matchQuery.length() > 0) {
+					matchQuery.append(' ');
+				}
+				matchQuery.append(c);
+				inWord = true;
+			} else if (inWord) {
+				matchQuery.append('*');
+				inWord = false;
+			}
+		}
+		if (inWord) {
+			matchQuery.append('*');
+		}
+		return matchQuery.length() == 0 ? null : matchQuery.toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Convert text typed by the user into a <code>LIKE</code> pattern matching names that start
+	 * with it.
+	 *
+	 * @param query the text to convert
+	 *
+	 * @return a pattern that uses <code>\</code> as its escape character
+	 */
+	@NonNull
+	private static String toNamePrefix(@NonNull String query) {
+		return query.trim()
+				.replace("\\", "\\\\")
+				.replace("%", "\\%")
+				.replace("_", "\\_") + "%";
+	}
 }
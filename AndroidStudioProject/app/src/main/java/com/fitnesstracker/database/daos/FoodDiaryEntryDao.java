@@ -1,22 +1,37 @@
 package com.fitnesstracker.database.daos;
 
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
-import androidx.room.Delete;
+import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.RoomDatabase;
 import androidx.room.Transaction;
+import androidx.sqlite.db.SimpleSQLiteQuery;
 
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.FoodCache;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.QueryLiveData;
+import com.fitnesstracker.database.entities.Food;
 import com.fitnesstracker.database.entities.FoodDiaryEntry;
 import com.fitnesstracker.database.Meal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * A data access object for {@link FoodDiaryEntry} entities to be used with {@link
  * com.fitnesstracker.database.FTDatabase}.
  * <p>
- * This class also contains methods for getting {@link Meal} objects from the database.
+ * This class also contains methods for getting {@link Meal} objects from the database. Rather
+ * than letting Room load each meal's food with a second query, these methods join
+ * <code>diary_food</code> with <code>food</code> and map the rows by hand.
  * <p>
  * In some cases, it may be convenient to update a food diary entry indirectly using a meal. See
  * {@link FoodDiaryEntryDao#update(Meal...)}.
@@ -28,6 +43,63 @@ import java.util.List;
 @Dao
 public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 
+	/**
+	 * The tables read by queries for {@link Meal} objects.
+	 */
+	private static final String[] MEAL_TABLES = {"diary_food", "food"};
+
+	/**
+	 * The query that all {@link Meal} queries are built from.
+	 * <p>
+	 * It joins every diary entry with its food so that meals can be read in one pass over one
+	 * cursor. The order of the columns is relied upon by {@link
+	 * FoodDiaryEntryDao#queryMeals(String, Object...)} and the methods it maps rows with. The
+	 * nutrients are in the order of {@link Nutrient}, starting at {@link
+	 * FoodDiaryEntryDao#FIRST_NUTRIENT_COLUMN}, and are followed by the entry's <code>day</code>.
+	 */
+	private static final String MEAL_QUERY = "SELECT" +
+			" d.id, d.food_id, d.num_servings, d.time," +
+			" f.name, f.serving_size, f.serving_unit," +
+			" f.nutrition_calories, f.nutrition_fat_calories, f.nutrition_total_fat," +
+			" f.nutrition_saturated_fat, f.nutrition_trans_fat, f.nutrition_cholesterol," +
+			" f.nutrition_sodium, f.nutrition_total_carbs, f.nutrition_dietary_fiber," +
+			" f.nutrition_total_sugars, f.nutrition_added_sugars, f.nutrition_protein," +
+			" f.nutrition_vitamin_d, f.nutrition_calcium, f.nutrition_iron," +
+			" f.nutrition_potassium, d.day" +
+			" FROM diary_food AS d INNER JOIN food AS f ON f.id = d.food_id";
+
+	/**
+	 * The index of the first nutrient column of {@link FoodDiaryEntryDao#MEAL_QUERY}.
+	 */
+	private static final int FIRST_NUTRIENT_COLUMN = 7;
+
+	/**
+	 * The index of the entry's <code>day</code> column of {@link FoodDiaryEntryDao#MEAL_QUERY}.
+	 */
+	private static final int DAY_COLUMN = FIRST_NUTRIENT_COLUMN + Nutrient.COUNT;
+
+	/**
+	 * The database this data access object belongs to.
+	 */
+	private final RoomDatabase db;
+
+	/**
+	 * The cache that meal queries take foods from.
+	 */
+	private final FoodCache foodCache;
+
+	/**
+	 * Constructor that specifies the database this data access object belongs to.
+	 * <p>
+	 * This constructor is called by Room.
+	 *
+	 * @param db the database this data access object belongs to
+	 */
+	public FoodDiaryEntryDao(RoomDatabase db) {
+		this.db = db;
+		this.foodCache = ((FTDatabase) db).getFoodCache();
+	}
+
 	/**
 	 * Get a list of all food diary entries.
 	 * <p>
@@ -83,10 +155,11 @@ public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 	 *
 	 * @return a meal with a matching ID or null if there is none
 	 */
-	@Transaction
 	@Nullable
-	@Query("SELECT * FROM diary_food WHERE id = :foodDiaryEntryId")
-	public abstract Meal getMeal(Long foodDiaryEntryId);
+	public Meal getMeal(Long foodDiaryEntryId) {
+		List<Meal> meals = queryMeals(" WHERE d.id = ?", foodDiaryEntryId);
+		return meals.isEmpty() ? null : meals.get(0);
+	}
 
 	/**
 	 * Get an observable food diary entry and it's accompanying {@link
@@ -98,9 +171,13 @@ public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 	 *
 	 * @return an observable meal with a matching ID
 	 */
-	@Transaction
-	@Query("SELECT * FROM diary_food WHERE id = :foodDiaryEntryId")
-	public abstract LiveData<Meal> getMealLD(Long foodDiaryEntryId);
+	public LiveData<Meal> getMealLD(final Long foodDiaryEntryId) {
+		return new QueryLiveData<>(db, new Callable<Meal>() {
+			@Override public Meal call() {
+				return getMeal(foodDiaryEntryId);
+			}
+		}, MEAL_TABLES);
+	}
 
 	/**
 	 * Get a list of all food diary entries and their accompanying {@link
@@ -108,9 +185,9 @@ public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 	 *
 	 * @return a list of all meals
 	 */
-	@Transaction
-	@Query("SELECT * FROM diary_food ORDER BY time DESC")
-	public abstract List<Meal> getAllMeals();
+	public List<Meal> getAllMeals() {
+		return queryMeals(" ORDER BY d.time DESC");
+	}
 
 	/**
 	 * Get an observable list of all food diary entries and their accompanying {@link
@@ -118,9 +195,297 @@ public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 	 *
 	 * @return an observable list of all meals
 	 */
-	@Transaction
-	@Query("SELECT * FROM diary_food ORDER BY time DESC")
-	public abstract LiveData<List<Meal>> getAllMealsLD();
+	public LiveData<List<Meal>> getAllMealsLD() {
+		return new QueryLiveData<>(db, new Callable<List<Meal>>() {
+			@Override public List<Meal> call() {
+				return getAllMeals();
+			}
+		}, MEAL_TABLES);
+	}
+
+	/**
+	 * Get a list of the meals that took place on a day, newest first.
+	 *
+	 * @param day the day, as the number of days since January 1st 1970 in the device's time zone
+	 *
+	 * @return a list of the meals that took place on the given day
+	 *
+	 * @see FoodDiaryEntry#toLocalDay(long)
+	 */
+	public List<Meal> getMealsOnDay(long day) {
+		return queryMeals(" WHERE d.day = ? ORDER BY d.time DESC, d.id DESC", day);
+	}
+
+	/**
+	 * Get an observable list of the meals that took place on a day, newest first.
+	 *
+	 * @param day the day, as the number of days since January 1st 1970 in the device's time zone
+	 *
+	 * @return an observable list of the meals that took place on the given day
+	 */
+	public LiveData<List<Meal>> getMealsOnDayLD(final long day) {
+		return new QueryLiveData<>(db, new Callable<List<Meal>>() {
+			@Override public List<Meal> call() {
+				return getMealsOnDay(day);
+			}
+		}, MEAL_TABLES);
+	}
+
+	/**
+	 * Get a list of the meals that took place within a range of days, newest first.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return a list of the meals that took place within the given range
+	 */
+	public List<Meal> getMealsBetween(long fromDay, long toDay) {
+		return queryMeals(" WHERE d.day BETWEEN ? AND ? ORDER BY d.time DESC, d.id DESC", fromDay, toDay);
+	}
+
+	/**
+	 * Get an observable list of the meals that took place within a range of days, newest first.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return an observable list of the meals that took place within the given range
+	 */
+	public LiveData<List<Meal>> getMealsBetweenLD(final long fromDay, final long toDay) {
+		return new QueryLiveData<>(db, new Callable<List<Meal>>() {
+			@Override public List<Meal> call() {
+				return getMealsBetween(fromDay, toDay);
+			}
+		}, MEAL_TABLES);
+	}
+
+	/**
+	 * Get the first page of meals, newest first.
+	 * <p>
+	 * This and the other keyset queries below order meals by <code>time</code> and then by
+	 * <code>id</code> so that every meal has a unique position that a page can be resumed from.
+	 *
+	 * @param limit the maximum number of meals to return
+	 *
+	 * @return a list of at most <code>limit</code> meals
+	 *
+	 * @see com.fitnesstracker.database.DiaryDataSource
+	 */
+	public List<Meal> getNewestMeals(int limit) {
+		return queryMeals(" ORDER BY d.time DESC, d.id DESC LIMIT ?", limit);
+	}
+
+	/**
+	 * Get a page of meals starting with the meal identified by a <code>(time, id)</code> key and
+	 * continuing with older meals, newest first.
+	 *
+	 * @param time  the time of the meal the page starts with
+	 * @param id    the ID of the meal the page starts with
+	 * @param limit the maximum number of meals to return
+	 *
+	 * @return a list of at most <code>limit</code> meals
+	 */
+	public List<Meal> getMealsFrom(long time, long id, int limit) {
+		return queryMeals(" WHERE d.time <= ? AND (d.time < ? OR d.id <= ?)" +
+						" ORDER BY d.time DESC, d.id DESC LIMIT ?",
+				time, time, id, limit);
+	}
+
+	/**
+	 * Get a page of meals that are older than the meal identified by a <code>(time, id)</code>
+	 * key, newest first.
+	 *
+	 * @param time  the time of the meal the page follows
+	 * @param id    the ID of the meal the page follows
+	 * @param limit the maximum number of meals to return
+	 *
+	 * @return a list of at most <code>limit</code> meals
+	 */
+	public List<Meal> getOlderMeals(long time, long id, int limit) {
+		return queryMeals(" WHERE d.time <= ? AND (d.time < ? OR d.id < ?)" +
+						" ORDER BY d.time DESC, d.id DESC LIMIT ?",
+				time, time, id, limit);
+	}
+
+	/**
+	 * Get a page of meals that are newer than the meal identified by a <code>(time, id)</code>
+	 * key, <b>oldest first</b>.
+	 * <p>
+	 * The meals closest to the key come first so that the limit cuts off the far end of the page.
+	 * Callers displaying meals newest first must reverse the result.
+	 *
+	 * @param time  the time of the meal the page precedes
+	 * @param id    the ID of the meal the page precedes
+	 * @param limit the maximum number of meals to return
+	 *
+	 * @return a list of at most <code>limit</code> meals
+	 */
+	public List<Meal> getNewerMeals(long time, long id, int limit) {
+		return queryMeals(" WHERE d.time >= ? AND (d.time > ? OR d.id > ?)" +
+						" ORDER BY d.time ASC, d.id ASC LIMIT ?",
+				time, time, id, limit);
+	}
+
+	/**
+	 * Get a cursor over a chunk of the meals that took place within a range of days and follow a
+	 * <code>(time, id)</code> key, <b>oldest first</b>, without mapping them to {@link Meal}
+	 * objects.
+	 * <p>
+	 * This is for reading every meal in a range one chunk at a time, passing the key of the last
+	 * meal of each chunk to get the next, so that each query fits in one cursor window. The cursor
+	 * has the columns of {@link FoodDiaryEntryDao#MEAL_QUERY} and must be closed by the caller.
+	 * <p>
+	 * The range is turned into a range of times in the device's time zone rather than compared
+	 * with each meal's <code>day</code>, so that the <code>(time, id)</code> index serves both the
+	 * range and the order and each chunk only reads the rows it returns.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive, or {@link Long#MAX_VALUE} for every meal
+	 *                from <code>fromDay</code> on
+	 * @param time    the time of the meal the chunk follows, or {@link Long#MIN_VALUE} to start
+	 *                with the oldest meal
+	 * @param id      the ID of the meal the chunk follows, or {@link Long#MIN_VALUE} to start
+	 *                with the oldest meal
+	 * @param limit   the maximum number of meals in the chunk
+	 *
+	 * @return a cursor over at most <code>limit</code> meals
+	 *
+	 * @see com.fitnesstracker.database.io.DiaryExporter
+	 */
+	public Cursor getMealCursorAfter(long fromDay, long toDay, long time, long id, int limit) {
+		long fromTime = Math.max(time, FoodDiaryEntry.startOfLocalDay(fromDay));
+		long toTime = toDay == Long.MAX_VALUE
+				? Long.MAX_VALUE
+				: FoodDiaryEntry.startOfLocalDay(toDay + 1);
+		return db.query(new SimpleSQLiteQuery(MEAL_QUERY +
+				" WHERE d.time >= ? AND d.time < ? AND (d.time > ? OR d.id > ?)" +
+				" ORDER BY d.time ASC, d.id ASC LIMIT ?",
+				new Object[]{fromTime, toTime, time, time, id, limit}));
+	}
+
+	/**
+	 * Run {@link FoodDiaryEntryDao#MEAL_QUERY} followed by a <code>WHERE</code>, <code>ORDER
+	 * BY</code>, and/or <code>LIMIT</code> clause and map every row to a {@link Meal}.
+	 * <p>
+	 * Each meal's food is read from the same row as its diary entry, so the meals are hydrated in a
+	 * single pass over a single cursor. Foods are taken from the database's {@link FoodCache} when
+	 * the cached food still matches the row, so meals that refer to the same food share one food
+	 * object and only the first of them creates it.
+	 *
+	 * @param clauses the clauses to append to the query, using <code>?</code> for arguments
+	 * @param args    the arguments to bind to the query
+	 *
+	 * @return a list of meals in the order that the query returned them
+	 */
+	protected List<Meal> queryMeals(String clauses, Object... args) {
+		long generation = foodCache.getGeneration();
+		Cursor cursor = db.query(new SimpleSQLiteQuery(MEAL_QUERY + clauses, args));
+		try {
+			List<Meal> meals = new ArrayList<>(cursor.getCount());
+			CharArrayBuffer buffer = new CharArrayBuffer(64);
+			while (cursor.moveToNext()) {
+				Food food = foodCache.get(cursor.getLong(1));
+				if (food == null || !matchesFood(cursor, food, buffer)) {
+					food = mapFood(cursor);
+					foodCache.put(food, generation);
+				}
+				meals.add(new Meal(mapFoodDiaryEntry(cursor), food));
+			}
+			return meals;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Map the diary entry of the current row of a cursor over {@link
+	 * FoodDiaryEntryDao#MEAL_QUERY}.
+	 *
+	 * @param cursor a cursor positioned on the row to map
+	 *
+	 * @return the diary entry described by the current row
+	 */
+	private static FoodDiaryEntry mapFoodDiaryEntry(Cursor cursor) {
+		FoodDiaryEntry entry = new FoodDiaryEntry(
+				cursor.getLong(0),
+				cursor.getLong(1),
+				cursor.getDouble(2),
+				cursor.getLong(3));
+
+		// Keep the stored day, as Room does, rather than the day of the time in the current zone
+		entry.setDay(cursor.getLong(DAY_COLUMN));
+		return entry;
+	}
+
+	/**
+	 * Map the food of the current row of a cursor over {@link FoodDiaryEntryDao#MEAL_QUERY}.
+	 *
+	 * @param cursor a cursor positioned on the row to map
+	 *
+	 * @return the food described by the current row
+	 */
+	private static Food mapFood(Cursor cursor) {
+		Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+		for (int i = 0; i < Nutrient.COUNT; i++) {
+			Nutrient.fromIndex(i).set(nutritionInfo, cursor.getInt(FIRST_NUTRIENT_COLUMN + i));
+		}
+
+		return new Food(cursor.getLong(1), cursor.getString(4), cursor.getString(6),
+				cursor.getDouble(5), nutritionInfo);
+	}
+
+	/**
+	 * Check whether a food is the same as the food of the current row of a cursor over {@link
+	 * FoodDiaryEntryDao#MEAL_QUERY}, without creating any objects.
+	 * <p>
+	 * The food cache is cleared some time after the <code>food</code> table changes rather than as
+	 * soon as the change commits, so a cached food is only used if this check passes.
+	 *
+	 * @param cursor a cursor positioned on the row to compare with
+	 * @param food   the food to compare, which must have the row's food ID
+	 * @param buffer a buffer to copy the row's text into
+	 *
+	 * @return whether every column of the row's food matches the food
+	 */
+	private static boolean matchesFood(Cursor cursor, Food food, CharArrayBuffer buffer) {
+		if (cursor.getDouble(5) != food.getServingSize()) {
+			return false;
+		}
+		Food.NutritionInfo nutritionInfo = food.getNutritionInfo();
+		for (int i = 0; i < Nutrient.COUNT; i++) {
+			int amount = cursor.getInt(FIRST_NUTRIENT_COLUMN + i);
+			if (amount != Nutrient.fromIndex(i).get(nutritionInfo)) {
+				return false;
+			}
+		}
+		return textEquals(cursor, 4, buffer, food.getName()) &&
+				textEquals(cursor, 6, buffer, food.getServingUnit());
+	}
+
+	/**
+	 * Check whether a text column of the current row of a cursor is equal to a string, without
+	 * creating a string from the column.
+	 *
+	 * @param cursor the cursor
+	 * @param column the index of the column
+	 * @param buffer a buffer to copy the column into
+	 * @param value  the string to compare with
+	 *
+	 * @return whether the column is equal to the string
+	 */
+	private static boolean textEquals(Cursor cursor, int column, CharArrayBuffer buffer,
+	                                  String value) {
+		cursor.copyStringToBuffer(column, buffer);
+		if (buffer.sizeCopied != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < buffer.sizeCopied; i++) {
+			if (buffer.data[i] != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 
 	/**
 	 * Update one or more {@link FoodDiaryEntry} entities using {@link Meal} objects.
@@ -133,13 +498,77 @@ public abstract class FoodDiaryEntryDao extends FTDao<FoodDiaryEntry> {
 	 * @return the number of database rows that were updated
 	 */
 	public int update(Meal... meals) {
-		int updates = 0;
-		for (Meal meal : meals) {
-			updates += update(meal.getFoodDiaryEntry());
+		FoodDiaryEntry[] foodDiaryEntries = new FoodDiaryEntry[meals.length];
+		for (int i = 0; i < meals.length; i++) {
+			foodDiaryEntries[i] = meals[i].getFoodDiaryEntry();
+		}
+
+		// Update every entry in one transaction with one prepared statement
+		return update(foodDiaryEntries);
+	}
+
+	/**
+	 * Insert a new food and a food diary entry that refers to it, in one transaction.
+	 * <p>
+	 * If either insert fails, neither the food nor the entry is inserted.
+	 *
+	 * @param food           the food to insert
+	 * @param foodDiaryEntry the food diary entry to insert
+	 */
+	@Insert
+	public abstract void insert(Food food, FoodDiaryEntry foodDiaryEntry);
+
+	/**
+	 * Replace every food diary entry on a day with a new list of entries, in one transaction.
+	 *
+	 * @param day              the day to replace, as in {@link FoodDiaryEntry#toLocalDay(long)}
+	 * @param foodDiaryEntries the entries that should be on the day afterwards
+	 *
+	 * @throws IllegalArgumentException if any of the entries is not on the given day
+	 */
+	@Transaction
+	public void replaceDay(long day, Collection<FoodDiaryEntry> foodDiaryEntries) {
+		for (FoodDiaryEntry foodDiaryEntry : foodDiaryEntries) {
+			if (foodDiaryEntry.getDay() != day) {
+				throw new IllegalArgumentException("Entry " + foodDiaryEntry.getId()
+						+ " is on day " + foodDiaryEntry.getDay() + ", not " + day);
+			}
 		}
-		return updates;
+		deleteDay(day);
+		insert(foodDiaryEntries);
 	}
 
+	/**
+	 * Get a cursor over a chunk of food diary entries that follow a <code>(time, id)</code> key,
+	 * oldest first, for reading every entry one chunk at a time without mapping them to {@link
+	 * FoodDiaryEntry} objects.
+	 * <p>
+	 * The cursor must be closed by the caller.
+	 *
+	 * @param time  the time of the last entry of the previous chunk, or {@link Long#MIN_VALUE} to
+	 *              start with the oldest entry
+	 * @param id    the ID of the last entry of the previous chunk, or {@link Long#MIN_VALUE} to
+	 *              start with the oldest entry
+	 * @param limit the maximum number of entries in the chunk
+	 *
+	 * @return a cursor over at most <code>limit</code> rows of <code>diary_food</code>
+	 *
+	 * @see com.fitnesstracker.database.io.SnapshotWriter
+	 */
+	@Query("SELECT * FROM diary_food WHERE time >= :time AND (time > :time OR id > :id)" +
+			" ORDER BY time ASC, id ASC LIMIT :limit")
+	public abstract Cursor getCursorAfter(long time, long id, int limit);
+
+	/**
+	 * Delete every food diary entry on a day.
+	 *
+	 * @param day the day to clear, as in {@link FoodDiaryEntry#toLocalDay(long)}
+	 *
+	 * @return the number of entries that were deleted
+	 */
+	@Query("DELETE FROM diary_food WHERE day = :day")
+	public abstract int deleteDay(long day);
+
 	@Query("DELETE FROM diary_food")
 	public abstract void deleteAll();
 }
@@ -0,0 +1,52 @@
+package com.fitnesstracker.database.daos;
+
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.fitnesstracker.database.entities.ImportCheckpoint;
+
+/**
+ * A data access object for {@link ImportCheckpoint} entities to be used with {@link
+ * com.fitnesstracker.database.FTDatabase}.
+ * <p>
+ * Checkpoints should only be written in the same transaction as the foods they describe.
+ *
+ * @author Mitchell Ford
+ * @see com.fitnesstracker.database.io.FoodImporter
+ */
+@Dao
+public abstract class ImportCheckpointDao {
+
+	/**
+	 * Get the checkpoint of an unfinished import.
+	 * <p>
+	 * This method will return null if the file has never been imported or its last import
+	 * finished.
+	 *
+	 * @param source the name of the file being imported
+	 *
+	 * @return the file's checkpoint or null if there is none
+	 */
+	@Nullable
+	@Query("SELECT * FROM import_checkpoint WHERE source = :source")
+	public abstract ImportCheckpoint get(String source);
+
+	/**
+	 * Insert a checkpoint, replacing the previous checkpoint of the same file.
+	 *
+	 * @param checkpoint the checkpoint to save
+	 */
+	@Insert(onConflict = OnConflictStrategy.REPLACE)
+	public abstract void save(ImportCheckpoint checkpoint);
+
+	/**
+	 * Delete the checkpoint of a file, if it has one.
+	 *
+	 * @param source the name of the file
+	 */
+	@Query("DELETE FROM import_checkpoint WHERE source = :source")
+	public abstract void delete(String source);
+}
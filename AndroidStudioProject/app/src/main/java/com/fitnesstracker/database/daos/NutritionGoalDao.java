@@ -23,4 +23,7 @@ public abstract class NutritionGoalDao extends FTDao<NutritionGoal> {
 
     @Query("SELECT * FROM nutrition_goal" + " WHERE nutrient = :nutrient ")
     public abstract LiveData<NutritionGoal> getLD(int nutrient);
+
+    @Query("DELETE FROM nutrition_goal")
+    public abstract void deleteAll();
 }
@@ -0,0 +1,120 @@
+package com.fitnesstracker.database.daos;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.fitnesstracker.database.entities.DailyNutrition;
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.List;
+
+/**
+ * A data access object for {@link DailyNutrition} entities to be used with {@link
+ * com.fitnesstracker.database.FTDatabase}.
+ * <p>
+ * Daily totals are maintained by the database itself, so this DAO is read-only. Every query reads
+ * at most one row per day, no matter how many meals were eaten on those days.
+ * <p>
+ * Days are numbered as in {@link com.fitnesstracker.database.entities.FoodDiaryEntry#toLocalDay(long)}.
+ * Days with no diary entries have no row.
+ * <p>
+ * For every method there is a {@link LiveData}-returning method with the same name except for
+ * having "LD" at the end.
+ */
+@Dao
+public abstract class NutritionRollupDao {
+
+	/**
+	 * Get the totals for a day.
+	 * <p>
+	 * This method will return null if there are no diary entries on the given day.
+	 *
+	 * @param day the day to get the totals for
+	 *
+	 * @return the day's totals or null if there are none
+	 */
+	@Nullable
+	@Query("SELECT * FROM daily_nutrition WHERE day = :day")
+	public abstract DailyNutrition get(long day);
+
+	/**
+	 * Get the observable totals for a day.
+	 * <p>
+	 * This method will not return null, but the returned {@link LiveData} may contain null.
+	 *
+	 * @param day the day to get the totals for
+	 *
+	 * @return the day's observable totals
+	 */
+	@Query("SELECT * FROM daily_nutrition WHERE day = :day")
+	public abstract LiveData<DailyNutrition> getLD(long day);
+
+	/**
+	 * Get the totals for every day in a range that has diary entries.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return a list of daily totals ordered by day
+	 */
+	@Query("SELECT * FROM daily_nutrition WHERE day BETWEEN :fromDay AND :toDay ORDER BY day")
+	public abstract List<DailyNutrition> getRange(long fromDay, long toDay);
+
+	/**
+	 * Get the observable totals for every day in a range that has diary entries.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return an observable list of daily totals ordered by day
+	 */
+	@Query("SELECT * FROM daily_nutrition WHERE day BETWEEN :fromDay AND :toDay ORDER BY day")
+	public abstract LiveData<List<DailyNutrition>> getRangeLD(long fromDay, long toDay);
+
+	/**
+	 * Get the combined nutrition of every diary entry in a range of days.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return the total nutrition of the range, which is all zeroes if it has no diary entries
+	 */
+	@Query(TOTAL_QUERY)
+	public abstract Food.NutritionInfo getTotal(long fromDay, long toDay);
+
+	/**
+	 * Get the observable combined nutrition of every diary entry in a range of days.
+	 *
+	 * @param fromDay the first day of the range, inclusive
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return the observable total nutrition of the range
+	 */
+	@Query(TOTAL_QUERY)
+	public abstract LiveData<Food.NutritionInfo> getTotalLD(long fromDay, long toDay);
+
+	/**
+	 * Sums the rows of a range of days into a single row with the column names of {@link
+	 * Food.NutritionInfo}.
+	 */
+	static final String TOTAL_QUERY = "SELECT" +
+			" TOTAL(nutrition_calories) AS calories," +
+			" TOTAL(nutrition_fat_calories) AS fat_calories," +
+			" TOTAL(nutrition_total_fat) AS total_fat," +
+			" TOTAL(nutrition_saturated_fat) AS saturated_fat," +
+			" TOTAL(nutrition_trans_fat) AS trans_fat," +
+			" TOTAL(nutrition_cholesterol) AS cholesterol," +
+			" TOTAL(nutrition_sodium) AS sodium," +
+			" TOTAL(nutrition_total_carbs) AS total_carbs," +
+			" TOTAL(nutrition_dietary_fiber) AS dietary_fiber," +
+			" TOTAL(nutrition_total_sugars) AS total_sugars," +
+			" TOTAL(nutrition_added_sugars) AS added_sugars," +
+			" TOTAL(nutrition_protein) AS protein," +
+			" TOTAL(nutrition_vitamin_d) AS vitamin_d," +
+			" TOTAL(nutrition_calcium) AS calcium," +
+			" TOTAL(nutrition_iron) AS iron," +
+			" TOTAL(nutrition_potassium) AS potassium" +
+			" FROM daily_nutrition WHERE day BETWEEN :fromDay AND :toDay";
+}
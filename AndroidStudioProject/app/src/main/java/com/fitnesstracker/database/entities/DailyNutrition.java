@@ -0,0 +1,113 @@
+package com.fitnesstracker.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+import androidx.room.Entity;
+
+import java.util.Objects;
+
+/**
+ * The total nutrition of all of the meals eaten on one day.
+ * <p>
+ * Rows of this entity are never written by the app directly. They are kept up to date by SQLite
+ * triggers on <code>diary_food</code> and <code>food</code>, so a day's totals can be read without
+ * loading any of its {@link FoodDiaryEntry} entities.
+ *
+ * @see com.fitnesstracker.database.NutritionRollup
+ */
+@Entity(tableName = "daily_nutrition",
+        primaryKeys = "day")
+public class DailyNutrition {
+
+	/**
+	 * The day these totals are for, as the number of days since January 1st 1970 in the device's
+	 * time zone.
+	 *
+	 * @see FoodDiaryEntry#toLocalDay(long)
+	 */
+	@ColumnInfo(name = "day")
+	private long day;
+
+	/**
+	 * The number of diary entries that took place on this day.
+	 */
+	@ColumnInfo(name = "entries")
+	private int entries;
+
+	/**
+	 * The sum of the nutrition of every diary entry on this day.
+	 * <p>
+	 * Each entry contributes its food's nutrition info multiplied by its number of servings,
+	 * rounded to the nearest whole unit.
+	 */
+	@Embedded(prefix = "nutrition_")
+	private Food.NutritionInfo nutritionInfo;
+
+	/**
+	 * Constructor that specifies every field.
+	 * <p>
+	 * This is the constructor that the Room database should use.
+	 *
+	 * @param day           the day these totals are for
+	 * @param entries       the number of diary entries on this day
+	 * @param nutritionInfo the total nutrition of this day's diary entries
+	 */
+	public DailyNutrition(long day, int entries, @NonNull Food.NutritionInfo nutritionInfo) {
+		this.day = day;
+		this.entries = entries;
+		this.nutritionInfo = nutritionInfo;
+	}
+
+	/**
+	 * Get the day these totals are for.
+	 *
+	 * @return the number of days since January 1st 1970
+	 */
+	public long getDay() {
+		return day;
+	}
+
+	/**
+	 * Get the number of diary entries that took place on this day.
+	 *
+	 * @return the number of diary entries on this day
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Get the total nutrition of this day's diary entries.
+	 *
+	 * @return the total nutrition of this day's diary entries
+	 */
+	public Food.NutritionInfo getNutritionInfo() {
+		return nutritionInfo;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		DailyNutrition that = (DailyNutrition) o;
+		return day == that.day &&
+				entries == that.entries &&
+				Objects.equals(nutritionInfo, that.nutritionInfo);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(day, entries);
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return "DailyNutrition{" +
+				"day=" + day +
+				", entries=" + entries +
+				", nutritionInfo=" + nutritionInfo +
+				'}';
+	}
+}
@@ -6,6 +6,9 @@ import androidx.room.Embedded;
 import androidx.room.Entity;
 import androidx.room.Ignore;
 
+import com.fitnesstracker.database.IdGenerators;
+
+import java.util.Objects;
 import java.util.Random;
 
 /**
@@ -23,7 +26,7 @@ public class Food {
 	private static final String[] SAMPLE_SERVING_UNITS = new String[]{"grams", "cups", "oz", "mL",
 			"lbs"};
 
-	/** A randomly assigned identifier for this Food. */
+	/** A unique identifier for this Food, which increases with the time it was created. */
 	@ColumnInfo(name = "id")
 	private long id;
 
@@ -44,7 +47,29 @@ public class Food {
 	private NutritionInfo nutritionInfo;
 
 	/**
-	 * Constructor that specifies a name, serving unit, and serving size, and assigns a random ID
+	 * Constructor that specifies an ID, name, serving unit, serving size, and nutrition info.
+	 * <p>
+	 * This is the constructor that the Room database should use, and that food read from storage
+	 * should be created with, since it does not use up a new ID; all others must have the
+	 * <code>@Ignore</code> annotation.
+	 *
+	 * @param id            the id of this food
+	 * @param name          the name of this food
+	 * @param servingUnit   the serving unit for this food
+	 * @param servingSize   the serving size for this food
+	 * @param nutritionInfo a NutritionInfo object describing one serving of this food
+	 */
+	public Food(long id, @NonNull String name, @NonNull String servingUnit,
+	            @NonNull Double servingSize, @NonNull NutritionInfo nutritionInfo) {
+		this.setId(id);
+		this.setName(name);
+		this.setServingUnit(servingUnit);
+		this.setServingSize(servingSize);
+		this.setNutritionInfo(nutritionInfo);
+	}
+
+	/**
+	 * Constructor that specifies a name, serving unit, and serving size, and assigns a new ID
 	 * and a default nutrition info.
 	 * <p>
 	 * Creates a {@link NutritionInfo} object with default fields.
@@ -55,7 +80,7 @@ public class Food {
 	 */
 	@Ignore
 	public Food(@NonNull String name, @NonNull String servingUnit, @NonNull Double servingSize) {
-		this.setId(new Random().nextLong());
+		this.setId(IdGenerators.nextId());
 		this.setName(name);
 		this.setServingUnit(servingUnit);
 		this.setServingSize(servingSize);
@@ -66,15 +91,16 @@ public class Food {
 
 	/**
 	 * Constructor that specifies a name, serving unit, serving size, and nutrition info, and
-	 * assigns a random ID.
+	 * assigns a new ID.
 	 *
 	 * @param name          the name of this food
 	 * @param servingUnit   the serving unit for this food
 	 * @param servingSize   the serving size for this food
 	 * @param nutritionInfo a NutritionInfo object describing one serving of this food
 	 */
+	@Ignore
 	public Food(@NonNull String name, @NonNull String servingUnit, @NonNull Double servingSize, @NonNull NutritionInfo nutritionInfo) {
-		this.setId(new Random().nextLong());
+		this.setId(IdGenerators.nextId());
 		this.setName(name);
 		this.setServingUnit(servingUnit);
 		this.setServingSize(servingSize);
@@ -85,18 +111,30 @@ public class Food {
 	 * Create a new Food object with a name randomly selected from {@link Food#SAMPLE_NAMES}, a
 	 * serving unit randomly selected from {@link Food#SAMPLE_SERVING_UNITS}, a randomly generated
 	 * serving size, and a {@link Food#nutritionInfo} generated using {@link
-	 * NutritionInfo#makeRandom()}.
+	 * NutritionInfo#makeRandom(long)}.
 	 *
 	 * @return the newly created Food object
 	 */
 	public static Food makeRandom() {
-		Random random = new Random();
+		return makeRandom(new Random().nextLong());
+	}
+
+	/**
+	 * Create a new Food object the same way as {@link Food#makeRandom()}, but with every attribute
+	 * other than its ID determined by a seed.
+	 *
+	 * @param seed seed for the random number generator
+	 *
+	 * @return the newly created Food object
+	 */
+	public static Food makeRandom(long seed) {
+		Random random = new Random(seed);
 		Food food = new Food(
 				SAMPLE_NAMES[random.nextInt(SAMPLE_NAMES.length)],
 				SAMPLE_SERVING_UNITS[random.nextInt(SAMPLE_SERVING_UNITS.length)],
 				random.nextInt(1000)*random.nextDouble()
 		);
-		food.setNutritionInfo(NutritionInfo.makeRandom());
+		food.setNutritionInfo(NutritionInfo.makeRandom(random.nextLong()));
 		return food;
 	}
 
@@ -112,6 +150,12 @@ public class Food {
 				getNutritionInfo().equals(food.getNutritionInfo());
 	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(getId(), getServingSize(), getName(), getServingUnit(),
+				getNutritionInfo());
+	}
+
 	public long getId() {
 		return id;
 	}
@@ -361,7 +405,9 @@ public class Food {
 		 *
 		 * <p>Note: does not modify any of the objects passed as arguments.</p>
 		 *
-		 * <p>Implemented as repeated calls to <code>add</code>.</p>
+		 * <p>Implemented as repeated calls to <code>add</code>. Totals of many items should be
+		 * accumulated in a {@link com.fitnesstracker.database.NutrientVector} instead, which
+		 * cannot overflow.</p>
 		 *
 		 * @param items the NutritionInfo objects to add together
 		 *
@@ -392,7 +438,7 @@ public class Food {
 		 * @return the new NutritionInfo object
 		 */
 		public NutritionInfo plus(@NonNull Food.NutritionInfo other) {
-			NutritionInfo nutritionInfo = new NutritionInfo();
+			NutritionInfo nutritionInfo = new NutritionInfo(this);
 			nutritionInfo.add(other);
 			return nutritionInfo;
 		}
@@ -448,27 +494,28 @@ public class Food {
 		}
 
 		/**
-		 * Multiply each of the nutrients in this object by a scalar quantity.
+		 * Multiply each of the nutrients in this object by a scalar quantity, rounding each to the
+		 * nearest whole unit.
 		 *
 		 * @param scalar the scalar to multiply each field by
 		 */
 		public void mul(double scalar) {
-			this.calories *= scalar;
-			this.fatCalories *= scalar;
-			this.totalFat *= scalar;
-			this.saturatedFat *= scalar;
-			this.transFat *= scalar;
-			this.cholesterol *= scalar;
-			this.sodium *= scalar;
-			this.totalCarbs *= scalar;
-			this.dietaryFiber *= scalar;
-			this.totalSugars *= scalar;
-			this.addedSugars *= scalar;
-			this.protein *= scalar;
-			this.vitaminD *= scalar;
-			this.calcium *= scalar;
-			this.iron *= scalar;
-			this.potassium *= scalar;
+			this.calories = (int) Math.round(this.calories * scalar);
+			this.fatCalories = (int) Math.round(this.fatCalories * scalar);
+			this.totalFat = (int) Math.round(this.totalFat * scalar);
+			this.saturatedFat = (int) Math.round(this.saturatedFat * scalar);
+			this.transFat = (int) Math.round(this.transFat * scalar);
+			this.cholesterol = (int) Math.round(this.cholesterol * scalar);
+			this.sodium = (int) Math.round(this.sodium * scalar);
+			this.totalCarbs = (int) Math.round(this.totalCarbs * scalar);
+			this.dietaryFiber = (int) Math.round(this.dietaryFiber * scalar);
+			this.totalSugars = (int) Math.round(this.totalSugars * scalar);
+			this.addedSugars = (int) Math.round(this.addedSugars * scalar);
+			this.protein = (int) Math.round(this.protein * scalar);
+			this.vitaminD = (int) Math.round(this.vitaminD * scalar);
+			this.calcium = (int) Math.round(this.calcium * scalar);
+			this.iron = (int) Math.round(this.iron * scalar);
+			this.potassium = (int) Math.round(this.potassium * scalar);
 		}
 
 		@Override
@@ -493,5 +540,12 @@ public class Food {
 					iron == that.iron &&
 					potassium == that.potassium;
 		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(calories, fatCalories, totalFat, saturatedFat, transFat,
+					cholesterol, sodium, totalCarbs, dietaryFiber, totalSugars, addedSugars, protein,
+					vitaminD, calcium, iron, potassium);
+		}
 	}
 }
@@ -7,6 +7,12 @@ import androidx.room.ForeignKey;
 import androidx.room.Ignore;
 import androidx.room.Index;
 
+import com.fitnesstracker.database.IdGenerators;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
@@ -31,11 +37,14 @@ import java.util.Random;
 		                    parentColumns = "id",
 		                    childColumns = "food_id",
 		                    onDelete = ForeignKey.CASCADE)},
-        indices = @Index(value = "food_id"))
+        indices = {
+		        @Index(value = "food_id"),
+		        @Index(value = {"time", "id"}),
+		        @Index(value = "day")})
 public class FoodDiaryEntry {
 
 	/**
-	 * The unique, randomly assigned ID of the entity.
+	 * The unique ID of the entity, which increases with the time the entity was created.
 	 * <p>
 	 * This is the primary key of this entity.
 	 */
@@ -64,6 +73,18 @@ public class FoodDiaryEntry {
 	@ColumnInfo(name = "time")
 	private long time;
 
+	/**
+	 * The day that this meal took place on, in the device's time zone.
+	 * <p>
+	 * This value is stored as the number of days since January 1st 1970 and is derived from
+	 * <code>time</code> whenever it is set. It is indexed so that the diary can be queried one day
+	 * (or a range of days) at a time without scanning the whole table.
+	 *
+	 * @see FoodDiaryEntry#toLocalDay(long)
+	 */
+	@ColumnInfo(name = "day")
+	private long day;
+
 	/**
 	 * Constructor that specifies <code>id</code>, <code>foodId</code>, <code>numServings</code>,
 	 * and <code>time</code>.
@@ -114,12 +135,44 @@ public class FoodDiaryEntry {
 	}
 
 	/**
-	 * Generate a random ID using {@link Random}.
+	 * Generate a new ID using the current {@link com.fitnesstracker.database.IdGenerator}.
 	 *
-	 * @return a random ID
+	 * @return a new ID
+	 *
+	 * @see IdGenerators
 	 */
 	public static long generateId() {
-		return new Random().nextLong();
+		return IdGenerators.nextId();
+	}
+
+	/**
+	 * Convert a time to the day it falls on in the device's time zone.
+	 *
+	 * @param time a time, as the number of milliseconds since January 1st 1970
+	 *
+	 * @return the day, as the number of days since January 1st 1970
+	 */
+	public static long toLocalDay(long time) {
+		return Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+
+	/**
+	 * Get the time a day starts at in the device's time zone.
+	 *
+	 * @param day the day, as the number of days since January 1st 1970
+	 *
+	 * @return the first millisecond of the day, or {@link Long#MIN_VALUE} or {@link
+	 * Long#MAX_VALUE} if the day is too far from 1970 to have one
+	 *
+	 * @see FoodDiaryEntry#toLocalDay(long)
+	 */
+	public static long startOfLocalDay(long day) {
+		try {
+			return LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant()
+					.toEpochMilli();
+		} catch (DateTimeException | ArithmeticException e) {
+			return day < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
 	}
 
 	/**
@@ -189,11 +242,35 @@ public class FoodDiaryEntry {
 
 	/**
 	 * Set the time that this meal took place
+	 * <p>
+	 * This also sets the day that this meal took place on.
 	 *
 	 * @param time the time to set
 	 */
 	public void setTime(long time) {
 		this.time = time;
+		this.day = toLocalDay(time);
+	}
+
+	/**
+	 * Get the day that this meal took place on, in the device's time zone.
+	 *
+	 * @return the number of days since January 1st 1970
+	 */
+	public long getDay() {
+		return day;
+	}
+
+	/**
+	 * Set the day that this meal took place on.
+	 * <p>
+	 * This method should only be called when reading stored entries, by the Room database or a
+	 * data access object; the day is otherwise set along with the time.
+	 *
+	 * @param day the day to set
+	 */
+	public void setDay(long day) {
+		this.day = day;
 	}
 
 	@NonNull
@@ -0,0 +1,44 @@
+package com.fitnesstracker.database.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * Full-text index of the names of {@link Food} entities.
+ * <p>
+ * This is an external content table: it stores only the index, reads names from
+ * <code>food</code>, and is kept in sync with it by triggers that Room generates. The row ID of
+ * each row is the ID of the food it indexes.
+ * <p>
+ * Rows of this entity are never read or written by the app directly. Use {@link
+ * com.fitnesstracker.database.daos.FoodDao#search(String, int)} instead.
+ */
+@Fts4(contentEntity = Food.class)
+@Entity(tableName = "food_fts")
+public class FoodFts {
+
+	/** The name of the indexed food. */
+	@ColumnInfo(name = "name")
+	private String name;
+
+	/**
+	 * Constructor that specifies every field.
+	 * <p>
+	 * This is the constructor that the Room database should use.
+	 *
+	 * @param name the name of the indexed food
+	 */
+	public FoodFts(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Get the name of the indexed food.
+	 *
+	 * @return the name of the indexed food
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,149 @@
+package com.fitnesstracker.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+import java.util.Objects;
+
+/**
+ * How far an interrupted import of a food file got.
+ * <p>
+ * A checkpoint is written in the same transaction as each batch of foods, so it always describes
+ * exactly the foods that were committed. It is deleted in the transaction that commits the last
+ * batch, so only unfinished imports have one.
+ *
+ * @see com.fitnesstracker.database.io.FoodImporter
+ */
+@Entity(tableName = "import_checkpoint",
+        primaryKeys = "source")
+public class ImportCheckpoint {
+
+	/**
+	 * The name of the file being imported, such as its URI.
+	 */
+	@NonNull
+	@ColumnInfo(name = "source")
+	private String source;
+
+	/**
+	 * The size of the file in bytes, or -1 if it is unknown, so that a file that has changed since
+	 * it was checkpointed is imported from the start.
+	 */
+	@ColumnInfo(name = "length")
+	private long length;
+
+	/**
+	 * The number of bytes of the file that had been read when the last batch was committed.
+	 * Importing resumes from the record starting at this position.
+	 */
+	@ColumnInfo(name = "position")
+	private long position;
+
+	/**
+	 * The number of records read before {@link ImportCheckpoint#position}, not counting the header.
+	 */
+	@ColumnInfo(name = "records")
+	private long records;
+
+	/**
+	 * The number of those records that were imported as foods.
+	 */
+	@ColumnInfo(name = "imported")
+	private long imported;
+
+	/**
+	 * Constructor that specifies every field.
+	 * <p>
+	 * This is the constructor that the Room database should use.
+	 *
+	 * @param source   the name of the file being imported
+	 * @param length   the size of the file in bytes, or -1 if it is unknown
+	 * @param position the number of bytes read when the last batch was committed
+	 * @param records  the number of records read before the position
+	 * @param imported the number of those records that were imported as foods
+	 */
+	public ImportCheckpoint(@NonNull String source, long length, long position, long records,
+	                        long imported) {
+		this.source = source;
+		this.length = length;
+		this.position = position;
+		this.records = records;
+		this.imported = imported;
+	}
+
+	/**
+	 * Get the name of the file being imported.
+	 *
+	 * @return the name of the file
+	 */
+	@NonNull
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the size of the file being imported.
+	 *
+	 * @return the size in bytes, or -1 if it is unknown
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Get the number of bytes read when the last batch was committed.
+	 *
+	 * @return the position to resume from
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Get the number of records read before {@link ImportCheckpoint#getPosition()}.
+	 *
+	 * @return the number of records read
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Get the number of records that were imported as foods.
+	 *
+	 * @return the number of foods imported
+	 */
+	public long getImported() {
+		return imported;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		ImportCheckpoint that = (ImportCheckpoint) o;
+		return length == that.length &&
+				position == that.position &&
+				records == that.records &&
+				imported == that.imported &&
+				source.equals(that.source);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(source, position);
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return "ImportCheckpoint{" +
+				"source='" + source + '\'' +
+				", length=" + length +
+				", position=" + position +
+				", records=" + records +
+				", imported=" + imported +
+				'}';
+	}
+}
@@ -1,13 +1,27 @@
 package com.fitnesstracker.database.entities;
 
+import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "nutrition_goal")
-
+import com.fitnesstracker.database.Nutrient;
 
+/**
+ * A daily goal amount for one {@link Nutrient}.
+ * <p>
+ * The <code>nutrient</code> column holds the nutrient's {@link Nutrient#ordinal()}, so there is
+ * at most one goal per nutrient.
+ *
+ * @see com.fitnesstracker.database.NutritionGoalEngine
+ */
+@Entity(tableName = "nutrition_goal")
 public class NutritionGoal {
+    /**
+     * The value of <code>nutrient</code> for a calorie goal, equal to the ordinal of {@link
+     * Nutrient#CALORIES}.
+     */
     public static final int CALORIES = 0;
     @ColumnInfo(name = "nutrient")
     @PrimaryKey
@@ -20,6 +34,17 @@ public class NutritionGoal {
         setAmount(amount);
     }
 
+    /**
+     * Constructor that specifies the nutrient as a {@link Nutrient}.
+     *
+     * @param nutrient the nutrient the goal is for
+     * @param amount   the goal amount, in the nutrient's unit
+     */
+    @Ignore
+    public NutritionGoal(@NonNull Nutrient nutrient, int amount) {
+        this(nutrient.ordinal(), amount);
+    }
+
     public int getNutrient() {
         return nutrient;
     }
@@ -28,6 +53,18 @@ public class NutritionGoal {
         this.nutrient = nutrient;
     }
 
+    /**
+     * Get the nutrient this goal is for as a {@link Nutrient}.
+     *
+     * @return the nutrient
+     *
+     * @throws IllegalArgumentException if the stored nutrient is not a known one
+     */
+    @NonNull
+    public Nutrient getNutrientType() {
+        return Nutrient.fromIndex(nutrient);
+    }
+
     public int getAmount() {
         return amount;
     }
@@ -0,0 +1,373 @@
+package com.fitnesstracker.database.instrumentation;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A database that times the statements and transactions it runs and records them in a {@link
+ * QueryMetrics}.
+ * <p>
+ * Queries are timed from when they are issued until their cursor is closed, because SQLite on
+ * Android does not run a query until its cursor is first read. Transactions are timed from the
+ * start of the outermost transaction to its end.
+ *
+ * @author Mitchell Ford
+ */
+class InstrumentedDatabase implements SupportSQLiteDatabase {
+
+	/**
+	 * The database that is instrumented.
+	 */
+	private final SupportSQLiteDatabase delegate;
+
+	/**
+	 * Where statistics are recorded.
+	 */
+	private final QueryMetrics metrics;
+
+	/**
+	 * The transaction each thread is in, if any.
+	 */
+	private final ThreadLocal<Transaction> transactions = new ThreadLocal<Transaction>() {
+		@Override protected Transaction initialValue() {
+			return new Transaction();
+		}
+	};
+
+	/**
+	 * Constructor that specifies the database to instrument and where to record statistics.
+	 *
+	 * @param delegate the database that is instrumented
+	 * @param metrics  where statistics are recorded
+	 */
+	InstrumentedDatabase(SupportSQLiteDatabase delegate, QueryMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get whether this wraps a database.
+	 *
+	 * @param db the database
+	 *
+	 * @return true if this instruments the database
+	 */
+	boolean wraps(SupportSQLiteDatabase db) {
+		return delegate == db;
+	}
+
+	/**
+	 * Wrap a cursor so that the query is recorded when the cursor is closed.
+	 *
+	 * @param sql    the SQL of the query
+	 * @param start  the value of {@link System#nanoTime()} when the query was issued
+	 * @param cursor the cursor to wrap
+	 *
+	 * @return the wrapped cursor
+	 */
+	private Cursor timed(String sql, long start, Cursor cursor) {
+		return new TimedCursor(cursor, metrics.forStatement(sql, StatementStats.Kind.QUERY), start);
+	}
+
+	/**
+	 * Record a statement that is not a query.
+	 *
+	 * @param sql   the SQL of the statement
+	 * @param kind  the kind of statement
+	 * @param start the value of {@link System#nanoTime()} when the statement started
+	 * @param rows  the number of rows changed
+	 */
+	private void record(String sql, StatementStats.Kind kind, long start, long rows) {
+		metrics.forStatement(sql, kind).record(System.nanoTime() - start, rows);
+	}
+
+	/**
+	 * Note that the calling thread began a transaction.
+	 */
+	private void began() {
+		Transaction transaction = transactions.get();
+		if (transaction.depth++ == 0) {
+			transaction.stats = metrics.forTransaction();
+			transaction.start = System.nanoTime();
+		}
+		transaction.scope = new Object();
+	}
+
+	/**
+	 * Get a token that stays the same while the calling thread stays in the same transaction, so
+	 * that a statement executed again within it can be assumed to have the same caller.
+	 *
+	 * @return the token of the innermost transaction, or null if the thread is not in one
+	 */
+	Object getTransactionScope() {
+		return transactions.get().scope;
+	}
+
+	@Override
+	public SupportSQLiteStatement compileStatement(String sql) {
+		return new InstrumentedStatement(delegate.compileStatement(sql), sql, this, metrics);
+	}
+
+	@Override
+	public void beginTransaction() {
+		delegate.beginTransaction();
+		began();
+	}
+
+	@Override
+	public void beginTransactionNonExclusive() {
+		delegate.beginTransactionNonExclusive();
+		began();
+	}
+
+	@Override
+	public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) {
+		delegate.beginTransactionWithListener(transactionListener);
+		began();
+	}
+
+	@Override
+	public void beginTransactionWithListenerNonExclusive(SQLiteTransactionListener transactionListener) {
+		delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+		began();
+	}
+
+	@Override
+	public void endTransaction() {
+		Transaction transaction = transactions.get();
+		try {
+			delegate.endTransaction();
+		} finally {
+			if (transaction.depth > 0 && --transaction.depth == 0) {
+				transaction.stats.record(System.nanoTime() - transaction.start, 0);
+				transaction.stats = null;
+				transaction.scope = null;
+			} else if (transaction.depth > 0) {
+				// The enclosing transaction may have been started by another caller
+				transaction.scope = new Object();
+			}
+		}
+	}
+
+	@Override
+	public void setTransactionSuccessful() {
+		delegate.setTransactionSuccessful();
+	}
+
+	@Override
+	public boolean inTransaction() {
+		return delegate.inTransaction();
+	}
+
+	@Override
+	public boolean isDbLockedByCurrentThread() {
+		return delegate.isDbLockedByCurrentThread();
+	}
+
+	@Override
+	public boolean yieldIfContendedSafely() {
+		return delegate.yieldIfContendedSafely();
+	}
+
+	@Override
+	public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) {
+		return delegate.yieldIfContendedSafely(sleepAfterYieldDelay);
+	}
+
+	@Override
+	public int getVersion() {
+		return delegate.getVersion();
+	}
+
+	@Override
+	public void setVersion(int version) {
+		delegate.setVersion(version);
+	}
+
+	@Override
+	public long getMaximumSize() {
+		return delegate.getMaximumSize();
+	}
+
+	@Override
+	public long setMaximumSize(long numBytes) {
+		return delegate.setMaximumSize(numBytes);
+	}
+
+	@Override
+	public long getPageSize() {
+		return delegate.getPageSize();
+	}
+
+	@Override
+	public void setPageSize(long numBytes) {
+		delegate.setPageSize(numBytes);
+	}
+
+	@Override
+	public Cursor query(String query) {
+		long start = System.nanoTime();
+		return timed(query, start, delegate.query(query));
+	}
+
+	@Override
+	public Cursor query(String query, Object[] bindArgs) {
+		long start = System.nanoTime();
+		return timed(query, start, delegate.query(query, bindArgs));
+	}
+
+	@Override
+	public Cursor query(SupportSQLiteQuery query) {
+		long start = System.nanoTime();
+		return timed(query.getSql(), start, delegate.query(query));
+	}
+
+	@Override
+	public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+		long start = System.nanoTime();
+		return timed(query.getSql(), start, delegate.query(query, cancellationSignal));
+	}
+
+	@Override
+	public long insert(String table, int conflictAlgorithm, ContentValues values) throws SQLException {
+		long start = System.nanoTime();
+		long rowId = delegate.insert(table, conflictAlgorithm, values);
+		record("INSERT INTO " + table, StatementStats.Kind.INSERT, start, rowId == -1 ? 0 : 1);
+		return rowId;
+	}
+
+	@Override
+	public int delete(String table, String whereClause, Object[] whereArgs) {
+		long start = System.nanoTime();
+		int rows = delegate.delete(table, whereClause, whereArgs);
+		record("DELETE FROM " + table + " WHERE " + whereClause, StatementStats.Kind.UPDATE_DELETE,
+				start, rows);
+		return rows;
+	}
+
+	@Override
+	public int update(String table, int conflictAlgorithm, ContentValues values, String whereClause,
+	                  Object[] whereArgs) {
+		long start = System.nanoTime();
+		int rows = delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+		record("UPDATE " + table + " WHERE " + whereClause, StatementStats.Kind.UPDATE_DELETE,
+				start, rows);
+		return rows;
+	}
+
+	@Override
+	public void execSQL(String sql) throws SQLException {
+		long start = System.nanoTime();
+		delegate.execSQL(sql);
+		record(sql, StatementStats.Kind.EXECUTE, start, 0);
+	}
+
+	@Override
+	public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+		long start = System.nanoTime();
+		delegate.execSQL(sql, bindArgs);
+		record(sql, StatementStats.Kind.EXECUTE, start, 0);
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return delegate.isReadOnly();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public boolean needUpgrade(int newVersion) {
+		return delegate.needUpgrade(newVersion);
+	}
+
+	@Override
+	public String getPath() {
+		return delegate.getPath();
+	}
+
+	@Override
+	public void setLocale(Locale locale) {
+		delegate.setLocale(locale);
+	}
+
+	@Override
+	public void setMaxSqlCacheSize(int cacheSize) {
+		delegate.setMaxSqlCacheSize(cacheSize);
+	}
+
+	@Override
+	public void setForeignKeyConstraintsEnabled(boolean enable) {
+		delegate.setForeignKeyConstraintsEnabled(enable);
+	}
+
+	@Override
+	public boolean enableWriteAheadLogging() {
+		return delegate.enableWriteAheadLogging();
+	}
+
+	@Override
+	public void disableWriteAheadLogging() {
+		delegate.disableWriteAheadLogging();
+	}
+
+	@Override
+	public boolean isWriteAheadLoggingEnabled() {
+		return delegate.isWriteAheadLoggingEnabled();
+	}
+
+	@Override
+	public List<Pair<String, String>> getAttachedDbs() {
+		return delegate.getAttachedDbs();
+	}
+
+	@Override
+	public boolean isDatabaseIntegrityOk() {
+		return delegate.isDatabaseIntegrityOk();
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+
+	/**
+	 * The outermost transaction a thread is in.
+	 */
+	private static class Transaction {
+
+		/** The number of nested transactions the thread is in. */
+		int depth;
+
+		/** The value of {@link System#nanoTime()} when the outermost transaction began. */
+		long start;
+
+		/** The statistics the outermost transaction is recorded in. */
+		StatementStats stats;
+
+		/** A token of the innermost transaction, or null if the thread is not in a transaction. */
+		Object scope;
+	}
+}
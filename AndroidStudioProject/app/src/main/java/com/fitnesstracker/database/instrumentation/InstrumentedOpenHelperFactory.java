@@ -0,0 +1,118 @@
+package com.fitnesstracker.database.instrumentation;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+
+/**
+ * A factory for open helpers whose databases time every statement and transaction they run and
+ * record the results in a {@link QueryMetrics}.
+ * <p>
+ * Install it with {@link androidx.room.RoomDatabase.Builder#openHelperFactory(SupportSQLiteOpenHelper.Factory)}.
+ * Callbacks such as {@link androidx.room.RoomDatabase.Callback#onOpen(SupportSQLiteDatabase)} are
+ * given the underlying database, so work done while opening the database is not recorded.
+ *
+ * @author Mitchell Ford
+ */
+public class InstrumentedOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+	/**
+	 * The factory whose open helpers are instrumented.
+	 */
+	private final SupportSQLiteOpenHelper.Factory delegate;
+
+	/**
+	 * Where statistics are recorded.
+	 */
+	private final QueryMetrics metrics;
+
+	/**
+	 * Constructor that specifies the factory to instrument and where to record statistics.
+	 *
+	 * @param delegate the factory whose open helpers are instrumented
+	 * @param metrics  where statistics are recorded
+	 */
+	public InstrumentedOpenHelperFactory(@NonNull SupportSQLiteOpenHelper.Factory delegate,
+	                                     @NonNull QueryMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	@NonNull
+	@Override
+	public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+		return new InstrumentedOpenHelper(delegate.create(configuration), metrics);
+	}
+
+	/**
+	 * An open helper that wraps the databases it opens in an {@link InstrumentedDatabase}.
+	 */
+	private static class InstrumentedOpenHelper implements SupportSQLiteOpenHelper {
+
+		/** The open helper that is instrumented. */
+		private final SupportSQLiteOpenHelper delegate;
+
+		/** Where statistics are recorded. */
+		private final QueryMetrics metrics;
+
+		/**
+		 * The most recently wrapped database. Room asks for the database before every statement,
+		 * so the wrapper is reused for as long as the open helper returns the same database.
+		 */
+		private volatile InstrumentedDatabase wrapped;
+
+		/**
+		 * Constructor that specifies the open helper to instrument and where to record statistics.
+		 *
+		 * @param delegate the open helper that is instrumented
+		 * @param metrics  where statistics are recorded
+		 */
+		InstrumentedOpenHelper(SupportSQLiteOpenHelper delegate, QueryMetrics metrics) {
+			this.delegate = delegate;
+			this.metrics = metrics;
+		}
+
+		/**
+		 * Get the wrapper of a database, creating one if it has not been wrapped yet.
+		 *
+		 * @param db the database to wrap
+		 *
+		 * @return the wrapped database
+		 */
+		private SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+			InstrumentedDatabase wrapped = this.wrapped;
+			if (wrapped == null || !wrapped.wraps(db)) {
+				wrapped = new InstrumentedDatabase(db, metrics);
+				this.wrapped = wrapped;
+			}
+			return wrapped;
+		}
+
+		@Nullable
+		@Override
+		public String getDatabaseName() {
+			return delegate.getDatabaseName();
+		}
+
+		@Override
+		public void setWriteAheadLoggingEnabled(boolean enabled) {
+			delegate.setWriteAheadLoggingEnabled(enabled);
+		}
+
+		@Override
+		public SupportSQLiteDatabase getWritableDatabase() {
+			return wrap(delegate.getWritableDatabase());
+		}
+
+		@Override
+		public SupportSQLiteDatabase getReadableDatabase() {
+			return wrap(delegate.getReadableDatabase());
+		}
+
+		@Override
+		public void close() {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.fitnesstracker.database.instrumentation;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+
+/**
+ * A compiled statement that times each time it is executed and records it in a {@link
+ * QueryMetrics}.
+ * <p>
+ * Room compiles each insert, update, and delete once and executes it for every row, so the
+ * statistics this statement records into are looked up once per transaction it is executed in
+ * rather than on every execution. Room also shares these statements between DAO methods, each of
+ * which runs them in a transaction of its own, so every method is still charged for its rows.
+ *
+ * @author Mitchell Ford
+ */
+class InstrumentedStatement implements SupportSQLiteStatement {
+
+	/**
+	 * The statement that is instrumented.
+	 */
+	private final SupportSQLiteStatement delegate;
+
+	/**
+	 * The SQL of the statement.
+	 */
+	private final String sql;
+
+	/**
+	 * The database that compiled the statement.
+	 */
+	private final InstrumentedDatabase database;
+
+	/**
+	 * Where statistics are recorded.
+	 */
+	private final QueryMetrics metrics;
+
+	/**
+	 * The statistics this statement was last recorded in, or null if it has not been executed.
+	 */
+	private StatementStats stats;
+
+	/**
+	 * The generation of {@link InstrumentedStatement#metrics} that {@link
+	 * InstrumentedStatement#stats} belongs to.
+	 */
+	private int generation;
+
+	/**
+	 * The transaction scope of {@link InstrumentedStatement#database} that {@link
+	 * InstrumentedStatement#stats} was looked up in, or null if it was looked up outside of a
+	 * transaction.
+	 */
+	private Object scope;
+
+	/**
+	 * Constructor that specifies the statement to instrument, the database that compiled it, and
+	 * where to record statistics.
+	 *
+	 * @param delegate the statement that is instrumented
+	 * @param sql      the SQL of the statement
+	 * @param database the database that compiled the statement
+	 * @param metrics  where statistics are recorded
+	 */
+	InstrumentedStatement(SupportSQLiteStatement delegate, String sql,
+			InstrumentedDatabase database, QueryMetrics metrics) {
+		this.delegate = delegate;
+		this.sql = sql;
+		this.database = database;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Record one execution of this statement.
+	 *
+	 * @param kind  the kind of execution
+	 * @param start the value of {@link System#nanoTime()} when the execution started
+	 * @param rows  the number of rows returned or changed
+	 */
+	private void record(StatementStats.Kind kind, long start, long rows) {
+		long nanos = System.nanoTime() - start;
+		StatementStats stats = this.stats;
+		Object scope = database.getTransactionScope();
+		if (stats == null || stats.getKind() != kind || generation != metrics.getGeneration()
+				|| scope == null || scope != this.scope) {
+			generation = metrics.getGeneration();
+			stats = metrics.forStatement(sql, kind);
+			this.stats = stats;
+			this.scope = scope;
+		}
+		stats.record(nanos, rows);
+	}
+
+	@Override
+	public void execute() {
+		long start = System.nanoTime();
+		delegate.execute();
+		record(StatementStats.Kind.EXECUTE, start, 0);
+	}
+
+	@Override
+	public int executeUpdateDelete() {
+		long start = System.nanoTime();
+		int rows = delegate.executeUpdateDelete();
+		record(StatementStats.Kind.UPDATE_DELETE, start, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeInsert() {
+		long start = System.nanoTime();
+		long rowId = delegate.executeInsert();
+		record(StatementStats.Kind.INSERT, start, rowId == -1 ? 0 : 1);
+		return rowId;
+	}
+
+	@Override
+	public long simpleQueryForLong() {
+		long start = System.nanoTime();
+		long result = delegate.simpleQueryForLong();
+		record(StatementStats.Kind.QUERY, start, 1);
+		return result;
+	}
+
+	@Override
+	public String simpleQueryForString() {
+		long start = System.nanoTime();
+		String result = delegate.simpleQueryForString();
+		record(StatementStats.Kind.QUERY, start, 1);
+		return result;
+	}
+
+	@Override
+	public void bindNull(int index) {
+		delegate.bindNull(index);
+	}
+
+	@Override
+	public void bindLong(int index, long value) {
+		delegate.bindLong(index, value);
+	}
+
+	@Override
+	public void bindDouble(int index, double value) {
+		delegate.bindDouble(index, value);
+	}
+
+	@Override
+	public void bindString(int index, String value) {
+		delegate.bindString(index, value);
+	}
+
+	@Override
+	public void bindBlob(int index, byte[] value) {
+		delegate.bindBlob(index, value);
+	}
+
+	@Override
+	public void clearBindings() {
+		delegate.clearBindings();
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+}
@@ -0,0 +1,146 @@
+package com.fitnesstracker.database.instrumentation;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A histogram of latencies with one bucket per power of two microseconds.
+ * <p>
+ * Recording a latency takes constant time and memory, and percentiles are accurate to within a
+ * factor of two, which is enough to tell a 1 ms query from a 10 ms one.
+ *
+ * @author Mitchell Ford
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of buckets. The last bucket holds every latency of 2^30 microseconds (about 18
+	 * minutes) or more.
+	 */
+	public static final int NUM_BUCKETS = 32;
+
+	/**
+	 * The number of latencies in each bucket. Bucket 0 holds latencies under 1 microsecond, and
+	 * bucket <code>i</code> holds latencies from 2^(i-1) up to 2^i microseconds.
+	 */
+	private final long[] buckets = new long[NUM_BUCKETS];
+
+	/**
+	 * The number of latencies recorded.
+	 */
+	private long count;
+
+	/**
+	 * The sum of the latencies recorded, in nanoseconds.
+	 */
+	private long totalNanos;
+
+	/**
+	 * The largest latency recorded, in nanoseconds.
+	 */
+	private long maxNanos;
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		buckets[bucketOf(nanos)]++;
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+
+	/**
+	 * Get the bucket a latency belongs in.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 *
+	 * @return the index of the bucket
+	 */
+	static int bucketOf(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, NUM_BUCKETS - 1);
+	}
+
+	/**
+	 * Get the upper bound of a bucket.
+	 *
+	 * @param bucket the index of the bucket
+	 *
+	 * @return the largest latency the bucket holds, in microseconds
+	 */
+	public static long upperBoundMicros(int bucket) {
+		return 1L << bucket;
+	}
+
+	/**
+	 * Get the number of latencies recorded.
+	 *
+	 * @return the number of latencies
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the sum of the latencies recorded.
+	 *
+	 * @return the total latency in milliseconds
+	 */
+	public synchronized double getTotalMillis() {
+		return totalNanos / 1e6;
+	}
+
+	/**
+	 * Get the mean of the latencies recorded.
+	 *
+	 * @return the mean latency in milliseconds, or 0 if none have been recorded
+	 */
+	public synchronized double getMeanMillis() {
+		return count == 0 ? 0 : totalNanos / 1e6 / count;
+	}
+
+	/**
+	 * Get the largest latency recorded.
+	 *
+	 * @return the maximum latency in milliseconds
+	 */
+	public synchronized double getMaxMillis() {
+		return maxNanos / 1e6;
+	}
+
+	/**
+	 * Estimate a percentile of the latencies recorded.
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 *
+	 * @return the upper bound of the bucket that the percentile falls in, in milliseconds, capped at
+	 * the largest latency recorded
+	 */
+	public synchronized double getPercentileMillis(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(upperBoundMicros(i) / 1e3, maxNanos / 1e6);
+			}
+		}
+		return maxNanos / 1e6;
+	}
+
+	/**
+	 * Get a copy of the number of latencies in each bucket.
+	 *
+	 * @return the bucket counts
+	 */
+	@NonNull
+	public synchronized long[] getBuckets() {
+		return buckets.clone();
+	}
+}
@@ -0,0 +1,244 @@
+package com.fitnesstracker.database.instrumentation;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The statistics recorded by an {@link InstrumentedOpenHelperFactory}, keyed by the caller that
+ * ran each statement and the statement's SQL.
+ * <p>
+ * Callers are identified by walking the stack for the first class in this app outside of Room's
+ * generated plumbing, so a query run by <code>FoodDao_Impl.getAll()</code> is tagged
+ * <code>FoodDao.getAll</code>. The same SQL run by two callers is recorded separately, since Room
+ * shares the statements of its insert, update and delete adapters between DAO methods. The stack
+ * is walked for every query and at the start of each transaction, but a compiled statement only
+ * walks it the first time it is executed in a transaction, so a bulk insert costs two calls to
+ * {@link System#nanoTime()} and no lookup per row.
+ *
+ * @author Mitchell Ford
+ */
+public class QueryMetrics {
+
+	/**
+	 * The largest number of distinct statements and callers that are tracked. Statements seen after
+	 * this many are recorded under {@link QueryMetrics#OVERFLOW_TAG}.
+	 */
+	private static final int MAX_STATEMENTS = 1000;
+
+	/**
+	 * The tag of statements that could not be tracked individually.
+	 */
+	static final String OVERFLOW_TAG = "(other)";
+
+	/**
+	 * The package of this app's classes.
+	 */
+	private static final String APP_PACKAGE = "com.fitnesstracker.";
+
+	/**
+	 * The package of the instrumentation classes, which are never the caller.
+	 */
+	private static final String INSTRUMENTATION_PACKAGE = QueryMetrics.class.getPackage().getName();
+
+	/**
+	 * Statistics keyed by {@link QueryMetrics#key(String, String, StatementStats.Kind)}.
+	 */
+	private final ConcurrentHashMap<String, StatementStats> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of times {@link QueryMetrics#reset()} has been called, so that callers holding on
+	 * to statistics know to look them up again.
+	 */
+	private volatile int generation;
+
+	/**
+	 * Get the statistics of a statement run by the caller of the calling thread, creating them if
+	 * the caller has not run it before.
+	 *
+	 * @param sql  the SQL of the statement
+	 * @param kind the kind of work that is timed
+	 *
+	 * @return the statistics of the statement and its caller
+	 */
+	@NonNull
+	StatementStats forStatement(@NonNull String sql, @NonNull StatementStats.Kind kind) {
+		String tag = findCaller();
+		if (stats.size() >= MAX_STATEMENTS && !stats.containsKey(key(tag, sql, kind))) {
+			return forTag(OVERFLOW_TAG, null, kind);
+		}
+		return forTag(tag, sql, kind);
+	}
+
+	/**
+	 * Get the statistics of the transaction the calling thread is starting.
+	 *
+	 * @return the statistics of transactions started by the caller
+	 */
+	@NonNull
+	StatementStats forTransaction() {
+		return forTag(findCaller(), null, StatementStats.Kind.TRANSACTION);
+	}
+
+	/**
+	 * Get the statistics with a tag, SQL, and kind, creating them if they do not exist.
+	 *
+	 * @param tag  the caller
+	 * @param sql  the SQL, or null
+	 * @param kind the kind of work
+	 *
+	 * @return the statistics
+	 */
+	private StatementStats forTag(String tag, String sql, StatementStats.Kind kind) {
+		String key = key(tag, sql, kind);
+		StatementStats statementStats = stats.get(key);
+		if (statementStats == null) {
+			statementStats = new StatementStats(tag, sql, kind);
+			StatementStats existing = stats.putIfAbsent(key, statementStats);
+			if (existing != null) {
+				statementStats = existing;
+			}
+		}
+		return statementStats;
+	}
+
+	/**
+	 * Get the key that statistics are stored under.
+	 *
+	 * @param tag  the caller
+	 * @param sql  the SQL, or null
+	 * @param kind the kind of work
+	 *
+	 * @return the key
+	 */
+	private static String key(String tag, String sql, StatementStats.Kind kind) {
+		return kind + "\u0000" + tag + "\u0000" + sql;
+	}
+
+	/**
+	 * Find the method in this app that the current database call was made on behalf of.
+	 * <p>
+	 * This is the outermost method of the first class in this app on the stack, so a query that a
+	 * DAO builds in a helper method is tagged with the public method that called the helper.
+	 * Anonymous classes are skipped; Room runs observable queries from a generated
+	 * <code>Callable</code>, so a class reached only through one is tagged as observed.
+	 *
+	 * @return the caller, such as <code>FoodDao.search</code>, or <code>"(unknown)"</code> if no
+	 * frame of the stack belongs to this app
+	 */
+	@NonNull
+	static String findCaller() {
+		String caller = null;
+		String tag = null;
+		for (StackTraceElement frame : new Throwable().getStackTrace()) {
+			String className = frame.getClassName();
+			if (!className.startsWith(APP_PACKAGE) || className.startsWith(INSTRUMENTATION_PACKAGE)) {
+				if (caller != null) {
+					break;
+				}
+				continue;
+			}
+
+			// FoodDao_Impl$5 becomes FoodDao
+			String simpleName = className.substring(className.lastIndexOf('.') + 1);
+			int inner = simpleName.indexOf('$');
+			boolean anonymous = inner >= 0;
+			if (anonymous) {
+				simpleName = simpleName.substring(0, inner);
+			}
+			if (simpleName.endsWith("_Impl")) {
+				simpleName = simpleName.substring(0, simpleName.length() - "_Impl".length());
+			}
+
+			if (caller == null) {
+				caller = simpleName;
+			} else if (!caller.equals(simpleName)) {
+				break;
+			}
+			if (!anonymous) {
+				tag = simpleName + "." + frame.getMethodName();
+			}
+		}
+
+		if (tag != null) {
+			return tag;
+		}
+		return caller != null ? caller + " (observed)" : "(unknown)";
+	}
+
+	/**
+	 * Get the statistics of every statement, with the most total time first.
+	 *
+	 * @return the statistics of every statement
+	 */
+	@NonNull
+	public List<StatementStats> getSnapshot() {
+		List<StatementStats> snapshot = new ArrayList<>(stats.values());
+		Collections.sort(snapshot, new Comparator<StatementStats>() {
+			@Override public int compare(StatementStats a, StatementStats b) {
+				return Double.compare(b.getLatencies().getTotalMillis(),
+						a.getLatencies().getTotalMillis());
+			}
+		});
+		return snapshot;
+	}
+
+	/**
+	 * Discard every statistic recorded so far.
+	 */
+	public void reset() {
+		stats.clear();
+		generation++;
+	}
+
+	/**
+	 * Get the number of times the statistics have been reset.
+	 *
+	 * @return the generation of the statistics
+	 */
+	int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Write every statistic as tab-separated values, one statement per line, for offline analysis.
+	 * <p>
+	 * The last column holds the count of each {@link LatencyHistogram} bucket, separated by
+	 * commas.
+	 *
+	 * @param writer the writer to write to
+	 *
+	 * @throws IOException if the writer fails
+	 */
+	public void dump(@NonNull Writer writer) throws IOException {
+		writer.write("kind\ttag\tcount\ttotal_ms\tmean_ms\tp50_ms\tp95_ms\tp99_ms\tmax_ms\trows\tsql"
+				+ "\tbuckets\n");
+		for (StatementStats statementStats : getSnapshot()) {
+			LatencyHistogram latencies = statementStats.getLatencies();
+			StringBuilder buckets = new StringBuilder();
+			for (long bucket : latencies.getBuckets()) {
+				if (buckets.length() > 0) {
+					buckets.append(',');
+				}
+				buckets.append(bucket);
+			}
+			String sql = statementStats.getSql() == null
+					? "" : statementStats.getSql().replaceAll("\\s+", " ").trim();
+			writer.write(String.format(Locale.US,
+					"%s\t%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%d\t%s\t%s\n",
+					statementStats.getKind(), statementStats.getTag(), latencies.getCount(),
+					latencies.getTotalMillis(), latencies.getMeanMillis(),
+					latencies.getPercentileMillis(50), latencies.getPercentileMillis(95),
+					latencies.getPercentileMillis(99), latencies.getMaxMillis(),
+					statementStats.getRows(), sql, buckets));
+		}
+		writer.flush();
+	}
+}
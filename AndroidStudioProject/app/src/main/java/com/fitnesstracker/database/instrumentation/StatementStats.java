@@ -0,0 +1,126 @@
+package com.fitnesstracker.database.instrumentation;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The latencies and row counts recorded for one SQL statement run by one caller.
+ *
+ * @author Mitchell Ford
+ */
+public class StatementStats {
+
+	/**
+	 * The kinds of work that are timed.
+	 */
+	public enum Kind {
+		/** A query, timed from when it was issued until its cursor was closed. */
+		QUERY,
+		/** An insert through a compiled statement. */
+		INSERT,
+		/** An update or delete through a compiled statement. */
+		UPDATE_DELETE,
+		/** Any other statement, such as a pragma or data definition. */
+		EXECUTE,
+		/** An outermost transaction, timed from when it began until it ended. */
+		TRANSACTION
+	}
+
+	/**
+	 * The caller that ran the statement, such as <code>FoodDao.search</code>.
+	 */
+	private final String tag;
+
+	/**
+	 * The SQL of the statement, or null for a transaction.
+	 */
+	private final String sql;
+
+	/**
+	 * The kind of work that was timed.
+	 */
+	private final Kind kind;
+
+	/**
+	 * The latencies recorded.
+	 */
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * The number of rows returned by queries or changed by updates and deletes.
+	 */
+	private long rows;
+
+	/**
+	 * Constructor that specifies the caller, statement, and kind of work.
+	 *
+	 * @param tag  the caller that ran the statement
+	 * @param sql  the SQL of the statement, or null for a transaction
+	 * @param kind the kind of work that is timed
+	 */
+	StatementStats(@NonNull String tag, String sql, @NonNull Kind kind) {
+		this.tag = tag;
+		this.sql = sql;
+		this.kind = kind;
+	}
+
+	/**
+	 * Record one run of the statement.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 * @param rows  the number of rows returned or changed, or 0 if not applicable
+	 */
+	void record(long nanos, long rows) {
+		latencies.record(nanos);
+		synchronized (this) {
+			this.rows += rows;
+		}
+	}
+
+	/**
+	 * Get the caller that ran the statement.
+	 *
+	 * @return the tag, such as <code>FoodDao.search</code>
+	 */
+	@NonNull
+	public String getTag() {
+		return tag;
+	}
+
+	/**
+	 * Get the SQL of the statement.
+	 *
+	 * @return the SQL, or null for a transaction
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * Get the kind of work that was timed.
+	 *
+	 * @return the kind of work
+	 */
+	@NonNull
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the latencies recorded.
+	 *
+	 * @return the latency histogram
+	 */
+	@NonNull
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Get the number of rows returned by queries or changed by updates and deletes.
+	 *
+	 * @return the total number of rows
+	 */
+	public synchronized long getRows() {
+		return rows;
+	}
+}
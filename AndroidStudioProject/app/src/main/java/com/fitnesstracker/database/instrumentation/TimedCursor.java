@@ -0,0 +1,61 @@
+package com.fitnesstracker.database.instrumentation;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * A cursor that records how long its query took, and how many rows it returned, when it is
+ * closed.
+ * <p>
+ * Room reads every cursor it opens before closing it, so counting the rows on close does not run
+ * the query a second time.
+ *
+ * @author Mitchell Ford
+ */
+class TimedCursor extends CursorWrapper {
+
+	/**
+	 * The statistics the query is recorded in.
+	 */
+	private final StatementStats stats;
+
+	/**
+	 * The value of {@link System#nanoTime()} when the query was issued.
+	 */
+	private final long start;
+
+	/**
+	 * Whether the query has been recorded.
+	 */
+	private boolean recorded;
+
+	/**
+	 * Constructor that specifies the cursor to wrap and where to record its query.
+	 *
+	 * @param cursor the cursor to wrap
+	 * @param stats  the statistics the query is recorded in
+	 * @param start  the value of {@link System#nanoTime()} when the query was issued
+	 */
+	TimedCursor(Cursor cursor, StatementStats stats, long start) {
+		super(cursor);
+		this.stats = stats;
+		this.start = start;
+	}
+
+	@Override
+	public void close() {
+		if (!recorded && !isClosed()) {
+			recorded = true;
+			long nanos = System.nanoTime() - start;
+			int rows;
+			try {
+				rows = getCount();
+			} catch (RuntimeException e) {
+				// The query was cancelled or failed, so it returned no rows
+				rows = 0;
+			}
+			stats.record(nanos, rows);
+		}
+		super.close();
+	}
+}
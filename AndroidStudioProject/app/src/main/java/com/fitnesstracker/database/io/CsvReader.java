@@ -0,0 +1,342 @@
+package com.fitnesstracker.database.io;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A reader of UTF-8 comma-separated values, as described by RFC 4180, that reads a stream one
+ * record at a time.
+ * <p>
+ * Records are parsed straight from the bytes of the stream rather than through a {@link
+ * java.io.Reader}, which is possible because the commas, quotes and line breaks that separate
+ * values are never part of a multi-byte UTF-8 character. This means that the exact byte position
+ * of every record is known, so that reading can later resume from it with {@link
+ * CsvReader#skipTo(long)}.
+ * <p>
+ * Memory use does not depend on the size of the stream: only one buffer of the stream and one
+ * value are held at a time, and a value longer than {@link CsvReader#MAX_VALUE_LENGTH} is an
+ * error rather than a reason to grow without limit.
+ *
+ * @author Mitchell Ford
+ */
+public class CsvReader implements Closeable {
+
+	/**
+	 * The longest value that can be read, in bytes.
+	 */
+	public static final int MAX_VALUE_LENGTH = 1024 * 1024;
+
+	/**
+	 * The number of bytes read from the stream at a time.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The stream being read.
+	 */
+	private final InputStream in;
+
+	/**
+	 * Bytes read from the stream that have not been parsed yet, from {@link CsvReader#pos} to
+	 * {@link CsvReader#limit}.
+	 */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * The index in {@link CsvReader#buffer} of the next byte to parse.
+	 */
+	private int pos;
+
+	/**
+	 * The number of bytes in {@link CsvReader#buffer}.
+	 */
+	private int limit;
+
+	/**
+	 * The position in the stream of the first byte in {@link CsvReader#buffer}.
+	 */
+	private long bufferStart;
+
+	/**
+	 * The bytes of the value being parsed, which grows to fit the longest value.
+	 */
+	private byte[] value = new byte[256];
+
+	/**
+	 * The number of bytes in {@link CsvReader#value}.
+	 */
+	private int valueLength;
+
+	/**
+	 * Constructor that specifies the stream to read, which should be positioned at its start.
+	 *
+	 * @param in the stream to read
+	 */
+	public CsvReader(@NonNull InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next record.
+	 * <p>
+	 * Empty lines are skipped. Quoted values may contain commas, line breaks and quotes, which are
+	 * escaped by doubling them.
+	 *
+	 * @param values the list to put the record's values in, which is cleared first
+	 *
+	 * @return true if a record was read, or false if the end of the stream was reached
+	 *
+	 * @throws IOException if the stream cannot be read or a quoted value is not closed
+	 */
+	public boolean readRecord(@NonNull List<String> values) throws IOException {
+		values.clear();
+		skipByteOrderMark();
+		int c = skipLineBreaks();
+		if (c == -1) {
+			return false;
+		}
+
+		while (true) {
+			valueLength = 0;
+			if (c == '"') {
+				while (true) {
+					c = read();
+					if (c == -1) {
+						throw new EOFException("Quoted value is not closed at byte " + getPosition());
+					}
+					if (c == '"') {
+						c = read();
+						if (c != '"') {
+							break;
+						}
+					}
+					append(c);
+				}
+			}
+
+			// Anything after a closing quote is kept, as spreadsheet programs do
+			while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+				append(c);
+				c = read();
+			}
+			values.add(decode());
+
+			if (c != ',') {
+				skipLineFeed(c);
+				return true;
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * Read the next line, without parsing it into values, for files that are made of one record
+	 * per line in another format, such as JSON Lines.
+	 * <p>
+	 * Empty lines are skipped.
+	 *
+	 * @return the line without its line break, or null if the end of the stream was reached
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	@Nullable
+	public String readLine() throws IOException {
+		skipByteOrderMark();
+		int c = skipLineBreaks();
+		if (c == -1) {
+			return null;
+		}
+
+		valueLength = 0;
+		while (c != '\n' && c != '\r' && c != -1) {
+			append(c);
+			c = read();
+		}
+		skipLineFeed(c);
+		return decode();
+	}
+
+	/**
+	 * Get the position in the stream of the next byte to be parsed, which after a record has been
+	 * read is the position of the next record.
+	 *
+	 * @return the number of bytes parsed so far
+	 */
+	public long getPosition() {
+		return bufferStart + pos;
+	}
+
+	/**
+	 * Skip ahead to a position in the stream without parsing the bytes before it.
+	 *
+	 * @param position the position to skip to, which should be the start of a record
+	 *
+	 * @throws IOException              if the stream cannot be read or ends before the position
+	 * @throws IllegalArgumentException if the position has already been parsed
+	 */
+	public void skipTo(long position) throws IOException {
+		long remaining = position - getPosition();
+		if (remaining < 0) {
+			throw new IllegalArgumentException("Cannot skip back to byte " + position
+					+ " from byte " + getPosition());
+		}
+
+		// Skip what is already buffered first
+		if (remaining <= limit - pos) {
+			pos += (int) remaining;
+			return;
+		}
+		remaining -= limit - pos;
+		bufferStart += limit;
+		pos = 0;
+		limit = 0;
+
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+
+			// Some streams cannot skip, which reading a byte tells apart from the end of the stream
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new EOFException("Stream ended before byte " + position);
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+			bufferStart += skipped;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Read bytes until one that is not a line break.
+	 *
+	 * @return the first byte that is not a line break, or -1 at the end of the stream
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private int skipLineBreaks() throws IOException {
+		int c = read();
+		while (c == '\n' || c == '\r') {
+			c = read();
+		}
+		return c;
+	}
+
+	/**
+	 * Consume the line feed of a <code>\r\n</code> line break.
+	 *
+	 * @param c the byte that ended a record
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private void skipLineFeed(int c) throws IOException {
+		if (c == '\r' && peek() == '\n') {
+			pos++;
+		}
+	}
+
+	/**
+	 * Skip the UTF-8 byte order mark that some programs write at the start of a file, if the
+	 * stream has not been parsed yet and starts with one.
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private void skipByteOrderMark() throws IOException {
+		if (getPosition() == 0 && peek() != -1 && limit >= 3 && (buffer[0] & 0xFF) == 0xEF
+				&& (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF) {
+			pos = 3;
+		}
+	}
+
+	/**
+	 * Decode {@link CsvReader#value} as UTF-8.
+	 *
+	 * @return the value
+	 */
+	@NonNull
+	private String decode() {
+		return new String(value, 0, valueLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Add a byte to {@link CsvReader#value}.
+	 *
+	 * @param c the byte to add
+	 *
+	 * @throws IOException if the value would be longer than {@link CsvReader#MAX_VALUE_LENGTH}
+	 */
+	private void append(int c) throws IOException {
+		if (valueLength == value.length) {
+			if (valueLength >= MAX_VALUE_LENGTH) {
+				throw new IOException("Value longer than " + MAX_VALUE_LENGTH + " bytes at byte "
+						+ getPosition());
+			}
+			byte[] grown = new byte[Math.min(valueLength * 2, MAX_VALUE_LENGTH)];
+			System.arraycopy(value, 0, grown, 0, valueLength);
+			value = grown;
+		}
+		value[valueLength++] = (byte) c;
+	}
+
+	/**
+	 * Parse the next byte.
+	 *
+	 * @return the byte, or -1 at the end of the stream
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos++] & 0xFF;
+	}
+
+	/**
+	 * Get the next byte without parsing it.
+	 *
+	 * @return the byte, or -1 at the end of the stream
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos] & 0xFF;
+	}
+
+	/**
+	 * Replace the parsed contents of {@link CsvReader#buffer} with the next bytes of the stream.
+	 *
+	 * @return true if any bytes were read, or false at the end of the stream
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private boolean fill() throws IOException {
+		bufferStart += limit;
+		pos = 0;
+		limit = 0;
+
+		int read;
+		do {
+			read = in.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		limit = read;
+		return true;
+	}
+}
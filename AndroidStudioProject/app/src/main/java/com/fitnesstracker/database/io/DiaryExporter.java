@@ -0,0 +1,601 @@
+package com.fitnesstracker.database.io;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Exports the food diary to a file of comma-separated values or JSON Lines, oldest meal first.
+ * <p>
+ * Every meal is written as one record of its diary entry followed by its food, with the food's
+ * columns named as {@link FoodImporter} reads them, so an export can be imported again to restore
+ * the foods it refers to.
+ * <p>
+ * Memory use does not depend on the size of the diary. Meals are read in chunks of at most {@link
+ * DiaryExporter#DEFAULT_CHUNK_SIZE} rows using keyset pagination, each through a raw cursor that
+ * fits in one cursor window, and every row is encoded straight from the cursor into one reusable
+ * byte buffer without creating a {@link com.fitnesstracker.database.Meal} or any strings.
+ * Reading the whole diary with a single cursor would instead make SQLite step past every earlier
+ * row each time the cursor window is refilled.
+ * <p>
+ * Because each chunk is its own query, meals written during an export are only included if they
+ * come after the last chunk read, but no meal that exists for the whole export is skipped or
+ * written twice.
+ *
+ * @author Mitchell Ford
+ */
+public class DiaryExporter {
+
+	/**
+	 * The number of meals read per query by default.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 2000;
+
+	/**
+	 * The number of bytes encoded before they are written to the stream.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The names of the columns written before each meal's nutrients.
+	 */
+	private static final String[] COLUMNS = {"entry_id", "date", "time", "num_servings",
+			"food_id", "name", "serving_size", "serving_unit"};
+
+	/**
+	 * The database the diary is exported from.
+	 */
+	private final FTDatabase db;
+
+	/**
+	 * The number of meals read per query.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Bytes that have been encoded but not written to the stream yet.
+	 */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * The number of bytes in {@link DiaryExporter#buffer}.
+	 */
+	private int count;
+
+	/**
+	 * Characters of the text value being encoded, which the cursor copies into.
+	 */
+	private final CharArrayBuffer text = new CharArrayBuffer(128);
+
+	/**
+	 * The stream being written to.
+	 */
+	private OutputStream out;
+
+	/**
+	 * The number of bytes written to {@link DiaryExporter#out} so far.
+	 */
+	private long bytesWritten;
+
+	/**
+	 * The last day whose date was formatted, and its date, which is reused while meals of the
+	 * same day are written.
+	 */
+	private long lastDay = Long.MIN_VALUE;
+	private byte[] lastDate;
+
+	/**
+	 * Whether {@link DiaryExporter#cancel()} has been called.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor that specifies the database to export the diary from, with the default chunk
+	 * size.
+	 *
+	 * @param db the database to export the diary from
+	 */
+	public DiaryExporter(@NonNull FTDatabase db) {
+		this(db, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor that specifies the database to export the diary from and the chunk size.
+	 *
+	 * @param db        the database to export the diary from
+	 * @param chunkSize the number of meals to read per query
+	 */
+	public DiaryExporter(@NonNull FTDatabase db, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1");
+		}
+		this.db = db;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Stop the export that is running, or the next one to start, before its next chunk.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Get the number of bytes written by the last export.
+	 *
+	 * @return the number of bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Export every meal in the diary.
+	 *
+	 * @param out    the stream to write to, which this method flushes but does not close
+	 * @param format the format to write
+	 *
+	 * @return the number of meals written
+	 *
+	 * @throws IOException if the stream cannot be written or the export was cancelled
+	 * @see DiaryExporter#export(OutputStream, FoodImporter.Format, long, long)
+	 */
+	@WorkerThread
+	public long export(@NonNull OutputStream out, @NonNull FoodImporter.Format format)
+			throws IOException {
+		return export(out, format, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Export the meals that took place within a range of days.
+	 * <p>
+	 * The stream does not need to be buffered, since it is only written to in large blocks.
+	 *
+	 * @param out     the stream to write to, which this method flushes but does not close
+	 * @param format  the format to write
+	 * @param fromDay the first day of the range, inclusive, as the number of days since January
+	 *                1st 1970 in the device's time zone
+	 * @param toDay   the last day of the range, inclusive
+	 *
+	 * @return the number of meals written
+	 *
+	 * @throws IOException if the stream cannot be written, or an {@link InterruptedIOException} if
+	 *                     the export was cancelled, after which the stream holds a partial export
+	 * @see com.fitnesstracker.database.entities.FoodDiaryEntry#toLocalDay(long)
+	 */
+	@WorkerThread
+	public long export(@NonNull OutputStream out, @NonNull FoodImporter.Format format,
+	                   long fromDay, long toDay) throws IOException {
+		FoodDiaryEntryDao dao = db.getFoodDiaryEntryDao();
+		boolean json = format == FoodImporter.Format.JSON_LINES;
+		this.out = out;
+		count = 0;
+		bytesWritten = 0;
+		lastDay = Long.MIN_VALUE;
+
+		try {
+			if (!json) {
+				writeHeader();
+			}
+
+			long meals = 0;
+			long time = Long.MIN_VALUE;
+			long id = Long.MIN_VALUE;
+			int[] columns = null;
+			while (true) {
+				if (cancelled || Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("Export cancelled after " + meals + " meals");
+				}
+
+				int rows = 0;
+				Cursor cursor = dao.getMealCursorAfter(fromDay, toDay, time, id, chunkSize);
+				try {
+					if (columns == null) {
+						columns = getColumnIndices(cursor);
+					}
+					while (cursor.moveToNext()) {
+						if (json) {
+							writeJsonRecord(cursor, columns);
+						} else {
+							writeCsvRecord(cursor, columns);
+						}
+						time = cursor.getLong(columns[2]);
+						id = cursor.getLong(columns[0]);
+						rows++;
+					}
+				} finally {
+					cursor.close();
+				}
+
+				meals += rows;
+				if (rows < chunkSize) {
+					break;
+				}
+			}
+			flush();
+			out.flush();
+			return meals;
+		} finally {
+			this.out = null;
+		}
+	}
+
+	/**
+	 * Find the columns of a cursor over meals by name, in the order of {@link
+	 * DiaryExporter#COLUMNS} followed by the nutrients.
+	 *
+	 * @param cursor a cursor from {@link FoodDiaryEntryDao#getMealCursorAfter(long, long, long,
+	 *               long, int)}
+	 *
+	 * @return the index in the cursor of each exported column, with the entry's day in place of
+	 * its date
+	 */
+	@NonNull
+	private static int[] getColumnIndices(@NonNull Cursor cursor) {
+		int[] columns = new int[COLUMNS.length + Nutrient.COUNT];
+		columns[0] = cursor.getColumnIndexOrThrow("id");
+		columns[1] = cursor.getColumnIndexOrThrow("day");
+		columns[2] = cursor.getColumnIndexOrThrow("time");
+		columns[3] = cursor.getColumnIndexOrThrow("num_servings");
+		columns[4] = cursor.getColumnIndexOrThrow("food_id");
+		columns[5] = cursor.getColumnIndexOrThrow("name");
+		columns[6] = cursor.getColumnIndexOrThrow("serving_size");
+		columns[7] = cursor.getColumnIndexOrThrow("serving_unit");
+		for (int i = 0; i < Nutrient.COUNT; i++) {
+			columns[COLUMNS.length + i] = cursor.getColumnIndexOrThrow(
+					"nutrition_" + Nutrient.fromIndex(i).getColumnName());
+		}
+		return columns;
+	}
+
+	/**
+	 * Write the header record of a CSV export.
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeHeader() throws IOException {
+		for (int i = 0; i < COLUMNS.length + Nutrient.COUNT; i++) {
+			if (i > 0) {
+				writeByte(',');
+			}
+			writeAscii(getColumnName(i));
+		}
+		writeByte('\n');
+	}
+
+	/**
+	 * Write the cursor's current meal as a CSV record.
+	 *
+	 * @param cursor  a cursor positioned on a meal
+	 * @param columns the indices of the exported columns in the cursor
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeCsvRecord(@NonNull Cursor cursor, @NonNull int[] columns) throws IOException {
+		writeLong(cursor.getLong(columns[0]));
+		writeByte(',');
+		writeDate(cursor.getLong(columns[1]));
+		writeByte(',');
+		writeLong(cursor.getLong(columns[2]));
+		writeByte(',');
+		writeDouble(cursor.getDouble(columns[3]), false);
+		writeByte(',');
+		writeLong(cursor.getLong(columns[4]));
+		writeByte(',');
+		writeCsvText(cursor, columns[5]);
+		writeByte(',');
+		writeDouble(cursor.getDouble(columns[6]), false);
+		writeByte(',');
+		writeCsvText(cursor, columns[7]);
+		for (int i = COLUMNS.length; i < columns.length; i++) {
+			writeByte(',');
+			writeLong(cursor.getLong(columns[i]));
+		}
+		writeByte('\n');
+	}
+
+	/**
+	 * Write the cursor's current meal as a JSON object on its own line.
+	 *
+	 * @param cursor  a cursor positioned on a meal
+	 * @param columns the indices of the exported columns in the cursor
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeJsonRecord(@NonNull Cursor cursor, @NonNull int[] columns) throws IOException {
+		writeJsonName(0);
+		writeLong(cursor.getLong(columns[0]));
+		writeJsonName(1);
+		writeByte('"');
+		writeDate(cursor.getLong(columns[1]));
+		writeByte('"');
+		writeJsonName(2);
+		writeLong(cursor.getLong(columns[2]));
+		writeJsonName(3);
+		writeDouble(cursor.getDouble(columns[3]), true);
+		writeJsonName(4);
+		writeLong(cursor.getLong(columns[4]));
+		writeJsonName(5);
+		writeJsonText(cursor, columns[5]);
+		writeJsonName(6);
+		writeDouble(cursor.getDouble(columns[6]), true);
+		writeJsonName(7);
+		writeJsonText(cursor, columns[7]);
+		for (int i = COLUMNS.length; i < columns.length; i++) {
+			writeJsonName(i);
+			writeLong(cursor.getLong(columns[i]));
+		}
+		writeByte('}');
+		writeByte('\n');
+	}
+
+	/**
+	 * Get the name of an exported column.
+	 *
+	 * @param column the index of the column, counting the nutrients after {@link
+	 *               DiaryExporter#COLUMNS}
+	 *
+	 * @return the column's name
+	 */
+	@NonNull
+	private static String getColumnName(int column) {
+		return column < COLUMNS.length
+				? COLUMNS[column]
+				: Nutrient.fromIndex(column - COLUMNS.length).getColumnName();
+	}
+
+	/**
+	 * Write the name of a column as a JSON key, preceded by the start of the object or the comma
+	 * after the previous value.
+	 *
+	 * @param column the index of the column
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeJsonName(int column) throws IOException {
+		writeByte(column == 0 ? '{' : ',');
+		writeByte('"');
+		writeAscii(getColumnName(column));
+		writeByte('"');
+		writeByte(':');
+	}
+
+	/**
+	 * Write a day as an ISO 8601 date, such as 2020-09-13.
+	 *
+	 * @param day the number of days since January 1st 1970
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeDate(long day) throws IOException {
+		if (day != lastDay || lastDate == null) {
+			String date = LocalDate.ofEpochDay(day).toString();
+			lastDate = new byte[date.length()];
+			for (int i = 0; i < lastDate.length; i++) {
+				lastDate[i] = (byte) date.charAt(i);
+			}
+			lastDay = day;
+		}
+		for (byte b : lastDate) {
+			writeByte(b);
+		}
+	}
+
+	/**
+	 * Write a text column as a CSV value, quoting it if it contains a comma, quote or line break.
+	 *
+	 * @param cursor the cursor to read the value from
+	 * @param column the index of the column
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeCsvText(@NonNull Cursor cursor, int column) throws IOException {
+		cursor.copyStringToBuffer(column, text);
+		boolean quote = false;
+		for (int i = 0; i < text.sizeCopied && !quote; i++) {
+			char c = text.data[i];
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+
+		if (quote) {
+			writeByte('"');
+		}
+		for (int i = 0; i < text.sizeCopied; i++) {
+			char c = text.data[i];
+			if (c == '"') {
+				writeByte('"');
+			}
+			i = writeChar(text.data, i, text.sizeCopied);
+		}
+		if (quote) {
+			writeByte('"');
+		}
+	}
+
+	/**
+	 * Write a text column as a JSON string.
+	 *
+	 * @param cursor the cursor to read the value from
+	 * @param column the index of the column
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeJsonText(@NonNull Cursor cursor, int column) throws IOException {
+		cursor.copyStringToBuffer(column, text);
+		writeByte('"');
+		for (int i = 0; i < text.sizeCopied; i++) {
+			char c = text.data[i];
+			if (c == '"' || c == '\\') {
+				writeByte('\\');
+				writeByte(c);
+			} else if (c == '\n') {
+				writeByte('\\');
+				writeByte('n');
+			} else if (c == '\r') {
+				writeByte('\\');
+				writeByte('r');
+			} else if (c == '\t') {
+				writeByte('\\');
+				writeByte('t');
+			} else if (c < 0x20) {
+				writeAscii("\\u00");
+				writeByte(Character.forDigit(c >> 4, 16));
+				writeByte(Character.forDigit(c & 0xF, 16));
+			} else {
+				i = writeChar(text.data, i, text.sizeCopied);
+			}
+		}
+		writeByte('"');
+	}
+
+	/**
+	 * Encode one character as UTF-8, or two if they are a surrogate pair.
+	 *
+	 * @param chars  the characters being encoded
+	 * @param index  the index of the character to encode
+	 * @param length the number of characters being encoded
+	 *
+	 * @return the index of the last character encoded
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private int writeChar(@NonNull char[] chars, int index, int length) throws IOException {
+		char c = chars[index];
+		if (c < 0x80) {
+			writeByte(c);
+		} else if (c < 0x800) {
+			writeByte(0xC0 | (c >> 6));
+			writeByte(0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c) && index + 1 < length
+				&& Character.isLowSurrogate(chars[index + 1])) {
+			int codePoint = Character.toCodePoint(c, chars[index + 1]);
+			writeByte(0xF0 | (codePoint >> 18));
+			writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+			writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+			writeByte(0x80 | (codePoint & 0x3F));
+			return index + 1;
+		} else if (Character.isSurrogate(c)) {
+			// An unpaired surrogate cannot be encoded
+			writeByte('?');
+		} else {
+			writeByte(0xE0 | (c >> 12));
+			writeByte(0x80 | ((c >> 6) & 0x3F));
+			writeByte(0x80 | (c & 0x3F));
+		}
+		return index;
+	}
+
+	/**
+	 * Write a number, without a fractional part if it is a whole number.
+	 *
+	 * @param value the number
+	 * @param json  whether the number is written to JSON, which has no representation of NaN or
+	 *              infinity, so those are written as null
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeDouble(double value, boolean json) throws IOException {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			writeLong((long) value);
+		} else if (json && (Double.isNaN(value) || Double.isInfinite(value))) {
+			writeAscii("null");
+		} else {
+			writeAscii(Double.toString(value));
+		}
+	}
+
+	/**
+	 * Write a whole number in decimal.
+	 *
+	 * @param value the number
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeLong(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+		if (value < 0) {
+			writeByte('-');
+			value = -value;
+		}
+
+		// Digits are written into the buffer backwards, after making room for all of them
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		ensureCapacity(digits);
+		int end = count + digits;
+		for (int i = end - 1; i >= count; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		count = end;
+	}
+
+	/**
+	 * Write a string that only contains ASCII characters.
+	 *
+	 * @param ascii the string
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeAscii(@NonNull String ascii) throws IOException {
+		for (int i = 0; i < ascii.length(); i++) {
+			writeByte(ascii.charAt(i));
+		}
+	}
+
+	/**
+	 * Write one byte.
+	 *
+	 * @param b the byte, in the lowest eight bits
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeByte(int b) throws IOException {
+		if (count == buffer.length) {
+			flush();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	/**
+	 * Make room in {@link DiaryExporter#buffer} for a number of bytes.
+	 *
+	 * @param bytes the number of bytes, which must be at most the size of the buffer
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void ensureCapacity(int bytes) throws IOException {
+		if (count + bytes > buffer.length) {
+			flush();
+		}
+	}
+
+	/**
+	 * Write the contents of {@link DiaryExporter#buffer} to the stream.
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void flush() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			bytesWritten += count;
+			count = 0;
+		}
+	}
+}
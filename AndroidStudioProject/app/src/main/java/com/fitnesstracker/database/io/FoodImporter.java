@@ -0,0 +1,877 @@
+package com.fitnesstracker.database.io;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.ImportCheckpointDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.ImportCheckpoint;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports foods from a file of nutrition data, such as an export of a food composition database.
+ * <p>
+ * Files are either comma-separated values with a header row, or JSON Lines with one object per
+ * food. Columns and keys are matched to the fields of {@link Food} and {@link Food.NutritionInfo}
+ * by name, ignoring case, punctuation and unit suffixes, so that "Energy (kcal)" and "calories"
+ * both fill {@link Food.NutritionInfo#calories}. Unrecognized columns are ignored. Nutrients are
+ * rounded to whole units, and foods without a serving size are taken to be per 100 g, as
+ * composition databases usually are.
+ * <p>
+ * The file is streamed, so memory use does not depend on its size. Foods are written in batches,
+ * each in one transaction through {@link FoodDao#upsert(java.util.Collection)}, which binds every
+ * food of a batch to the same prepared statements. Files with an ID column can be imported again
+ * to update the foods they contain, while files without one get new IDs.
+ * <p>
+ * Every batch is committed together with an {@link ImportCheckpoint} of how far the file was read,
+ * so an import that is cancelled or killed resumes after the last committed batch the next time
+ * the same file is imported, without importing any food twice.
+ *
+ * @author Mitchell Ford
+ */
+public class FoodImporter {
+
+	/**
+	 * The number of records written per transaction by default.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * The serving size of foods in files without one, which for composition databases is 100 g.
+	 */
+	public static final double DEFAULT_SERVING_SIZE = 100;
+
+	/**
+	 * The serving unit of foods in files without one.
+	 */
+	public static final String DEFAULT_SERVING_UNIT = "g";
+
+	/**
+	 * Target of columns that are not imported.
+	 */
+	private static final int TARGET_NONE = -1;
+
+	/**
+	 * Targets of the columns that are imported, as indices into an array of one record's values.
+	 * Each nutrient's target is {@link FoodImporter#TARGET_NUTRIENTS} plus its ordinal.
+	 */
+	private static final int TARGET_ID = 0;
+	private static final int TARGET_NAME = 1;
+	private static final int TARGET_SERVING_SIZE = 2;
+	private static final int TARGET_SERVING_UNIT = 3;
+	private static final int TARGET_NUTRIENTS = 4;
+
+	/**
+	 * The number of targets.
+	 */
+	private static final int NUM_TARGETS = TARGET_NUTRIENTS + Nutrient.COUNT;
+
+	/**
+	 * Unit suffixes that are removed from column names that do not match a target as they are.
+	 */
+	private static final String[] UNIT_SUFFIXES = {"_kcal", "_mcg", "_ug", "_mg", "_g"};
+
+	/**
+	 * The target of every recognized column name, as normalized by {@link
+	 * FoodImporter#normalize(String)}.
+	 */
+	private static final Map<String, Integer> COLUMN_TARGETS = new HashMap<>();
+
+	static {
+		addColumns(TARGET_ID, "id", "fdc_id", "food_id");
+		addColumns(TARGET_NAME, "name", "description", "food_name");
+		addColumns(TARGET_SERVING_SIZE, "serving_size", "serving_amount");
+		addColumns(TARGET_SERVING_UNIT, "serving_unit", "serving_size_unit");
+
+		// Every nutrient is recognized by its own column name, as written by this app
+		for (int i = 0; i < Nutrient.COUNT; i++) {
+			addColumns(TARGET_NUTRIENTS + i, Nutrient.fromIndex(i).getColumnName());
+		}
+
+		// Names used by food composition databases
+		addNutrientColumns(Nutrient.CALORIES, "energy", "energy_kcal", "kcal");
+		addNutrientColumns(Nutrient.FAT_CALORIES, "calories_from_fat");
+		addNutrientColumns(Nutrient.TOTAL_FAT, "fat", "total_lipid_fat");
+		addNutrientColumns(Nutrient.SATURATED_FAT, "fatty_acids_total_saturated");
+		addNutrientColumns(Nutrient.TRANS_FAT, "fatty_acids_total_trans");
+		addNutrientColumns(Nutrient.SODIUM, "sodium_na");
+		addNutrientColumns(Nutrient.TOTAL_CARBS, "carbs", "carbohydrate", "carbohydrates",
+				"carbohydrate_by_difference");
+		addNutrientColumns(Nutrient.DIETARY_FIBER, "fiber", "fiber_total_dietary");
+		addNutrientColumns(Nutrient.TOTAL_SUGARS, "sugars", "sugars_total");
+		addNutrientColumns(Nutrient.ADDED_SUGARS, "sugars_added");
+		addNutrientColumns(Nutrient.VITAMIN_D, "vitamin_d_d2_d3");
+		addNutrientColumns(Nutrient.CALCIUM, "calcium_ca");
+		addNutrientColumns(Nutrient.IRON, "iron_fe");
+		addNutrientColumns(Nutrient.POTASSIUM, "potassium_k");
+	}
+
+	/**
+	 * The formats that foods can be imported from, which are also the formats {@link
+	 * DiaryExporter} writes.
+	 */
+	public enum Format {
+
+		/**
+		 * Comma-separated values whose first record names the columns.
+		 */
+		CSV,
+
+		/**
+		 * One JSON object per line, whose keys name the columns.
+		 */
+		JSON_LINES;
+
+		/**
+		 * Guess the format of a file from its name.
+		 *
+		 * @param name the name of the file
+		 *
+		 * @return {@link Format#JSON_LINES} if the name ends with a JSON extension, or {@link
+		 * Format#CSV} otherwise
+		 */
+		@NonNull
+		public static Format fromFileName(@NonNull String name) {
+			String lowerCase = name.toLowerCase(Locale.ROOT);
+			if (lowerCase.endsWith(".jsonl") || lowerCase.endsWith(".ndjson")
+					|| lowerCase.endsWith(".json")) {
+				return JSON_LINES;
+			}
+			return CSV;
+		}
+	}
+
+	/**
+	 * A listener for the progress of an import.
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * Called on the importing thread after every batch is committed, and once more when the
+		 * import stops.
+		 *
+		 * @param progress the progress of the import
+		 */
+		void onProgress(@NonNull Progress progress);
+	}
+
+	/**
+	 * The database foods are imported into.
+	 */
+	private final FTDatabase db;
+
+	/**
+	 * The number of records written per transaction.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Whether {@link FoodImporter#cancel()} has been called.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor that specifies the database to import foods into, with the default batch size.
+	 *
+	 * @param db the database to import foods into
+	 */
+	public FoodImporter(@NonNull FTDatabase db) {
+		this(db, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructor that specifies the database to import foods into and the batch size.
+	 *
+	 * @param db        the database to import foods into
+	 * @param batchSize the number of records to write per transaction
+	 */
+	public FoodImporter(@NonNull FTDatabase db, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		this.db = db;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Stop the import that is running, or the next one to start, before its next record.
+	 * <p>
+	 * Records read since the last batch was committed are discarded and will be read again when
+	 * the import is resumed.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Import foods from a document, such as one chosen by the user, resuming from its checkpoint
+	 * if an earlier import of it did not finish.
+	 * <p>
+	 * The document is identified across imports by its URI, and its format is guessed from its
+	 * display name.
+	 *
+	 * @param resolver the content resolver to open the document with
+	 * @param uri      the URI of the document
+	 * @param listener a listener for the progress of the import, or null
+	 *
+	 * @return the progress of the import when it stopped
+	 *
+	 * @see FoodImporter#importFoods(String, InputStream, long, Format, ProgressListener)
+	 */
+	@NonNull
+	@WorkerThread
+	public Progress importFoods(@NonNull ContentResolver resolver, @NonNull Uri uri,
+	                            @Nullable ProgressListener listener) {
+		String source = uri.toString();
+		AssetFileDescriptor fd;
+		try {
+			fd = resolver.openAssetFileDescriptor(uri, "r");
+			if (fd == null) {
+				throw new FileNotFoundException("Cannot open " + uri);
+			}
+		} catch (FileNotFoundException e) {
+			Progress progress = new Progress(Progress.State.FAILED, 0, 0, 0, 0, -1,
+					System.nanoTime(), e);
+			if (listener != null) {
+				listener.onProgress(progress);
+			}
+			return progress;
+		}
+
+		// Closing the stream also closes the file descriptor
+		InputStream in = null;
+		try {
+			in = fd.createInputStream();
+			return importFoods(source, in, fd.getLength(),
+					Format.fromFileName(getDisplayName(resolver, uri)), listener);
+		} catch (IOException e) {
+			Progress progress = new Progress(Progress.State.FAILED, 0, 0, 0, 0, fd.getLength(),
+					System.nanoTime(), e);
+			if (listener != null) {
+				listener.onProgress(progress);
+			}
+			return progress;
+		} finally {
+			try {
+				if (in != null) {
+					in.close();
+				} else {
+					fd.close();
+				}
+			} catch (IOException ignored) {
+				// Everything that was read has already been committed
+			}
+		}
+	}
+
+	/**
+	 * Import foods from a file, resuming from its checkpoint if an earlier import of it did not
+	 * finish.
+	 * <p>
+	 * Records without a name or with a value that is not a valid number are skipped and counted
+	 * as rejected. A file that cannot be read or a batch that cannot be written stops the import,
+	 * leaving the batches committed so far and their checkpoint in place.
+	 *
+	 * @param source   a name that identifies the file across imports, such as its URI
+	 * @param in       the contents of the file, from its start, which this method does not close
+	 * @param length   the size of the file in bytes, or -1 if it is unknown
+	 * @param format   the format of the file
+	 * @param listener a listener for the progress of the import, or null
+	 *
+	 * @return the progress of the import when it stopped, which is {@link Progress.State#FINISHED}
+	 * if every record was read
+	 */
+	@NonNull
+	@WorkerThread
+	public Progress importFoods(@NonNull String source, @NonNull InputStream in, long length,
+	                            @NonNull Format format, @Nullable ProgressListener listener) {
+		final long startNanos = System.nanoTime();
+		final ImportCheckpointDao checkpointDao = db.getImportCheckpointDao();
+
+		// A file that has changed since it was checkpointed is imported from the start
+		ImportCheckpoint checkpoint = checkpointDao.get(source);
+		if (checkpoint != null && checkpoint.getLength() != length) {
+			checkpoint = null;
+		}
+		long startRecords = checkpoint == null ? 0 : checkpoint.getRecords();
+		long records = startRecords;
+		long imported = checkpoint == null ? 0 : checkpoint.getImported();
+
+		CsvReader reader = new CsvReader(in);
+		List<String> values = new ArrayList<>();
+		String[] fields = new String[NUM_TARGETS];
+		List<Food> batch = new ArrayList<>(batchSize);
+		int[] columnTargets = null;
+		Map<String, Integer> keyTargets = new HashMap<>();
+
+		Progress.State state = Progress.State.FINISHED;
+		Exception error = null;
+		try {
+			if (format == Format.CSV) {
+				if (!reader.readRecord(values)) {
+					throw new IOException("File is empty");
+				}
+				columnTargets = mapColumns(values);
+			}
+			if (checkpoint != null) {
+				reader.skipTo(checkpoint.getPosition());
+			}
+
+			int pending = 0;
+			while (true) {
+				if (cancelled || Thread.currentThread().isInterrupted()) {
+					state = Progress.State.CANCELLED;
+					break;
+				}
+
+				// Gather the values of the next record by target
+				Arrays.fill(fields, null);
+				boolean valid = true;
+				if (format == Format.CSV) {
+					if (!reader.readRecord(values)) {
+						break;
+					}
+					for (int i = 0; i < values.size() && i < columnTargets.length; i++) {
+						if (columnTargets[i] != TARGET_NONE) {
+							fields[columnTargets[i]] = values.get(i);
+						}
+					}
+				} else {
+					String line = reader.readLine();
+					if (line == null) {
+						break;
+					}
+					valid = readJson(line, fields, keyTargets);
+				}
+
+				records++;
+				pending++;
+				Food food = valid ? toFood(fields) : null;
+				if (food != null) {
+					batch.add(food);
+					imported++;
+				}
+
+				if (pending == batchSize) {
+					commit(source, batch, new ImportCheckpoint(source, length, reader.getPosition(),
+							records, imported));
+					pending = 0;
+					if (listener != null) {
+						listener.onProgress(new Progress(Progress.State.RUNNING, records, imported,
+								startRecords, reader.getPosition(), length, startNanos, null));
+					}
+				}
+			}
+
+			// Commit the rest of the file, which ends the import
+			if (state == Progress.State.FINISHED) {
+				commit(source, batch, null);
+			}
+		} catch (IOException e) {
+			state = Progress.State.FAILED;
+			error = e;
+		} catch (RuntimeException e) {
+			// Such as a database that is full or read-only, which fails the import the same way
+			state = Progress.State.FAILED;
+			error = e;
+		}
+
+		// Records read since the last checkpoint were not committed and will be read again
+		long position = reader.getPosition();
+		if (state != Progress.State.FINISHED) {
+			ImportCheckpoint last = checkpointDao.get(source);
+			if (last == null || last.getLength() != length) {
+				last = new ImportCheckpoint(source, length, 0, 0, 0);
+			}
+			records = last.getRecords();
+			imported = last.getImported();
+			position = last.getPosition();
+		}
+		Progress progress = new Progress(state, records, imported, startRecords, position, length,
+				startNanos, error);
+		if (listener != null) {
+			listener.onProgress(progress);
+		}
+		return progress;
+	}
+
+	/**
+	 * Write a batch of foods and the checkpoint after it in one transaction.
+	 *
+	 * @param source     the name of the file being imported
+	 * @param batch      the foods to write, which is cleared afterwards
+	 * @param checkpoint the checkpoint to save, or null if this is the last batch, in which case
+	 *                   the file's checkpoint is deleted
+	 */
+	private void commit(@NonNull final String source, @NonNull final List<Food> batch,
+	                    @Nullable final ImportCheckpoint checkpoint) {
+		final FoodDao foodDao = db.getFoodDao();
+		final ImportCheckpointDao checkpointDao = db.getImportCheckpointDao();
+		db.runInTransaction(new Runnable() {
+			@Override public void run() {
+				if (!batch.isEmpty()) {
+					foodDao.upsert(batch);
+				}
+				if (checkpoint == null) {
+					checkpointDao.delete(source);
+				} else {
+					checkpointDao.save(checkpoint);
+				}
+			}
+		});
+		batch.clear();
+	}
+
+	/**
+	 * Map the columns named in a header record to their targets.
+	 *
+	 * @param header the names of the columns
+	 *
+	 * @return the target of each column, or {@link FoodImporter#TARGET_NONE} for columns that are
+	 * not imported or that repeat an earlier column's target
+	 *
+	 * @throws IOException if no column holds the names of foods
+	 */
+	@NonNull
+	private static int[] mapColumns(@NonNull List<String> header) throws IOException {
+		int[] targets = new int[header.size()];
+		boolean[] mapped = new boolean[NUM_TARGETS];
+		for (int i = 0; i < targets.length; i++) {
+			int target = getTarget(header.get(i));
+			if (target != TARGET_NONE && !mapped[target]) {
+				mapped[target] = true;
+				targets[i] = target;
+			} else {
+				targets[i] = TARGET_NONE;
+			}
+		}
+		if (!mapped[TARGET_NAME]) {
+			throw new IOException("No column of food names in header " + header);
+		}
+		return targets;
+	}
+
+	/**
+	 * Gather the values of a JSON object by target.
+	 *
+	 * @param line       a line holding a JSON object
+	 * @param fields     the array to put values in, indexed by target
+	 * @param keyTargets the targets of keys seen so far, which this method adds to
+	 *
+	 * @return true if the line held a JSON object, or false otherwise
+	 */
+	private static boolean readJson(@NonNull String line, @NonNull String[] fields,
+	                                @NonNull Map<String, Integer> keyTargets) {
+		JSONObject object;
+		try {
+			object = new JSONObject(line);
+		} catch (JSONException e) {
+			return false;
+		}
+
+		Iterator<String> keys = object.keys();
+		while (keys.hasNext()) {
+			String key = keys.next();
+			Integer target = keyTargets.get(key);
+			if (target == null) {
+				target = getTarget(key);
+				keyTargets.put(key, target);
+			}
+
+			Object value = object.opt(key);
+			if (target == TARGET_NONE || value == null || value == JSONObject.NULL
+					|| value instanceof JSONObject || value instanceof JSONArray) {
+				continue;
+			}
+			fields[target] = String.valueOf(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Convert the values of a record into a food.
+	 *
+	 * @param fields the record's values, indexed by target, which are null where the record has
+	 *               none
+	 *
+	 * @return the food, or null if the record has no name or an invalid value
+	 */
+	@Nullable
+	private static Food toFood(@NonNull String[] fields) {
+		String name = trim(fields[TARGET_NAME]);
+		if (name == null) {
+			return null;
+		}
+
+		try {
+			Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+			for (int i = 0; i < Nutrient.COUNT; i++) {
+				String amount = trim(fields[TARGET_NUTRIENTS + i]);
+				if (amount == null) {
+					continue;
+				}
+
+				// Also rejects NaN, which fails every comparison
+				double value = Double.parseDouble(amount);
+				if (!(value >= 0 && value <= Integer.MAX_VALUE)) {
+					return null;
+				}
+				Nutrient.fromIndex(i).set(nutritionInfo, (int) Math.round(value));
+			}
+
+			String servingSizeText = trim(fields[TARGET_SERVING_SIZE]);
+			double servingSize = servingSizeText == null
+					? DEFAULT_SERVING_SIZE
+					: Double.parseDouble(servingSizeText);
+			if (!(servingSize >= 0 && servingSize < Double.POSITIVE_INFINITY)) {
+				return null;
+			}
+			String servingUnit = trim(fields[TARGET_SERVING_UNIT]);
+			if (servingUnit == null) {
+				servingUnit = DEFAULT_SERVING_UNIT;
+			}
+
+			// Only foods without an ID of their own are given a new one
+			String id = trim(fields[TARGET_ID]);
+			if (id == null) {
+				return new Food(name, servingUnit, servingSize, nutritionInfo);
+			}
+			long parsedId = Long.parseLong(id);
+			if (parsedId <= 0) {
+				return null;
+			}
+			return new Food(parsedId, name, servingUnit, servingSize, nutritionInfo);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the name of a document as shown to the user.
+	 *
+	 * @param resolver the content resolver to query
+	 * @param uri      the URI of the document
+	 *
+	 * @return the document's display name, or the last segment of its URI if it has none
+	 */
+	@NonNull
+	private static String getDisplayName(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+		Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null);
+		if (cursor != null) {
+			try {
+				if (cursor.moveToFirst() && !cursor.isNull(0)) {
+					return cursor.getString(0);
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+		String lastSegment = uri.getLastPathSegment();
+		return lastSegment == null ? "" : lastSegment;
+	}
+
+	/**
+	 * Get the target of a column.
+	 *
+	 * @param column the name of the column
+	 *
+	 * @return the column's target, or {@link FoodImporter#TARGET_NONE} if it is not imported
+	 */
+	private static int getTarget(@NonNull String column) {
+		String name = normalize(column);
+		Integer target = COLUMN_TARGETS.get(name);
+		for (int i = 0; target == null && i < UNIT_SUFFIXES.length; i++) {
+			if (name.endsWith(UNIT_SUFFIXES[i])) {
+				target = COLUMN_TARGETS.get(name.substring(0, name.length() - UNIT_SUFFIXES[i].length()));
+			}
+		}
+		return target == null ? TARGET_NONE : target;
+	}
+
+	/**
+	 * Normalize the name of a column, so that "Total Fat (g)", "total_fat_g" and
+	 * "nutrition_total_fat_g" are all "total_fat_g".
+	 *
+	 * @param column the name of the column
+	 *
+	 * @return the name in lower case, with every run of other characters than letters and digits
+	 * replaced by one underscore, and without the prefix of embedded nutrition columns
+	 */
+	@NonNull
+	private static String normalize(@NonNull String column) {
+		StringBuilder name = new StringBuilder(column.length());
+		boolean separator = false;
+		for (int i = 0; i < column.length(); i++) {
+			char c = Character.toLowerCase(column.charAt(i));
+			if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+				if (separator && name.length() > 0) {
+					name.append('_');
+				}
+				name.append(c);
+				separator = false;
+			} else {
+				separator = true;
+			}
+		}
+		String normalized = name.toString();
+		return normalized.startsWith("nutrition_")
+				? normalized.substring("nutrition_".length())
+				: normalized;
+	}
+
+	/**
+	 * Trim a value.
+	 *
+	 * @param value the value, or null
+	 *
+	 * @return the trimmed value, or null if it is null or blank
+	 */
+	@Nullable
+	private static String trim(@Nullable String value) {
+		if (value == null) {
+			return null;
+		}
+		String trimmed = value.trim();
+		return trimmed.isEmpty() ? null : trimmed;
+	}
+
+	/**
+	 * Add names of columns with a target.
+	 *
+	 * @param target the target
+	 * @param names  the normalized names of the columns
+	 */
+	private static void addColumns(int target, @NonNull String... names) {
+		for (String name : names) {
+			COLUMN_TARGETS.put(name, target);
+		}
+	}
+
+	/**
+	 * Add names of columns of a nutrient.
+	 *
+	 * @param nutrient the nutrient
+	 * @param names    the normalized names of the columns
+	 */
+	private static void addNutrientColumns(@NonNull Nutrient nutrient, @NonNull String... names) {
+		addColumns(TARGET_NUTRIENTS + nutrient.ordinal(), names);
+	}
+
+	/**
+	 * The progress of an import.
+	 */
+	public static final class Progress {
+
+		/**
+		 * The states an import can be in.
+		 */
+		public enum State {
+
+			/**
+			 * The import is still reading the file.
+			 */
+			RUNNING,
+
+			/**
+			 * Every record was read and committed.
+			 */
+			FINISHED,
+
+			/**
+			 * The import was cancelled, and can be resumed.
+			 */
+			CANCELLED,
+
+			/**
+			 * The file could not be read, and the import can be resumed once it can.
+			 */
+			FAILED
+		}
+
+		/**
+		 * The state of the import.
+		 */
+		private final State state;
+
+		/**
+		 * The number of records committed, including those committed before the import resumed.
+		 */
+		private final long records;
+
+		/**
+		 * The number of those records that were imported as foods.
+		 */
+		private final long imported;
+
+		/**
+		 * The number of records that had been committed when the import resumed.
+		 */
+		private final long startRecords;
+
+		/**
+		 * The number of bytes of the file that had been read.
+		 */
+		private final long position;
+
+		/**
+		 * The size of the file in bytes, or -1 if it is unknown.
+		 */
+		private final long length;
+
+		/**
+		 * The time this run of the import took so far, in nanoseconds.
+		 */
+		private final long elapsedNanos;
+
+		/**
+		 * The reason the import failed, or null if it did not.
+		 */
+		@Nullable
+		private final Exception error;
+
+		/**
+		 * Constructor that specifies every field.
+		 *
+		 * @param state        the state of the import
+		 * @param records      the number of records committed
+		 * @param imported     the number of those records that were imported as foods
+		 * @param startRecords the number of records committed when the import resumed
+		 * @param position     the number of bytes read
+		 * @param length       the size of the file in bytes, or -1 if it is unknown
+		 * @param startNanos   the {@link System#nanoTime()} when this run of the import started
+		 * @param error        the reason the import failed, or null if it did not
+		 */
+		Progress(@NonNull State state, long records, long imported, long startRecords,
+		         long position, long length, long startNanos, @Nullable Exception error) {
+			this.state = state;
+			this.records = records;
+			this.imported = imported;
+			this.startRecords = startRecords;
+			this.position = position;
+			this.length = length;
+			this.elapsedNanos = System.nanoTime() - startNanos;
+			this.error = error;
+		}
+
+		/**
+		 * Get the state of the import.
+		 *
+		 * @return the state
+		 */
+		@NonNull
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * Get the number of records committed, including those committed before the import
+		 * resumed.
+		 *
+		 * @return the number of records committed
+		 */
+		public long getRecords() {
+			return records;
+		}
+
+		/**
+		 * Get the number of committed records that were imported as foods.
+		 *
+		 * @return the number of foods imported
+		 */
+		public long getImported() {
+			return imported;
+		}
+
+		/**
+		 * Get the number of committed records that were skipped because they had no name or an
+		 * invalid value.
+		 *
+		 * @return the number of records rejected
+		 */
+		public long getRejected() {
+			return records - imported;
+		}
+
+		/**
+		 * Get whether the import started from a checkpoint rather than the start of the file.
+		 *
+		 * @return true if the import resumed
+		 */
+		public boolean isResumed() {
+			return startRecords > 0;
+		}
+
+		/**
+		 * Get the fraction of the file that has been read.
+		 *
+		 * @return the fraction between 0 and 1, or -1 if the size of the file is unknown
+		 */
+		public double getFraction() {
+			if (length <= 0) {
+				return length == 0 ? 1 : -1;
+			}
+			return Math.min(1, (double) position / length);
+		}
+
+		/**
+		 * Get the number of records committed per second by this run of the import.
+		 *
+		 * @return the throughput in records per second
+		 */
+		public double getRecordsPerSecond() {
+			return elapsedNanos <= 0 ? 0 : (records - startRecords) * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Get the time this run of the import took so far.
+		 *
+		 * @return the elapsed time in milliseconds
+		 */
+		public long getElapsedMillis() {
+			return elapsedNanos / 1_000_000;
+		}
+
+		/**
+		 * Get the reason the import failed, such as a file that could not be read or a batch that
+		 * could not be written.
+		 *
+		 * @return the error, or null unless the state is {@link State#FAILED}
+		 */
+		@Nullable
+		public Exception getError() {
+			return error;
+		}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"Progress{state=%s, records=%d, imported=%d, rejected=%d, read=%d/%d bytes, %.0f records/s}",
+					state, records, imported, getRejected(), position, length, getRecordsPerSecond());
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.fitnesstracker.database.io;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * The layout of the snapshot files written by {@link SnapshotWriter} and read by {@link
+ * SnapshotReader}.
+ * <p>
+ * A snapshot is a header followed by one section per table. All fixed-size numbers are little
+ * endian.
+ * <pre>
+ * header:  magic "FTSN", u16 version, u16 number of sections
+ * section: u32 tag, u32 number of rows, u32 payload length, u32 CRC-32 of payload, payload
+ * payload: columns, each a u32 length followed by that many bytes
+ * </pre>
+ * Each section stores its table column by column, so that similar values are next to each other:
+ * <ul>
+ * <li>{@link SnapshotFormat#TAG_FOOD}: a dictionary of names and serving units; IDs in ascending
+ * order as deltas; names and serving units as indices into the dictionary; serving sizes as
+ * 8-byte doubles; and one column per {@link com.fitnesstracker.database.Nutrient} in order, so
+ * that a reader with more nutrients leaves the missing ones at zero and one with fewer ignores
+ * the extra columns</li>
+ * <li>{@link SnapshotFormat#TAG_DIARY}: times in ascending order as deltas; IDs as deltas; foods
+ * as their indices in the food section; and numbers of servings as 8-byte doubles</li>
+ * <li>{@link SnapshotFormat#TAG_GOAL}: nutrients and amounts</li>
+ * </ul>
+ * Integers in columns are variable-length: 7 bits per byte, lowest bits first, with signed
+ * integers zigzag-encoded so that small negative numbers are short too. A dictionary is a count
+ * followed by that many strings, each its UTF-8 length and bytes.
+ * <p>
+ * Readers skip sections with tags they do not know. The version only changes when a section they
+ * do know changes incompatibly.
+ *
+ * @author Mitchell Ford
+ */
+final class SnapshotFormat {
+
+	/**
+	 * The first four bytes of every snapshot.
+	 */
+	static final int MAGIC = 0x4E535446; // "FTSN" when little endian
+
+	/**
+	 * The version of the format written by {@link SnapshotWriter}.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The size of the header, in bytes.
+	 */
+	static final int HEADER_SIZE = 8;
+
+	/**
+	 * The size of a section's header, in bytes.
+	 */
+	static final int SECTION_HEADER_SIZE = 16;
+
+	/**
+	 * Tags of the sections of the <code>food</code>, <code>diary_food</code> and
+	 * <code>nutrition_goal</code> tables.
+	 */
+	static final int TAG_FOOD = tag("FOOD");
+	static final int TAG_DIARY = tag("DIAR");
+	static final int TAG_GOAL = tag("GOAL");
+
+	/**
+	 * The byte order of fixed-size numbers.
+	 */
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private SnapshotFormat() {
+	}
+
+	/**
+	 * Get the tag of a section from its name.
+	 *
+	 * @param name the four ASCII characters of the name
+	 *
+	 * @return the tag, which reads as the name when written little endian
+	 */
+	private static int tag(@NonNull String name) {
+		return name.charAt(0) | name.charAt(1) << 8 | name.charAt(2) << 16 | name.charAt(3) << 24;
+	}
+
+	/**
+	 * Get the name of a section from its tag, for error messages.
+	 *
+	 * @param tag the tag
+	 *
+	 * @return the four characters of the tag
+	 */
+	@NonNull
+	static String tagName(int tag) {
+		return new String(new byte[]{(byte) tag, (byte) (tag >> 8), (byte) (tag >> 16),
+				(byte) (tag >> 24)}, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Compute the checksum of the remaining bytes of a buffer, without moving its position.
+	 *
+	 * @param buffer the buffer
+	 *
+	 * @return the CRC-32 of the bytes, as an unsigned 32-bit integer stored in an int
+	 */
+	static int checksum(@NonNull ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Read a variable-length unsigned integer.
+	 *
+	 * @param buffer the buffer to read from
+	 *
+	 * @return the integer
+	 *
+	 * @throws IOException if the integer is longer than 64 bits
+	 * @throws BufferUnderflowException if the buffer ends within the integer
+	 */
+	static long readVarLong(@NonNull ByteBuffer buffer) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed integer at byte " + buffer.position());
+	}
+
+	/**
+	 * Read a zigzag-encoded variable-length signed integer.
+	 *
+	 * @param buffer the buffer to read from
+	 *
+	 * @return the integer
+	 *
+	 * @throws IOException if the integer is longer than 64 bits
+	 */
+	static long readSignedVarLong(@NonNull ByteBuffer buffer) throws IOException {
+		long zigzag = readVarLong(buffer);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	/**
+	 * Read a variable-length unsigned integer that must fit in an int.
+	 *
+	 * @param buffer the buffer to read from
+	 * @param max    the largest value that is allowed
+	 *
+	 * @return the integer
+	 *
+	 * @throws IOException if the integer is greater than <code>max</code>
+	 */
+	static int readVarInt(@NonNull ByteBuffer buffer, int max) throws IOException {
+		long value = readVarLong(buffer);
+		if (value < 0 || value > max) {
+			throw new IOException("Value " + value + " out of range at byte " + buffer.position());
+		}
+		return (int) value;
+	}
+}
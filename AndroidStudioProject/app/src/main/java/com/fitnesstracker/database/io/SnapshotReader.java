@@ -0,0 +1,403 @@
+package com.fitnesstracker.database.io;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.NutritionGoal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Restores a snapshot written by {@link SnapshotWriter}, replacing the foods, diary and nutrition
+ * goals in the database.
+ * <p>
+ * The snapshot file is memory-mapped rather than read into the heap, and every section's checksum
+ * is verified before the database is changed. Rows are then decoded straight from the mapped
+ * columns into batches of at most {@link SnapshotReader#DEFAULT_BATCH_SIZE} entities, each
+ * inserted with one prepared statement. The whole restore is one transaction, so a snapshot that
+ * turns out to be malformed leaves the database as it was.
+ * <p>
+ * Indices, full-text search tables and the daily nutrition rollup are rebuilt by the database as
+ * the rows are inserted.
+ *
+ * @author Mitchell Ford
+ */
+public class SnapshotReader {
+
+	/**
+	 * The number of rows inserted per statement batch by default.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * The database the snapshot is restored into.
+	 */
+	private final FTDatabase db;
+
+	/**
+	 * The number of rows inserted per statement batch.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Constructor that specifies the database to restore snapshots into, with the default batch
+	 * size.
+	 *
+	 * @param db the database to restore snapshots into
+	 */
+	public SnapshotReader(@NonNull FTDatabase db) {
+		this(db, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructor that specifies the database to restore snapshots into and the batch size.
+	 *
+	 * @param db        the database to restore snapshots into
+	 * @param batchSize the number of rows to insert per statement batch
+	 */
+	public SnapshotReader(@NonNull FTDatabase db, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		this.db = db;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Restore a snapshot file.
+	 *
+	 * @param file the snapshot file
+	 *
+	 * @return the number of rows restored
+	 *
+	 * @throws IOException if the file cannot be read or is not a valid snapshot, in which case
+	 *                     the database is unchanged
+	 */
+	@WorkerThread
+	public long restore(@NonNull File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			return restore(in.getChannel());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Restore a snapshot from a file channel, by mapping the whole file into memory.
+	 *
+	 * @param channel the channel of the snapshot file, which this method does not close
+	 *
+	 * @return the number of rows restored
+	 *
+	 * @throws IOException if the file cannot be read or is not a valid snapshot, in which case
+	 *                     the database is unchanged
+	 */
+	@WorkerThread
+	public long restore(@NonNull FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Snapshot of " + size + " bytes is too large to map");
+		}
+		return restore(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+	}
+
+	/**
+	 * Restore a snapshot from a buffer.
+	 *
+	 * @param snapshot the snapshot, from its position to its limit
+	 *
+	 * @return the number of rows restored
+	 *
+	 * @throws IOException if the snapshot is not valid, in which case the database is unchanged
+	 */
+	@WorkerThread
+	public long restore(@NonNull ByteBuffer snapshot) throws IOException {
+		ByteBuffer buffer = snapshot.slice().order(SnapshotFormat.ORDER);
+		try {
+			ByteBuffer[] food = null;
+			ByteBuffer[] diary = null;
+			ByteBuffer[] goals = null;
+			int foodRows = 0;
+			int diaryRows = 0;
+			int goalRows = 0;
+
+			if (buffer.remaining() < SnapshotFormat.HEADER_SIZE
+					|| buffer.getInt() != SnapshotFormat.MAGIC) {
+				throw new IOException("Not a snapshot");
+			}
+			int version = buffer.getShort() & 0xFFFF;
+			if (version != SnapshotFormat.VERSION) {
+				throw new IOException("Unsupported snapshot version " + version);
+			}
+
+			// Verify every section before changing anything
+			int numSections = buffer.getShort() & 0xFFFF;
+			for (int i = 0; i < numSections; i++) {
+				int tag = buffer.getInt();
+				int rows = buffer.getInt();
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (rows < 0 || length < 0 || length > buffer.remaining()) {
+					throw new IOException("Section " + SnapshotFormat.tagName(tag) + " is truncated");
+				}
+				ByteBuffer payload = slice(buffer, length);
+				if (SnapshotFormat.checksum(payload) != checksum) {
+					throw new IOException("Section " + SnapshotFormat.tagName(tag) + " is corrupt");
+				}
+
+				if (tag == SnapshotFormat.TAG_FOOD && food == null) {
+					food = splitColumns(payload);
+					foodRows = rows;
+				} else if (tag == SnapshotFormat.TAG_DIARY && diary == null) {
+					diary = splitColumns(payload);
+					diaryRows = rows;
+				} else if (tag == SnapshotFormat.TAG_GOAL && goals == null) {
+					goals = splitColumns(payload);
+					goalRows = rows;
+				}
+			}
+			if (food == null || diary == null || goals == null) {
+				throw new IOException("Snapshot is missing a section");
+			}
+
+			db.beginTransaction();
+			try {
+				db.getFoodDiaryEntryDao().deleteAll();
+				db.getFoodDao().deleteAll();
+				db.getNutritionGoalDao().deleteAll();
+
+				long[] foodIds = restoreFoods(food, foodRows);
+				restoreDiary(diary, diaryRows, foodIds);
+				restoreGoals(goals, goalRows);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+			return (long) foodRows + diaryRows + goalRows;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Malformed snapshot", e);
+		}
+	}
+
+	/**
+	 * Insert the foods of a snapshot.
+	 *
+	 * @param columns the columns of the food section
+	 * @param rows    the number of foods
+	 *
+	 * @return the IDs of the foods, in the order they are referred to by the diary section
+	 *
+	 * @throws IOException if the section is malformed
+	 */
+	@NonNull
+	private long[] restoreFoods(@NonNull ByteBuffer[] columns, int rows) throws IOException {
+		if (columns.length < 5) {
+			throw new IOException("Food section has " + columns.length + " columns");
+		}
+		String[] dictionary = readDictionary(columns[0]);
+		ByteBuffer ids = columns[1];
+		ByteBuffer names = columns[2];
+		ByteBuffer servingSizes = columns[3];
+		ByteBuffer servingUnits = columns[4];
+
+		checkRows("Food", rows, ids, 1);
+		checkRows("Food", rows, servingSizes, Double.BYTES);
+
+		// Nutrients added after the snapshot was written are left at zero, and unknown ones ignored
+		int numNutrients = Math.min(columns.length - 5, Nutrient.COUNT);
+
+		long[] foodIds = new long[rows];
+		List<Food> batch = new ArrayList<>(Math.min(rows, batchSize));
+		long id = 0;
+		for (int row = 0; row < rows; row++) {
+			id += SnapshotFormat.readSignedVarLong(ids);
+			String name = dictionary[SnapshotFormat.readVarInt(names, dictionary.length - 1)];
+			double servingSize = servingSizes.getDouble();
+			String servingUnit = dictionary[SnapshotFormat.readVarInt(servingUnits, dictionary.length - 1)];
+
+			Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+			for (int i = 0; i < numNutrients; i++) {
+				long amount = SnapshotFormat.readSignedVarLong(columns[5 + i]);
+				if (amount < Integer.MIN_VALUE || amount > Integer.MAX_VALUE) {
+					throw new IOException("Nutrient amount " + amount + " out of range");
+				}
+				Nutrient.fromIndex(i).set(nutritionInfo, (int) amount);
+			}
+
+			foodIds[row] = id;
+			batch.add(new Food(id, name, servingUnit, servingSize, nutritionInfo));
+			if (batch.size() == batchSize) {
+				db.getFoodDao().insert(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			db.getFoodDao().insert(batch);
+		}
+		return foodIds;
+	}
+
+	/**
+	 * Insert the diary entries of a snapshot.
+	 *
+	 * @param columns the columns of the diary section
+	 * @param rows    the number of diary entries
+	 * @param foodIds the IDs of the foods that entries refer to by index
+	 *
+	 * @throws IOException if the section is malformed
+	 */
+	private void restoreDiary(@NonNull ByteBuffer[] columns, int rows, @NonNull long[] foodIds)
+			throws IOException {
+		if (columns.length < 4) {
+			throw new IOException("Diary section has " + columns.length + " columns");
+		}
+		ByteBuffer times = columns[0];
+		ByteBuffer ids = columns[1];
+		ByteBuffer foods = columns[2];
+		ByteBuffer servings = columns[3];
+		checkRows("Diary", rows, times, 1);
+		checkRows("Diary", rows, servings, Double.BYTES);
+
+		List<FoodDiaryEntry> batch = new ArrayList<>(Math.min(rows, batchSize));
+		long time = 0;
+		long id = 0;
+		for (int row = 0; row < rows; row++) {
+			time += SnapshotFormat.readSignedVarLong(times);
+			id += SnapshotFormat.readSignedVarLong(ids);
+			long foodId = foodIds[SnapshotFormat.readVarInt(foods, foodIds.length - 1)];
+			batch.add(new FoodDiaryEntry(id, foodId, servings.getDouble(), time));
+			if (batch.size() == batchSize) {
+				db.getFoodDiaryEntryDao().insert(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			db.getFoodDiaryEntryDao().insert(batch);
+		}
+	}
+
+	/**
+	 * Insert the nutrition goals of a snapshot.
+	 *
+	 * @param columns the columns of the goal section
+	 * @param rows    the number of goals
+	 *
+	 * @throws IOException if the section is malformed
+	 */
+	private void restoreGoals(@NonNull ByteBuffer[] columns, int rows) throws IOException {
+		if (columns.length < 2) {
+			throw new IOException("Goal section has " + columns.length + " columns");
+		}
+		checkRows("Goal", rows, columns[0], 1);
+		List<NutritionGoal> goals = new ArrayList<>(rows);
+		for (int row = 0; row < rows; row++) {
+			int nutrient = SnapshotFormat.readVarInt(columns[0], Integer.MAX_VALUE);
+			long amount = SnapshotFormat.readSignedVarLong(columns[1]);
+			if (amount < Integer.MIN_VALUE || amount > Integer.MAX_VALUE) {
+				throw new IOException("Goal amount " + amount + " out of range");
+			}
+
+			// Goals for nutrients this version does not know are dropped
+			if (nutrient < Nutrient.COUNT) {
+				goals.add(new NutritionGoal(nutrient, (int) amount));
+			}
+		}
+		db.getNutritionGoalDao().insert(goals);
+	}
+
+	/**
+	 * Check that a column has room for the number of rows of its section, before anything is
+	 * allocated for them. The row count is read from the section header, which the checksum does
+	 * not cover.
+	 *
+	 * @param section     the name of the section, for the error message
+	 * @param rows        the number of rows of the section
+	 * @param column      a column of the section
+	 * @param minRowBytes the fewest bytes a row takes in the column
+	 *
+	 * @throws IOException if the column is too short for the rows
+	 */
+	private static void checkRows(@NonNull String section, int rows, @NonNull ByteBuffer column,
+			int minRowBytes) throws IOException {
+		if (rows > column.remaining() / minRowBytes) {
+			throw new IOException(section + " section has " + rows + " rows but room for " +
+					column.remaining() / minRowBytes);
+		}
+	}
+
+	/**
+	 * Read a dictionary column.
+	 *
+	 * @param column the column
+	 *
+	 * @return the strings of the dictionary, in order of index
+	 *
+	 * @throws IOException if the column is malformed
+	 */
+	@NonNull
+	private static String[] readDictionary(@NonNull ByteBuffer column) throws IOException {
+		// Every string takes at least one byte, which bounds the count before allocating
+		String[] strings = new String[SnapshotFormat.readVarInt(column, column.remaining())];
+		byte[] bytes = new byte[64];
+		for (int i = 0; i < strings.length; i++) {
+			int length = SnapshotFormat.readVarInt(column, column.remaining());
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			column.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Split the payload of a section into its columns.
+	 *
+	 * @param payload the payload
+	 *
+	 * @return a buffer over each column
+	 *
+	 * @throws IOException if a column is longer than the rest of the payload
+	 */
+	@NonNull
+	private static ByteBuffer[] splitColumns(@NonNull ByteBuffer payload) throws IOException {
+		List<ByteBuffer> columns = new ArrayList<>();
+		while (payload.hasRemaining()) {
+			int length = payload.getInt();
+			if (length < 0 || length > payload.remaining()) {
+				throw new IOException("Column " + columns.size() + " is truncated");
+			}
+			columns.add(slice(payload, length));
+		}
+		return columns.toArray(new ByteBuffer[0]);
+	}
+
+	/**
+	 * Take a number of bytes from the start of a buffer as a buffer of their own.
+	 *
+	 * @param buffer the buffer, whose position is moved past the bytes
+	 * @param length the number of bytes
+	 *
+	 * @return a buffer over the bytes, in the snapshot's byte order
+	 */
+	@NonNull
+	private static ByteBuffer slice(@NonNull ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		return slice.order(SnapshotFormat.ORDER);
+	}
+}
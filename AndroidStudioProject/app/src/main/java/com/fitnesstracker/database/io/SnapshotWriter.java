@@ -0,0 +1,566 @@
+package com.fitnesstracker.database.io;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.entities.NutritionGoal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a snapshot of the foods, diary and nutrition goals in the database, in the compact
+ * columnar format described by {@link SnapshotFormat}, which {@link SnapshotReader} restores.
+ * <p>
+ * Unlike a copy of the database file, a snapshot holds no indices, full-text search tables or
+ * rollups, which are rebuilt when it is restored, and its delta-encoded, dictionary-encoded and
+ * variable-length columns are a fraction of the size of the same rows in SQLite or JSON.
+ * <p>
+ * Rows are read in chunks of at most {@link SnapshotWriter#DEFAULT_CHUNK_SIZE} through raw
+ * cursors and encoded straight into one growable buffer per column, so memory use is about the
+ * size of the snapshot rather than the size of the same rows as objects. All tables are read in
+ * one transaction, so the snapshot is consistent, and writes to the database wait until it has
+ * been read.
+ *
+ * @author Mitchell Ford
+ */
+public class SnapshotWriter {
+
+	/**
+	 * The number of rows read per query by default.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 2000;
+
+	/**
+	 * The database the snapshot is taken of.
+	 */
+	private final FTDatabase db;
+
+	/**
+	 * The number of rows read per query.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Constructor that specifies the database to take snapshots of, with the default chunk size.
+	 *
+	 * @param db the database to take snapshots of
+	 */
+	public SnapshotWriter(@NonNull FTDatabase db) {
+		this(db, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor that specifies the database to take snapshots of and the chunk size.
+	 *
+	 * @param db        the database to take snapshots of
+	 * @param chunkSize the number of rows to read per query
+	 */
+	public SnapshotWriter(@NonNull FTDatabase db, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1");
+		}
+		this.db = db;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Write a snapshot to a file, replacing its contents, and wait until it is on storage.
+	 *
+	 * @param file the file to write
+	 *
+	 * @return the size of the snapshot in bytes
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@WorkerThread
+	public long write(@NonNull File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+			long size = write(channel);
+			channel.force(false);
+			return size;
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a snapshot to a channel.
+	 *
+	 * @param channel the channel to write to, which this method does not close
+	 *
+	 * @return the size of the snapshot in bytes
+	 *
+	 * @throws IOException if the channel cannot be written or the database is inconsistent
+	 */
+	@WorkerThread
+	public long write(@NonNull WritableByteChannel channel) throws IOException {
+		FoodSection food;
+		Section diary;
+		Section goals;
+		db.beginTransaction();
+		try {
+			food = readFoods();
+			diary = readDiary(food.ids, food.rows);
+			goals = readGoals();
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.HEADER_SIZE).order(SnapshotFormat.ORDER);
+		header.putInt(SnapshotFormat.MAGIC);
+		header.putShort((short) SnapshotFormat.VERSION);
+		header.putShort((short) 3);
+		header.flip();
+
+		long size = writeFully(channel, header);
+		size += food.writeTo(channel);
+		size += diary.writeTo(channel);
+		size += goals.writeTo(channel);
+		return size;
+	}
+
+	/**
+	 * Read every food into a section, in order of ID.
+	 *
+	 * @return the section
+	 */
+	@NonNull
+	private FoodSection readFoods() {
+		FoodDao dao = db.getFoodDao();
+		FoodSection section = new FoodSection();
+		Column ids = section.addColumn();
+		Column names = section.addColumn();
+		Column servingSizes = section.addColumn();
+		Column servingUnits = section.addColumn();
+		Column[] nutrients = new Column[Nutrient.COUNT];
+		for (int i = 0; i < nutrients.length; i++) {
+			nutrients[i] = section.addColumn();
+		}
+
+		int[] columns = null;
+		long lastId = Long.MIN_VALUE;
+		long previousId = 0;
+		while (true) {
+			int rows = 0;
+			Cursor cursor = dao.getCursorAfter(lastId, chunkSize);
+			try {
+				if (columns == null) {
+					columns = new int[4 + Nutrient.COUNT];
+					columns[0] = cursor.getColumnIndexOrThrow("id");
+					columns[1] = cursor.getColumnIndexOrThrow("name");
+					columns[2] = cursor.getColumnIndexOrThrow("serving_size");
+					columns[3] = cursor.getColumnIndexOrThrow("serving_unit");
+					for (int i = 0; i < Nutrient.COUNT; i++) {
+						columns[4 + i] = cursor.getColumnIndexOrThrow(
+								"nutrition_" + Nutrient.fromIndex(i).getColumnName());
+					}
+				}
+				while (cursor.moveToNext()) {
+					long id = cursor.getLong(columns[0]);
+					ids.putSignedVarLong(id - previousId);
+					names.putVarLong(section.dictionary.indexOf(cursor.getString(columns[1])));
+					servingSizes.putDouble(cursor.getDouble(columns[2]));
+					servingUnits.putVarLong(section.dictionary.indexOf(cursor.getString(columns[3])));
+					for (int i = 0; i < Nutrient.COUNT; i++) {
+						nutrients[i].putSignedVarLong(cursor.getLong(columns[4 + i]));
+					}
+					section.addId(id);
+					previousId = id;
+					lastId = id;
+					rows++;
+				}
+			} finally {
+				cursor.close();
+			}
+			if (rows < chunkSize) {
+				section.finishDictionary();
+				return section;
+			}
+		}
+	}
+
+	/**
+	 * Read every diary entry into a section, oldest first.
+	 *
+	 * @param foodIds  the IDs of the foods in the food section, in ascending order
+	 * @param numFoods the number of IDs in <code>foodIds</code>
+	 *
+	 * @return the section
+	 *
+	 * @throws IOException if an entry refers to a food that is not in the food section
+	 */
+	@NonNull
+	private Section readDiary(@NonNull long[] foodIds, int numFoods) throws IOException {
+		FoodDiaryEntryDao dao = db.getFoodDiaryEntryDao();
+		Section section = new Section(SnapshotFormat.TAG_DIARY);
+		Column times = section.addColumn();
+		Column ids = section.addColumn();
+		Column foods = section.addColumn();
+		Column servings = section.addColumn();
+
+		int idColumn = -1;
+		int foodIdColumn = -1;
+		int servingsColumn = -1;
+		int timeColumn = -1;
+		long lastTime = Long.MIN_VALUE;
+		long lastId = Long.MIN_VALUE;
+		long previousTime = 0;
+		long previousId = 0;
+		while (true) {
+			int rows = 0;
+			Cursor cursor = dao.getCursorAfter(lastTime, lastId, chunkSize);
+			try {
+				if (idColumn == -1) {
+					idColumn = cursor.getColumnIndexOrThrow("id");
+					foodIdColumn = cursor.getColumnIndexOrThrow("food_id");
+					servingsColumn = cursor.getColumnIndexOrThrow("num_servings");
+					timeColumn = cursor.getColumnIndexOrThrow("time");
+				}
+				while (cursor.moveToNext()) {
+					long time = cursor.getLong(timeColumn);
+					long id = cursor.getLong(idColumn);
+					long foodId = cursor.getLong(foodIdColumn);
+					int food = Arrays.binarySearch(foodIds, 0, numFoods, foodId);
+					if (food < 0) {
+						throw new IOException("Diary entry " + id + " refers to missing food " + foodId);
+					}
+
+					times.putSignedVarLong(time - previousTime);
+					ids.putSignedVarLong(id - previousId);
+					foods.putVarLong(food);
+					servings.putDouble(cursor.getDouble(servingsColumn));
+					section.rows++;
+					previousTime = time;
+					previousId = id;
+					lastTime = time;
+					lastId = id;
+					rows++;
+				}
+			} finally {
+				cursor.close();
+			}
+			if (rows < chunkSize) {
+				return section;
+			}
+		}
+	}
+
+	/**
+	 * Read every nutrition goal into a section.
+	 *
+	 * @return the section
+	 */
+	@NonNull
+	private Section readGoals() {
+		Section section = new Section(SnapshotFormat.TAG_GOAL);
+		Column nutrients = section.addColumn();
+		Column amounts = section.addColumn();
+		List<NutritionGoal> goals = db.getNutritionGoalDao().getAll();
+		for (NutritionGoal goal : goals) {
+			nutrients.putVarLong(goal.getNutrient());
+			amounts.putSignedVarLong(goal.getAmount());
+		}
+		section.rows = goals.size();
+		return section;
+	}
+
+	/**
+	 * Write all of a buffer's remaining bytes to a channel.
+	 *
+	 * @param channel the channel to write to
+	 * @param buffer  the bytes to write
+	 *
+	 * @return the number of bytes written
+	 *
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static long writeFully(@NonNull WritableByteChannel channel, @NonNull ByteBuffer buffer)
+			throws IOException {
+		int size = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return size;
+	}
+
+	/**
+	 * A section of a snapshot being written, made of columns.
+	 */
+	private static class Section {
+
+		/**
+		 * The tag of the section.
+		 */
+		private final int tag;
+
+		/**
+		 * The columns of the section, in the order they are written.
+		 */
+		private Column[] columns = new Column[0];
+
+		/**
+		 * The number of rows in the section.
+		 */
+		int rows;
+
+		/**
+		 * Constructor that specifies the tag of the section.
+		 *
+		 * @param tag the tag
+		 */
+		Section(int tag) {
+			this.tag = tag;
+		}
+
+		/**
+		 * Add a column to the end of the section.
+		 *
+		 * @return the new column
+		 */
+		@NonNull
+		Column addColumn() {
+			columns = Arrays.copyOf(columns, columns.length + 1);
+			columns[columns.length - 1] = new Column();
+			return columns[columns.length - 1];
+		}
+
+		/**
+		 * Write the section's header, with the checksum of its columns, followed by the columns.
+		 *
+		 * @param channel the channel to write to
+		 *
+		 * @return the number of bytes written
+		 *
+		 * @throws IOException if the channel cannot be written or the section is too large
+		 */
+		long writeTo(@NonNull WritableByteChannel channel) throws IOException {
+			ByteBuffer[] buffers = new ByteBuffer[columns.length];
+			long length = 0;
+			CRC32 crc = new CRC32();
+			for (int i = 0; i < columns.length; i++) {
+				buffers[i] = columns[i].finish();
+				length += buffers[i].remaining();
+				crc.update(buffers[i].duplicate());
+			}
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Section " + SnapshotFormat.tagName(tag) + " is too large");
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.SECTION_HEADER_SIZE)
+					.order(SnapshotFormat.ORDER);
+			header.putInt(tag);
+			header.putInt(rows);
+			header.putInt((int) length);
+			header.putInt((int) crc.getValue());
+			header.flip();
+
+			long size = writeFully(channel, header);
+			for (ByteBuffer buffer : buffers) {
+				size += writeFully(channel, buffer);
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * The section of the <code>food</code> table, whose first column is a dictionary of names and
+	 * serving units.
+	 */
+	private static class FoodSection extends Section {
+
+		/**
+		 * The dictionary of names and serving units.
+		 */
+		final Dictionary dictionary = new Dictionary();
+
+		/**
+		 * The column the dictionary is written to once every food has been read.
+		 */
+		private final Column dictionaryColumn;
+
+		/**
+		 * The IDs of the foods in the section, in ascending order, for finding the index of the
+		 * food of each diary entry.
+		 */
+		long[] ids = new long[256];
+
+		FoodSection() {
+			super(SnapshotFormat.TAG_FOOD);
+			dictionaryColumn = addColumn();
+		}
+
+		/**
+		 * Add the ID of the next food.
+		 *
+		 * @param id the food's ID
+		 */
+		void addId(long id) {
+			if (rows == ids.length) {
+				ids = Arrays.copyOf(ids, rows * 2);
+			}
+			ids[rows++] = id;
+		}
+
+		/**
+		 * Write the dictionary's count and strings to its column.
+		 */
+		void finishDictionary() {
+			dictionaryColumn.putVarLong(dictionary.indices.size());
+			dictionaryColumn.putColumn(dictionary.strings);
+		}
+	}
+
+	/**
+	 * A column of strings that each appear once, which other columns refer to by index.
+	 */
+	private static class Dictionary {
+
+		/**
+		 * The index of every string in the dictionary.
+		 */
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		/**
+		 * The strings, in order of index, each its UTF-8 length and bytes.
+		 */
+		private final Column strings = new Column();
+
+		/**
+		 * Get the index of a string, adding it to the dictionary if it is not in it.
+		 *
+		 * @param string the string
+		 *
+		 * @return the string's index
+		 */
+		int indexOf(@NonNull String string) {
+			Integer index = indices.get(string);
+			if (index == null) {
+				index = indices.size();
+				indices.put(string, index);
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				strings.putVarLong(bytes.length);
+				strings.putBytes(bytes);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * A column being written, which grows to fit its values.
+	 */
+	private static class Column {
+
+		/**
+		 * The column's bytes, after 4 bytes left for its length.
+		 */
+		private ByteBuffer buffer = ByteBuffer.allocate(1024).order(SnapshotFormat.ORDER);
+
+		Column() {
+			buffer.position(4);
+		}
+
+		/**
+		 * Append a variable-length unsigned integer.
+		 *
+		 * @param value the integer, which is treated as unsigned
+		 */
+		void putVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		/**
+		 * Append a zigzag-encoded variable-length signed integer.
+		 *
+		 * @param value the integer
+		 */
+		void putSignedVarLong(long value) {
+			putVarLong((value << 1) ^ (value >> 63));
+		}
+
+		/**
+		 * Append a double.
+		 *
+		 * @param value the double
+		 */
+		void putDouble(double value) {
+			ensureCapacity(8);
+			buffer.putDouble(value);
+		}
+
+		/**
+		 * Append bytes.
+		 *
+		 * @param bytes the bytes
+		 */
+		void putBytes(@NonNull byte[] bytes) {
+			ensureCapacity(bytes.length);
+			buffer.put(bytes);
+		}
+
+		/**
+		 * Append the values of another column.
+		 *
+		 * @param column the column
+		 */
+		void putColumn(@NonNull Column column) {
+			ByteBuffer values = column.buffer.duplicate();
+			values.flip();
+			values.position(4);
+			ensureCapacity(values.remaining());
+			buffer.put(values);
+		}
+
+		/**
+		 * Finish the column by writing its length before it.
+		 *
+		 * @return a buffer holding the column's length and bytes
+		 */
+		@NonNull
+		ByteBuffer finish() {
+			buffer.putInt(0, buffer.position() - 4);
+			ByteBuffer finished = buffer.duplicate();
+			finished.flip();
+			return finished;
+		}
+
+		/**
+		 * Make room for a number of bytes.
+		 *
+		 * @param bytes the number of bytes
+		 */
+		private void ensureCapacity(int bytes) {
+			if (buffer.remaining() < bytes) {
+				int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+				ByteBuffer grown = ByteBuffer.allocate(capacity).order(SnapshotFormat.ORDER);
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+	}
+}
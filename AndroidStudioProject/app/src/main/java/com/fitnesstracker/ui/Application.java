@@ -2,15 +2,24 @@ package com.fitnesstracker.ui;
 
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.content.SharedPreferences;
 import android.os.Build;
 import android.util.Log;
 
+import com.fitnesstracker.database.FTRepository;
+import com.fitnesstracker.database.IdGenerators;
+import com.fitnesstracker.database.SnowflakeIdGenerator;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+
 /**
  * The entry point of this application.
  * <p>
  * This class is identified in <code>AndroidManifest.xml</code>.
  * <p>
- * Currently, the only reason this class is needed is to initialize notification channels.
+ * This class initializes notification channels, the generator that new entities are assigned
+ * IDs with, and the {@link FTRepository} that every screen's view model shares.
  */
 public class Application extends android.app.Application {
 
@@ -24,6 +33,22 @@ public class Application extends android.app.Application {
 	 */
 	public static final String REMINDER_CHANNEL_ID = "0";
 
+	/**
+	 * The name of the shared preferences file that the node ID is stored in.
+	 */
+	private static final String ID_PREFERENCES = "id_generator";
+
+	/**
+	 * The key of the node ID in {@link Application#ID_PREFERENCES}.
+	 */
+	private static final String KEY_NODE_ID = "node_id";
+
+	/**
+	 * The key of the last timestamp reserved by the ID generator in {@link
+	 * Application#ID_PREFERENCES}.
+	 */
+	private static final String KEY_RESERVED_TIMESTAMP = "reserved_timestamp";
+
 	@Override
 	public void onCreate() {
 		super.onCreate();
@@ -31,6 +56,34 @@ public class Application extends android.app.Application {
 		Log.d(TAG, "onCreate()");
 
 		createNotificationChannel();
+		initIdGenerator();
+
+		// Create the repository before any screen, so that screens share its data
+		FTRepository.getRepository(this);
+	}
+
+	/**
+	 * Install an ID generator whose node ID is chosen at random on first launch and then kept for
+	 * the lifetime of the installation.
+	 * <p>
+	 * The generator's reservations are stored too, so that IDs generated after a restart come
+	 * after those generated before it even if the clock has gone backwards in between.
+	 */
+	private void initIdGenerator() {
+		final SharedPreferences preferences = getSharedPreferences(ID_PREFERENCES, MODE_PRIVATE);
+		int nodeId = preferences.getInt(KEY_NODE_ID, -1);
+		if (nodeId < 0) {
+			nodeId = new SecureRandom().nextInt(SnowflakeIdGenerator.MAX_NODE_ID + 1);
+			preferences.edit().putInt(KEY_NODE_ID, nodeId).apply();
+		}
+		long reservedTimestamp = preferences.getLong(KEY_RESERVED_TIMESTAMP, -1);
+		IdGenerators.set(new SnowflakeIdGenerator(nodeId, Clock.systemUTC(), reservedTimestamp,
+				new SnowflakeIdGenerator.ReservationListener() {
+					@Override public void onReserved(long reservedTimestamp) {
+						// Stored before any reserved timestamp is used
+						preferences.edit().putLong(KEY_RESERVED_TIMESTAMP, reservedTimestamp).commit();
+					}
+				}));
 	}
 
 	/**
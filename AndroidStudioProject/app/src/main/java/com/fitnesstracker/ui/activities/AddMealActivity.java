@@ -117,8 +117,9 @@ public class AddMealActivity extends AppCompatActivity {
 		final FoodSpinnerAdapter adapter = new FoodSpinnerAdapter(this);
 		foodSpinner.setAdapter(adapter);
 
-		// Set up the spinner adapter to update it's data on changes to the database
-		viewModel.getFoods().observe(this, new Observer<List<Food>>() {
+		// Set up the spinner adapter to update it's data on changes to the database, from the list
+		// of foods that is shared by every screen and already loaded if another screen showed it
+		viewModel.getAllFoods().observe(this, new Observer<List<Food>>() {
 			@Override public void onChanged(List<Food> foods) {
 				adapter.setData(foods);
 			}
@@ -0,0 +1,150 @@
+package com.fitnesstracker.ui.activities;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.fitnesstracker.R;
+import com.fitnesstracker.database.DatabaseScheduler;
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.WalCheckpointer;
+import com.fitnesstracker.database.instrumentation.LatencyHistogram;
+import com.fitnesstracker.database.instrumentation.QueryMetrics;
+import com.fitnesstracker.database.instrumentation.StatementStats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * An activity that shows how long the database's statements and transactions have taken, tagged
+ * by the DAO method that ran them, along with the state of the threads and queues database work
+ * runs on.
+ * <p>
+ * The statement statistics can be exported to a tab-separated file in the app's external files
+ * directory for offline analysis.
+ *
+ * @author Mitchell Ford
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+	/**
+	 * Tag for {@link Log} messages.
+	 */
+	private static final String TAG = "DiagnosticsActivity";
+
+	/**
+	 * The view the diagnostics are shown in.
+	 */
+	private TextView diagnosticsText;
+
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.activity_diagnostics);
+
+		// Make sure the database, and with it the scheduler, exists before showing its statistics
+		final FTDatabase db = FTDatabase.getDatabase(this);
+		final QueryMetrics metrics = FTDatabase.getQueryMetrics();
+
+		diagnosticsText = findViewById(R.id.diagnosticsText);
+
+		Button refreshButton = findViewById(R.id.refreshButton);
+		refreshButton.setOnClickListener(new View.OnClickListener() {
+			@Override public void onClick(View v) {
+				refresh(db);
+			}
+		});
+
+		Button resetButton = findViewById(R.id.resetButton);
+		resetButton.setOnClickListener(new View.OnClickListener() {
+			@Override public void onClick(View v) {
+				metrics.reset();
+				refresh(db);
+			}
+		});
+
+		Button exportButton = findViewById(R.id.exportButton);
+		exportButton.setOnClickListener(new View.OnClickListener() {
+			@Override public void onClick(View v) {
+				export(metrics);
+			}
+		});
+
+		refresh(db);
+	}
+
+	/**
+	 * Show the current statistics.
+	 *
+	 * @param db the app's database
+	 */
+	private void refresh(FTDatabase db) {
+		StringBuilder text = new StringBuilder();
+
+		text.append("Storage profile: ").append(FTDatabase.getStorageProfile()).append('\n');
+		DatabaseScheduler scheduler = FTDatabase.getScheduler();
+		text.append(scheduler.getWriteStats()).append('\n');
+		text.append(scheduler.getReadStats()).append('\n');
+		text.append("Write queue: ").append(db.getWriteQueue().getStats()).append('\n');
+		WalCheckpointer checkpointer = FTDatabase.getCheckpointer();
+		if (checkpointer != null) {
+			text.append("Checkpoints: ").append(checkpointer).append('\n');
+		}
+		text.append("Nutrition index: ").append(FTDatabase.getNutritionIndex()).append('\n');
+		text.append("Food cache: ").append(db.getFoodCache()).append('\n');
+
+		text.append('\n').append(String.format(Locale.US, "%-14s %7s %9s %8s %8s %8s %8s %8s  %s\n",
+				"kind", "count", "total ms", "mean", "p50", "p95", "p99", "max", "tag"));
+		for (StatementStats stats : FTDatabase.getQueryMetrics().getSnapshot()) {
+			LatencyHistogram latencies = stats.getLatencies();
+			text.append(String.format(Locale.US,
+					"%-14s %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f  %s\n",
+					stats.getKind(), latencies.getCount(), latencies.getTotalMillis(),
+					latencies.getMeanMillis(), latencies.getPercentileMillis(50),
+					latencies.getPercentileMillis(95), latencies.getPercentileMillis(99),
+					latencies.getMaxMillis(), stats.getTag()));
+		}
+
+		diagnosticsText.setText(text);
+	}
+
+	/**
+	 * Write the statement statistics to a new file in the app's external files directory, off the
+	 * main thread, and tell the user where it was written.
+	 *
+	 * @param metrics the statistics to write
+	 */
+	private void export(final QueryMetrics metrics) {
+		final File file = new File(getExternalFilesDir(null),
+				"query-metrics-" + System.currentTimeMillis() + ".tsv");
+		new Thread(new Runnable() {
+			@Override public void run() {
+				boolean exported;
+				try (Writer writer = new FileWriter(file)) {
+					metrics.dump(writer);
+					exported = true;
+				} catch (IOException e) {
+					Log.e(TAG, "Failed to export query metrics", e);
+					exported = false;
+				}
+
+				final String message = exported
+						? getString(R.string.diagnostics_exported, file.getAbsolutePath())
+						: getString(R.string.diagnostics_export_failed);
+				runOnUiThread(new Runnable() {
+					@Override public void run() {
+						Toast.makeText(DiagnosticsActivity.this, message, Toast.LENGTH_LONG).show();
+					}
+				});
+			}
+		}, "diagnostics-export").start();
+	}
+}
@@ -1,6 +1,7 @@
 package com.fitnesstracker.ui.activities;
 
 import android.content.DialogInterface;
+import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.widget.Toast;
@@ -15,6 +16,7 @@ import androidx.preference.PreferenceFragmentCompat;
 
 import com.fitnesstracker.R;
 import com.fitnesstracker.database.FTViewModel;
+import com.fitnesstracker.database.StorageProfile;
 import com.fitnesstracker.ui.Application;
 import com.fitnesstracker.ui.notifications.NotificationPublisher;
 
@@ -122,6 +124,26 @@ public class SettingsActivity extends AppCompatActivity {
 				}
 			});
 
+			// Tell the user that a new storage profile is applied when the database is next opened
+			Preference storageProfile = findPreference(StorageProfile.PREFERENCE_KEY);
+			assert storageProfile != null;
+			storageProfile.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+				@Override public boolean onPreferenceChange(Preference preference, Object newValue) {
+					Toast.makeText(requireContext(), R.string.storage_profile_message, Toast.LENGTH_SHORT).show();
+					return true;
+				}
+			});
+
+			// Set up the diagnostics button to open the database diagnostics page
+			Preference diagnostics = findPreference("diagnostics");
+			assert diagnostics != null;
+			diagnostics.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+				@Override public boolean onPreferenceClick(Preference preference) {
+					startActivity(new Intent(requireContext(), DiagnosticsActivity.class));
+					return true;
+				}
+			});
+
 			// Set up the test notification button to send a notification to the user when clicked.
 			final Preference sendTestNotification = findPreference("send_test_notification");
 			assert sendTestNotification != null;
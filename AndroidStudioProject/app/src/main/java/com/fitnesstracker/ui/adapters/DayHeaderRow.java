@@ -0,0 +1,150 @@
+package com.fitnesstracker.ui.adapters;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.entities.Food;
+
+/**
+ * The row that starts a day in the sectioned diary, showing the date and the day's total calories
+ * and macronutrients.
+ * <p>
+ * The totals are those of the whole day, read from the <code>daily_nutrition</code> rollup, not
+ * of the day's meals that happen to be loaded. The text is formatted once, when the row is created.
+ *
+ * @author Mitchell Ford
+ * @see com.fitnesstracker.database.DiaryDataSource
+ */
+public final class DayHeaderRow extends DiaryRow {
+
+	/**
+	 * The day this row starts.
+	 */
+	private final long day;
+
+	/**
+	 * The newest meal of the day, which this row is displayed directly before.
+	 */
+	private final Meal firstMeal;
+
+	/**
+	 * The total nutrition of the day.
+	 */
+	private final Food.NutritionInfo totals;
+
+	/**
+	 * The formatted date.
+	 */
+	private final String date;
+
+	/**
+	 * The formatted calorie total.
+	 */
+	private final String calories;
+
+	/**
+	 * The formatted protein, fat and carbohydrate totals.
+	 */
+	private final String macros;
+
+	/**
+	 * Constructor that formats the text for a day.
+	 *
+	 * @param day       the day this row starts
+	 * @param firstMeal the newest meal of the day
+	 * @param totals    the total nutrition of the day
+	 * @param formats   the formats to use
+	 */
+	public DayHeaderRow(long day, @NonNull Meal firstMeal, @NonNull Food.NutritionInfo totals,
+	                    @NonNull DisplayFormats formats) {
+		this.day = day;
+		this.firstMeal = firstMeal;
+		this.totals = totals;
+		this.date = formats.formatDay(day);
+		this.calories = formats.formatTotal(totals.calories, "kcal");
+		this.macros = formats.formatMacros(totals.protein, totals.totalFat, totals.totalCarbs);
+	}
+
+	/**
+	 * Get a stable ID for the header of a day.
+	 * <p>
+	 * Header IDs are negative and at most {@link Long#MIN_VALUE} plus 2<sup>32</sup>, so they never
+	 * clash with diary entry IDs or {@link androidx.recyclerview.widget.RecyclerView#NO_ID}.
+	 *
+	 * @param day the day
+	 *
+	 * @return the header's stable ID
+	 */
+	public static long getStableId(long day) {
+		return Long.MIN_VALUE + (day - Integer.MIN_VALUE);
+	}
+
+	@Override
+	public long getStableId() {
+		return getStableId(day);
+	}
+
+	@Override
+	public int getViewType() {
+		return TYPE_DAY_HEADER;
+	}
+
+	/**
+	 * Get the day this row starts.
+	 *
+	 * @return the day, as in {@link com.fitnesstracker.database.entities.FoodDiaryEntry#toLocalDay(long)}
+	 */
+	public long getDay() {
+		return day;
+	}
+
+	/**
+	 * Get the newest meal of the day, which this row is displayed directly before.
+	 *
+	 * @return the meal
+	 */
+	@NonNull
+	public Meal getFirstMeal() {
+		return firstMeal;
+	}
+
+	/**
+	 * Get the total nutrition of the day.
+	 *
+	 * @return the totals
+	 */
+	@NonNull
+	public Food.NutritionInfo getTotals() {
+		return totals;
+	}
+
+	/**
+	 * Get the formatted date.
+	 *
+	 * @return the date
+	 */
+	@NonNull
+	public String getDate() {
+		return date;
+	}
+
+	/**
+	 * Get the formatted calorie total.
+	 *
+	 * @return the calories
+	 */
+	@NonNull
+	public String getCalories() {
+		return calories;
+	}
+
+	/**
+	 * Get the formatted protein, fat and carbohydrate totals.
+	 *
+	 * @return the macronutrient totals
+	 */
+	@NonNull
+	public String getMacros() {
+		return macros;
+	}
+}
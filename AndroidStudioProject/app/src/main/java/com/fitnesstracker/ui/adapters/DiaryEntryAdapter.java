@@ -8,32 +8,115 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.fitnesstracker.R;
 import com.fitnesstracker.database.Meal;
 
-import java.text.DateFormat;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 /**
- * A {@link RecyclerView.Adapter} for {@link DiaryEntryAdapter} objects.
+ * A {@link RecyclerView.Adapter} for the paged, sectioned diary, in which each day starts with a
+ * {@link DayHeaderRow} showing the day's totals followed by a {@link MealRow} for each of the
+ * day's meals.
+ * <p>
+ * Data is given to this adapter as {@link DiaryRow}s using {@link PagedListAdapter#submitList(androidx.paging.PagedList)}.
+ * The difference from the previous page is computed on a background thread, and only the rows
+ * that changed are rebound, each with a payload saying which of its views need updating. Rows are
+ * formatted as pages are loaded and click listeners are created once per view holder, so binding a
+ * row allocates nothing.
  *
  * @author Mitchell Ford
+ * @see com.fitnesstracker.database.DiaryDataSource
  */
-public class DiaryEntryAdapter extends RecyclerView.Adapter<DiaryEntryAdapter.ViewHolder> {
+public class DiaryEntryAdapter extends PagedListAdapter<DiaryRow, RecyclerView.ViewHolder> {
 
 	/**
-	 * The data that the {@link RecyclerView} should display.
+	 * Payload flag for a change to the number of servings or to the food eaten.
 	 */
-	@Nullable
-	private List<Meal> data = new ArrayList<>();
+	private static final int PAYLOAD_FOOD_INFO = 1;
+
+	/**
+	 * Payload flag for a change to the time a meal was eaten.
+	 */
+	private static final int PAYLOAD_TIME = 1 << 1;
+
+	/**
+	 * Payload flag for a change to the date of a day header.
+	 */
+	private static final int PAYLOAD_DATE = 1;
+
+	/**
+	 * Payload flag for a change to the totals of a day header.
+	 */
+	private static final int PAYLOAD_TOTALS = 1 << 1;
+
+	/**
+	 * Payload flags for every view in a row of either type.
+	 */
+	private static final int PAYLOAD_ALL = ~0;
+
+	/**
+	 * Callback for determining which rows changed between two pages of data, and which of their
+	 * views need updating.
+	 */
+	private static final DiffUtil.ItemCallback<DiaryRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<DiaryRow>() {
+		@Override
+		public boolean areItemsTheSame(@NonNull DiaryRow oldItem, @NonNull DiaryRow newItem) {
+			return oldItem.getStableId() == newItem.getStableId();
+		}
+
+		@Override
+		public boolean areContentsTheSame(@NonNull DiaryRow oldItem, @NonNull DiaryRow newItem) {
+			if (oldItem instanceof DayHeaderRow && newItem instanceof DayHeaderRow) {
+				DayHeaderRow oldHeader = (DayHeaderRow) oldItem;
+				DayHeaderRow newHeader = (DayHeaderRow) newItem;
+				return oldHeader.getDate().equals(newHeader.getDate())
+						&& oldHeader.getCalories().equals(newHeader.getCalories())
+						&& oldHeader.getMacros().equals(newHeader.getMacros());
+			}
+			if (oldItem instanceof MealRow && newItem instanceof MealRow) {
+				MealRow oldMeal = (MealRow) oldItem;
+				MealRow newMeal = (MealRow) newItem;
+				return oldMeal.getMeal().equals(newMeal.getMeal())
+						&& oldMeal.getFoodInfo().equals(newMeal.getFoodInfo())
+						&& oldMeal.getTime().equals(newMeal.getTime());
+			}
+			return false;
+		}
+
+		@NonNull
+		@Override
+		public Object getChangePayload(@NonNull DiaryRow oldItem, @NonNull DiaryRow newItem) {
+			int payload = 0;
+			if (oldItem instanceof DayHeaderRow && newItem instanceof DayHeaderRow) {
+				DayHeaderRow oldHeader = (DayHeaderRow) oldItem;
+				DayHeaderRow newHeader = (DayHeaderRow) newItem;
+				if (!oldHeader.getDate().equals(newHeader.getDate())) {
+					payload |= PAYLOAD_DATE;
+				}
+				if (!oldHeader.getCalories().equals(newHeader.getCalories())
+						|| !oldHeader.getMacros().equals(newHeader.getMacros())) {
+					payload |= PAYLOAD_TOTALS;
+				}
+			} else if (oldItem instanceof MealRow && newItem instanceof MealRow) {
+				MealRow oldMeal = (MealRow) oldItem;
+				MealRow newMeal = (MealRow) newItem;
+				if (!oldMeal.getFoodInfo().equals(newMeal.getFoodInfo())) {
+					payload |= PAYLOAD_FOOD_INFO;
+				}
+				if (!oldMeal.getTime().equals(newMeal.getTime())) {
+					payload |= PAYLOAD_TIME;
+				}
+			}
+			return payload;
+		}
+	};
 
 	/**
-	 * The listener for clicks and long-clicks on view holders in this adapter.
+	 * The listener for clicks and long-clicks on meal view holders in this adapter.
 	 * <p>
 	 * This field may be null.
 	 * <p>
@@ -52,73 +135,128 @@ public class DiaryEntryAdapter extends RecyclerView.Adapter<DiaryEntryAdapter.Vi
 	/**
 	 * Constructor that specifies {@link DiaryEntryAdapter#onItemClickListener}.
 	 *
-	 * @param onItemClickListener the listener that should be used for clicks and long-clicks in
-	 *                            this adapter
+	 * @param onItemClickListener the listener that should be used for clicks and long-clicks on
+	 *                            meals in this adapter
 	 */
 	public DiaryEntryAdapter(@Nullable OnItemClickListener<Meal> onItemClickListener) {
+		super(DIFF_CALLBACK);
 		this.onItemClickListener = onItemClickListener;
+		setHasStableIds(true);
 	}
 
 	@NonNull
 	@Override
-	public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+	public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
 		Context context = parent.getContext();
 		LayoutInflater inflater = LayoutInflater.from(context);
 
+		if (viewType == DiaryRow.TYPE_DAY_HEADER) {
+			View dayHeaderView = inflater.inflate(R.layout.day_header_view, parent, false);
+			return new DayHeaderViewHolder(dayHeaderView);
+		}
+
 		View diaryEntryView = inflater.inflate(R.layout.meal_view, parent, false);
 
-		return new ViewHolder(diaryEntryView);
+		return new ViewHolder(diaryEntryView, onItemClickListener);
 	}
 
 	@Override
-	public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+	public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
 
-		// Get the meal item from data
-		assert data != null;
-		Meal meal = data.get(position);
+		// Get the row from the current page, which is only null for placeholders
+		DiaryRow row = getItem(position);
+		if (row == null) {
+			return;
+		}
 
-		// Set up the food info text view
-		holder.foodInfoText.setText(String.format(Locale.getDefault(),
-				"%.2f %s %s",
-				meal.getFoodDiaryEntry().getNumServings()*meal.getFood().getServingSize(),
-				meal.getFood().getServingUnit(),
-				meal.getFood().getName()
-		));
+		bind(holder, row, PAYLOAD_ALL);
+	}
 
-		// Set up the time text view
-		holder.timeInfoText.setText(DateFormat
-				.getTimeInstance(DateFormat.SHORT)
-				.format(new Date(meal.getFoodDiaryEntry().getTime())));
+	@Override
+	public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+
+		// Without a payload the whole row is rebound
+		DiaryRow row = getItem(position);
+		if (payloads.isEmpty() || row == null) {
+			onBindViewHolder(holder, position);
+			return;
+		}
 
-		// Bind the onItemClickListener if one was given in the constructor
-		if (onItemClickListener != null) {
-			holder.bindOnItemClickListener(meal, onItemClickListener);
+		// Several changes to a row between layouts arrive as several payloads, which are indexed
+		// rather than iterated so that no iterator is allocated
+		int payload = 0;
+		for (int i = 0; i < payloads.size(); i++) {
+			payload |= (Integer) payloads.get(i);
 		}
+		bind(holder, row, payload);
 	}
 
 	/**
-	 * Get the total number of items in this adapter.
-	 * <p>
-	 * If {@link DiaryEntryAdapter#data} is <code>null</code>, the item count is considered
-	 * <code>0</code>.
+	 * Get the type of view the row at a position is displayed in.
+	 *
+	 * @param position the position of the row
 	 *
-	 * @return the total number of items in this adapter
+	 * @return {@link DiaryRow#TYPE_DAY_HEADER} or {@link DiaryRow#TYPE_MEAL}
 	 */
 	@Override
-	public int getItemCount() {
-		return data == null ? 0 : data.size();
+	public int getItemViewType(int position) {
+		DiaryRow row = getItem(position);
+		return row == null ? DiaryRow.TYPE_MEAL : row.getViewType();
 	}
 
 	/**
-	 * Set the data in this adapter.
-	 * <p>
-	 * This method notifies of data changes using {@link RecyclerView.Adapter#notifyDataSetChanged()}.
+	 * Get the stable ID of the row at a position.
+	 *
+	 * @param position the position of the row
 	 *
-	 * @param data the new data to set
+	 * @return the row's stable ID, or {@link RecyclerView#NO_ID} for placeholders
 	 */
-	public void setData(@Nullable List<Meal> data) {
-		this.data = data;
-		notifyDataSetChanged();
+	@Override
+	public long getItemId(int position) {
+		DiaryRow row = getItem(position);
+		return row == null ? RecyclerView.NO_ID : row.getStableId();
+	}
+
+	/**
+	 * Bind some or all of a view holder's views to a row.
+	 *
+	 * @param holder  the view holder to bind, which matches the row's view type
+	 * @param row     the row to display
+	 * @param payload flags for the views to update
+	 */
+	private static void bind(@NonNull RecyclerView.ViewHolder holder, @NonNull DiaryRow row, int payload) {
+		if (row instanceof DayHeaderRow) {
+			DayHeaderViewHolder headerHolder = (DayHeaderViewHolder) holder;
+			DayHeaderRow header = (DayHeaderRow) row;
+
+			// Set up the date text view
+			if ((payload & PAYLOAD_DATE) != 0) {
+				headerHolder.dateText.setText(header.getDate());
+			}
+
+			// Set up the totals text views
+			if ((payload & PAYLOAD_TOTALS) != 0) {
+				headerHolder.caloriesText.setText(header.getCalories());
+				headerHolder.macrosText.setText(header.getMacros());
+			}
+			return;
+		}
+
+		ViewHolder mealHolder = (ViewHolder) holder;
+		MealRow meal = (MealRow) row;
+
+		// Clicks are given the meal of the row that was bound last
+		mealHolder.row = meal;
+
+		// Set up the food info text view
+		if ((payload & PAYLOAD_FOOD_INFO) != 0) {
+			mealHolder.foodInfoText.setText(meal.getFoodInfo());
+		}
+
+		// Set up the time text view
+		if ((payload & PAYLOAD_TIME) != 0) {
+			mealHolder.timeInfoText.setText(meal.getTime());
+		}
 	}
 
 	/**
@@ -136,36 +274,81 @@ public class DiaryEntryAdapter extends RecyclerView.Adapter<DiaryEntryAdapter.Vi
 		 */
 		public TextView timeInfoText;
 
-		public ViewHolder(@NonNull View itemView) {
-			super(itemView);
-
-			foodInfoText = itemView.findViewById(R.id.food_info_text);
-			timeInfoText = itemView.findViewById(R.id.time_info_text);
-		}
+		/**
+		 * The row this view holder is bound to.
+		 */
+		@Nullable
+		MealRow row;
 
 		/**
-		 * Bind this {@link ViewHolder} to an {@link OnItemClickListener} to handle click events.
+		 * Constructor that initializes the text views and sets up the click listeners.
 		 *
-		 * @param meal                the {@link Meal} object held by this view holder
+		 * @param itemView            the view that displays a meal
 		 * @param onItemClickListener the {@link OnItemClickListener} that should handle click
-		 *                            events for this view holder
+		 *                            events for this view holder, or null if clicks are not handled
 		 */
-		public void bindOnItemClickListener(final Meal meal, final OnItemClickListener<Meal> onItemClickListener) {
+		public ViewHolder(@NonNull View itemView, @Nullable final OnItemClickListener<Meal> onItemClickListener) {
+			super(itemView);
+
+			foodInfoText = itemView.findViewById(R.id.food_info_text);
+			timeInfoText = itemView.findViewById(R.id.time_info_text);
+
+			if (onItemClickListener == null) {
+				return;
+			}
 
 			// Set the click listener for this item view
 			itemView.setOnClickListener(new View.OnClickListener() {
 				@Override public void onClick(View v) {
-					onItemClickListener.onItemClicked(meal);
+					if (row != null) {
+						onItemClickListener.onItemClicked(row.getMeal());
+					}
 				}
 			});
 
 			// Set the long-click listener for this item view
 			itemView.setOnLongClickListener(new View.OnLongClickListener() {
 				@Override public boolean onLongClick(View v) {
-					onItemClickListener.onItemLongClicked(meal);
+					if (row != null) {
+						onItemClickListener.onItemLongClicked(row.getMeal());
+					}
 					return true;
 				}
 			});
 		}
 	}
+
+	/**
+	 * A view holder for the header that starts a day.
+	 */
+	public static class DayHeaderViewHolder extends RecyclerView.ViewHolder {
+
+		/**
+		 * Text view that displays the date.
+		 */
+		public TextView dateText;
+
+		/**
+		 * Text view that displays the day's total calories.
+		 */
+		public TextView caloriesText;
+
+		/**
+		 * Text view that displays the day's total protein, fat and carbohydrates.
+		 */
+		public TextView macrosText;
+
+		/**
+		 * Constructor that initializes the text views.
+		 *
+		 * @param itemView the view that displays a day header
+		 */
+		public DayHeaderViewHolder(@NonNull View itemView) {
+			super(itemView);
+
+			dateText = itemView.findViewById(R.id.day_header_date);
+			caloriesText = itemView.findViewById(R.id.day_header_calories);
+			macrosText = itemView.findViewById(R.id.day_header_macros);
+		}
+	}
 }
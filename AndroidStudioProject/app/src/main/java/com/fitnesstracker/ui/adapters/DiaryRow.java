@@ -0,0 +1,42 @@
+package com.fitnesstracker.ui.adapters;
+
+/**
+ * A row of the sectioned diary displayed by {@link DiaryEntryAdapter}: either a {@link
+ * DayHeaderRow} that starts a day or a {@link MealRow} for one of that day's meals.
+ *
+ * @author Mitchell Ford
+ * @see com.fitnesstracker.database.DiaryDataSource
+ */
+public abstract class DiaryRow {
+
+	/**
+	 * The view type of {@link DayHeaderRow}s.
+	 */
+	public static final int TYPE_DAY_HEADER = 0;
+
+	/**
+	 * The view type of {@link MealRow}s.
+	 */
+	public static final int TYPE_MEAL = 1;
+
+	/**
+	 * Constructor that is only visible to the subclasses in this package.
+	 */
+	DiaryRow() {
+	}
+
+	/**
+	 * Get an ID for this row that is unique among all rows of the diary and stays the same when the
+	 * row's contents change.
+	 *
+	 * @return the stable ID
+	 */
+	public abstract long getStableId();
+
+	/**
+	 * Get the type of view this row is displayed in.
+	 *
+	 * @return {@link DiaryRow#TYPE_DAY_HEADER} or {@link DiaryRow#TYPE_MEAL}
+	 */
+	public abstract int getViewType();
+}
@@ -0,0 +1,232 @@
+package com.fitnesstracker.ui.adapters;
+
+import androidx.annotation.NonNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The formatters used to build the text displayed in list rows, cached per {@link Locale}.
+ * <p>
+ * Creating a {@link NumberFormat} or {@link DateFormat} loads locale data, and {@link
+ * String#format(Locale, String, Object...)} parses its format string on every call, so neither is
+ * done for each row. Objects of this class are thread safe, so rows can be built on any
+ * background thread.
+ *
+ * @author Mitchell Ford
+ * @see FoodRow
+ * @see MealRow
+ */
+public final class DisplayFormats {
+
+	/**
+	 * The formats that have been created, by locale.
+	 */
+	private static final ConcurrentMap<Locale, DisplayFormats> CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * Formats quantities with two decimal places, like <code>%.2f</code>.
+	 * <p>
+	 * Amounts are formatted as the {@link BigDecimal} of their shortest decimal representation, as
+	 * <code>%.2f</code> does, so that an amount such as 2.675 rounds up rather than by its binary
+	 * value.
+	 */
+	private final NumberFormat quantityFormat;
+
+	/**
+	 * Formats whole amounts, such as daily totals.
+	 */
+	private final NumberFormat totalFormat;
+
+	/**
+	 * Formats times of day in the locale's short style.
+	 */
+	private final DateFormat timeFormat;
+
+	/**
+	 * Formats dates in the locale's full style, which is immutable and so needs no lock.
+	 */
+	private final DateTimeFormatter dateFormat;
+
+	/**
+	 * Reused by {@link DisplayFormats#formatTime(long)}, guarded by this object's lock.
+	 */
+	private final Date date = new Date();
+
+	/**
+	 * Reused to build strings, guarded by this object's lock.
+	 */
+	private final StringBuffer buffer = new StringBuffer();
+
+	/**
+	 * Reused for the field position that formatters require, guarded by this object's lock.
+	 */
+	private final FieldPosition fieldPosition = new FieldPosition(0);
+
+	/**
+	 * Constructor that creates the formatters for a locale.
+	 *
+	 * @param locale the locale to format for
+	 */
+	private DisplayFormats(@NonNull Locale locale) {
+		quantityFormat = NumberFormat.getNumberInstance(locale);
+		quantityFormat.setGroupingUsed(false);
+		quantityFormat.setMinimumFractionDigits(2);
+		quantityFormat.setMaximumFractionDigits(2);
+		quantityFormat.setRoundingMode(RoundingMode.HALF_UP);
+
+		totalFormat = NumberFormat.getIntegerInstance(locale);
+
+		timeFormat = DateFormat.getTimeInstance(DateFormat.SHORT, locale);
+		dateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.FULL).withLocale(locale);
+	}
+
+	/**
+	 * Get the formats for a locale, creating them the first time they are needed.
+	 *
+	 * @param locale the locale to format for
+	 *
+	 * @return the formats for the locale
+	 */
+	@NonNull
+	public static DisplayFormats get(@NonNull Locale locale) {
+		DisplayFormats formats = CACHE.get(locale);
+		if (formats == null) {
+			formats = new DisplayFormats(locale);
+			DisplayFormats existing = CACHE.putIfAbsent(locale, formats);
+			if (existing != null) {
+				formats = existing;
+			}
+		}
+		return formats;
+	}
+
+	/**
+	 * Get the formats for the default locale.
+	 *
+	 * @return the formats for {@link Locale#getDefault()}
+	 */
+	@NonNull
+	public static DisplayFormats getDefault() {
+		return get(Locale.getDefault());
+	}
+
+	/**
+	 * Format a quantity and its unit, such as <code>"2.50 cup"</code>.
+	 *
+	 * @param amount the amount
+	 * @param unit   the unit of the amount
+	 *
+	 * @return the formatted quantity
+	 */
+	@NonNull
+	public synchronized String formatQuantity(double amount, @NonNull String unit) {
+		buffer.setLength(0);
+		appendAmount(amount);
+		return buffer.append(' ').append(unit).toString();
+	}
+
+	/**
+	 * Format a quantity of something, such as <code>"2.50 cup Milk"</code>.
+	 *
+	 * @param amount the amount
+	 * @param unit   the unit of the amount
+	 * @param name   the name of what is measured
+	 *
+	 * @return the formatted quantity
+	 */
+	@NonNull
+	public synchronized String formatQuantity(double amount, @NonNull String unit, @NonNull String name) {
+		buffer.setLength(0);
+		appendAmount(amount);
+		return buffer.append(' ').append(unit).append(' ').append(name).toString();
+	}
+
+	/**
+	 * Append an amount with two decimal places to {@link DisplayFormats#buffer}.
+	 *
+	 * @param amount the amount, which may be infinite or NaN
+	 */
+	private void appendAmount(double amount) {
+		if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+			quantityFormat.format(amount, buffer, fieldPosition);
+		} else {
+			quantityFormat.format(BigDecimal.valueOf(amount), buffer, fieldPosition);
+		}
+	}
+
+	/**
+	 * Format the time of day of an instant in the default time zone.
+	 *
+	 * @param millis the instant, in milliseconds since the epoch
+	 *
+	 * @return the formatted time
+	 */
+	@NonNull
+	public synchronized String formatTime(long millis) {
+		buffer.setLength(0);
+		date.setTime(millis);
+		timeFormat.setTimeZone(TimeZone.getDefault());
+		return timeFormat.format(date, buffer, fieldPosition).toString();
+	}
+
+	/**
+	 * Format a day, such as <code>"Wednesday, January 1, 2020"</code>.
+	 *
+	 * @param day the day, as in {@link com.fitnesstracker.database.entities.FoodDiaryEntry#toLocalDay(long)}
+	 *
+	 * @return the formatted date
+	 */
+	@NonNull
+	public String formatDay(long day) {
+		return dateFormat.format(LocalDate.ofEpochDay(day));
+	}
+
+	/**
+	 * Format a total with its unit, such as <code>"1,850 kcal"</code>.
+	 *
+	 * @param total the total
+	 * @param unit  the unit of the total
+	 *
+	 * @return the formatted total
+	 */
+	@NonNull
+	public synchronized String formatTotal(long total, @NonNull String unit) {
+		buffer.setLength(0);
+		totalFormat.format(total, buffer, fieldPosition);
+		return buffer.append(' ').append(unit).toString();
+	}
+
+	/**
+	 * Format the protein, fat and carbohydrate totals of a day, such as <code>"P 95 g &middot; F 60 g &middot; C
+	 * 210 g"</code>.
+	 *
+	 * @param protein the protein total, in grams
+	 * @param fat     the fat total, in grams
+	 * @param carbs   the carbohydrate total, in grams
+	 *
+	 * @return the formatted totals
+	 */
+	@NonNull
+	public synchronized String formatMacros(long protein, long fat, long carbs) {
+		buffer.setLength(0);
+		buffer.append("P ");
+		totalFormat.format(protein, buffer, fieldPosition);
+		buffer.append(" g \u00B7 F ");
+		totalFormat.format(fat, buffer, fieldPosition);
+		buffer.append(" g \u00B7 C ");
+		totalFormat.format(carbs, buffer, fieldPosition);
+		return buffer.append(" g").toString();
+	}
+}
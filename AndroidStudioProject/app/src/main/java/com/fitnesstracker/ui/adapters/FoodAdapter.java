@@ -8,26 +8,72 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.fitnesstracker.R;
 import com.fitnesstracker.database.entities.Food;
 
 import java.util.List;
-import java.util.Locale;
 
 /**
  * A {@link RecyclerView.Adapter} for {@link Food} objects.
+ * <p>
+ * Data is given to this adapter as {@link FoodRow}s using {@link ListAdapter#submitList(List)}.
+ * The difference from the previous list is computed on a background thread, and only the rows that
+ * changed are rebound, each with a payload saying which of its views need updating. Rows are
+ * formatted before they are submitted and click listeners are created once per view holder, so
+ * binding a row allocates nothing.
  *
  * @author Mitchell Ford
  */
-public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
+public class FoodAdapter extends ListAdapter<FoodRow, FoodAdapter.ViewHolder> {
 
 	/**
-	 * The data being displayed in recycler views using this adapter.
+	 * Payload flag for a change to a food's name.
 	 */
-	@Nullable
-	private List<Food> data;
+	private static final int PAYLOAD_NAME = 1;
+
+	/**
+	 * Payload flag for a change to a food's serving size or serving unit.
+	 */
+	private static final int PAYLOAD_SERVING_INFO = 1 << 1;
+
+	/**
+	 * Payload flags for every view in a row.
+	 */
+	private static final int PAYLOAD_ALL = PAYLOAD_NAME | PAYLOAD_SERVING_INFO;
+
+	/**
+	 * Callback for determining which foods changed between two lists, and which of their views
+	 * need updating.
+	 */
+	private static final DiffUtil.ItemCallback<FoodRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<FoodRow>() {
+		@Override
+		public boolean areItemsTheSame(@NonNull FoodRow oldItem, @NonNull FoodRow newItem) {
+			return oldItem.getFood().getId() == newItem.getFood().getId();
+		}
+
+		@Override
+		public boolean areContentsTheSame(@NonNull FoodRow oldItem, @NonNull FoodRow newItem) {
+			return oldItem.getFood().equals(newItem.getFood())
+					&& oldItem.getServingInfo().equals(newItem.getServingInfo());
+		}
+
+		@NonNull
+		@Override
+		public Object getChangePayload(@NonNull FoodRow oldItem, @NonNull FoodRow newItem) {
+			int payload = 0;
+			if (!oldItem.getName().equals(newItem.getName())) {
+				payload |= PAYLOAD_NAME;
+			}
+			if (!oldItem.getServingInfo().equals(newItem.getServingInfo())) {
+				payload |= PAYLOAD_SERVING_INFO;
+			}
+			return payload;
+		}
+	};
 
 	/**
 	 * The listener for clicks and long-clicks on view holders in this adapter.
@@ -53,7 +99,9 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
 	 *                            this adapter
 	 */
 	public FoodAdapter(@Nullable OnItemClickListener<Food> onItemClickListener) {
+		super(DIFF_CALLBACK);
 		this.onItemClickListener = onItemClickListener;
+		setHasStableIds(true);
 	}
 
 	@NonNull
@@ -65,59 +113,65 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
 		// Inflate the view holder layout
 		View foodView = inflater.inflate(R.layout.food_view, parent, false);
 
-		return new ViewHolder(foodView);
+		return new ViewHolder(foodView, onItemClickListener);
 	}
 
 	@Override
 	public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+		bind(holder, getItem(position), PAYLOAD_ALL);
+	}
 
-		// Get the food item from data
-		assert data != null;
-		Food food = data.get(position);
+	@Override
+	public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
 
-		// Set up the name text view
-		TextView nameTextView = holder.nameTextView;
-		nameTextView.setText(food.getName());
+		// Without a payload the whole row is rebound
+		if (payloads.isEmpty()) {
+			onBindViewHolder(holder, position);
+			return;
+		}
 
-		// Set up the serving info text view
-		TextView servingInfoTextView = holder.servingInfoTextView;
-		servingInfoTextView.setText(String.format(Locale.getDefault(),
-				"%.2f %s",
-				food.getServingSize(),
-				food.getServingUnit())
-		);
-
-		// Bind the onItemClickListener if one was given in the constructor
-		if (onItemClickListener != null) {
-			holder.bindOnItemClickListener(food, onItemClickListener);
+		// Several changes to a row between layouts arrive as several payloads, which are indexed
+		// rather than iterated so that no iterator is allocated
+		int payload = 0;
+		for (int i = 0; i < payloads.size(); i++) {
+			payload |= (Integer) payloads.get(i);
 		}
+		bind(holder, getItem(position), payload);
 	}
 
 	/**
-	 * Get the total number of items in this adapter.
-	 * <p>
-	 * If {@link FoodAdapter#data} is <code>null</code>, the item count is considered
-	 * <code>0</code>.
+	 * Get the stable ID of the food at a position.
+	 *
+	 * @param position the position of the food
 	 *
-	 * @return the total number of items in this adapter
+	 * @return the food's ID
 	 */
 	@Override
-	public int getItemCount() {
-		return data == null ? 0 : data.size();
+	public long getItemId(int position) {
+		return getItem(position).getFood().getId();
 	}
 
 	/**
-	 * Set the data in this adapter.
-	 * <p>
-	 * This method notifies of data changes using {@link RecyclerView.Adapter#notifyDataSetChanged()}.
+	 * Bind some or all of a view holder's views to a row.
 	 *
-	 * @param data the new data to set
+	 * @param holder  the view holder to bind
+	 * @param row     the row to display
+	 * @param payload flags for the views to update
 	 */
-	public void setData(List<Food> data) {
-		this.data = data;
+	private static void bind(@NonNull ViewHolder holder, @NonNull FoodRow row, int payload) {
+
+		// Clicks are given the food of the row that was bound last
+		holder.row = row;
 
-		// This is a very inefficient way of handling data changes
-		notifyDataSetChanged();
+		// Set up the name text view
+		if ((payload & PAYLOAD_NAME) != 0) {
+			holder.nameTextView.setText(row.getName());
+		}
+
+		// Set up the serving info text view
+		if ((payload & PAYLOAD_SERVING_INFO) != 0) {
+			holder.servingInfoTextView.setText(row.getServingInfo());
+		}
 	}
 
 	/**
@@ -136,38 +190,44 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
 		public TextView servingInfoTextView;
 
 		/**
-		 * Constructor that initializes <code>nameTextView</code> and <code>servingInfoTextView</code>.
+		 * The row this view holder is bound to.
+		 */
+		@Nullable
+		FoodRow row;
+
+		/**
+		 * Constructor that initializes <code>nameTextView</code> and <code>servingInfoTextView</code>
+		 * and sets up the click listeners.
 		 *
-		 * @param itemView the view that
+		 * @param itemView            the view that displays a food
+		 * @param onItemClickListener the {@link OnItemClickListener} that should handle click
+		 *                            events for this view holder, or null if clicks are not handled
 		 */
-		public ViewHolder(@NonNull View itemView) {
+		public ViewHolder(@NonNull View itemView, @Nullable final OnItemClickListener<Food> onItemClickListener) {
 			super(itemView);
 
 			nameTextView = (TextView) itemView.findViewById(R.id.foodName);
 			servingInfoTextView = (TextView) itemView.findViewById(R.id.servingInfo);
-		}
 
-		/**
-		 * Bind this {@link DiaryEntryAdapter.ViewHolder} to an {@link OnItemClickListener} to
-		 * handle click events.
-		 *
-		 * @param food                the {@link Food} object held by this view holder
-		 * @param onItemClickListener the {@link OnItemClickListener} that should handle click
-		 *                            events for this view holder
-		 */
-		public void bindOnItemClickListener(final Food food, final OnItemClickListener<Food> onItemClickListener) {
+			if (onItemClickListener == null) {
+				return;
+			}
 
 			// Set the click listener for this item view
 			itemView.setOnClickListener(new View.OnClickListener() {
 				@Override public void onClick(View v) {
-					onItemClickListener.onItemClicked(food);
+					if (row != null) {
+						onItemClickListener.onItemClicked(row.getFood());
+					}
 				}
 			});
 
 			// Set the long-click listener for this item view
 			itemView.setOnLongClickListener(new View.OnLongClickListener() {
 				@Override public boolean onLongClick(View v) {
-					onItemClickListener.onItemLongClicked(food);
+					if (row != null) {
+						onItemClickListener.onItemLongClicked(row.getFood());
+					}
 					return true;
 				}
 			});
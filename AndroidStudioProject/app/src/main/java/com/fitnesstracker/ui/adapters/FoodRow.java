@@ -0,0 +1,88 @@
+package com.fitnesstracker.ui.adapters;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Food} together with the text displayed for it in a list row.
+ * <p>
+ * The text is formatted once, when the row is created, so that binding a row to a view only sets
+ * text that already exists. Rows should be created off the main thread.
+ *
+ * @author Mitchell Ford
+ * @see FoodAdapter
+ */
+public final class FoodRow {
+
+	/**
+	 * The food displayed in this row.
+	 */
+	private final Food food;
+
+	/**
+	 * The food's serving size and serving unit.
+	 */
+	private final String servingInfo;
+
+	/**
+	 * Constructor that formats the text for a food.
+	 *
+	 * @param food    the food to display
+	 * @param formats the formats to use
+	 */
+	public FoodRow(@NonNull Food food, @NonNull DisplayFormats formats) {
+		this.food = food;
+		this.servingInfo = formats.formatQuantity(food.getServingSize(), food.getServingUnit());
+	}
+
+	/**
+	 * Create the rows for a list of foods.
+	 *
+	 * @param foods   the foods to display
+	 * @param formats the formats to use
+	 *
+	 * @return a row for each food, in the same order
+	 */
+	@NonNull
+	public static List<FoodRow> fromFoods(@NonNull List<Food> foods, @NonNull DisplayFormats formats) {
+		List<FoodRow> rows = new ArrayList<>(foods.size());
+		for (Food food : foods) {
+			rows.add(new FoodRow(food, formats));
+		}
+		return rows;
+	}
+
+	/**
+	 * Get the food displayed in this row.
+	 *
+	 * @return the food
+	 */
+	@NonNull
+	public Food getFood() {
+		return food;
+	}
+
+	/**
+	 * Get the food's name.
+	 *
+	 * @return the name
+	 */
+	@NonNull
+	public String getName() {
+		return food.getName();
+	}
+
+	/**
+	 * Get the food's formatted serving size and serving unit.
+	 *
+	 * @return the serving info
+	 */
+	@NonNull
+	public String getServingInfo() {
+		return servingInfo;
+	}
+}
@@ -0,0 +1,75 @@
+package com.fitnesstracker.ui.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Observer;
+
+import com.fitnesstracker.database.entities.Food;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link LiveData} of the {@link FoodRow}s for a {@link LiveData} of foods.
+ * <p>
+ * The rows for each new list of foods are created on a background executor and posted when they
+ * are ready. If a newer list arrives while older rows are still being created, the older rows are
+ * never posted.
+ *
+ * @author Mitchell Ford
+ */
+public class FoodRowLiveData extends MediatorLiveData<List<FoodRow>> {
+
+	/**
+	 * The executor rows are created on.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Incremented for every new list of foods, so that rows for older lists can be recognized and
+	 * dropped. Guarded by this object's lock.
+	 */
+	private long generation;
+
+	/**
+	 * Constructor that specifies where foods come from and where rows are created.
+	 *
+	 * @param foods    the foods to create rows for
+	 * @param executor the executor rows are created on
+	 */
+	public FoodRowLiveData(@NonNull LiveData<List<Food>> foods, @NonNull Executor executor) {
+		this.executor = executor;
+		addSource(foods, new Observer<List<Food>>() {
+			@Override public void onChanged(List<Food> foods) {
+				onFoodsChanged(foods);
+			}
+		});
+	}
+
+	/**
+	 * Create rows for a new list of foods on {@link FoodRowLiveData#executor}.
+	 *
+	 * @param foods the new foods, or null for none
+	 */
+	private void onFoodsChanged(final List<Food> foods) {
+		final long thisGeneration;
+		synchronized (this) {
+			thisGeneration = ++generation;
+		}
+
+		executor.execute(new Runnable() {
+			@Override public void run() {
+				List<FoodRow> rows = foods == null
+						? Collections.<FoodRow>emptyList()
+						: FoodRow.fromFoods(foods, DisplayFormats.getDefault());
+				synchronized (FoodRowLiveData.this) {
+					if (thisGeneration == generation) {
+						postValue(rows);
+					}
+				}
+			}
+		});
+	}
+}
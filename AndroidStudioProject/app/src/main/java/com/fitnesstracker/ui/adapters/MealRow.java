@@ -0,0 +1,97 @@
+package com.fitnesstracker.ui.adapters;
+
+import androidx.annotation.NonNull;
+
+import com.fitnesstracker.database.Meal;
+
+/**
+ * A {@link Meal} together with the text displayed for it in a row of the diary.
+ * <p>
+ * The text is formatted once, when the row is created, so that binding a row to a view only sets
+ * text that already exists. Rows should be created off the main thread, such as by the data source
+ * that pages of the diary are loaded from.
+ *
+ * @author Mitchell Ford
+ * @see DiaryEntryAdapter
+ */
+public final class MealRow extends DiaryRow {
+
+	/**
+	 * The meal displayed in this row.
+	 */
+	private final Meal meal;
+
+	/**
+	 * The amount eaten, the food's serving unit and the food's name.
+	 */
+	private final String foodInfo;
+
+	/**
+	 * The time of day the meal was eaten.
+	 */
+	private final String time;
+
+	/**
+	 * Constructor that formats the text for a meal.
+	 *
+	 * @param meal    the meal to display
+	 * @param formats the formats to use
+	 */
+	public MealRow(@NonNull Meal meal, @NonNull DisplayFormats formats) {
+		this.meal = meal;
+		this.foodInfo = formats.formatQuantity(
+				meal.getFoodDiaryEntry().getNumServings()*meal.getFood().getServingSize(),
+				meal.getFood().getServingUnit(),
+				meal.getFood().getName());
+		this.time = formats.formatTime(meal.getFoodDiaryEntry().getTime());
+	}
+
+	/**
+	 * Get the meal displayed in this row.
+	 *
+	 * @return the meal
+	 */
+	@NonNull
+	public Meal getMeal() {
+		return meal;
+	}
+
+	/**
+	 * Get the ID of the meal's diary entry.
+	 *
+	 * @return the ID
+	 */
+	public long getId() {
+		return meal.getFoodDiaryEntry().getId();
+	}
+
+	@Override
+	public long getStableId() {
+		return getId();
+	}
+
+	@Override
+	public int getViewType() {
+		return TYPE_MEAL;
+	}
+
+	/**
+	 * Get the formatted amount eaten, food serving unit and food name.
+	 *
+	 * @return the food info
+	 */
+	@NonNull
+	public String getFoodInfo() {
+		return foodInfo;
+	}
+
+	/**
+	 * Get the formatted time of day the meal was eaten.
+	 *
+	 * @return the time
+	 */
+	@NonNull
+	public String getTime() {
+		return time;
+	}
+}
@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
+import androidx.paging.PagedList;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -24,11 +25,10 @@ import com.fitnesstracker.database.Meal;
 import com.fitnesstracker.database.entities.Food;
 import com.fitnesstracker.ui.activities.AddMealActivity;
 import com.fitnesstracker.ui.adapters.DiaryEntryAdapter;
+import com.fitnesstracker.ui.adapters.DiaryRow;
 import com.fitnesstracker.ui.adapters.OnItemClickListener;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.List;
-
 /**
  * A fragment where the user can view, edit, and delete {@link com.fitnesstracker.database.entities.FoodDiaryEntry}
  * objects in the database.
@@ -111,10 +111,10 @@ public class DiaryFragment extends Fragment {
 		final TextView noDataTextView = requireView().findViewById(R.id.diary_rv_empty_text);
 
 		// Observe database changes and update the recycler view and the no-data text view
-		viewModel.getMeals().observe(getViewLifecycleOwner(), new Observer<List<Meal>>() {
-			@Override public void onChanged(List<Meal> meals) {
-				adapter.setData(meals);
-				noDataTextView.setVisibility(meals == null || meals.isEmpty() ? View.VISIBLE : View.GONE);
+		viewModel.getDiaryRows().observe(getViewLifecycleOwner(), new Observer<PagedList<DiaryRow>>() {
+			@Override public void onChanged(PagedList<DiaryRow> rows) {
+				adapter.submitList(rows);
+				noDataTextView.setVisibility(rows == null || rows.isEmpty() ? View.VISIBLE : View.GONE);
 			}
 		});
 
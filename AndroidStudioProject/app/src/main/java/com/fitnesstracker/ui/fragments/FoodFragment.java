@@ -1,7 +1,10 @@
 package com.fitnesstracker.ui.fragments;
 
+import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -20,7 +23,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.fitnesstracker.R;
 import com.fitnesstracker.database.FTViewModel;
 import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.io.FoodImporter;
 import com.fitnesstracker.ui.adapters.FoodAdapter;
+import com.fitnesstracker.ui.adapters.FoodRow;
 import com.fitnesstracker.ui.adapters.OnItemClickListener;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -31,6 +36,17 @@ import java.util.List;
  */
 public class FoodFragment extends Fragment {
 
+	/**
+	 * Request code for choosing a file to import foods from.
+	 */
+	private static final int REQUEST_IMPORT_FOODS = 1;
+
+	/**
+	 * The types of files that foods can be imported from.
+	 */
+	private static final String[] IMPORT_MIME_TYPES = {"text/csv", "text/comma-separated-values",
+			"text/plain", "application/json", "application/x-ndjson"};
+
 	/**
 	 * The floating action button for adding new foods.
 	 */
@@ -110,9 +126,9 @@ public class FoodFragment extends Fragment {
 		final TextView noDataTextView = requireView().findViewById(R.id.food_rv_empty_text);
 
 		// Observe database changes and update the recycler view and the no-data text view
-		viewModel.getFoods().observe(getViewLifecycleOwner(), new Observer<List<Food>>() {
-			@Override public void onChanged(List<Food> foods) {
-				adapter.setData(foods);
+		viewModel.getFoodRows().observe(getViewLifecycleOwner(), new Observer<List<FoodRow>>() {
+			@Override public void onChanged(List<FoodRow> foods) {
+				adapter.submitList(foods);
 				noDataTextView.setVisibility(foods == null || foods.isEmpty() ? View.VISIBLE : View.GONE);
 			}
 		});
@@ -124,6 +140,23 @@ public class FoodFragment extends Fragment {
 				addFood();
 			}
 		});
+
+		// Long-clicking the button imports foods from a file instead
+		addFoodFAB.setOnLongClickListener(new View.OnLongClickListener() {
+			@Override public boolean onLongClick(View v) {
+				chooseImportFile();
+				return true;
+			}
+		});
+	}
+
+	@Override
+	public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+		super.onActivityResult(requestCode, resultCode, data);
+		if (requestCode == REQUEST_IMPORT_FOODS && resultCode == Activity.RESULT_OK
+				&& data != null && data.getData() != null) {
+			importFoods(data.getData());
+		}
 	}
 
 	/**
@@ -137,6 +170,44 @@ public class FoodFragment extends Fragment {
 		viewModel.insert(Food.makeRandom());
 	}
 
+	/**
+	 * Open a document picker where the user can choose a file to import foods from.
+	 */
+	private void chooseImportFile() {
+		Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+				.addCategory(Intent.CATEGORY_OPENABLE)
+				.setType("*/*")
+				.putExtra(Intent.EXTRA_MIME_TYPES, IMPORT_MIME_TYPES);
+		startActivityForResult(intent, REQUEST_IMPORT_FOODS);
+	}
+
+	/**
+	 * Import foods from a file, showing a message when the import stops.
+	 *
+	 * @param uri the URI of the file
+	 */
+	private void importFoods(Uri uri) {
+		Toast.makeText(requireContext(), R.string.import_foods_started, Toast.LENGTH_SHORT).show();
+		viewModel.importFoods(uri).observe(getViewLifecycleOwner(), new Observer<FoodImporter.Progress>() {
+			@Override public void onChanged(FoodImporter.Progress progress) {
+				String message;
+				switch (progress.getState()) {
+					case FINISHED:
+						message = getString(R.string.import_foods_finished,
+								progress.getImported(), progress.getRejected());
+						break;
+					case FAILED:
+						message = getString(R.string.import_foods_failed, progress.getImported(),
+								progress.getError().getMessage());
+						break;
+					default:
+						return;
+				}
+				Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+			}
+		});
+	}
+
 	/**
 	 * Open an activity where the user can edit this food.
 	 *
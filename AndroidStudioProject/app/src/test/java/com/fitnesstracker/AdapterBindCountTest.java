@@ -0,0 +1,347 @@
+package com.fitnesstracker;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagedList;
+import androidx.paging.PositionalDataSource;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.ui.adapters.DiaryEntryAdapter;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+import com.fitnesstracker.ui.adapters.DisplayFormats;
+import com.fitnesstracker.ui.adapters.FoodAdapter;
+import com.fitnesstracker.ui.adapters.FoodRow;
+import com.fitnesstracker.ui.adapters.MealRow;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Counts how many rows {@link FoodAdapter} and {@link DiaryEntryAdapter} rebind when a single row
+ * of a large list changes, to make sure that list updates are diffed rather than rebinding every
+ * visible row.
+ * <p>
+ * These tests run on the developer's computer using Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class AdapterBindCountTest {
+
+	/**
+	 * The number of rows in each list.
+	 */
+	private static final int NUM_ROWS = 10_000;
+
+	/**
+	 * The size of the recycler view, in pixels.
+	 */
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 1920;
+
+	/**
+	 * How long to wait for a list diff to be committed, in milliseconds.
+	 */
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	/**
+	 * Midnight on January 1st 2020 UTC.
+	 */
+	private static final long START_TIME = 1577836800000L;
+
+	private static final Executor MAIN_THREAD = new Handler(Looper.getMainLooper())::post;
+
+	private static final DisplayFormats FORMATS = DisplayFormats.get(Locale.US);
+
+	private Context context;
+	private List<Food> foods;
+
+	@Before
+	public void setup() {
+		context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.AppTheme);
+
+		foods = new ArrayList<>(NUM_ROWS);
+		for (int i = 0; i < NUM_ROWS; i++) {
+			Food food = new Food(String.format("food %05d", i), "g", 100d,
+					Food.NutritionInfo.makeRandom(i));
+			food.setId(i + 1);
+			foods.add(food);
+		}
+	}
+
+	@Test
+	public void foodAdapter_ChangeVisibleRow_OneBind() {
+		CountingFoodAdapter adapter = new CountingFoodAdapter();
+		RecyclerView recyclerView = makeRecyclerView(adapter);
+		submitFoods(adapter, foods);
+		layout(recyclerView);
+		assertTrue(adapter.fullBinds > 0);
+		adapter.resetCounts();
+
+		List<Food> changed = copyFoods(foods);
+		changed.get(3).setName("renamed");
+		submitFoods(adapter, changed);
+		layout(recyclerView);
+
+		assertEquals(0, adapter.fullBinds);
+		assertEquals(1, adapter.partialBinds);
+		FoodAdapter.ViewHolder holder =
+				(FoodAdapter.ViewHolder) recyclerView.findViewHolderForAdapterPosition(3);
+		assertNotNull(holder);
+		assertEquals("renamed", holder.nameTextView.getText().toString());
+	}
+
+	@Test
+	public void foodAdapter_ChangeOffscreenRow_NoBinds() {
+		CountingFoodAdapter adapter = new CountingFoodAdapter();
+		RecyclerView recyclerView = makeRecyclerView(adapter);
+		submitFoods(adapter, foods);
+		layout(recyclerView);
+		adapter.resetCounts();
+
+		List<Food> changed = copyFoods(foods);
+		changed.get(NUM_ROWS - 1000).setServingSize(250d);
+		submitFoods(adapter, changed);
+		layout(recyclerView);
+
+		assertEquals(0, adapter.fullBinds);
+		assertEquals(0, adapter.partialBinds);
+	}
+
+	@Test
+	public void foodAdapter_EqualList_NoBinds() {
+		CountingFoodAdapter adapter = new CountingFoodAdapter();
+		RecyclerView recyclerView = makeRecyclerView(adapter);
+		submitFoods(adapter, foods);
+		layout(recyclerView);
+		adapter.resetCounts();
+
+		// Room emits a new list of new objects on every invalidation, even if nothing changed
+		submitFoods(adapter, copyFoods(foods));
+		layout(recyclerView);
+
+		assertEquals(0, adapter.fullBinds);
+		assertEquals(0, adapter.partialBinds);
+	}
+
+	@Test
+	public void diaryAdapter_ChangeVisibleRow_OneBind() {
+		List<Meal> meals = new ArrayList<>(NUM_ROWS);
+		for (int i = 0; i < NUM_ROWS; i++) {
+			Food food = foods.get(i % 100);
+			meals.add(new Meal(new FoodDiaryEntry(i + 1, food.getId(), 1, START_TIME + i * 60_000L), food));
+		}
+
+		CountingDiaryEntryAdapter adapter = new CountingDiaryEntryAdapter();
+		RecyclerView recyclerView = makeRecyclerView(adapter);
+		submitMeals(adapter, meals);
+		layout(recyclerView);
+		assertTrue(adapter.fullBinds > 0);
+		adapter.resetCounts();
+
+		List<Meal> changed = new ArrayList<>(NUM_ROWS);
+		for (Meal meal : meals) {
+			FoodDiaryEntry entry = meal.getFoodDiaryEntry();
+			changed.add(new Meal(new FoodDiaryEntry(entry.getId(), entry.getFoodId(),
+					entry.getNumServings(), entry.getTime()), meal.getFood()));
+		}
+		changed.get(2).getFoodDiaryEntry().setNumServings(3);
+		submitMeals(adapter, changed);
+		layout(recyclerView);
+
+		assertEquals(0, adapter.fullBinds);
+		assertEquals(1, adapter.partialBinds);
+	}
+
+	/**
+	 * Make a recycler view for an adapter.
+	 *
+	 * @param adapter the adapter to display
+	 *
+	 * @return the recycler view, which has not been laid out
+	 */
+	private RecyclerView makeRecyclerView(RecyclerView.Adapter<?> adapter) {
+		RecyclerView recyclerView = new RecyclerView(context);
+		recyclerView.setLayoutManager(new LinearLayoutManager(context));
+		recyclerView.setAdapter(adapter);
+		return recyclerView;
+	}
+
+	/**
+	 * Lay out a recycler view, which binds rows for any adapter changes since its last layout, and
+	 * finish its animations.
+	 *
+	 * @param recyclerView the recycler view to lay out
+	 */
+	private static void layout(RecyclerView recyclerView) {
+		recyclerView.measure(
+				View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		recyclerView.layout(0, 0, WIDTH, HEIGHT);
+		RecyclerView.ItemAnimator animator = recyclerView.getItemAnimator();
+		if (animator != null) {
+			animator.endAnimations();
+		}
+	}
+
+	/**
+	 * Copy a list of foods, so that changes to the copies do not affect the originals.
+	 *
+	 * @param foods the foods to copy
+	 *
+	 * @return a new list of new foods
+	 */
+	private static List<Food> copyFoods(List<Food> foods) {
+		List<Food> copies = new ArrayList<>(foods.size());
+		for (Food food : foods) {
+			Food copy = new Food(food.getName(), food.getServingUnit(), food.getServingSize(),
+					food.getNutritionInfo());
+			copy.setId(food.getId());
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	/**
+	 * Submit the rows for a list of foods and wait for the adapter to commit them.
+	 */
+	private static void submitFoods(FoodAdapter adapter, List<Food> foods) {
+		AtomicBoolean committed = new AtomicBoolean();
+		adapter.submitList(FoodRow.fromFoods(foods, FORMATS), () -> committed.set(true));
+		awaitCommit(committed);
+	}
+
+	/**
+	 * Submit a fully loaded page of the rows for a list of meals and wait for the adapter to
+	 * commit it.
+	 */
+	private static void submitMeals(DiaryEntryAdapter adapter, List<Meal> meals) {
+		PagedList.Config config = new PagedList.Config.Builder()
+				.setPageSize(50)
+				.setInitialLoadSizeHint(NUM_ROWS)
+				.setEnablePlaceholders(false)
+				.build();
+		List<DiaryRow> rows = new ArrayList<>(meals.size());
+		for (Meal meal : meals) {
+			rows.add(new MealRow(meal, FORMATS));
+		}
+		PagedList<DiaryRow> pagedList = new PagedList.Builder<>(new ListDataSource<>(rows), config)
+				.setNotifyExecutor(MAIN_THREAD)
+				.setFetchExecutor(Runnable::run)
+				.build();
+
+		AtomicBoolean committed = new AtomicBoolean();
+		adapter.submitList(pagedList, () -> committed.set(true));
+		awaitCommit(committed);
+	}
+
+	/**
+	 * Run the main thread until a list has been committed, since diffs are computed on a
+	 * background thread and committed on the main thread.
+	 *
+	 * @param committed set once the list has been committed
+	 */
+	private static void awaitCommit(AtomicBoolean committed) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!committed.get()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("List was not committed");
+			}
+			shadowOf(Looper.getMainLooper()).idle();
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * A {@link FoodAdapter} that counts full and partial binds.
+	 */
+	private static class CountingFoodAdapter extends FoodAdapter {
+		int fullBinds;
+		int partialBinds;
+
+		@Override
+		public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+			if (payloads.isEmpty()) {
+				fullBinds++;
+			} else {
+				partialBinds++;
+			}
+			super.onBindViewHolder(holder, position, payloads);
+		}
+
+		void resetCounts() {
+			fullBinds = 0;
+			partialBinds = 0;
+		}
+	}
+
+	/**
+	 * A {@link DiaryEntryAdapter} that counts full and partial binds.
+	 */
+	private static class CountingDiaryEntryAdapter extends DiaryEntryAdapter {
+		int fullBinds;
+		int partialBinds;
+
+		@Override
+		public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+			if (payloads.isEmpty()) {
+				fullBinds++;
+			} else {
+				partialBinds++;
+			}
+			super.onBindViewHolder(holder, position, payloads);
+		}
+
+		void resetCounts() {
+			fullBinds = 0;
+			partialBinds = 0;
+		}
+	}
+
+	/**
+	 * A {@link PositionalDataSource} over a list of rows held in memory.
+	 */
+	static class ListDataSource<T> extends PositionalDataSource<T> {
+		private final List<T> rows;
+
+		ListDataSource(List<T> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public void loadInitial(@NonNull LoadInitialParams params, @NonNull LoadInitialCallback<T> callback) {
+			int position = computeInitialLoadPosition(params, rows.size());
+			int size = computeInitialLoadSize(params, position, rows.size());
+			callback.onResult(rows.subList(position, position + size), position, rows.size());
+		}
+
+		@Override
+		public void loadRange(@NonNull LoadRangeParams params, @NonNull LoadRangeCallback<T> callback) {
+			int end = Math.min(params.startPosition + params.loadSize, rows.size());
+			callback.onResult(rows.subList(params.startPosition, end));
+		}
+	}
+}
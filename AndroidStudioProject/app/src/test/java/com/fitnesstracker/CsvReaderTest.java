@@ -0,0 +1,122 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.io.CsvReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CsvReader}.
+ */
+public class CsvReaderTest {
+
+	private static final String CSV = "\uFEFFname,calories\r\n" +
+			"\"Milk, whole\",61\r\n" +
+			"\r\n" +
+			"\"Say \"\"cheese\"\"\nplease\",\n" +
+			"Cr\u00e8me br\u00fbl\u00e9e,300";
+
+	@Test
+	public void readRecord_QuotesAndLineBreaks() throws IOException {
+		CsvReader reader = reader(CSV);
+		List<String> values = new ArrayList<>();
+
+		assertTrue(reader.readRecord(values));
+		assertEquals(Arrays.asList("name", "calories"), values);
+		assertTrue(reader.readRecord(values));
+		assertEquals(Arrays.asList("Milk, whole", "61"), values);
+		assertTrue(reader.readRecord(values));
+		assertEquals(Arrays.asList("Say \"cheese\"\nplease", ""), values);
+		assertTrue(reader.readRecord(values));
+		assertEquals(Arrays.asList("Cr\u00e8me br\u00fbl\u00e9e", "300"), values);
+		assertFalse(reader.readRecord(values));
+		assertTrue(values.isEmpty());
+	}
+
+	@Test
+	public void skipTo_ResumesAtRecord() throws IOException {
+		List<Long> positions = new ArrayList<>();
+		List<List<String>> records = new ArrayList<>();
+		CsvReader reader = reader(CSV);
+		List<String> values = new ArrayList<>();
+		while (reader.readRecord(values)) {
+			positions.add(reader.getPosition());
+			records.add(new ArrayList<>(values));
+		}
+
+		// Resume after every record, including from streams that cannot skip
+		for (int i = 0; i < positions.size(); i++) {
+			for (boolean canSkip : new boolean[]{true, false}) {
+				InputStream in = new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+				CsvReader resumed = new CsvReader(canSkip ? in : new FilterInputStream(in) {
+					@Override public long skip(long n) {
+						return 0;
+					}
+				});
+				resumed.skipTo(positions.get(i));
+				for (int j = i + 1; j < records.size(); j++) {
+					assertTrue(resumed.readRecord(values));
+					assertEquals(records.get(j), values);
+				}
+				assertFalse(resumed.readRecord(values));
+			}
+		}
+	}
+
+	@Test
+	public void readRecord_LargeFile_PositionsMatchBytes() throws IOException {
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			csv.append(i).append(",\"caf\u00e9 ").append(i).append("\"\n");
+		}
+		byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+		CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes));
+		List<String> values = new ArrayList<>();
+		int count = 0;
+		while (reader.readRecord(values)) {
+			assertEquals(String.valueOf(count), values.get(0));
+			assertEquals("caf\u00e9 " + count, values.get(1));
+			count++;
+		}
+		assertEquals(20_000, count);
+		assertEquals(bytes.length, reader.getPosition());
+	}
+
+	@Test
+	public void readLine_SkipsEmptyLines() throws IOException {
+		CsvReader reader = reader("\uFEFF{\"name\":\"a\"}\r\n\n{\"name\":\"b\"}");
+		assertEquals("{\"name\":\"a\"}", reader.readLine());
+		assertEquals("{\"name\":\"b\"}", reader.readLine());
+		assertNull(reader.readLine());
+	}
+
+	@Test(expected = EOFException.class)
+	public void readRecord_UnclosedQuote_Throws() throws IOException {
+		CsvReader reader = reader("name\n\"never closed");
+		reader.readRecord(new ArrayList<String>());
+		reader.readRecord(new ArrayList<String>());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void skipTo_Backwards_Throws() throws IOException {
+		CsvReader reader = reader(CSV);
+		reader.readRecord(new ArrayList<String>());
+		reader.skipTo(0);
+	}
+
+	private static CsvReader reader(String csv) {
+		return new CsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+	}
+}
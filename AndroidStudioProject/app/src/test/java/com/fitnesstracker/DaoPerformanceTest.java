@@ -0,0 +1,306 @@
+package com.fitnesstracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.FTDatabase;
+import com.fitnesstracker.database.daos.FoodDao;
+import com.fitnesstracker.database.daos.FoodDiaryEntryDao;
+import com.fitnesstracker.database.daos.NutritionGoalDao;
+import com.fitnesstracker.database.daos.NutritionRollupDao;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.database.entities.NutritionGoal;
+import com.fitnesstracker.database.instrumentation.InstrumentedOpenHelperFactory;
+import com.fitnesstracker.database.instrumentation.LatencyHistogram;
+import com.fitnesstracker.database.instrumentation.QueryMetrics;
+import com.fitnesstracker.database.instrumentation.StatementStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times every DAO query against a large, deterministic dataset and fails if any query that should
+ * use an index plans a full scan of a table or index, or a sort of its results.
+ * <p>
+ * The dataset is 100,000 foods and 1,000,000 diary entries scaled by the <code>daoPerfScale</code>
+ * system property, which defaults to 0.01 so that the suite is quick enough to run with every
+ * build. Pass <code>-PdaoPerfScale=1</code> to Gradle to run it at production size. Query plans do
+ * not depend on the scale, so full scans and sorts are caught either way.
+ * <p>
+ * These tests run on the developer's computer using Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DaoPerformanceTest {
+
+	/**
+	 * The number of foods at production size.
+	 */
+	private static final int FULL_NUM_FOODS = 100_000;
+
+	/**
+	 * The number of diary entries at production size.
+	 */
+	private static final int FULL_NUM_ENTRIES = 1_000_000;
+
+	/**
+	 * The number of rows inserted per transaction while seeding.
+	 */
+	private static final int BATCH_SIZE = 10_000;
+
+	/**
+	 * The number of times each query that reads a bounded number of rows is run.
+	 */
+	private static final int REPETITIONS = 20;
+
+	/**
+	 * Midnight on January 1st 2018 UTC, the start of the diary history.
+	 */
+	private static final long HISTORY_START = 1514764800000L;
+
+	/**
+	 * The length of the diary history, about three years.
+	 */
+	private static final long HISTORY_LENGTH = 3 * 365 * 24 * 60 * 60 * 1000L;
+
+	/**
+	 * The queries that scan a whole table or index or sort their results by design, mapped to a
+	 * fragment of their SQL so that other queries of the same DAO method are still checked.
+	 */
+	private static final Map<String, String> FULL_SCANS_BY_DESIGN = new HashMap<>();
+
+	static {
+		FULL_SCANS_BY_DESIGN.put("FoodDao.getAll", "");
+		FULL_SCANS_BY_DESIGN.put("FoodDao.getCount", "");
+		FULL_SCANS_BY_DESIGN.put("FoodDiaryEntryDao.getAll", "");
+		FULL_SCANS_BY_DESIGN.put("FoodDiaryEntryDao.getAllMeals", "");
+		// Matching a substring of a food's name cannot use an index; search() should be used
+		FULL_SCANS_BY_DESIGN.put("FoodDao.get", " LIKE ");
+		// There is at most one goal per nutrient
+		FULL_SCANS_BY_DESIGN.put("NutritionGoalDao.getAll", "");
+		// Walks the (time, id) index from the newest meal and stops at the limit
+		FULL_SCANS_BY_DESIGN.put("FoodDiaryEntryDao.getNewestMeals", " LIMIT ");
+		// Sort the meals of the days they select, which are found with the day index
+		FULL_SCANS_BY_DESIGN.put("FoodDiaryEntryDao.getMealsOnDay", "d.day = ?");
+		FULL_SCANS_BY_DESIGN.put("FoodDiaryEntryDao.getMealsBetween", "d.day BETWEEN");
+		// Ranks the matches of the full-text index
+		FULL_SCANS_BY_DESIGN.put("FoodDao.search", " MATCH ");
+	}
+
+	/**
+	 * Matches a step of a query plan that reads every row of a table, with or without the word
+	 * <code>TABLE</code>, which newer versions of SQLite omit. This includes walks of a whole index
+	 * (<code>SCAN d USING INDEX ...</code>) but not searches of one.
+	 */
+	private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?(\\S+)");
+
+	/**
+	 * Matches a step of a query plan that sorts rows, which reads every row the query selects
+	 * however small its limit.
+	 */
+	private static final Pattern TEMP_SORT = Pattern.compile("^USE TEMP B-TREE FOR ");
+
+	private FTDatabase db;
+	private QueryMetrics metrics;
+	private FoodDao foodDao;
+	private FoodDiaryEntryDao mealDao;
+	private NutritionGoalDao goalDao;
+	private NutritionRollupDao rollupDao;
+
+	private List<Food> foods;
+	private List<FoodDiaryEntry> entries;
+
+	@Before
+	public void createDB() {
+		Context context = ApplicationProvider.getApplicationContext();
+		metrics = new QueryMetrics();
+		db = Room.inMemoryDatabaseBuilder(context, FTDatabase.class)
+				.openHelperFactory(new InstrumentedOpenHelperFactory(
+						new FrameworkSQLiteOpenHelperFactory(), metrics))
+				.addCallback(FTDatabase.CALLBACK)
+				.allowMainThreadQueries()
+				.build();
+		foodDao = db.getFoodDao();
+		mealDao = db.getFoodDiaryEntryDao();
+		goalDao = db.getNutritionGoalDao();
+		rollupDao = db.getNutritionRollupDao();
+	}
+
+	@After
+	public void closeDB() {
+		db.close();
+	}
+
+	@Test
+	public void daoQueries_Timed_NoFullScans() {
+		double scale = Double.parseDouble(System.getProperty("daoPerfScale", "0.01"));
+		seed((int) (FULL_NUM_FOODS * scale), (int) (FULL_NUM_ENTRIES * scale));
+
+		metrics.reset();
+		runEveryQuery();
+		List<StatementStats> snapshot = metrics.getSnapshot();
+
+		System.out.printf("DAO queries over %d foods and %d diary entries%n",
+				foods.size(), entries.size());
+		System.out.printf("%-36s %6s %9s %9s %9s %9s%n",
+				"tag", "count", "mean ms", "p95 ms", "max ms", "rows");
+
+		List<String> fullScans = new ArrayList<>();
+		for (StatementStats stats : snapshot) {
+			if (stats.getKind() != StatementStats.Kind.QUERY || !stats.getTag().contains("Dao.")) {
+				continue;
+			}
+
+			LatencyHistogram latencies = stats.getLatencies();
+			System.out.printf("%-36s %6d %9.3f %9.3f %9.3f %9d%n", stats.getTag(),
+					latencies.getCount(), latencies.getMeanMillis(),
+					latencies.getPercentileMillis(95), latencies.getMaxMillis(), stats.getRows());
+
+			for (String step : explain(stats.getSql())) {
+				System.out.println("    " + step);
+				Matcher matcher = FULL_SCAN.matcher(step);
+				boolean scan = matcher.find() && !step.contains("VIRTUAL TABLE")
+						&& !step.contains("CONSTANT ROW");
+				boolean sort = TEMP_SORT.matcher(step).find();
+				if ((scan || sort) && !isFullScanByDesign(stats)) {
+					fullScans.add(stats.getTag() + ": " + step + "\n    " + stats.getSql());
+				}
+			}
+		}
+
+		assertTrue("Queries plan full scans or sorts:\n" + String.join("\n", fullScans),
+				fullScans.isEmpty());
+	}
+
+	/**
+	 * Insert foods made by {@link Food#makeRandom(long)} and diary entries made by {@link
+	 * FoodDiaryEntry#makeRandom(long, List)}, with seeds that depend only on each row's index.
+	 * <p>
+	 * The random times of the diary entries are folded into a three year history so that each day
+	 * has a realistic number of entries.
+	 *
+	 * @param numFoods   the number of foods
+	 * @param numEntries the number of diary entries
+	 */
+	private void seed(int numFoods, int numEntries) {
+		foods = new ArrayList<>(numFoods);
+		for (int i = 0; i < numFoods; i++) {
+			foods.add(Food.makeRandom(i));
+		}
+		for (int i = 0; i < numFoods; i += BATCH_SIZE) {
+			foodDao.insert(foods.subList(i, Math.min(numFoods, i + BATCH_SIZE)));
+		}
+
+		entries = new ArrayList<>(numEntries);
+		for (int i = 0; i < numEntries; i++) {
+			FoodDiaryEntry entry = FoodDiaryEntry.makeRandom(i, foods);
+			entry.setTime(HISTORY_START + Math.floorMod(entry.getTime(), HISTORY_LENGTH));
+			entries.add(entry);
+		}
+		for (int i = 0; i < numEntries; i += BATCH_SIZE) {
+			mealDao.insert(entries.subList(i, Math.min(numEntries, i + BATCH_SIZE)));
+		}
+
+		for (int nutrient = 0; nutrient < 4; nutrient++) {
+			goalDao.insert(new NutritionGoal(nutrient, 100));
+		}
+	}
+
+	/**
+	 * Run every DAO query. Queries that return every row of a table are run once; the others are
+	 * run {@link DaoPerformanceTest#REPETITIONS} times with different arguments.
+	 */
+	private void runEveryQuery() {
+		foodDao.getAll();
+		foodDao.getCount();
+		mealDao.getAll();
+		mealDao.getAllMeals();
+		goalDao.getAll();
+
+		for (int i = 0; i < REPETITIONS; i++) {
+			Food food = foods.get(i * 7919 % foods.size());
+			FoodDiaryEntry entry = entries.get(i * 104729 % entries.size());
+			long day = entry.getDay();
+
+			foodDao.get(food.getId());
+			List<Long> ids = new ArrayList<>();
+			for (int j = 0; j < 50; j++) {
+				ids.add(foods.get((i * 50 + j) % foods.size()).getId());
+			}
+			foodDao.get(ids);
+			foodDao.get(food.getName().substring(0, 3));
+			foodDao.search(food.getName().substring(0, 3), 100);
+
+			mealDao.get(entry.getId());
+			mealDao.getMeal(entry.getId());
+			mealDao.getMealsOnDay(day);
+			mealDao.getMealsBetween(day - 6, day);
+			mealDao.getNewestMeals(50);
+			mealDao.getMealsFrom(entry.getTime(), entry.getId(), 50);
+			mealDao.getOlderMeals(entry.getTime(), entry.getId(), 50);
+			mealDao.getNewerMeals(entry.getTime(), entry.getId(), 50);
+			mealDao.getMealCursorAfter(day - 6, day, entry.getTime(), entry.getId(), 50).close();
+			mealDao.getMealCursorAfter(Long.MIN_VALUE, Long.MAX_VALUE, entry.getTime(),
+					entry.getId(), 50).close();
+
+			goalDao.get(i % 4);
+
+			rollupDao.get(day);
+			rollupDao.getRange(day - 6, day);
+			rollupDao.getTotal(day - 6, day);
+		}
+	}
+
+	/**
+	 * Get the query plan of a statement.
+	 *
+	 * @param sql the SQL of the statement, whose parameters are left unbound
+	 *
+	 * @return the detail of each step of the plan
+	 */
+	private List<String> explain(String sql) {
+		SupportSQLiteDatabase database = db.getOpenHelper().getWritableDatabase();
+		List<String> steps = new ArrayList<>();
+		Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql);
+		try {
+			int detail = cursor.getColumnIndexOrThrow("detail");
+			while (cursor.moveToNext()) {
+				steps.add(cursor.getString(detail));
+			}
+		} finally {
+			cursor.close();
+		}
+		return steps;
+	}
+
+	/**
+	 * Get whether a query is expected to scan a whole table or index or to sort its results.
+	 *
+	 * @param stats the statistics of the query
+	 *
+	 * @return true if the query is listed in {@link DaoPerformanceTest#FULL_SCANS_BY_DESIGN}
+	 */
+	private static boolean isFullScanByDesign(StatementStats stats) {
+		String fragment = FULL_SCANS_BY_DESIGN.get(stats.getTag());
+		return fragment != null && stats.getSql().contains(fragment);
+	}
+}
@@ -0,0 +1,69 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.DatabaseScheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the ordering guarantees and statistics of {@link DatabaseScheduler}.
+ */
+public class DatabaseSchedulerTest {
+
+	private static final int NUM_TASKS = 1000;
+
+	@Test
+	public void scheduler_WriteLane_InOrder() throws InterruptedException {
+		DatabaseScheduler scheduler = new DatabaseScheduler(4);
+		List<Integer> order = runAll(scheduler.getWriteExecutor());
+
+		for (int i = 0; i < NUM_TASKS; i++) {
+			assertEquals(i, (int) order.get(i));
+		}
+		assertEquals(NUM_TASKS, scheduler.getWriteStats().getStarted());
+	}
+
+	@Test
+	public void scheduler_ReadLane_RunsEveryTask() throws InterruptedException {
+		DatabaseScheduler scheduler = new DatabaseScheduler(4);
+		List<Integer> order = runAll(scheduler.getReadExecutor());
+
+		// Reads may run concurrently, so only check that each ran once
+		List<Integer> sorted = new ArrayList<>(order);
+		Collections.sort(sorted);
+		for (int i = 0; i < NUM_TASKS; i++) {
+			assertEquals(i, (int) sorted.get(i));
+		}
+		assertEquals(NUM_TASKS, scheduler.getReadStats().getStarted());
+		assertEquals(0, scheduler.getWriteStats().getStarted());
+	}
+
+	/**
+	 * Submit {@link DatabaseSchedulerTest#NUM_TASKS} tasks to an executor and wait for them.
+	 *
+	 * @param executor the executor to submit the tasks to
+	 *
+	 * @return the indices of the tasks in the order they ran
+	 */
+	private static List<Integer> runAll(Executor executor) throws InterruptedException {
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch done = new CountDownLatch(NUM_TASKS);
+		for (int i = 0; i < NUM_TASKS; i++) {
+			final int task = i;
+			executor.execute(() -> {
+				order.add(task);
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		return order;
+	}
+}
@@ -0,0 +1,101 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.FoodCache;
+import com.fitnesstracker.database.entities.Food;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the eviction, invalidation, and counters of {@link FoodCache}.
+ */
+public class FoodCacheTest {
+
+	@Test
+	public void cache_HitsAndMisses() {
+		FoodCache cache = new FoodCache(4);
+		Food apple = new Food("apple", "g", 100d);
+
+		assertNull(cache.get(apple.getId()));
+		assertTrue(cache.put(apple, cache.getGeneration()));
+		assertSame(apple, cache.get(apple.getId()));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void cache_EvictsLeastRecentlyUsed() {
+		FoodCache cache = new FoodCache(3);
+		Food[] foods = new Food[4];
+		for (int i = 0; i < foods.length; i++) {
+			foods[i] = new Food("food " + i, "g", 100d);
+		}
+		long generation = cache.getGeneration();
+		cache.put(foods[0], generation);
+		cache.put(foods[1], generation);
+		cache.put(foods[2], generation);
+
+		// Using the oldest food makes the second one the least recently used
+		assertSame(foods[0], cache.get(foods[0].getId()));
+		cache.put(foods[3], generation);
+
+		assertNull(cache.get(foods[1].getId()));
+		assertSame(foods[0], cache.get(foods[0].getId()));
+		assertSame(foods[2], cache.get(foods[2].getId()));
+		assertSame(foods[3], cache.get(foods[3].getId()));
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void cache_Invalidate_DropsFoodsReadBefore() {
+		FoodCache cache = new FoodCache(4);
+		Food apple = new Food("apple", "g", 100d);
+		long before = cache.getGeneration();
+		cache.put(apple, before);
+
+		cache.invalidate();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getInvalidations());
+
+		// A food read before the invalidation may be out of date, so it is not cached
+		assertFalse(cache.put(apple, before));
+		assertNull(cache.get(apple.getId()));
+		assertTrue(cache.put(apple, cache.getGeneration()));
+		assertSame(apple, cache.get(apple.getId()));
+	}
+
+	@Test
+	public void cache_Replace_CountsStale() {
+		FoodCache cache = new FoodCache(4);
+		Food apple = new Food("apple", "g", 100d);
+		Food renamed = new Food("green apple", "g", 100d);
+		renamed.setId(apple.getId());
+
+		cache.put(apple, cache.getGeneration());
+		cache.put(renamed, cache.getGeneration());
+
+		assertSame(renamed, cache.get(apple.getId()));
+		assertEquals(1, cache.getStale());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void food_HashCode_MatchesEquals() {
+		Food apple = Food.makeRandom(1);
+		Food copy = new Food(apple.getName(), apple.getServingUnit(), apple.getServingSize(),
+				new Food.NutritionInfo(apple.getNutritionInfo()));
+		copy.setId(apple.getId());
+
+		assertEquals(apple, copy);
+		assertEquals(apple.hashCode(), copy.hashCode());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void cache_ZeroCapacity_Throws() {
+		new FoodCache(0);
+	}
+}
@@ -0,0 +1,53 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.FoodSearchQuery;
+import com.fitnesstracker.database.entities.Food;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the in-memory evaluation of food searches in {@link FoodSearchQuery}.
+ */
+public class FoodSearchQueryTest {
+
+	private static final Food APPLE = new Food("Apple", "grams", 100d);
+	private static final Food GRANNY_SMITH = new Food("Granny Smith Apple", "grams", 100d);
+	private static final Food PIE = new Food("Apple Pie", "slices", 1d);
+	private static final Food PINEAPPLE = new Food("Pineapple", "grams", 100d);
+
+	private static final List<Food> FOODS = Arrays.asList(PINEAPPLE, GRANNY_SMITH, PIE, APPLE);
+
+	@Test
+	public void query_Matches() {
+		FoodSearchQuery query = new FoodSearchQuery("gran, APP");
+		assertTrue(query.matches(GRANNY_SMITH));
+		assertFalse(query.matches(APPLE));
+		assertFalse(query.matches(PINEAPPLE));
+
+		assertTrue(new FoodSearchQuery("  ").matches(PINEAPPLE));
+		assertTrue(new FoodSearchQuery(null).isEmpty());
+	}
+
+	@Test
+	public void query_Filter_Ranked() {
+		assertEquals(Arrays.asList(APPLE, PIE, GRANNY_SMITH), new FoodSearchQuery("app").filter(FOODS));
+		assertEquals(FOODS, new FoodSearchQuery("").filter(FOODS));
+	}
+
+	@Test
+	public void query_Narrows() {
+		FoodSearchQuery ap = new FoodSearchQuery("ap");
+
+		assertTrue(new FoodSearchQuery("app").narrows(ap));
+		assertTrue(new FoodSearchQuery("apple pi").narrows(ap));
+		assertTrue(ap.narrows(new FoodSearchQuery("")));
+		assertFalse(new FoodSearchQuery("a").narrows(ap));
+		assertFalse(new FoodSearchQuery("pie ap").narrows(ap));
+		assertFalse(new FoodSearchQuery("").narrows(ap));
+	}
+}
@@ -0,0 +1,109 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.GoalEvaluator;
+import com.fitnesstracker.database.GoalProgress;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.entities.NutritionGoal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the incremental re-evaluation of goals by {@link GoalEvaluator}.
+ */
+public class GoalEvaluatorTest {
+
+	private static final long DAY = 18550;
+
+	private GoalEvaluator evaluator;
+	private NutrientVector intake;
+
+	@Before
+	public void setup() {
+		evaluator = new GoalEvaluator();
+		intake = new NutrientVector();
+		intake.set(Nutrient.CALORIES, 1500);
+		intake.set(Nutrient.PROTEIN, 60);
+	}
+
+	@Test
+	public void evaluator_NothingUntilGoalsAndIntake() {
+		assertNull(evaluator.setIntake(DAY, intake));
+
+		List<GoalProgress> progress = evaluator.setGoals(Arrays.asList(
+				new NutritionGoal(Nutrient.CALORIES, 2000), new NutritionGoal(Nutrient.PROTEIN, 50)));
+
+		assertNotNull(progress);
+		assertEquals(2, progress.size());
+		assertEquals(new GoalProgress(Nutrient.CALORIES, 2000, 1500), progress.get(0));
+		assertEquals(500, progress.get(0).getRemaining());
+		assertFalse(progress.get(0).isMet());
+		assertEquals(new GoalProgress(Nutrient.PROTEIN, 50, 60), progress.get(1));
+		assertTrue(progress.get(1).isMet());
+	}
+
+	@Test
+	public void evaluator_OnlyChangedNutrientsReevaluated() {
+		evaluator.setGoals(Arrays.asList(
+				new NutritionGoal(Nutrient.CALORIES, 2000), new NutritionGoal(Nutrient.PROTEIN, 50)));
+		List<GoalProgress> before = evaluator.setIntake(DAY, intake);
+		assertEquals(2, evaluator.getEvaluations());
+
+		// Sodium has no goal and calories did not change, so only protein is re-evaluated
+		intake.set(Nutrient.SODIUM, 900);
+		intake.set(Nutrient.PROTEIN, 80);
+		List<GoalProgress> after = evaluator.setIntake(DAY, intake);
+
+		assertEquals(3, evaluator.getEvaluations());
+		assertSame(before.get(0), after.get(0));
+		assertEquals(80, after.get(1).getIntake());
+	}
+
+	@Test
+	public void evaluator_UnchangedIntake_NoProgress() {
+		evaluator.setGoals(Collections.singletonList(new NutritionGoal(Nutrient.CALORIES, 2000)));
+		evaluator.setIntake(DAY, intake);
+
+		intake.set(Nutrient.IRON, 5);
+		assertNull(evaluator.setIntake(DAY, intake));
+		assertNull(evaluator.setIntake(DAY, intake));
+		assertEquals(1, evaluator.getEvaluations());
+	}
+
+	@Test
+	public void evaluator_GoalChanges() {
+		evaluator.setIntake(DAY, intake);
+		evaluator.setGoals(Collections.singletonList(new NutritionGoal(Nutrient.CALORIES, 2000)));
+
+		List<GoalProgress> progress = evaluator.setGoals(Arrays.asList(
+				new NutritionGoal(Nutrient.CALORIES, 1800), new NutritionGoal(Nutrient.PROTEIN, 50)));
+		assertEquals(2, progress.size());
+		assertEquals(1800, progress.get(0).getGoal());
+
+		// Removing a goal removes its progress
+		progress = evaluator.setGoals(Collections.singletonList(
+				new NutritionGoal(Nutrient.PROTEIN, 50)));
+		assertEquals(1, progress.size());
+		assertEquals(Nutrient.PROTEIN, progress.get(0).getNutrient());
+	}
+
+	@Test
+	public void evaluator_NewDay_ReevaluatesEverything() {
+		evaluator.setGoals(Arrays.asList(
+				new NutritionGoal(Nutrient.CALORIES, 2000), new NutritionGoal(Nutrient.PROTEIN, 50)));
+		evaluator.setIntake(DAY, intake);
+
+		List<GoalProgress> progress = evaluator.setIntake(DAY + 1, intake);
+
+		assertNotNull(progress);
+		assertEquals(DAY + 1, evaluator.getDay());
+		assertEquals(4, evaluator.getEvaluations());
+	}
+}
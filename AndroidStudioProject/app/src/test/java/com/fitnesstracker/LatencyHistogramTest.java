@@ -0,0 +1,58 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.instrumentation.LatencyHistogram;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bucketing and percentiles of {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void histogram_Empty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMeanMillis(), 0);
+		assertEquals(0, histogram.getPercentileMillis(99), 0);
+	}
+
+	@Test
+	public void histogram_Percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// 90 fast statements of 100 microseconds and 10 slow statements of 50 milliseconds
+		for (int i = 0; i < 90; i++) {
+			histogram.record(100_000);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(50_000_000);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.getMaxMillis(), 1e-9);
+		assertEquals(5.09, histogram.getMeanMillis(), 1e-9);
+
+		// Percentiles are the upper bound of their bucket, so within a factor of two
+		double p50 = histogram.getPercentileMillis(50);
+		assertTrue(p50 >= 0.1 && p50 <= 0.2);
+		double p95 = histogram.getPercentileMillis(95);
+		assertEquals(50, p95, 1e-9);
+	}
+
+	@Test
+	public void histogram_Buckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(500);
+		histogram.record(1_500);
+		histogram.record(Long.MAX_VALUE);
+
+		long[] buckets = histogram.getBuckets();
+		assertEquals(1, buckets[0]);
+		assertEquals(1, buckets[1]);
+		assertEquals(1, buckets[LatencyHistogram.NUM_BUCKETS - 1]);
+	}
+}
@@ -0,0 +1,113 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NutrientVector} and the arithmetic of {@link Food.NutritionInfo}.
+ */
+public class NutrientVectorTest {
+
+	@Test
+	public void vector_Add_MatchesNutritionInfo() {
+		Food.NutritionInfo a = Food.NutritionInfo.makeRandom(1);
+		Food.NutritionInfo b = Food.NutritionInfo.makeRandom(2);
+
+		NutrientVector vector = new NutrientVector().add(a).add(b);
+
+		assertEquals(a.plus(b), vector.toNutritionInfo());
+		for (Nutrient nutrient : Nutrient.values()) {
+			assertEquals(nutrient.get(a) + nutrient.get(b), vector.get(nutrient));
+		}
+	}
+
+	@Test
+	public void vector_AddScaled_RoundsEachTerm() {
+		Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+		nutritionInfo.calories = 3;
+		nutritionInfo.sodium = 5;
+
+		// 3 * 0.5 and 5 * 0.5 round up, so two half servings are more than one whole one
+		NutrientVector vector = new NutrientVector()
+				.addScaled(nutritionInfo, 0.5)
+				.addScaled(nutritionInfo, 0.5);
+
+		assertEquals(4, vector.get(Nutrient.CALORIES));
+		assertEquals(6, vector.get(Nutrient.SODIUM));
+		assertEquals(nutritionInfo.times(0.5).plus(nutritionInfo.times(0.5)),
+				vector.toNutritionInfo());
+	}
+
+	@Test
+	public void vector_AddMeals() {
+		Food food = new Food("Bread", "slices", 1d, Food.NutritionInfo.makeRandom(3));
+		Meal meal = new Meal(new FoodDiaryEntry(food.getId(), 1.5, 0), food);
+
+		NutrientVector vector = new NutrientVector().addAll(Arrays.asList(meal, meal));
+
+		Food.NutritionInfo expected = food.getNutritionInfo().times(1.5);
+		expected.mul(2);
+		assertEquals(expected, vector.toNutritionInfo());
+	}
+
+	@Test
+	public void vector_ClearAndSubtract() {
+		NutrientVector a = new NutrientVector(Food.NutritionInfo.makeRandom(4));
+		NutrientVector copy = new NutrientVector(a);
+
+		assertEquals(a, copy);
+		assertEquals(new NutrientVector(), copy.subtract(a));
+		assertEquals(new NutrientVector(), a.clear());
+	}
+
+	@Test
+	public void vector_NoOverflow() {
+		Food.NutritionInfo nutritionInfo = new Food.NutritionInfo();
+		nutritionInfo.sodium = Integer.MAX_VALUE;
+
+		NutrientVector vector = new NutrientVector().add(nutritionInfo).add(nutritionInfo);
+
+		assertEquals(2L * Integer.MAX_VALUE, vector.get(Nutrient.SODIUM));
+		try {
+			vector.toNutritionInfo();
+			fail("Expected an ArithmeticException");
+		} catch (ArithmeticException expected) {
+			// The total does not fit in NutritionInfo
+		}
+	}
+
+	@Test
+	public void nutritionInfo_Plus_IncludesThis() {
+		Food.NutritionInfo a = Food.NutritionInfo.makeRandom(5);
+		Food.NutritionInfo b = Food.NutritionInfo.makeRandom(6);
+
+		assertEquals(Food.NutritionInfo.sum(a, b), a.plus(b));
+	}
+
+	@Test
+	public void nutrient_FromIndex() {
+		for (Nutrient nutrient : Nutrient.values()) {
+			assertSame(nutrient, Nutrient.fromIndex(nutrient.ordinal()));
+		}
+		assertEquals(16, Nutrient.COUNT);
+	}
+
+	@Test
+	public void nutrient_Set_MatchesGet() {
+		Food.NutritionInfo source = Food.NutritionInfo.makeRandom(7);
+		Food.NutritionInfo copy = new Food.NutritionInfo();
+		for (Nutrient nutrient : Nutrient.values()) {
+			nutrient.set(copy, nutrient.get(source));
+		}
+		assertEquals(source, copy);
+	}
+}
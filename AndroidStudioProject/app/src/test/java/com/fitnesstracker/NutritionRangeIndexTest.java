@@ -0,0 +1,116 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.Nutrient;
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.NutritionRangeIndex;
+import com.fitnesstracker.database.entities.Food;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the range totals of {@link NutritionRangeIndex}, checked against totals
+ * computed by brute force.
+ */
+public class NutritionRangeIndexTest {
+
+	/**
+	 * A day in October 2020.
+	 */
+	private static final long DAY = 18550;
+
+	@Test
+	public void index_Empty() {
+		NutritionRangeIndex index = new NutritionRangeIndex();
+
+		assertFalse(index.isLoaded());
+		assertEquals(new NutrientVector(), index.getTotal(0, Long.MAX_VALUE, new NutrientVector()));
+		assertEquals(new NutrientVector(), index.getDay(DAY, new NutrientVector()));
+	}
+
+	@Test
+	public void index_RangeTotals_MatchBruteForce() {
+		Random random = new Random(0);
+		NutritionRangeIndex index = new NutritionRangeIndex();
+		TreeMap<Long, NutrientVector> expected = new TreeMap<>();
+
+		// Start in the middle so that the index has to grow in both directions
+		for (int i = 0; i < 2000; i++) {
+			long day = DAY + random.nextInt(1500) - 750;
+			NutrientVector totals = random.nextInt(10) == 0
+					? new NutrientVector()
+					: new NutrientVector(Food.NutritionInfo.makeRandom(random.nextLong()));
+			index.set(day, totals);
+			expected.put(day, totals);
+		}
+
+		NutrientVector actual = new NutrientVector();
+		for (int i = 0; i < 500; i++) {
+			long from = DAY + random.nextInt(2000) - 1000;
+			long to = from + random.nextInt(400) - 10;
+
+			// Ranges that end before they start are empty
+			NutrientVector sum = new NutrientVector();
+			if (from <= to) {
+				for (NutrientVector totals : expected.subMap(from, true, to, true).values()) {
+					sum.add(totals);
+				}
+			}
+			assertEquals("Days " + from + " to " + to, sum, index.getTotal(from, to, actual));
+		}
+
+		for (long day : expected.keySet()) {
+			assertEquals(expected.get(day), index.getDay(day, actual));
+		}
+	}
+
+	@Test
+	public void index_Set_ReplacesDay() {
+		NutritionRangeIndex index = new NutritionRangeIndex();
+		NutrientVector first = new NutrientVector();
+		first.set(Nutrient.CALORIES, 2000);
+		NutrientVector second = new NutrientVector();
+		second.set(Nutrient.CALORIES, 1500);
+
+		index.set(DAY, first);
+		index.set(DAY + 1, first);
+		index.set(DAY, second);
+
+		NutrientVector total = index.getTotal(DAY - 100, DAY + 100, new NutrientVector());
+		assertEquals(3500, total.get(Nutrient.CALORIES));
+	}
+
+	@Test
+	public void index_Listener() {
+		NutritionRangeIndex index = new NutritionRangeIndex();
+		final List<Long> changed = new ArrayList<>();
+		index.addListener((fromDay, toDay) -> {
+			assertEquals(fromDay, toDay);
+			changed.add(fromDay);
+		});
+
+		NutrientVector totals = new NutrientVector();
+		totals.set(Nutrient.PROTEIN, 50);
+		index.set(DAY, totals);
+		index.set(DAY, totals);
+		index.set(DAY + 3, totals);
+
+		// Setting a day to the totals it already has is not a change
+		assertEquals(2, changed.size());
+		assertEquals(DAY, (long) changed.get(0));
+		assertEquals(DAY + 3, (long) changed.get(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void index_HugeSpan_Rejected() {
+		NutritionRangeIndex index = new NutritionRangeIndex();
+		index.set(DAY, new NutrientVector());
+		index.set(DAY + 10_000_000L, new NutrientVector());
+	}
+}
@@ -0,0 +1,231 @@
+package com.fitnesstracker;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import androidx.paging.PagedList;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+import com.fitnesstracker.ui.adapters.DiaryEntryAdapter;
+import com.fitnesstracker.ui.adapters.DiaryRow;
+import com.fitnesstracker.ui.adapters.DisplayFormats;
+import com.fitnesstracker.ui.adapters.FoodAdapter;
+import com.fitnesstracker.ui.adapters.FoodRow;
+import com.fitnesstracker.ui.adapters.MealRow;
+import com.fitnesstracker.ui.adapters.OnItemClickListener;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that list rows are formatted like they were before {@link DisplayFormats} existed, and
+ * counts the bytes allocated while {@link FoodAdapter} and {@link DiaryEntryAdapter} bind rows.
+ * <p>
+ * Binding is compared with setting the same text on the same text views directly, so that only
+ * what the adapters themselves allocate is counted.
+ * <p>
+ * These tests run on the developer's computer using Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RowBindingTest {
+
+	/**
+	 * The number of rows bound in turn.
+	 */
+	private static final int NUM_ROWS = 100;
+
+	/**
+	 * The number of binds measured per round.
+	 */
+	private static final int NUM_BINDS = 10_000;
+
+	/**
+	 * The number of rounds measured, of which the lowest allocation counts, so that one-off
+	 * allocations by the runtime are ignored.
+	 */
+	private static final int ROUNDS = 5;
+
+	/**
+	 * Midnight on January 1st 2020 UTC.
+	 */
+	private static final long START_TIME = 1577836800000L;
+
+	private static final OnItemClickListener<Food> FOOD_CLICKS = new OnItemClickListener<Food>() {
+		@Override public void onItemClicked(Food item) {}
+		@Override public void onItemLongClicked(Food item) {}
+	};
+
+	private static final OnItemClickListener<Meal> MEAL_CLICKS = new OnItemClickListener<Meal>() {
+		@Override public void onItemClicked(Meal item) {}
+		@Override public void onItemLongClicked(Meal item) {}
+	};
+
+	private Context context;
+	private List<FoodRow> foodRows;
+	private List<DiaryRow> mealRows;
+
+	@Before
+	public void setup() {
+		context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.AppTheme);
+
+		List<Food> foods = new ArrayList<>(NUM_ROWS);
+		mealRows = new ArrayList<>(NUM_ROWS);
+		for (int i = 0; i < NUM_ROWS; i++) {
+			Food food = Food.makeRandom(i);
+			food.setId(i + 1);
+			foods.add(food);
+			Meal meal = new Meal(new FoodDiaryEntry(i + 1, food.getId(), i % 4 + 0.5,
+					START_TIME + i * 60_000L), food);
+			mealRows.add(new MealRow(meal, DisplayFormats.get(Locale.US)));
+		}
+		foodRows = FoodRow.fromFoods(foods, DisplayFormats.get(Locale.US));
+	}
+
+	@Test
+	public void formats_MatchStringFormat() {
+		double[] amounts = {0, 1, 2.5, 0.005, 2.675, 1234567.891, 100.0 / 3};
+		for (Locale locale : new Locale[] {Locale.US, Locale.GERMANY, Locale.FRANCE}) {
+			for (double amount : amounts) {
+				assertEquals(String.format(locale, "%.2f %s %s", amount, "cup", "Milk"),
+						DisplayFormats.get(locale).formatQuantity(amount, "cup", "Milk"));
+				assertEquals(String.format(locale, "%.2f %s", amount, "cup"),
+						DisplayFormats.get(locale).formatQuantity(amount, "cup"));
+			}
+		}
+
+		DateFormat timeFormat = DateFormat.getTimeInstance(DateFormat.SHORT, Locale.US);
+		assertEquals(timeFormat.format(new Date(START_TIME)),
+				DisplayFormats.get(Locale.US).formatTime(START_TIME));
+	}
+
+	@Test
+	public void formats_CachedPerLocale() {
+		assertSame(DisplayFormats.get(Locale.US), DisplayFormats.get(Locale.US));
+		assertNotSame(DisplayFormats.get(Locale.US), DisplayFormats.get(Locale.GERMANY));
+	}
+
+	@Test
+	public void foodAdapter_BindAllocatesNothing() {
+		assumeAllocationCounting();
+
+		FoodAdapter adapter = new FoodAdapter(FOOD_CLICKS);
+		adapter.submitList(foodRows);
+		final FoodAdapter.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+		long bindBytes = minAllocatedBytes(() -> {
+			for (int i = 0; i < NUM_BINDS; i++) {
+				adapter.onBindViewHolder(holder, i % NUM_ROWS, Collections.emptyList());
+			}
+		});
+		long setTextBytes = minAllocatedBytes(() -> {
+			for (int i = 0; i < NUM_BINDS; i++) {
+				FoodRow row = foodRows.get(i % NUM_ROWS);
+				holder.nameTextView.setText(row.getName());
+				holder.servingInfoTextView.setText(row.getServingInfo());
+			}
+		});
+
+		assertBindAllocatesNothing(bindBytes, setTextBytes);
+	}
+
+	@Test
+	public void diaryAdapter_BindAllocatesNothing() {
+		assumeAllocationCounting();
+
+		PagedList.Config config = new PagedList.Config.Builder()
+				.setPageSize(NUM_ROWS)
+				.setInitialLoadSizeHint(NUM_ROWS)
+				.setEnablePlaceholders(false)
+				.build();
+		PagedList<DiaryRow> pagedList = new PagedList.Builder<>(
+				new AdapterBindCountTest.ListDataSource<>(mealRows), config)
+				.setNotifyExecutor(Runnable::run)
+				.setFetchExecutor(Runnable::run)
+				.build();
+
+		DiaryEntryAdapter adapter = new DiaryEntryAdapter(MEAL_CLICKS);
+		adapter.submitList(pagedList);
+		final DiaryEntryAdapter.ViewHolder holder = (DiaryEntryAdapter.ViewHolder)
+				adapter.onCreateViewHolder(new FrameLayout(context), DiaryRow.TYPE_MEAL);
+
+		long bindBytes = minAllocatedBytes(() -> {
+			for (int i = 0; i < NUM_BINDS; i++) {
+				adapter.onBindViewHolder(holder, i % NUM_ROWS, Collections.emptyList());
+			}
+		});
+		long setTextBytes = minAllocatedBytes(() -> {
+			for (int i = 0; i < NUM_BINDS; i++) {
+				MealRow row = (MealRow) mealRows.get(i % NUM_ROWS);
+				holder.foodInfoText.setText(row.getFoodInfo());
+				holder.timeInfoText.setText(row.getTime());
+			}
+		});
+
+		assertBindAllocatesNothing(bindBytes, setTextBytes);
+	}
+
+	/**
+	 * Skip the test if this JVM cannot count the bytes allocated by a thread.
+	 */
+	private static void assumeAllocationCounting() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+	}
+
+	/**
+	 * Run a task {@link RowBindingTest#ROUNDS} times, after running it once to warm up.
+	 *
+	 * @param task the task to measure
+	 *
+	 * @return the fewest bytes allocated by the current thread in one run of the task
+	 */
+	private static long minAllocatedBytes(Runnable task) {
+		com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		task.run();
+		long min = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = bean.getThreadAllocatedBytes(threadId);
+			task.run();
+			min = Math.min(min, bean.getThreadAllocatedBytes(threadId) - before);
+		}
+		return min;
+	}
+
+	/**
+	 * Fail if binding allocated more than setting the same text directly, allowing less than one
+	 * byte per bind, which is smaller than any object.
+	 *
+	 * @param bindBytes    the bytes allocated while binding
+	 * @param setTextBytes the bytes allocated while setting the same text directly
+	 */
+	private static void assertBindAllocatesNothing(long bindBytes, long setTextBytes) {
+		System.out.printf(Locale.US, "%,d binds allocated %,d bytes, setting text allocated %,d bytes%n",
+				NUM_BINDS, bindBytes, setTextBytes);
+		assertTrue("Binding allocated " + (bindBytes - setTextBytes) + " extra bytes in "
+				+ NUM_BINDS + " binds", bindBytes - setTextBytes < NUM_BINDS);
+	}
+}
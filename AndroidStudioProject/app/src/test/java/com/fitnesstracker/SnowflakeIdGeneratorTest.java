@@ -0,0 +1,124 @@
+package com.fitnesstracker;
+
+import com.fitnesstracker.database.SnowflakeIdGenerator;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the layout and ordering of IDs generated by {@link SnowflakeIdGenerator}.
+ */
+public class SnowflakeIdGeneratorTest {
+
+	/**
+	 * September 13th 2020, 12:26:40 UTC.
+	 */
+	private static final long TEST_TIME = 1600000000000L;
+
+	/**
+	 * A clock that only moves when told to.
+	 */
+	private static class TestClock extends Clock {
+		long millis;
+
+		TestClock(long millis) {
+			this.millis = millis;
+		}
+
+		@Override public long millis() {
+			return millis;
+		}
+
+		@Override public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+
+	@Test
+	public void id_Layout() {
+		SnowflakeIdGenerator generator = new SnowflakeIdGenerator(513, new TestClock(TEST_TIME));
+		long id = generator.nextId();
+
+		assertTrue(id > 0);
+		assertEquals(TEST_TIME, SnowflakeIdGenerator.getTime(id));
+		assertEquals(513, SnowflakeIdGenerator.getNodeId(id));
+	}
+
+	@Test
+	public void id_Monotonic_SameMillisecond() {
+		// Generate more IDs than fit in one millisecond without the clock moving
+		SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, new TestClock(TEST_TIME));
+		long last = generator.nextId();
+		for (int i = 0; i < 10_000; i++) {
+			long id = generator.nextId();
+			assertTrue(id > last);
+			assertEquals(1, SnowflakeIdGenerator.getNodeId(id));
+			last = id;
+		}
+	}
+
+	@Test
+	public void id_Monotonic_ClockBackwards() {
+		TestClock clock = new TestClock(TEST_TIME);
+		SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock);
+
+		long before = generator.nextId();
+		clock.millis -= 60_000;
+		long after = generator.nextId();
+		assertTrue(after > before);
+
+		// Assert that the generator resumes using the clock once it catches up
+		clock.millis += 120_000;
+		assertEquals(TEST_TIME + 60_000, SnowflakeIdGenerator.getTime(generator.nextId()));
+	}
+
+	@Test
+	public void id_Monotonic_AcrossRestart_ClockBackwards() {
+		TestClock clock = new TestClock(TEST_TIME);
+		long[] reserved = {-1};
+		SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock, reserved[0],
+				timestamp -> reserved[0] = timestamp);
+
+		long last = 0;
+		for (int i = 0; i < 10_000; i++) {
+			last = generator.nextId();
+		}
+		assertTrue(reserved[0] >= SnowflakeIdGenerator.getTime(last)
+				- SnowflakeIdGenerator.EPOCH_MILLIS);
+
+		// A new generator that starts from the stored reservation after the clock went back
+		clock.millis -= 60 * 60_000;
+		SnowflakeIdGenerator restarted = new SnowflakeIdGenerator(1, clock, reserved[0], null);
+		assertTrue(restarted.nextId() > last);
+	}
+
+	@Test
+	public void id_Ordered_ByTime() {
+		TestClock clock = new TestClock(TEST_TIME);
+		SnowflakeIdGenerator a = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID, clock);
+		SnowflakeIdGenerator b = new SnowflakeIdGenerator(0, clock);
+
+		long first = a.nextId();
+		clock.millis++;
+		assertTrue(b.nextId() > first);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void id_NodeOutOfRange() {
+		new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1);
+	}
+}
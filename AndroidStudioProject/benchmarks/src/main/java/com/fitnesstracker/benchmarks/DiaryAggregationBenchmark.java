@@ -0,0 +1,131 @@
+package com.fitnesstracker.benchmarks;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.entities.Food;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of totalling and diffing diary histories of different lengths in memory, the way a
+ * list of meals is summarized and compared when it changes.
+ *
+ * @author Mitchell Ford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiaryAggregationBenchmark {
+
+	/**
+	 * The number of days in the history.
+	 */
+	@Param({"7", "90", "365"})
+	public int days;
+
+	/**
+	 * The number of meals on each day.
+	 */
+	@Param({"10"})
+	public int mealsPerDay;
+
+	private List<Meal> history;
+	private NutrientVector total;
+	private Map<Long, NutrientVector> totalsByDay;
+
+	@Setup
+	public void setup() {
+		history = SyntheticData.history(SyntheticData.foods(200, 0), days, mealsPerDay, 1);
+		total = new NutrientVector();
+		totalsByDay = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Total the whole history, scaling each food's nutrition facts by its number of servings.
+	 */
+	@Benchmark
+	public Food.NutritionInfo total() {
+		Food.NutritionInfo total = new Food.NutritionInfo();
+		for (Meal meal : history) {
+			total.add(meal.getFood().getNutritionInfo()
+					.times(meal.getFoodDiaryEntry().getNumServings()));
+		}
+		return total;
+	}
+
+	/**
+	 * Total each day of the history separately.
+	 */
+	@Benchmark
+	public Map<Long, Food.NutritionInfo> totalByDay() {
+		Map<Long, Food.NutritionInfo> totals = new LinkedHashMap<>();
+		for (Meal meal : history) {
+			long day = meal.getFoodDiaryEntry().getTime() / SyntheticData.ONE_DAY;
+			Food.NutritionInfo total = totals.get(day);
+			if (total == null) {
+				total = new Food.NutritionInfo();
+				totals.put(day, total);
+			}
+			total.add(meal.getFood().getNutritionInfo()
+					.times(meal.getFoodDiaryEntry().getNumServings()));
+		}
+		return totals;
+	}
+
+	/**
+	 * Total the whole history into a reused {@link NutrientVector}.
+	 */
+	@Benchmark
+	public NutrientVector total_Vector() {
+		return total.clear().addAll(history);
+	}
+
+	/**
+	 * Total each day of the history separately into {@link NutrientVector}s that are reused from
+	 * one invocation to the next, as a screen that refreshes its totals would.
+	 */
+	@Benchmark
+	public Map<Long, NutrientVector> totalByDay_Vector() {
+		for (NutrientVector dayTotal : totalsByDay.values()) {
+			dayTotal.clear();
+		}
+		for (Meal meal : history) {
+			long day = meal.getFoodDiaryEntry().getTime() / SyntheticData.ONE_DAY;
+			NutrientVector dayTotal = totalsByDay.get(day);
+			if (dayTotal == null) {
+				dayTotal = new NutrientVector();
+				totalsByDay.put(day, dayTotal);
+			}
+			dayTotal.add(meal);
+		}
+		return totalsByDay;
+	}
+
+	/**
+	 * Hash every meal in the history, as a set or a diff of the list does.
+	 */
+	@Benchmark
+	public Set<Meal> hashAll() {
+		return new HashSet<>(history);
+	}
+}
@@ -0,0 +1,97 @@
+package com.fitnesstracker.benchmarks;
+
+import com.fitnesstracker.database.IdGenerators;
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the entity methods that run on every list update: equality, hashing, and
+ * construction, including ID generation.
+ *
+ * @author Mitchell Ford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityBenchmark {
+
+	private Food food;
+	private Food foodCopy;
+	private Food otherFood;
+	private Meal meal;
+	private List<Food> foods;
+
+	@Setup
+	public void setup() {
+		foods = SyntheticData.foods(2, 0);
+		food = foods.get(0);
+		otherFood = foods.get(1);
+		foodCopy = new Food(food.getName(), food.getServingUnit(), food.getServingSize(),
+				new Food.NutritionInfo(food.getNutritionInfo()));
+		foodCopy.setId(food.getId());
+		meal = SyntheticData.history(foods, 1, 1, 0).get(0);
+	}
+
+	@Benchmark
+	public boolean foodEquals_Equal() {
+		return food.equals(foodCopy);
+	}
+
+	@Benchmark
+	public boolean foodEquals_Unequal() {
+		return food.equals(otherFood);
+	}
+
+	@Benchmark
+	public int mealHashCode() {
+		return meal.hashCode();
+	}
+
+	@Benchmark
+	public Food newFood() {
+		return new Food("apple", "grams", 100d);
+	}
+
+	@Benchmark
+	public FoodDiaryEntry newFoodDiaryEntry() {
+		return new FoodDiaryEntry(food, 1, 0);
+	}
+
+	@Benchmark
+	public FoodDiaryEntry makeRandomFoodDiaryEntry() {
+		return FoodDiaryEntry.makeRandom(foods);
+	}
+
+	@Benchmark
+	public long id_Generator() {
+		return IdGenerators.nextId();
+	}
+
+	/**
+	 * The way IDs used to be assigned, with a new generator seeded for every ID, for comparison
+	 * with {@link EntityBenchmark#id_Generator()}.
+	 */
+	@Benchmark
+	public long id_RandomPerId() {
+		return new Random().nextLong();
+	}
+}
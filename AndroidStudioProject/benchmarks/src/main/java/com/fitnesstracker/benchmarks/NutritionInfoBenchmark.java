@@ -0,0 +1,124 @@
+package com.fitnesstracker.benchmarks;
+
+import com.fitnesstracker.database.NutrientVector;
+import com.fitnesstracker.database.entities.Food;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the arithmetic on {@link Food.NutritionInfo} that totals are built from, compared
+ * with the equivalent operations on a {@link NutrientVector}.
+ *
+ * @author Mitchell Ford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NutritionInfoBenchmark {
+
+	/**
+	 * The number of objects summed by {@link NutritionInfoBenchmark#sum()}, which is about a day of
+	 * diary entries.
+	 */
+	private static final int SUM_SIZE = 10;
+
+	private Food.NutritionInfo a;
+	private Food.NutritionInfo b;
+	private Food.NutritionInfo bCopy;
+	private Food.NutritionInfo[] items;
+	private Food.NutritionInfo accumulator;
+	private NutrientVector vector;
+
+	@Setup
+	public void setup() {
+		a = Food.NutritionInfo.makeRandom(1);
+		b = Food.NutritionInfo.makeRandom(2);
+		bCopy = new Food.NutritionInfo(b);
+		items = new Food.NutritionInfo[SUM_SIZE];
+		for (int i = 0; i < SUM_SIZE; i++) {
+			items[i] = Food.NutritionInfo.makeRandom(i);
+		}
+		accumulator = new Food.NutritionInfo();
+		vector = new NutrientVector();
+	}
+
+	@Benchmark
+	public Food.NutritionInfo add() {
+		accumulator.add(a);
+		return accumulator;
+	}
+
+	@Benchmark
+	public Food.NutritionInfo mul() {
+		// Multiplying by one keeps the accumulator from overflowing across invocations
+		accumulator.mul(1.0);
+		return accumulator;
+	}
+
+	@Benchmark
+	public Food.NutritionInfo plus() {
+		return a.plus(b);
+	}
+
+	@Benchmark
+	public Food.NutritionInfo times() {
+		return a.times(1.5);
+	}
+
+	@Benchmark
+	public Food.NutritionInfo sum() {
+		return Food.NutritionInfo.sum(items);
+	}
+
+	/**
+	 * Accumulate a serving and a half the way totals were built before {@link NutrientVector}.
+	 */
+	@Benchmark
+	public Food.NutritionInfo addTimes() {
+		accumulator.add(a.times(1.5));
+		return accumulator;
+	}
+
+	@Benchmark
+	public NutrientVector vector_Add() {
+		return vector.add(a);
+	}
+
+	@Benchmark
+	public NutrientVector vector_AddScaled() {
+		return vector.addScaled(a, 1.5);
+	}
+
+	@Benchmark
+	public NutrientVector vector_Sum() {
+		vector.clear();
+		for (Food.NutritionInfo item : items) {
+			vector.add(item);
+		}
+		return vector;
+	}
+
+	@Benchmark
+	public boolean equals_Equal() {
+		return b.equals(bCopy);
+	}
+
+	@Benchmark
+	public boolean equals_Unequal() {
+		return a.equals(b);
+	}
+}
@@ -0,0 +1,69 @@
+package com.fitnesstracker.benchmarks;
+
+import com.fitnesstracker.database.Meal;
+import com.fitnesstracker.database.entities.Food;
+import com.fitnesstracker.database.entities.FoodDiaryEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generators of foods and diary histories, so that every benchmark run measures the same
+ * data.
+ *
+ * @author Mitchell Ford
+ */
+final class SyntheticData {
+
+	/**
+	 * The number of milliseconds in a day.
+	 */
+	static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+	private SyntheticData() {
+	}
+
+	/**
+	 * Create foods with random nutrition facts.
+	 *
+	 * @param count the number of foods
+	 * @param seed  the seed for the random number generator
+	 *
+	 * @return the foods
+	 */
+	static List<Food> foods(int count, long seed) {
+		Random random = new Random(seed);
+		List<Food> foods = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			foods.add(new Food("food" + i, "grams", 1d + random.nextInt(500),
+					Food.NutritionInfo.makeRandom(random.nextLong())));
+		}
+		return foods;
+	}
+
+	/**
+	 * Create a diary history with the same number of meals on each day, in chronological order.
+	 *
+	 * @param foods       the foods that were eaten
+	 * @param days        the number of days in the history
+	 * @param mealsPerDay the number of meals on each day
+	 * @param seed        the seed for the random number generator
+	 *
+	 * @return the meals
+	 */
+	static List<Meal> history(List<Food> foods, int days, int mealsPerDay, long seed) {
+		Random random = new Random(seed);
+		List<Meal> meals = new ArrayList<>(days * mealsPerDay);
+		for (int day = 0; day < days; day++) {
+			for (int i = 0; i < mealsPerDay; i++) {
+				Food food = foods.get(random.nextInt(foods.size()));
+				long time = day * ONE_DAY + (8 + i) * 60 * 60 * 1000L;
+				FoodDiaryEntry entry = new FoodDiaryEntry(random.nextLong(), food.getId(),
+						0.5 + random.nextInt(6) * 0.5, time);
+				meals.add(new Meal(entry, food));
+			}
+		}
+		return meals;
+	}
+}